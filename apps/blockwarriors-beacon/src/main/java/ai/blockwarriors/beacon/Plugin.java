@@ -2,6 +2,8 @@ package ai.blockwarriors.beacon;
 
 import java.util.logging.Logger;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
@@ -10,12 +12,23 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import ai.blockwarriors.commands.LoginCommand;
+import ai.blockwarriors.commands.ReplayCommand;
+import ai.blockwarriors.commands.debug.BeaconStatusCommand;
 import ai.blockwarriors.commands.debug.CreateMatchCommand;
 import ai.blockwarriors.commands.debug.ListLoggedInCommand;
 import ai.blockwarriors.events.PlayerEventListener;
+import ai.blockwarriors.beacon.service.ArenaTemplate;
+import ai.blockwarriors.beacon.service.ArenaWorldPool;
+import ai.blockwarriors.beacon.service.CircuitBreaker;
+import ai.blockwarriors.beacon.service.ConvexClient;
+import ai.blockwarriors.beacon.service.ConvexOutbox;
+import ai.blockwarriors.beacon.service.LocalTokenIndex;
 import ai.blockwarriors.beacon.service.MatchPollingService;
 import ai.blockwarriors.beacon.service.MatchTelemetryService;
 import ai.blockwarriors.beacon.service.MatchManager;
+import ai.blockwarriors.beacon.service.ReplayRecorder;
+import ai.blockwarriors.beacon.service.TokenValidator;
+import ai.blockwarriors.beacon.service.WorldDeleter;
 
 /*
  * beacon java plugin
@@ -25,14 +38,25 @@ public class Plugin extends JavaPlugin {
     private LoginCommand loginCommand;
     private Set<UUID> loggedInPlayers = new HashSet<>();
     private Set<UUID> bypassedPlayers = new HashSet<>(); // Operators who bypass login
+    private ConvexClient convexClient;
+    private ConvexOutbox outbox;
     private MatchPollingService matchPollingService;
     private MatchTelemetryService matchTelemetryService;
     private MatchManager matchManager;
+    private TokenValidator tokenValidator;
+    private ReplayRecorder replayRecorder;
+    private ReplayCommand replayCommand;
+    private ArenaWorldPool worldPool;
+    private WorldDeleter worldDeleter;
 
     public Set<UUID> getBypassedPlayers() {
         return bypassedPlayers;
     }
 
+    public ConvexClient getConvexClient() {
+        return convexClient;
+    }
+
     public MatchTelemetryService getMatchTelemetryService() {
         return matchTelemetryService;
     }
@@ -60,23 +84,85 @@ public class Plugin extends JavaPlugin {
             LOGGER.warning("CONVEX_HTTP_SECRET is not configured! Please set it in config.yml or as an environment variable.");
         }
 
+        // Shared HTTP client used by every service that talks to Convex
+        long connectTimeoutMs = getConfig().getLong("convex-connect-timeout-ms", 5000);
+        long requestTimeoutMs = getConfig().getLong("convex-request-timeout-ms", 10000);
+        convexClient = new ConvexClient(convexUrl, convexHttpSecret,
+                Duration.ofMillis(connectTimeoutMs), Duration.ofMillis(requestTimeoutMs));
+
+        // Durable outbox for writes that must reach Convex (replays anything left from the last run)
+        CircuitBreaker circuitBreaker = new CircuitBreaker(getConfig().getInt("outbox.failure-threshold", 5),
+                getConfig().getLong("outbox.open-seconds", 30) * 1000L);
+        outbox = new ConvexOutbox(convexClient, circuitBreaker, getDataFolder().toPath());
+        outbox.start();
+
+        // Match worlds are unloaded a few per tick and deleted on their own I/O thread
+        worldDeleter = new WorldDeleter(this, getServer().getWorldContainer().toPath().resolve(".beacon-trash"),
+                getConfig().getInt("world-io.max-unloads-per-tick", 1),
+                getConfig().getInt("world-io.delete-attempts", 5),
+                getConfig().getLong("world-io.retry-delay-ms", 1000));
+        worldDeleter.start();
+
+        // Arena worlds are created ahead of time and reused, so a match start is just a teleport
+        // They are cloned from a prebuilt map in the arenas folder if one is configured, otherwise generated flat
+        ArenaTemplate arenaTemplate = ArenaTemplate.flat();
+        String templateName = getConfig().getString("world-pool.arena-template", "");
+        if (!templateName.isEmpty()) {
+            try {
+                arenaTemplate = ArenaTemplate.load(getDataFolder().toPath().resolve("arenas").resolve(templateName));
+            } catch (IOException e) {
+                LOGGER.severe("Could not load arena template " + templateName + ", generating flat arenas: "
+                        + e.getMessage());
+            }
+        }
+        worldPool = new ArenaWorldPool(this, worldDeleter, arenaTemplate, getConfig().getInt("world-pool.size", 3),
+                getConfig().getLong("world-pool.refill-interval-ticks", 40),
+                getConfig().getLong("world-pool.quiet-ticks", 20),
+                getConfig().getInt("world-pool.max-tracked-changes", 50000));
+        worldPool.start();
+
         // Initialize match manager
-        matchManager = new MatchManager(this, convexUrl, convexHttpSecret);
+        matchManager = new MatchManager(this, outbox, worldPool);
+
+        // Local replay files of every match (fed by the telemetry sampler and combat events)
+        if (getConfig().getBoolean("replay.enabled", true)) {
+            replayRecorder = new ReplayRecorder(getDataFolder().toPath().resolve("replays"),
+                    getConfig().getLong("replay.segment-seconds", 5) * 1000L,
+                    getConfig().getInt("replay.max-replays", 50),
+                    getConfig().getLong("replay.max-age-days", 14) * 24L * 60L * 60L * 1000L);
+            replayRecorder.start();
+        }
 
         // Initialize match telemetry service
-        matchTelemetryService = new MatchTelemetryService(this, convexUrl, convexHttpSecret);
+        matchTelemetryService = new MatchTelemetryService(this, convexClient, outbox, replayRecorder);
 
         // Link telemetry service to match manager
         matchManager.setTelemetryService(matchTelemetryService);
+        matchManager.addLifecycleListener(matchTelemetryService);
+        if (replayRecorder != null) {
+            matchManager.addLifecycleListener(replayRecorder);
+        }
 
-        // Initialize login command with Convex URL and secret
-        loginCommand = new LoginCommand(loggedInPlayers, convexUrl, convexHttpSecret);
+        // Initialize login command; token checks are coalesced and rate limited by the validator
+        // Tokens of Waiting matches are indexed by the polling service so /login can accept them locally
+        LocalTokenIndex tokenIndex = new LocalTokenIndex();
+        tokenValidator = new TokenValidator(this, convexClient, tokenIndex);
+        loginCommand = new LoginCommand(loggedInPlayers, tokenValidator);
 
         // Register command executors
         registerCommand("login", loginCommand);
-        registerCommand("creatematch", new CreateMatchCommand());
+        registerCommand("creatematch", new CreateMatchCommand(matchManager));
         registerCommand("listloggedin", new ListLoggedInCommand(loggedInPlayers));
         registerCommand("bypass", new ai.blockwarriors.commands.BypassCommand(bypassedPlayers));
+        if (replayRecorder != null) {
+            replayCommand = new ReplayCommand(this, replayRecorder);
+            registerCommand("replay", replayCommand);
+        } else {
+            registerCommand("replay", (sender, command, label, args) -> {
+                sender.sendMessage("§cReplays are disabled on this server.");
+                return true;
+            });
+        }
 
         // Register event listeners
         getServer().getPluginManager()
@@ -84,12 +170,17 @@ public class Plugin extends JavaPlugin {
         getServer().getPluginManager().registerEvents(new ai.blockwarriors.events.MatchEventListener(matchManager),
                 this);
         getServer().getPluginManager().registerEvents(new ai.blockwarriors.events.WorldEventListener(), this);
+        getServer().getPluginManager().registerEvents(new ai.blockwarriors.events.ArenaChangeListener(worldPool), this);
+        getServer().getPluginManager()
+                .registerEvents(new ai.blockwarriors.events.CombatEventListener(matchTelemetryService), this);
 
         // Initialize and start match polling service
-        matchPollingService = new MatchPollingService(this, convexUrl, convexHttpSecret);
+        matchPollingService = new MatchPollingService(this, convexClient, outbox, tokenIndex);
         matchPollingService.setMatchManager(matchManager);
         matchPollingService.start();
         LOGGER.info("MatchPollingService started with Convex URL: " + convexUrl);
+        registerCommand("beaconstatus", new BeaconStatusCommand(matchPollingService, matchTelemetryService, outbox,
+                tokenValidator, worldPool, worldDeleter));
 
         // Start match telemetry service (already initialized above)
         matchTelemetryService.start();
@@ -120,6 +211,38 @@ public class Plugin extends JavaPlugin {
             matchTelemetryService.stop();
         }
 
+        if (tokenValidator != null) {
+            tokenValidator.shutdown();
+        }
+
+        // Deletes the arena worlds that were waiting for a match
+        if (worldPool != null) {
+            worldPool.stop();
+        }
+        if (worldDeleter != null) {
+            worldDeleter.stop(getConfig().getLong("world-io.shutdown-wait-ms", 5000));
+        }
+
+        // Removes the markers of replays being watched
+        if (replayCommand != null) {
+            replayCommand.stopAll();
+        }
+
+        // Writes the last segments and closes the replay files
+        if (replayRecorder != null) {
+            replayRecorder.stop();
+        }
+
+        // Last chance to deliver queued writes; the rest is replayed on the next start
+        if (outbox != null) {
+            outbox.stop(getConfig().getLong("outbox.shutdown-drain-ms", 5000));
+        }
+
+        // Every service is done with Convex by now
+        if (convexClient != null) {
+            convexClient.close();
+        }
+
         LOGGER.info("beacon plugin disabled");
     }
 }
@@ -0,0 +1,71 @@
+package ai.blockwarriors.beacon.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Interval (in ticks) of a repeating task that adapts to what the last run found:
+ * - ACTIVE (work is pending): run again after the minimum interval
+ * - IDLE (nothing to do): double the interval, up to the idle maximum
+ * - ERROR (Convex failed): double the interval, up to the backoff maximum, with jitter so
+ *   servers that failed together don't retry in lockstep
+ */
+public class AdaptiveInterval {
+    public enum Outcome {
+        ACTIVE, IDLE, ERROR
+    }
+
+    private final long minTicks;
+    private final long idleMaxTicks;
+    private final long backoffMaxTicks;
+    private long currentTicks;
+    private int consecutiveErrors = 0;
+
+    public AdaptiveInterval(long minTicks, long idleMaxTicks, long backoffMaxTicks) {
+        this.minTicks = Math.max(1L, minTicks);
+        this.idleMaxTicks = Math.max(this.minTicks, idleMaxTicks);
+        this.backoffMaxTicks = Math.max(this.idleMaxTicks, backoffMaxTicks);
+        this.currentTicks = this.minTicks;
+    }
+
+    /**
+     * Record the outcome of a run and return the delay (in ticks) until the next one
+     */
+    public synchronized long next(Outcome outcome) {
+        switch (outcome) {
+            case ACTIVE:
+                consecutiveErrors = 0;
+                currentTicks = minTicks;
+                return currentTicks;
+            case IDLE:
+                consecutiveErrors = 0;
+                currentTicks = Math.min(currentTicks * 2, idleMaxTicks);
+                return currentTicks;
+            default:
+                consecutiveErrors++;
+                currentTicks = Math.min(currentTicks * 2, backoffMaxTicks);
+                // Equal jitter: somewhere between half and the full backoff
+                long half = currentTicks / 2;
+                return half + ThreadLocalRandom.current().nextLong(currentTicks - half + 1);
+        }
+    }
+
+    /**
+     * Drop back to the minimum interval (new work arrived)
+     */
+    public synchronized void reset() {
+        consecutiveErrors = 0;
+        currentTicks = minTicks;
+    }
+
+    public synchronized long getCurrentTicks() {
+        return currentTicks;
+    }
+
+    public synchronized int getConsecutiveErrors() {
+        return consecutiveErrors;
+    }
+
+    public long getMinTicks() {
+        return minTicks;
+    }
+}
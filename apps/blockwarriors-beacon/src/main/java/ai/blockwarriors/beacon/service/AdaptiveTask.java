@@ -0,0 +1,97 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Async Bukkit task that reschedules itself after every run, using the delay the
+ * AdaptiveInterval picks for the run's outcome (instead of a fixed runTaskTimer period)
+ */
+public class AdaptiveTask {
+    private static final Logger LOGGER = Logger.getLogger("beacon");
+
+    private final JavaPlugin plugin;
+    private final String name;
+    private final AdaptiveInterval interval;
+    private final Supplier<AdaptiveInterval.Outcome> body;
+    private BukkitTask pending;
+    private boolean running = false;
+    private boolean executing = false;
+
+    public AdaptiveTask(JavaPlugin plugin, String name, AdaptiveInterval interval, Supplier<AdaptiveInterval.Outcome> body) {
+        this.plugin = plugin;
+        this.name = name;
+        this.interval = interval;
+        this.body = body;
+    }
+
+    public synchronized void start(long initialDelayTicks) {
+        if (running) {
+            return;
+        }
+        running = true;
+        schedule(initialDelayTicks);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (pending != null) {
+            pending.cancel();
+            pending = null;
+        }
+    }
+
+    /**
+     * New work arrived - go back to the minimum interval and run soon instead of after a long idle delay
+     */
+    public synchronized void wakeUp() {
+        interval.reset();
+        if (running && !executing && pending != null) {
+            pending.cancel();
+            schedule(interval.getMinTicks());
+        }
+    }
+
+    public AdaptiveInterval getInterval() {
+        return interval;
+    }
+
+    private void schedule(long delayTicks) {
+        pending = Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, this::runOnce, delayTicks);
+    }
+
+    private void runOnce() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            executing = true;
+        }
+
+        AdaptiveInterval.Outcome outcome;
+        try {
+            outcome = body.get();
+        } catch (Exception e) {
+            LOGGER.severe("Error in " + name + ": " + e.getMessage());
+            e.printStackTrace();
+            outcome = AdaptiveInterval.Outcome.ERROR;
+        }
+
+        long delay = interval.next(outcome);
+        if (outcome == AdaptiveInterval.Outcome.ERROR) {
+            LOGGER.warning(name + " failed " + interval.getConsecutiveErrors() + " time(s) in a row, next run in "
+                    + delay + " ticks");
+        }
+
+        synchronized (this) {
+            executing = false;
+            if (running) {
+                schedule(delay);
+            }
+        }
+    }
+}
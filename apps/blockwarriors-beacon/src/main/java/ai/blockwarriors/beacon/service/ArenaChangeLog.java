@@ -0,0 +1,81 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Original block data of every position changed in a leased arena world, so ArenaWorldPool can
+ * put the arena back as it was instead of generating a new world. Only the first change of a
+ * position is kept (that is the original). Past maxChanges nothing more is recorded and the world
+ * is discarded on return. Main thread only.
+ */
+class ArenaChangeLog {
+    private final int maxChanges;
+    private final Map<Long, BlockData> originals = new HashMap<>();
+    private boolean overflowed = false;
+
+    ArenaChangeLog(int maxChanges) {
+        this.maxChanges = maxChanges;
+    }
+
+    /**
+     * Remember the data a position had before its first change in this match
+     */
+    void record(int x, int y, int z, BlockData original) {
+        if (overflowed) {
+            return;
+        }
+        long key = pack(x, y, z);
+        if (originals.containsKey(key)) {
+            return;
+        }
+        if (originals.size() >= maxChanges) {
+            overflowed = true;
+            originals.clear();
+            return;
+        }
+        originals.put(key, original);
+    }
+
+    /**
+     * Too many changes to restore; the world has to be regenerated
+     */
+    boolean isOverflowed() {
+        return overflowed;
+    }
+
+    int size() {
+        return originals.size();
+    }
+
+    /**
+     * Write every original back without physics (no drops, no liquid updates)
+     */
+    void restore(World world) {
+        for (Map.Entry<Long, BlockData> change : originals.entrySet()) {
+            long key = change.getKey();
+            world.getBlockAt(unpackX(key), unpackY(key), unpackZ(key)).setBlockData(change.getValue(), false);
+        }
+        originals.clear();
+    }
+
+    // 26 bits x, 26 bits z, 12 bits y, like Minecraft's block positions
+    static long pack(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | (long) y & 0xFFFL;
+    }
+
+    static int unpackX(long key) {
+        return (int) (key >> 38);
+    }
+
+    static int unpackY(long key) {
+        return (int) (key << 52 >> 52);
+    }
+
+    static int unpackZ(long key) {
+        return (int) (key << 26 >> 38);
+    }
+}
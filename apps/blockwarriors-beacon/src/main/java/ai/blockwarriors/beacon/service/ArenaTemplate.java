@@ -0,0 +1,145 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A prebuilt arena map: a saved world folder in the plugin's arenas folder plus an arena.json
+ * manifest with the spawn points of each team:
+ *   {"spawns": {"blue": [{"x": 0.5, "y": 65, "z": 20.5, "yaw": 180}], "red": [...]}}
+ * ArenaWorldPool clones the folder into a new match world and loads it instead of generating one.
+ * The template without a folder (flat()) stands for the generated flat world and its fixed spawns.
+ */
+public class ArenaTemplate {
+    static final String MANIFEST = "arena.json";
+    // Not copied: the server refuses a second world with the same uid.dat, and the lock belongs to a running server
+    private static final Set<String> SKIPPED_FILES = Set.of(MANIFEST, "uid.dat", "session.lock");
+
+    public record Spawn(double x, double y, double z, float yaw, float pitch) {
+        public Location toLocation(World world) {
+            return new Location(world, x, y, z, yaw, pitch);
+        }
+    }
+
+    private final String name;
+    private final Path directory; // null for the flat world
+    private final Map<String, List<Spawn>> spawns;
+
+    private ArenaTemplate(String name, Path directory, Map<String, List<Spawn>> spawns) {
+        this.name = name;
+        this.directory = directory;
+        this.spawns = spawns;
+    }
+
+    /**
+     * The generated flat world: players five blocks east (blue) and west (red) of spawn, on the ground
+     */
+    public static ArenaTemplate flat() {
+        Map<String, List<Spawn>> spawns = new HashMap<>();
+        spawns.put("blue", List.of(new Spawn(5, -61, 0, 0.0f, 0.0f)));
+        spawns.put("red", List.of(new Spawn(-5, -61, 0, 0.0f, 0.0f)));
+        return new ArenaTemplate("flat", null, spawns);
+    }
+
+    /**
+     * Read the template in a folder, failing if its manifest is missing or invalid
+     */
+    public static ArenaTemplate load(Path directory) throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        if (!Files.isRegularFile(manifest)) {
+            throw new IOException("No " + MANIFEST + " in arena template " + directory);
+        }
+        if (!Files.isRegularFile(directory.resolve("level.dat"))) {
+            throw new IOException("Arena template " + directory + " is not a saved world (no level.dat)");
+        }
+        try {
+            JSONObject json = new JSONObject(new String(Files.readAllBytes(manifest), StandardCharsets.UTF_8));
+            JSONObject teams = json.getJSONObject("spawns");
+            Map<String, List<Spawn>> spawns = new HashMap<>();
+            for (String team : teams.keySet()) {
+                JSONArray points = teams.getJSONArray(team);
+                List<Spawn> teamSpawns = new ArrayList<>(points.length());
+                for (int i = 0; i < points.length(); i++) {
+                    JSONObject point = points.getJSONObject(i);
+                    teamSpawns.add(new Spawn(point.getDouble("x"), point.getDouble("y"), point.getDouble("z"),
+                            (float) point.optDouble("yaw", 0.0), (float) point.optDouble("pitch", 0.0)));
+                }
+                spawns.put(team, Collections.unmodifiableList(teamSpawns));
+            }
+            return new ArenaTemplate(directory.getFileName().toString(), directory, spawns);
+        } catch (JSONException e) {
+            throw new IOException("Invalid " + MANIFEST + " in arena template " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether match worlds are cloned from a folder (false: generated flat)
+     */
+    public boolean isCloned() {
+        return directory != null;
+    }
+
+    public List<Spawn> getSpawns(String team) {
+        return spawns.getOrDefault(team, Collections.emptyList());
+    }
+
+    /**
+     * Spawn point of the index-th player of a team (wrapping around if the team has fewer points),
+     * or the world spawn if the manifest has none for the team
+     */
+    public Location spawn(World world, String team, int index) {
+        List<Spawn> teamSpawns = getSpawns(team);
+        if (teamSpawns.isEmpty()) {
+            return world.getSpawnLocation();
+        }
+        return teamSpawns.get(index % teamSpawns.size()).toLocation(world);
+    }
+
+    /**
+     * Copy the template's world folder to target (which must not exist yet). Region files are
+     * copied, not linked: the server rewrites them in place, so a link would change the template.
+     */
+    public void cloneInto(Path target) throws IOException {
+        if (directory == null) {
+            throw new IllegalStateException("The flat template has no folder to clone");
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                Files.createDirectories(target.resolve(directory.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Path relative = directory.relativize(file);
+                if (relative.getNameCount() == 1 && SKIPPED_FILES.contains(relative.toString())) {
+                    return FileVisitResult.CONTINUE;
+                }
+                Files.copy(file, target.resolve(relative));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
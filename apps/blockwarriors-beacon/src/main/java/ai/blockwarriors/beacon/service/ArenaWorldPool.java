@@ -0,0 +1,395 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Difficulty;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.WorldType;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.entity.AreaEffectCloud;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.ExperienceOrb;
+import org.bukkit.entity.FallingBlock;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Mob;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Projectile;
+import org.bukkit.entity.TNTPrimed;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+/**
+ * Pool of pre-created arena worlds, so starting a match is a teleport instead of a world creation
+ * on the main thread.
+ * MatchManager leases a world per match and returns it when the match has ended. While a world is
+ * leased, ArenaChangeListener records the original data of every block the match changes; on return
+ * those blocks are restored and the entities a match leaves behind removed (dropped items,
+ * projectiles, experience orbs, primed TNT, falling blocks, mobs; template decorations like item
+ * frames, paintings and armor stands stay), and the world goes back to the pool. A world that changed too much (or arrives when the pool is full) goes to the WorldDeleter
+ * instead.
+ * Missing worlds are created one at a time, at most every refillIntervalTicks and only after
+ * quietTicks ticks in a row without a lag spike or a lease, so refilling never lands on a busy tick.
+ * A lease on an empty pool still generates a flat world right away, as before.
+ * With an ArenaTemplate, worlds are cloned from the template's folder on the WorldDeleter's I/O
+ * thread and only loaded on the main thread, instead of being generated flat. The name of a world
+ * being cloned is reserved until it is loaded. A lease on an empty pool never clones inline: it
+ * starts a clone (unless one is already running) and returns null, so the caller retries once the
+ * world is loaded. Main thread only (except the clone itself).
+ */
+public class ArenaWorldPool {
+    private static final Logger LOGGER = Logger.getLogger("beacon");
+    private static final long LAG_TICK_NANOS = 60_000_000L; // A tick this long (20 TPS is 50ms) isn't quiet
+
+    private final JavaPlugin plugin;
+    private final WorldDeleter worldDeleter;
+    private final ArenaTemplate template;
+    private final Path worldContainer;
+    private final int size;
+    private final long refillIntervalTicks;
+    private final long quietTicks;
+    private final int maxTrackedChanges;
+
+    private final ArrayDeque<World> ready = new ArrayDeque<>();
+    private final Map<String, ArenaChangeLog> leased = new HashMap<>(); // world name -> changes
+    private final Set<String> reservedNames = new HashSet<>(); // Being cloned, not loaded yet
+    private final Queue<CloneResult> clonesDone = new ConcurrentLinkedQueue<>(); // From the I/O thread
+    private int clonesInFlight = 0;
+    private BukkitTask task;
+    private long tick = 0;
+    private long lastTickNanos = 0;
+    private long quietSince = 0;
+    private long lastCreatedTick = Long.MIN_VALUE / 2;
+
+    private int createdCount = 0;
+    private int reusedCount = 0;
+    private int createdOnLeaseCount = 0;
+    private int discardedCount = 0;
+
+    private record CloneResult(String worldName, boolean succeeded) {
+    }
+
+    /**
+     * @param template the map match worlds are cloned from, or ArenaTemplate.flat() to generate them
+     * @param size worlds kept ready (0 creates a world per match and deletes it afterwards)
+     */
+    public ArenaWorldPool(JavaPlugin plugin, WorldDeleter worldDeleter, ArenaTemplate template, int size,
+            long refillIntervalTicks, long quietTicks, int maxTrackedChanges) {
+        this.plugin = plugin;
+        this.worldDeleter = worldDeleter;
+        this.template = template;
+        this.worldContainer = plugin.getServer().getWorldContainer().toPath();
+        this.size = Math.max(0, size);
+        this.refillIntervalTicks = Math.max(1L, refillIntervalTicks);
+        this.quietTicks = Math.max(1L, quietTicks);
+        this.maxTrackedChanges = Math.max(1, maxTrackedChanges);
+    }
+
+    public void start() {
+        if (task != null) {
+            LOGGER.warning("ArenaWorldPool is already running");
+            return;
+        }
+        // Cloned worlds are always loaded by the tick task, even without a pool
+        if (size > 0 || template.isCloned()) {
+            task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+            LOGGER.info("ArenaWorldPool started (keeping " + size + " arena worlds ready, "
+                    + (template.isCloned() ? "cloned from arena template " + template.getName() : "generated flat")
+                    + ")");
+        }
+    }
+
+    /**
+     * Stop refilling and queue the worlds nobody is using for deletion
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        while (!ready.isEmpty()) {
+            worldDeleter.delete(ready.poll().getName());
+        }
+    }
+
+    /**
+     * Take a world for a match, generating one if none is ready; null if creation failed, or if a
+     * world is still being cloned from the template (try again on a later tick)
+     */
+    public World lease() {
+        World world = ready.poll();
+        if (world != null) {
+            reusedCount++;
+        } else if (template.isCloned()) {
+            // Copying the template's region files would stall the main thread, so clone in the background
+            if (clonesInFlight == 0) {
+                startClone();
+            }
+            LOGGER.warning("No arena world ready, waiting for one to be cloned from arena template "
+                    + template.getName());
+            return null;
+        } else {
+            world = createWorld();
+            if (world == null) {
+                return null;
+            }
+            createdOnLeaseCount++;
+            if (size > 0) {
+                LOGGER.warning("No arena world ready, created " + world.getName() + " on the main thread");
+            }
+        }
+        leased.put(world.getName(), new ArenaChangeLog(maxTrackedChanges));
+        quietSince = tick; // The match start is busy enough
+        return world;
+    }
+
+    /**
+     * Give a leased world back once its players have left; it is reset into the pool or deleted
+     */
+    public void release(String worldName) {
+        ArenaChangeLog changes = leased.remove(worldName);
+        World world = Bukkit.getWorld(worldName);
+        if (world == null) {
+            return;
+        }
+        if (changes == null || changes.isOverflowed() || ready.size() >= size) {
+            if (changes != null && changes.isOverflowed()) {
+                LOGGER.info("Arena world " + worldName + " changed too much to reset, deleting it");
+            }
+            discardedCount++;
+            worldDeleter.delete(worldName);
+            return;
+        }
+
+        try {
+            World mainWorld = Bukkit.getWorlds().get(0);
+            for (Player player : world.getPlayers()) {
+                player.teleport(mainWorld.getSpawnLocation());
+            }
+            for (Entity entity : world.getEntities()) {
+                if (isTransient(entity)) {
+                    entity.remove();
+                }
+            }
+            changes.restore(world);
+            world.setStorm(false);
+            ready.add(world);
+        } catch (Exception e) {
+            LOGGER.severe("Error resetting arena world " + worldName + ": " + e.getMessage());
+            e.printStackTrace();
+            discardedCount++;
+            worldDeleter.delete(worldName);
+        }
+    }
+
+    /**
+     * Whether an entity was left behind by a match rather than being part of the arena. Mobs count:
+     * arena worlds don't spawn any, so they come from spawn eggs.
+     */
+    private static boolean isTransient(Entity entity) {
+        return entity instanceof Item || entity instanceof Projectile || entity instanceof ExperienceOrb
+                || entity instanceof TNTPrimed || entity instanceof FallingBlock || entity instanceof AreaEffectCloud
+                || entity instanceof Mob;
+    }
+
+    /**
+     * Where the index-th player of a team starts in an arena world from this pool
+     */
+    public Location getSpawn(World world, String team, int index) {
+        return template.spawn(world, team, index);
+    }
+
+    /**
+     * Remember the original data of a block about to change, if it is in a leased world
+     */
+    public void recordChange(Block block) {
+        ArenaChangeLog changes = leased.get(block.getWorld().getName());
+        if (changes != null) {
+            changes.record(block.getX(), block.getY(), block.getZ(), block.getBlockData());
+        }
+    }
+
+    /**
+     * Same for a block that has already changed, from its state before the change
+     */
+    public void recordChange(World world, BlockState original) {
+        ArenaChangeLog changes = leased.get(world.getName());
+        if (changes != null) {
+            changes.record(original.getX(), original.getY(), original.getZ(), original.getBlockData());
+        }
+    }
+
+    /**
+     * Runs every tick: watch for lag and create a missing world when things are quiet
+     */
+    private void tick() {
+        tick++;
+        long now = System.nanoTime();
+        if (lastTickNanos != 0 && now - lastTickNanos > LAG_TICK_NANOS) {
+            quietSince = tick;
+        }
+        lastTickNanos = now;
+
+        // Load at most one finished clone per tick
+        CloneResult clone = clonesDone.poll();
+        if (clone != null) {
+            clonesInFlight--;
+            World world = clone.succeeded() ? loadWorld(clone.worldName()) : null;
+            reservedNames.remove(clone.worldName());
+            if (world != null) {
+                ready.add(world);
+            } else if (clone.succeeded()) {
+                worldDeleter.delete(clone.worldName()); // Cloned but unloadable
+            }
+            lastTickNanos = System.nanoTime();
+            return;
+        }
+
+        if (ready.size() + clonesInFlight >= size || tick - quietSince < quietTicks
+                || tick - lastCreatedTick < refillIntervalTicks) {
+            return;
+        }
+        lastCreatedTick = tick;
+        if (template.isCloned()) {
+            startClone();
+            return;
+        }
+        World world = createWorld();
+        if (world != null) {
+            ready.add(world);
+        }
+        // The creation tick itself is long; don't count it as lag
+        lastTickNanos = System.nanoTime();
+    }
+
+    /**
+     * Reserve a name and clone the template into its folder on the I/O thread
+     */
+    private void startClone() {
+        String worldName = nextWorldName();
+        Path folder = worldContainer.resolve(worldName);
+        reservedNames.add(worldName);
+        clonesInFlight++;
+        boolean queued = worldDeleter.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                WorldDeleter.deleteTree(folder); // Left over from a crash
+                template.cloneInto(folder);
+                LOGGER.info("Cloned arena template " + template.getName() + " into " + worldName + " in "
+                        + (System.nanoTime() - start) / 1_000_000L + "ms");
+                clonesDone.add(new CloneResult(worldName, true));
+            } catch (IOException e) {
+                LOGGER.severe("Error cloning arena template " + template.getName() + " into " + worldName + ": "
+                        + e.getMessage());
+                clonesDone.add(new CloneResult(worldName, false));
+            }
+        });
+        if (!queued) {
+            reservedNames.remove(worldName);
+            clonesInFlight--;
+        }
+    }
+
+    /**
+     * Lowest free "match_N" name (a name is not free while the old world's folder is still waiting
+     * to be moved to the trash, or while a clone is being made under it)
+     */
+    private String nextWorldName() {
+        int worldNumber = 1;
+        String worldName = "match_" + worldNumber;
+        while (Bukkit.getWorld(worldName) != null || worldDeleter.isPending(worldName)
+                || reservedNames.contains(worldName)) {
+            worldNumber++;
+            worldName = "match_" + worldNumber;
+        }
+        return worldName;
+    }
+
+    /**
+     * Generate a flat arena world right away (cloned worlds go through startClone)
+     */
+    private World createWorld() {
+        return loadWorld(nextWorldName());
+    }
+
+    /**
+     * Load (or generate, for the flat template) a peaceful arena world
+     */
+    private World loadWorld(String worldName) {
+        try {
+            long start = System.nanoTime();
+            WorldCreator creator = new WorldCreator(worldName);
+            if (!template.isCloned()) {
+                creator.type(WorldType.FLAT);
+            }
+            creator.generateStructures(false); // No structures like villages
+            World world = creator.createWorld();
+            if (world == null) {
+                LOGGER.severe("Failed to create world: " + worldName);
+                return null;
+            }
+
+            if (!template.isCloned()) {
+                world.setSpawnLocation(0, 64, 0);
+            }
+            // No monsters, no animals; WorldEventListener also cancels all other spawns in match worlds
+            world.setSpawnFlags(false, false);
+            world.setDifficulty(Difficulty.PEACEFUL);
+
+            createdCount++;
+            LOGGER.info((template.isCloned() ? "Loaded" : "Created") + " arena world " + worldName + " in "
+                    + (System.nanoTime() - start) / 1_000_000L + "ms");
+            return world;
+        } catch (Exception e) {
+            LOGGER.severe("Error creating match world: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public int getReadyCount() {
+        return ready.size();
+    }
+
+    public int getLeasedCount() {
+        return leased.size();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getCreatedCount() {
+        return createdCount;
+    }
+
+    /**
+     * Leases served by a pooled world
+     */
+    public int getReusedCount() {
+        return reusedCount;
+    }
+
+    /**
+     * Leases that had to create a world on the spot
+     */
+    public int getCreatedOnLeaseCount() {
+        return createdOnLeaseCount;
+    }
+
+    public int getDiscardedCount() {
+        return discardedCount;
+    }
+}
@@ -0,0 +1,85 @@
+package ai.blockwarriors.beacon.service;
+
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Circuit breaker shared by everything that writes to Convex.
+ * After failureThreshold consecutive failures the circuit opens and requests are skipped for
+ * openMillis; the next request after that is a trial (half-open) that closes the circuit on
+ * success or opens it again on failure. Keeps a Convex outage from tying up threads in requests
+ * that are going to time out anyway.
+ */
+public class CircuitBreaker {
+    private static final Logger LOGGER = Logger.getLogger("beacon");
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Whether a request may be sent now (moves an expired open circuit to half-open)
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+        }
+        return state != State.OPEN;
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            LOGGER.info("Convex is reachable again, closing circuit");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            LOGGER.warning("Convex failed " + consecutiveFailures + " time(s) in a row, pausing writes for "
+                    + openMillis + "ms");
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Milliseconds until an open circuit allows a trial request (0 if not open)
+     */
+    public synchronized long getRemainingOpenMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, openedAt + openMillis - clock.getAsLong());
+    }
+
+    /**
+     * Whether a failed request's HTTP status means Convex is unhealthy (rather than the request being wrong)
+     */
+    public static boolean isRetryable(int statusCode) {
+        return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+}
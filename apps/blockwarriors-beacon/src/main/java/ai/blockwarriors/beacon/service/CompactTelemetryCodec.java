@@ -0,0 +1,253 @@
+package ai.blockwarriors.beacon.service;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compact CBOR encoding for telemetry uploads (Content-Type: application/cbor).
+ * Compared to the JSON body it replaces:
+ * - well-known keys ("position", "equipment", "nearbyPlayers", ...) are sent as small integers from KEYS
+ * - repeated strings (equipment names, world names, player IDs) are sent once and then referenced by
+ *   index, using the CBOR stringref extension (tag 256 namespace, tag 25 reference)
+ * - doubles are quantized to 0.01 and sent as integers or 32-bit floats
+ * The decoder lives in packages/backend/convex/telemetryCodec.ts and must use the same KEYS table.
+ * Bodies are either streamed into a reusable Writer (the telemetry hot path) or encoded from a JSONObject.
+ */
+public final class CompactTelemetryCodec {
+    public static final String CONTENT_TYPE = "application/cbor";
+    public static final String ENCODING_NAME = "cbor";
+
+    // Key table shared with the backend decoder - only append, never reorder
+    static final List<String> KEYS = Collections.unmodifiableList(Arrays.asList(
+            "timestamp", "matchId", "players", "playerId", "ign", "health", "maxHealth", "foodLevel",
+            "position", "x", "y", "z", "world", "equipment", "mainHand", "helmet",
+            "chestplate", "leggings", "boots", "kills", "deaths", "nearbyPlayers", "delta", "removedPlayers",
+            "match_id", "match_state", "match_state_delta", "updates", "winner", "matchEnded", "finalState",
+            "damageDealt", "damageTaken", "hitsLanded", "distanceTravelled", "timeAlive"));
+
+    private static final Map<String, Integer> KEY_INDEX = new HashMap<>();
+    static {
+        for (int i = 0; i < KEYS.size(); i++) {
+            KEY_INDEX.put(KEYS.get(i), i);
+        }
+    }
+
+    // Doubles are quantized to 1/QUANTUM; above FLOAT32_LIMIT a float32 can't hold that precision
+    private static final double QUANTUM = 100.0;
+    private static final double FLOAT32_LIMIT = 65536.0;
+
+    private CompactTelemetryCodec() {
+    }
+
+    /**
+     * Encode a telemetry request body (as would otherwise be sent as JSON)
+     */
+    public static byte[] encode(JSONObject body) {
+        Writer writer = new Writer();
+        writer.reset();
+        writer.writeValue(body);
+        return writer.toByteArray();
+    }
+
+    /**
+     * A streaming writer for compact bodies; each reset() starts a new body with its own string table
+     */
+    public static TelemetryWriter newWriter() {
+        return new Writer();
+    }
+
+    /**
+     * Minimum string length (in bytes) worth adding to the stringref table, per the stringref spec
+     */
+    static int minRefLength(int tableSize) {
+        if (tableSize < 24) {
+            return 3;
+        } else if (tableSize < 256) {
+            return 4;
+        } else if (tableSize < 65536) {
+            return 5;
+        }
+        return 7;
+    }
+
+    private static final class Writer extends TelemetryWriter {
+        private final Map<String, Integer> stringRefs = new HashMap<>();
+
+        @Override
+        public void reset() {
+            super.reset();
+            stringRefs.clear();
+            writeHead(6, 256); // stringref namespace
+        }
+
+        @Override
+        public String contentType() {
+            return CONTENT_TYPE;
+        }
+
+        @Override
+        public TelemetryWriter beginObject(int size) {
+            writeHead(5, size);
+            return this;
+        }
+
+        @Override
+        public TelemetryWriter beginArray(int size) {
+            writeHead(4, size);
+            return this;
+        }
+
+        @Override
+        public TelemetryWriter end() {
+            return this; // Definite lengths, nothing to close
+        }
+
+        @Override
+        public TelemetryWriter name(String name) {
+            writeKey(name);
+            return this;
+        }
+
+        @Override
+        public TelemetryWriter string(String value) {
+            writeString(value);
+            return this;
+        }
+
+        @Override
+        public TelemetryWriter uuid(UUID value) {
+            writeString(value.toString());
+            return this;
+        }
+
+        @Override
+        public TelemetryWriter number(double value) {
+            writeDouble(value);
+            return this;
+        }
+
+        @Override
+        public TelemetryWriter integer(long value) {
+            writeInt(value);
+            return this;
+        }
+
+        @Override
+        public TelemetryWriter bool(boolean value) {
+            writeByte(value ? 0xf5 : 0xf4);
+            return this;
+        }
+
+        void writeValue(Object value) {
+            if (value == null || value == JSONObject.NULL) {
+                writeByte(0xf6);
+            } else if (value instanceof JSONObject) {
+                writeMap((JSONObject) value);
+            } else if (value instanceof JSONArray) {
+                JSONArray array = (JSONArray) value;
+                writeHead(4, array.length());
+                for (int i = 0; i < array.length(); i++) {
+                    writeValue(array.opt(i));
+                }
+            } else if (value instanceof Boolean) {
+                writeByte((Boolean) value ? 0xf5 : 0xf4);
+            } else if (value instanceof Integer || value instanceof Long
+                    || value instanceof Short || value instanceof Byte) {
+                writeInt(((Number) value).longValue());
+            } else if (value instanceof Number) {
+                writeDouble(((Number) value).doubleValue());
+            } else {
+                writeString(value.toString());
+            }
+        }
+
+        private void writeMap(JSONObject object) {
+            writeHead(5, object.length());
+            for (String key : object.keySet()) {
+                writeKey(key);
+                writeValue(object.opt(key));
+            }
+        }
+
+        private void writeKey(String key) {
+            Integer keyIndex = KEY_INDEX.get(key);
+            if (keyIndex != null) {
+                writeInt(keyIndex);
+            } else {
+                writeString(key);
+            }
+        }
+
+        private void writeString(String value) {
+            Integer ref = stringRefs.get(value);
+            if (ref != null) {
+                writeHead(6, 25);
+                writeInt(ref);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length >= minRefLength(stringRefs.size())) {
+                stringRefs.put(value, stringRefs.size());
+            }
+            writeHead(3, bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        private void writeInt(long value) {
+            if (value >= 0) {
+                writeHead(0, value);
+            } else {
+                writeHead(1, -1 - value);
+            }
+        }
+
+        private void writeDouble(double value) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                writeByte(0xfa);
+                writeBytes(Float.floatToIntBits((float) value), 4);
+                return;
+            }
+            double quantized = Math.round(value * QUANTUM) / QUANTUM;
+            if (quantized == Math.rint(quantized) && Math.abs(quantized) < 1e15) {
+                writeInt((long) quantized);
+            } else if (Math.abs(quantized) < FLOAT32_LIMIT) {
+                writeByte(0xfa);
+                writeBytes(Float.floatToIntBits((float) quantized), 4);
+            } else {
+                writeByte(0xfb);
+                writeBytes(Double.doubleToLongBits(quantized), 8);
+            }
+        }
+
+        void writeHead(int majorType, long value) {
+            int major = majorType << 5;
+            if (value < 24) {
+                writeByte(major | (int) value);
+            } else if (value < 0x100) {
+                writeByte(major | 24);
+                writeBytes(value, 1);
+            } else if (value < 0x10000) {
+                writeByte(major | 25);
+                writeBytes(value, 2);
+            } else if (value < 0x100000000L) {
+                writeByte(major | 26);
+                writeBytes(value, 4);
+            } else {
+                writeByte(major | 27);
+                writeBytes(value, 8);
+            }
+        }
+
+        private void writeBytes(long value, int count) {
+            ensureCapacity(count);
+            for (int shift = (count - 1) * 8; shift >= 0; shift -= 8) {
+                buffer[length++] = (byte) (value >>> shift);
+            }
+        }
+    }
+}
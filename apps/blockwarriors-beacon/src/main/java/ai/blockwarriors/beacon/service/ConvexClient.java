@@ -0,0 +1,201 @@
+package ai.blockwarriors.beacon.service;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.logging.Logger;
+
+/**
+ * Shared HTTP client for the Convex site routes.
+ * Every service goes through a single pooled HttpClient so connections (and TLS sessions)
+ * are kept alive and reused, HTTP/2 is used when the server negotiates it, and the bearer
+ * secret and timeouts are configured in one place.
+ * Responses are decoded straight from the response stream (see JsonPullReader for typed decoders).
+ */
+public class ConvexClient {
+    private static final Logger LOGGER = Logger.getLogger("beacon");
+
+    /**
+     * Decodes the body of a successful response for a specific route, as it arrives
+     * The stream is closed by the client afterwards
+     */
+    @FunctionalInterface
+    public interface Decoder<T> {
+        T decode(InputStream body) throws IOException;
+    }
+
+    public static final Decoder<JSONObject> JSON_OBJECT = body -> new JSONObject(new JSONTokener(body));
+    public static final Decoder<JSONArray> JSON_ARRAY = body -> new JSONArray(new JSONTokener(body));
+    // Drained so the connection can be reused
+    public static final Decoder<Void> DISCARD = body -> {
+        body.transferTo(OutputStream.nullOutputStream());
+        return null;
+    };
+
+    /**
+     * A decoded response together with its ETag
+     */
+    public static final class Tagged<T> {
+        private final T value;
+        private final String etag;
+
+        Tagged(T value, String etag) {
+            this.value = value;
+            this.etag = etag;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    private final String siteUrl;
+    private final String httpSecret;
+    private final Duration requestTimeout;
+    private final HttpClient httpClient;
+
+    public ConvexClient(String siteUrl, String httpSecret, Duration connectTimeout, Duration requestTimeout) {
+        this.siteUrl = siteUrl.endsWith("/") ? siteUrl.substring(0, siteUrl.length() - 1) : siteUrl;
+        this.httpSecret = httpSecret;
+        this.requestTimeout = requestTimeout;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        LOGGER.info("ConvexClient created for " + this.siteUrl + " (connect timeout: " + connectTimeout.toMillis()
+                + "ms, request timeout: " + requestTimeout.toMillis() + "ms)");
+    }
+
+    public String getSiteUrl() {
+        return siteUrl;
+    }
+
+    /**
+     * Close the pooled connections and the client's selector thread (waits for requests still in flight)
+     */
+    public void close() {
+        httpClient.close();
+    }
+
+    /**
+     * Send a GET request to a Convex route (path may include a query string)
+     */
+    public <T> T get(String path, Decoder<T> decoder) throws IOException {
+        return send(newRequest(path).header("Accept", "application/json").GET(), path, decoder);
+    }
+
+    /**
+     * Send a GET request with its own timeout (e.g. a long-poll that outlives the default request timeout)
+     */
+    public <T> T get(String path, Duration timeout, Decoder<T> decoder) throws IOException {
+        return send(newRequest(path).timeout(timeout).header("Accept", "application/json").GET(), path, decoder);
+    }
+
+    /**
+     * Send a conditional GET request with If-None-Match
+     * Returns null if the route answers 304 Not Modified (the etag is still current)
+     */
+    public <T> Tagged<T> getIfNoneMatch(String path, String etag, Decoder<T> decoder) throws IOException {
+        HttpRequest.Builder builder = newRequest(path).header("Accept", "application/json").GET();
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+
+        HttpResponse<InputStream> response = execute(builder, path);
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 304) {
+                return null;
+            }
+            checkStatus(response, path);
+            return new Tagged<>(decoder.decode(body), response.headers().firstValue("ETag").orElse(null));
+        }
+    }
+
+    /**
+     * Send a POST request with a JSON body to a Convex route
+     */
+    public <T> T post(String path, JSONObject body, Decoder<T> decoder) throws IOException {
+        HttpRequest.Builder builder = newRequest(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString(), StandardCharsets.UTF_8));
+        return send(builder, path, decoder);
+    }
+
+    /**
+     * Send a POST request with a JSON body and its own timeout (e.g. a player waiting on a login)
+     */
+    public <T> T post(String path, JSONObject body, Duration timeout, Decoder<T> decoder) throws IOException {
+        HttpRequest.Builder builder = newRequest(path)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString(), StandardCharsets.UTF_8));
+        return send(builder, path, decoder);
+    }
+
+    /**
+     * Send a POST request with an already encoded body (e.g. compact CBOR telemetry)
+     */
+    public <T> T post(String path, byte[] body, String contentType, Decoder<T> decoder) throws IOException {
+        return post(path, body, body.length, contentType, decoder);
+    }
+
+    /**
+     * Send the first length bytes of a (reused) buffer as the body
+     * The buffer must not change until this returns
+     */
+    public <T> T post(String path, byte[] body, int length, String contentType, Decoder<T> decoder)
+            throws IOException {
+        HttpRequest.Builder builder = newRequest(path)
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body, 0, length));
+        return send(builder, path, decoder);
+    }
+
+    private HttpRequest.Builder newRequest(String path) {
+        return HttpRequest.newBuilder(URI.create(siteUrl + path))
+                .timeout(requestTimeout)
+                .header("Authorization", "Bearer " + httpSecret);
+    }
+
+    private <T> T send(HttpRequest.Builder builder, String path, Decoder<T> decoder) throws IOException {
+        HttpResponse<InputStream> response = execute(builder, path);
+        try (InputStream body = response.body()) {
+            checkStatus(response, path);
+            return decoder.decode(body);
+        }
+    }
+
+    private HttpResponse<InputStream> execute(HttpRequest.Builder builder, String path) throws IOException {
+        try {
+            return httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while calling " + path);
+        }
+    }
+
+    private static void checkStatus(HttpResponse<InputStream> response, String path) throws IOException {
+        int statusCode = response.statusCode();
+        if (statusCode < 200 || statusCode >= 300) {
+            // Error bodies are small and only used for logging
+            throw new ConvexException(path, statusCode,
+                    new String(response.body().readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+}
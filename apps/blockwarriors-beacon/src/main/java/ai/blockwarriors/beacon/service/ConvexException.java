@@ -0,0 +1,30 @@
+package ai.blockwarriors.beacon.service;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a Convex route answers with a non-2xx status code
+ */
+public class ConvexException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final String body;
+
+    public ConvexException(String path, int statusCode, String body) {
+        super("HTTP " + statusCode + " from " + path);
+        this.statusCode = statusCode;
+        this.body = body;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Raw error response body (usually a JSON object with an "error" field)
+     */
+    public String getBody() {
+        return body;
+    }
+}
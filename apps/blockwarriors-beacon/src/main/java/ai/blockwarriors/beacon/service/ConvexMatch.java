@@ -0,0 +1,82 @@
+package ai.blockwarriors.beacon.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The fields of a Convex match document the beacon uses, decoded with JsonPullReader
+ * (every other field is skipped)
+ */
+public record ConvexMatch(String matchId, String status, String matchType, String blueTeamId, String redTeamId) {
+    /**
+     * A single match (GET /matches?id=...)
+     */
+    public static final ConvexClient.Decoder<ConvexMatch> ONE = body -> read(new JsonPullReader(body));
+
+    /**
+     * An array of matches (GET /matches?status=...)
+     */
+    public static final ConvexClient.Decoder<List<ConvexMatch>> LIST = body -> readList(new JsonPullReader(body));
+
+    /**
+     * The matches array of an object such as {matches: [...], ...} (GET /matches/actionable)
+     */
+    public static final ConvexClient.Decoder<List<ConvexMatch>> IN_MATCHES_FIELD = body -> {
+        JsonPullReader reader = new JsonPullReader(body);
+        List<ConvexMatch> matches = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("matches".equals(reader.nextName())) {
+                matches = readList(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return matches;
+    };
+
+    public static ConvexMatch read(JsonPullReader reader) throws IOException {
+        String matchId = null;
+        String status = "";
+        String matchType = null;
+        String blueTeamId = null;
+        String redTeamId = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "match_id":
+                    matchId = reader.nextString();
+                    break;
+                case "match_status":
+                    status = reader.nextString();
+                    break;
+                case "match_type":
+                    matchType = reader.nextString();
+                    break;
+                case "blue_team_id":
+                    blueTeamId = reader.nextString();
+                    break;
+                case "red_team_id":
+                    redTeamId = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new ConvexMatch(matchId, status, matchType, blueTeamId, redTeamId);
+    }
+
+    public static List<ConvexMatch> readList(JsonPullReader reader) throws IOException {
+        List<ConvexMatch> matches = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            matches.add(read(reader));
+        }
+        reader.endArray();
+        return matches;
+    }
+}
@@ -0,0 +1,431 @@
+package ai.blockwarriors.beacon.service;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * Durable outbox for Convex writes that must not be lost (match status changes, final states
+ * and winners).
+ * enqueue() only hands the write to the background sender thread, which appends everything
+ * enqueued since its last pass to a log in the plugin data folder with a single fsync (group
+ * commit) before sending any of it, so callers on the main thread never touch the disk. The sender
+ * delivers the writes in order, retrying with backoff behind the shared circuit breaker.
+ * Delivered writes are acknowledged in the same log, and anything still unacknowledged is
+ * replayed the next time the outbox starts.
+ * Writes Convex rejects outright (4xx) are moved to a dead-letter file instead of being retried.
+ */
+public class ConvexOutbox implements Runnable {
+    private static final Logger LOGGER = Logger.getLogger("beacon");
+    static final String LOG_FILE = "outbox.log";
+    static final String DEAD_LETTER_FILE = "outbox-dead.log";
+    private static final long MIN_RETRY_MS = 1000L;
+    private static final long MAX_RETRY_MS = 60000L;
+    // Truncate the log once it is empty and has this many records in it
+    private static final int COMPACT_AFTER_RECORDS = 1000;
+
+    private static final class Entry {
+        final long id;
+        final String path;
+        final JSONObject body;
+        final long createdAt;
+
+        Entry(long id, String path, JSONObject body, long createdAt) {
+            this.id = id;
+            this.path = path;
+            this.body = body;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private final ConvexClient convexClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Path logPath;
+    private final Path deadLetterPath;
+    // Guarded by this
+    private final Deque<Entry> queue = new ArrayDeque<>(); // Logged, in send order
+    private final List<Entry> unlogged = new ArrayList<>(); // Enqueued, not in the log yet
+    private long nextId = 1;
+    // Guarded by logLock; only the sender writes while it runs, so the monitor is never held for disk I/O
+    private final Object logLock = new Object();
+    private FileChannel log;
+    private int recordsSinceCompaction = 0;
+    private volatile boolean running = false;
+    private Thread thread;
+    // stop() only interrupts the sender during a POST; an interrupt during log I/O would close the FileChannel
+    private final Object interruptLock = new Object();
+    private boolean posting = false; // Guarded by interruptLock
+
+    public ConvexOutbox(ConvexClient convexClient, CircuitBreaker circuitBreaker, Path dataFolder) {
+        this.convexClient = convexClient;
+        this.circuitBreaker = circuitBreaker;
+        this.logPath = dataFolder.resolve(LOG_FILE);
+        this.deadLetterPath = dataFolder.resolve(DEAD_LETTER_FILE);
+    }
+
+    /**
+     * Replay unacknowledged writes from the log and start the sender
+     */
+    public synchronized void start() {
+        if (running) {
+            LOGGER.warning("ConvexOutbox is already running");
+            return;
+        }
+
+        try {
+            Files.createDirectories(logPath.getParent());
+            replay();
+            synchronized (logLock) {
+                log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            LOGGER.severe("Could not open outbox log " + logPath + ", writes will only be kept in memory: "
+                    + e.getMessage());
+            e.printStackTrace();
+        }
+
+        running = true;
+        thread = new Thread(this, "beacon-outbox");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("ConvexOutbox started (" + queue.size() + " pending write(s) replayed)");
+    }
+
+    /**
+     * Give the sender up to drainTimeoutMs to deliver pending writes, then stop it.
+     * Anything still pending stays in the log for the next start.
+     */
+    public void stop(long drainTimeoutMs) {
+        Thread sender;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            long deadline = System.currentTimeMillis() + drainTimeoutMs;
+            try {
+                while ((!queue.isEmpty() || !unlogged.isEmpty()) && circuitBreaker.allowRequest()) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running = false;
+            sender = thread;
+            thread = null;
+            notifyAll();
+        }
+
+        synchronized (interruptLock) {
+            if (posting) {
+                sender.interrupt();
+            }
+        }
+        try {
+            sender.join(drainTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Whatever the sender didn't get to log yet must still survive the restart
+        logUnlogged();
+        int pendingCount = getPendingCount();
+        if (pendingCount > 0) {
+            LOGGER.warning("ConvexOutbox stopped with " + pendingCount + " pending write(s), they will be "
+                    + "sent on the next start");
+        }
+        closeLog();
+        LOGGER.info("ConvexOutbox stopped");
+    }
+
+    /**
+     * Queue a POST to a Convex route and return immediately; the sender logs and sends it in the background
+     */
+    public synchronized void enqueue(String path, JSONObject body) {
+        unlogged.add(new Entry(nextId++, path, body, System.currentTimeMillis()));
+        notifyAll();
+    }
+
+    public synchronized int getPendingCount() {
+        return queue.size() + unlogged.size();
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    @Override
+    public void run() {
+        long retryMs = MIN_RETRY_MS;
+        long nextAttemptAt = 0; // Backoff or open circuit; new writes are still logged meanwhile
+
+        while (running) {
+            Entry entry;
+            synchronized (this) {
+                try {
+                    while (running && unlogged.isEmpty()
+                            && (queue.isEmpty() || System.currentTimeMillis() < nextAttemptAt)) {
+                        wait(queue.isEmpty() ? 0L : Math.max(1L, nextAttemptAt - System.currentTimeMillis()));
+                    }
+                } catch (InterruptedException e) {
+                    // Not expected (stop() only interrupts a POST); the loop checks running
+                }
+                if (!running) {
+                    return;
+                }
+                entry = unlogged.isEmpty() ? queue.peekFirst() : null;
+            }
+
+            if (entry == null) {
+                logUnlogged();
+                continue;
+            }
+
+            if (!circuitBreaker.allowRequest()) {
+                nextAttemptAt = System.currentTimeMillis()
+                        + Math.max(circuitBreaker.getRemainingOpenMillis(), MIN_RETRY_MS);
+                continue;
+            }
+
+            try {
+                post(entry);
+                circuitBreaker.recordSuccess();
+                complete(entry);
+                retryMs = MIN_RETRY_MS;
+            } catch (ConvexException e) {
+                if (CircuitBreaker.isRetryable(e.getStatusCode())) {
+                    circuitBreaker.recordFailure();
+                    LOGGER.warning("Outbox write to " + entry.path + " failed: HTTP " + e.getStatusCode()
+                            + ", retrying in " + retryMs + "ms");
+                    nextAttemptAt = System.currentTimeMillis() + jitter(retryMs);
+                    retryMs = Math.min(retryMs * 2, MAX_RETRY_MS);
+                } else {
+                    // Convex answered, so it is healthy; the write itself will never succeed
+                    circuitBreaker.recordSuccess();
+                    LOGGER.severe("Convex rejected outbox write to " + entry.path + ": HTTP " + e.getStatusCode()
+                            + ", moving it to " + DEAD_LETTER_FILE);
+                    deadLetter(entry, e);
+                    complete(entry);
+                }
+            } catch (InterruptedIOException e) {
+                if (!running) {
+                    return;
+                }
+            } catch (IOException e) {
+                circuitBreaker.recordFailure();
+                LOGGER.warning("Outbox write to " + entry.path + " failed: " + e.getMessage() + ", retrying in "
+                        + retryMs + "ms");
+                nextAttemptAt = System.currentTimeMillis() + jitter(retryMs);
+                retryMs = Math.min(retryMs * 2, MAX_RETRY_MS);
+            }
+        }
+    }
+
+    /**
+     * Send one write; stop() may interrupt the sender only while it is in here
+     */
+    private void post(Entry entry) throws IOException {
+        synchronized (interruptLock) {
+            posting = true;
+        }
+        try {
+            convexClient.post(entry.path, entry.body, ConvexClient.DISCARD);
+        } finally {
+            synchronized (interruptLock) {
+                posting = false;
+                Thread.interrupted(); // One that arrived too late for the request mustn't reach the log
+            }
+        }
+    }
+
+    /**
+     * Rebuild the queue from the log and rewrite the log with only the pending writes
+     */
+    private void replay() throws IOException {
+        if (!Files.exists(logPath)) {
+            return;
+        }
+
+        Map<Long, Entry> pending = new TreeMap<>();
+        for (String line : Files.readAllLines(logPath, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                JSONObject record = new JSONObject(line);
+                long id = record.getLong("id");
+                nextId = Math.max(nextId, id + 1);
+                if ("add".equals(record.getString("op"))) {
+                    pending.put(id, new Entry(id, record.getString("path"), record.getJSONObject("body"),
+                            record.optLong("created_at", 0)));
+                } else {
+                    pending.remove(id);
+                }
+            } catch (JSONException e) {
+                // A torn final line from a crash mid-append; the write was never acknowledged to the caller
+                LOGGER.warning("Skipping unreadable outbox record: " + e.getMessage());
+            }
+        }
+        queue.addAll(pending.values());
+
+        Path compacted = logPath.resolveSibling(LOG_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Entry entry : queue) {
+                writeLine(channel, addRecord(entry));
+            }
+            channel.force(true);
+        }
+        Files.move(compacted, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        recordsSinceCompaction = queue.size();
+    }
+
+    /**
+     * Append every enqueued write to the log with one fsync, then make them sendable
+     */
+    private void logUnlogged() {
+        // Held throughout, so stop() and a sender that outlived its join can't log the same writes twice
+        synchronized (logLock) {
+            List<Entry> batch;
+            synchronized (this) {
+                if (unlogged.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(unlogged); // Stay in unlogged (and pending) until they are queued
+            }
+
+            List<JSONObject> records = new ArrayList<>(batch.size());
+            for (Entry entry : batch) {
+                records.add(addRecord(entry));
+            }
+            append(records);
+
+            synchronized (this) {
+                unlogged.subList(0, batch.size()).clear(); // enqueue() only appends behind them
+                queue.addAll(batch);
+                notifyAll();
+            }
+        }
+    }
+
+    private void complete(Entry entry) {
+        boolean drained;
+        synchronized (this) {
+            if (queue.peekFirst() == entry) {
+                queue.pollFirst();
+            }
+            drained = queue.isEmpty() && unlogged.isEmpty();
+        }
+        append(List.of(new JSONObject().put("op", "done").put("id", entry.id)));
+
+        synchronized (logLock) {
+            if (drained && recordsSinceCompaction >= COMPACT_AFTER_RECORDS && log != null) {
+                try {
+                    log.truncate(0);
+                    log.force(true);
+                    recordsSinceCompaction = 0;
+                } catch (IOException e) {
+                    LOGGER.warning("Could not compact outbox log: " + e.getMessage());
+                }
+            }
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private void append(List<JSONObject> records) {
+        synchronized (logLock) {
+            if (log == null) {
+                return;
+            }
+            try {
+                for (JSONObject record : records) {
+                    writeLine(log, record);
+                }
+                log.force(false);
+                recordsSinceCompaction += records.size();
+            } catch (IOException e) {
+                LOGGER.severe("Could not write to outbox log, writes are only kept in memory: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void deadLetter(Entry entry, ConvexException cause) {
+        JSONObject record = new JSONObject()
+                .put("id", entry.id)
+                .put("path", entry.path)
+                .put("body", entry.body)
+                .put("created_at", entry.createdAt)
+                .put("status", cause.getStatusCode())
+                .put("error", cause.getMessage());
+        try (FileChannel channel = FileChannel.open(deadLetterPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writeLine(channel, record);
+            channel.force(false);
+        } catch (IOException e) {
+            LOGGER.severe("Could not write to " + deadLetterPath + ", lost write: " + record);
+            e.printStackTrace();
+        }
+    }
+
+    private void closeLog() {
+        synchronized (logLock) {
+            if (log == null) {
+                return;
+            }
+            try {
+                log.close();
+            } catch (IOException e) {
+                LOGGER.warning("Could not close outbox log: " + e.getMessage());
+            }
+            log = null;
+        }
+    }
+
+    private static JSONObject addRecord(Entry entry) {
+        return new JSONObject()
+                .put("op", "add")
+                .put("id", entry.id)
+                .put("path", entry.path)
+                .put("body", entry.body)
+                .put("created_at", entry.createdAt);
+    }
+
+    private static void writeLine(FileChannel channel, JSONObject record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((record.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Retry delay with equal jitter
+     */
+    private static long jitter(long retryMs) {
+        long half = retryMs / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+}
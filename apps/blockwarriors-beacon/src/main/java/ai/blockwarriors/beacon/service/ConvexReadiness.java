@@ -0,0 +1,37 @@
+package ai.blockwarriors.beacon.service;
+
+/**
+ * Response of GET /matches/readiness, decoded with JsonPullReader
+ * @param error set when Convex couldn't check the match (e.g. "Match not found"), null otherwise
+ */
+public record ConvexReadiness(boolean ready, int totalTokens, int usedTokens, String error) {
+    public static final ConvexClient.Decoder<ConvexReadiness> DECODER = body -> {
+        JsonPullReader reader = new JsonPullReader(body);
+        boolean ready = false;
+        int totalTokens = 0;
+        int usedTokens = 0;
+        String error = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "ready":
+                    ready = reader.nextBoolean();
+                    break;
+                case "totalTokens":
+                    totalTokens = reader.nextInt();
+                    break;
+                case "usedTokens":
+                    usedTokens = reader.nextInt();
+                    break;
+                case "error":
+                    error = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue(); // Per-team token lists aren't used here
+            }
+        }
+        reader.endObject();
+        return new ConvexReadiness(ready, totalTokens, usedTokens, error);
+    };
+}
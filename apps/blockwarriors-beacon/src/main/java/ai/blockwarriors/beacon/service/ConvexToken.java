@@ -0,0 +1,55 @@
+package ai.blockwarriors.beacon.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The fields of a Convex game token the beacon uses (GET /matches/tokens), decoded with JsonPullReader
+ * @param userId    UUID of the player who used the token, null while it is unused
+ * @param expiresAt expiry in epoch millis, Long.MAX_VALUE if the token has none
+ */
+public record ConvexToken(String token, String gameTeamId, String userId, boolean active, long expiresAt) {
+    public static final ConvexClient.Decoder<List<ConvexToken>> LIST = body -> {
+        JsonPullReader reader = new JsonPullReader(body);
+        List<ConvexToken> tokens = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String token = null;
+            String gameTeamId = null;
+            String userId = null;
+            boolean active = false;
+            long expiresAt = Long.MAX_VALUE;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "token":
+                        token = reader.nextString();
+                        break;
+                    case "game_team_id":
+                        gameTeamId = reader.nextString();
+                        break;
+                    case "user_id":
+                        userId = reader.nextString();
+                        break;
+                    case "is_active":
+                        active = reader.nextBoolean();
+                        break;
+                    case "expires_at":
+                        expiresAt = reader.nextLong();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            tokens.add(new ConvexToken(token, gameTeamId, userId, active, expiresAt));
+        }
+        reader.endArray();
+        return tokens;
+    };
+
+    public boolean isUsed() {
+        return userId != null;
+    }
+}
@@ -0,0 +1,408 @@
+package ai.blockwarriors.beacon.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal streaming (pull) JSON parser for decoding Convex responses straight from the response
+ * stream into typed records, without building a JSONObject tree first.
+ * Callers walk the document with beginObject()/nextName()/next*()/endObject() and skipValue()
+ * the fields they don't need; string and number text goes through one reused buffer, so a
+ * skipped field costs no allocation.
+ */
+public class JsonPullReader implements Closeable {
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    // What the reader expects next at each nesting level
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5; // A name was read, its value comes next
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private final Reader in;
+    private final char[] buffer = new char[2048];
+    private int pos = 0;
+    private int limit = 0;
+    private long consumed = 0; // Characters before buffer[0], for error positions
+
+    private int[] stack = new int[32];
+    private int depth = 0;
+
+    private Token peeked;
+    private boolean peekedBoolean;
+    private final StringBuilder text = new StringBuilder(64); // Text of the peeked name, string or number
+
+    public JsonPullReader(InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    public JsonPullReader(Reader in) {
+        this.in = in;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Type of the next token, without consuming it
+     */
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+
+        int scope = stack[depth - 1];
+        switch (scope) {
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                break;
+            case NONEMPTY_ARRAY: {
+                int c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (c != ',') {
+                    throw syntaxError("Expected ',' or ']'");
+                }
+                break;
+            }
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT: {
+                int c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a name");
+                }
+                readString();
+                stack[depth - 1] = DANGLING_NAME;
+                return peeked = Token.NAME;
+            }
+            case DANGLING_NAME:
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            case EMPTY_DOCUMENT:
+                if (skipWhitespace() == -1) {
+                    return peeked = Token.END_DOCUMENT; // Empty body
+                }
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            default: // NONEMPTY_DOCUMENT
+                if (skipWhitespace() != -1) {
+                    throw syntaxError("Unexpected data after the document");
+                }
+                return peeked = Token.END_DOCUMENT;
+        }
+
+        int c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return peeked = Token.BEGIN_OBJECT;
+            case '[':
+                return peeked = Token.BEGIN_ARRAY;
+            case ']':
+                if (scope == EMPTY_ARRAY) {
+                    return peeked = Token.END_ARRAY;
+                }
+                throw syntaxError("Unexpected ']'");
+            case '"':
+                readString();
+                return peeked = Token.STRING;
+            case 't':
+                expectLiteral("rue");
+                peekedBoolean = true;
+                return peeked = Token.BOOLEAN;
+            case 'f':
+                expectLiteral("alse");
+                peekedBoolean = false;
+                return peeked = Token.BOOLEAN;
+            case 'n':
+                expectLiteral("ull");
+                return peeked = Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    readNumber((char) c);
+                    return peeked = Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    /**
+     * Whether the current object or array has another element
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return text.toString();
+    }
+
+    /**
+     * A string value; numbers are returned as their text, null as null
+     */
+    public String nextString() throws IOException {
+        Token token = peek();
+        if (token == Token.NULL) {
+            peeked = null;
+            return null;
+        }
+        if (token != Token.STRING && token != Token.NUMBER) {
+            throw syntaxError("Expected a string but was " + token);
+        }
+        peeked = null;
+        return text.toString();
+    }
+
+    public long nextLong() throws IOException {
+        expect(Token.NUMBER);
+        try {
+            return Long.parseLong(text, 0, text.length(), 10);
+        } catch (NumberFormatException e) {
+            return (long) Double.parseDouble(text.toString()); // e.g. 1.0 or 1e3
+        }
+    }
+
+    public int nextInt() throws IOException {
+        return (int) nextLong();
+    }
+
+    public double nextDouble() throws IOException {
+        expect(Token.NUMBER);
+        return Double.parseDouble(text.toString());
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        return peekedBoolean;
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+    }
+
+    /**
+     * Skip the next value (including everything nested in it), or a name and its value
+     */
+    public void skipValue() throws IOException {
+        int nesting = 0;
+        while (true) {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    nesting++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    nesting++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    nesting--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    nesting--;
+                    break;
+                case NAME:
+                    peeked = null;
+                    continue; // Skip its value too, even at the top level
+                case END_DOCUMENT:
+                    throw syntaxError("Unexpected end of document");
+                default:
+                    peeked = null;
+                    break;
+            }
+            if (nesting <= 0) {
+                return; // A complete value has been skipped
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            int[] grown = new int[depth * 2];
+            System.arraycopy(stack, 0, grown, 0, depth);
+            stack = grown;
+        }
+        stack[depth++] = scope;
+    }
+
+    private void readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw syntaxError("Unterminated string");
+            }
+            if (c == '"') {
+                return;
+            }
+            if (c != '\\') {
+                text.append((char) c);
+                continue;
+            }
+            int escaped = read();
+            switch (escaped) {
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'u': {
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw syntaxError("Invalid \\u escape");
+                        }
+                        value = value * 16 + digit;
+                    }
+                    text.append((char) value);
+                    break;
+                }
+                case '"':
+                case '\\':
+                case '/':
+                    text.append((char) escaped);
+                    break;
+                default:
+                    throw syntaxError("Invalid escape");
+            }
+        }
+    }
+
+    private void readNumber(char first) throws IOException {
+        text.setLength(0);
+        text.append(first);
+        while (true) {
+            if (pos == limit && !fill()) {
+                return;
+            }
+            char c = buffer[pos];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                text.append(c);
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void expectLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw syntaxError("Invalid literal");
+            }
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c = skipWhitespace();
+        if (c == -1) {
+            throw syntaxError("Unexpected end of document");
+        }
+        pos++;
+        return c;
+    }
+
+    /**
+     * Skip whitespace and return the next character without consuming it (-1 at the end)
+     */
+    private int skipWhitespace() throws IOException {
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    private boolean fill() throws IOException {
+        consumed += limit;
+        pos = 0;
+        limit = 0;
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Invalid JSON at character " + (consumed + pos) + ": " + message);
+    }
+}
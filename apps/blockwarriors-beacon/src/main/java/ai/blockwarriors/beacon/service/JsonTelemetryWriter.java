@@ -0,0 +1,199 @@
+package ai.blockwarriors.beacon.service;
+
+import java.util.UUID;
+
+/**
+ * TelemetryWriter producing UTF-8 JSON.
+ * Separators are derived from a per-level element count: inside an object, even elements are
+ * names (followed by ':') and odd ones values. Numbers are formatted into a reused StringBuilder
+ * (whole numbers as integers, like org.json does) and UUIDs are written from their bits.
+ */
+public class JsonTelemetryWriter extends TelemetryWriter {
+    private static final int MAX_DEPTH = 16;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final int[] counts = new int[MAX_DEPTH];
+    private final boolean[] objects = new boolean[MAX_DEPTH];
+    private int depth = 0;
+    private final StringBuilder numberText = new StringBuilder(32);
+
+    @Override
+    public void reset() {
+        super.reset();
+        depth = 0;
+        counts[0] = 0;
+    }
+
+    @Override
+    public String contentType() {
+        return "application/json";
+    }
+
+    @Override
+    public TelemetryWriter beginObject(int size) {
+        return open('{', true);
+    }
+
+    @Override
+    public TelemetryWriter beginArray(int size) {
+        return open('[', false);
+    }
+
+    @Override
+    public TelemetryWriter end() {
+        writeByte(objects[depth] ? '}' : ']');
+        depth--;
+        return this;
+    }
+
+    @Override
+    public TelemetryWriter name(String name) {
+        return string(name);
+    }
+
+    @Override
+    public TelemetryWriter string(String value) {
+        boolean name = separate();
+        writeByte('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writeByte('\\');
+                writeByte(c);
+            } else if (c < 0x20) {
+                ensureCapacity(6);
+                buffer[length++] = '\\';
+                buffer[length++] = 'u';
+                buffer[length++] = '0';
+                buffer[length++] = '0';
+                buffer[length++] = HEX[c >> 4];
+                buffer[length++] = HEX[c & 0xf];
+            } else if (c < 0x80) {
+                writeByte(c);
+            } else {
+                i = writeUtf8(value, i);
+            }
+        }
+        writeByte('"');
+        return afterToken(name);
+    }
+
+    @Override
+    public TelemetryWriter uuid(UUID value) {
+        boolean name = separate();
+        ensureCapacity(38);
+        buffer[length++] = '"';
+        writeHex(value.getMostSignificantBits() >>> 32, 8);
+        buffer[length++] = '-';
+        writeHex(value.getMostSignificantBits() >>> 16, 4);
+        buffer[length++] = '-';
+        writeHex(value.getMostSignificantBits(), 4);
+        buffer[length++] = '-';
+        writeHex(value.getLeastSignificantBits() >>> 48, 4);
+        buffer[length++] = '-';
+        writeHex(value.getLeastSignificantBits(), 12);
+        buffer[length++] = '"';
+        return afterToken(name);
+    }
+
+    @Override
+    public TelemetryWriter number(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return literal("null");
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return integer((long) value);
+        }
+        boolean name = separate();
+        numberText.setLength(0);
+        numberText.append(value);
+        writeAscii(numberText);
+        return afterToken(name);
+    }
+
+    @Override
+    public TelemetryWriter integer(long value) {
+        boolean name = separate();
+        numberText.setLength(0);
+        numberText.append(value);
+        writeAscii(numberText);
+        return afterToken(name);
+    }
+
+    @Override
+    public TelemetryWriter bool(boolean value) {
+        return literal(value ? "true" : "false");
+    }
+
+    private TelemetryWriter literal(String text) {
+        boolean name = separate();
+        writeAscii(text);
+        return afterToken(name);
+    }
+
+    private TelemetryWriter open(char bracket, boolean object) {
+        separate();
+        writeByte(bracket);
+        depth++;
+        counts[depth] = 0;
+        objects[depth] = object;
+        return this;
+    }
+
+    /**
+     * Write the separator for the next element and count it; returns true if it is a field name
+     */
+    private boolean separate() {
+        if (depth == 0) {
+            return false;
+        }
+        int index = counts[depth]++;
+        boolean name = objects[depth] && index % 2 == 0;
+        if (index > 0 && (!objects[depth] || name)) {
+            writeByte(',');
+        }
+        return name;
+    }
+
+    private TelemetryWriter afterToken(boolean name) {
+        if (name) {
+            writeByte(':');
+        }
+        return this;
+    }
+
+    private void writeAscii(CharSequence text) {
+        ensureCapacity(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[length++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void writeHex(long bits, int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            buffer[length++] = HEX[(int) (bits >>> shift) & 0xf];
+        }
+    }
+
+    /**
+     * Write the non-ASCII character at index i (a surrogate pair counts as one); returns the last index used
+     */
+    private int writeUtf8(String value, int i) {
+        int codePoint = value.codePointAt(i);
+        ensureCapacity(4);
+        if (codePoint < 0x800) {
+            buffer[length++] = (byte) (0xc0 | codePoint >> 6);
+            buffer[length++] = (byte) (0x80 | codePoint & 0x3f);
+        } else if (codePoint < 0x10000) {
+            buffer[length++] = (byte) (0xe0 | codePoint >> 12);
+            buffer[length++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+            buffer[length++] = (byte) (0x80 | codePoint & 0x3f);
+        } else {
+            buffer[length++] = (byte) (0xf0 | codePoint >> 18);
+            buffer[length++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+            buffer[length++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+            buffer[length++] = (byte) (0x80 | codePoint & 0x3f);
+        }
+        return i + Character.charCount(codePoint) - 1;
+    }
+}
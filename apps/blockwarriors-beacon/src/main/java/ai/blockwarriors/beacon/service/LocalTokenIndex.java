@@ -0,0 +1,118 @@
+package ai.blockwarriors.beacon.service;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unused login tokens of the Waiting matches this server knows about, so /login can accept a
+ * player without a round trip to Convex.
+ * Filled from the acknowledge response (or /matches/tokens for Waiting matches acknowledged
+ * before a restart) and pruned to the matches that are still Queuing/Waiting on every poll.
+ * A token is claimed by one player at a time; TokenValidator confirms the claim with Convex in
+ * the background and releases it again if that fails.
+ */
+public class LocalTokenIndex {
+    private static final class Entry {
+        final String matchId;
+        final long expiresAt;
+        final AtomicReference<UUID> claimedBy = new AtomicReference<>();
+
+        Entry(String matchId, long expiresAt) {
+            this.matchId = matchId;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Entry> tokens = new ConcurrentHashMap<>(); // token -> entry
+    private final Set<String> indexedMatches = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Index the tokens from a /matches/acknowledge response ({tokens: {redTeam, blueTeam}, expiresAt})
+     */
+    public void indexAcknowledged(String matchId, JSONObject acknowledgement) {
+        JSONObject teams = acknowledgement.optJSONObject("tokens");
+        if (teams == null) {
+            return;
+        }
+        long expiresAt = acknowledgement.optLong("expiresAt", Long.MAX_VALUE);
+        for (String team : teams.keySet()) {
+            JSONArray teamTokens = teams.optJSONArray(team);
+            if (teamTokens == null) {
+                continue;
+            }
+            for (int i = 0; i < teamTokens.length(); i++) {
+                tokens.put(teamTokens.getString(i), new Entry(matchId, expiresAt));
+            }
+        }
+        indexedMatches.add(matchId);
+    }
+
+    /**
+     * Index the still unused tokens from a /matches/tokens response
+     */
+    public void indexTokens(String matchId, List<ConvexToken> tokenDocs) {
+        for (ConvexToken token : tokenDocs) {
+            if (!token.active() || token.isUsed()) {
+                continue;
+            }
+            tokens.putIfAbsent(token.token(), new Entry(matchId, token.expiresAt()));
+        }
+        indexedMatches.add(matchId);
+    }
+
+    public boolean isIndexed(String matchId) {
+        return indexedMatches.contains(matchId);
+    }
+
+    /**
+     * Forget every match that isn't in the given set (started, finished or terminated elsewhere)
+     */
+    public void retainMatches(Collection<String> matchIds) {
+        indexedMatches.retainAll(matchIds);
+        tokens.values().removeIf(entry -> !matchIds.contains(entry.matchId));
+    }
+
+    /**
+     * Claim a token for a player
+     * Returns the token's match ID, or null if the token is unknown, expired or claimed by someone else
+     */
+    public String claim(String token, UUID playerId) {
+        Entry entry = tokens.get(token);
+        if (entry == null || entry.expiresAt < System.currentTimeMillis()) {
+            return null;
+        }
+        if (entry.claimedBy.compareAndSet(null, playerId) || playerId.equals(entry.claimedBy.get())) {
+            return entry.matchId;
+        }
+        return null;
+    }
+
+    /**
+     * Give a claimed token back (Convex could not confirm the claim)
+     */
+    public void release(String token, UUID playerId) {
+        Entry entry = tokens.get(token);
+        if (entry != null) {
+            entry.claimedBy.compareAndSet(playerId, null);
+        }
+    }
+
+    /**
+     * Drop a token that is used in Convex now, or that Convex refused
+     */
+    public void remove(String token) {
+        tokens.remove(token);
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+}
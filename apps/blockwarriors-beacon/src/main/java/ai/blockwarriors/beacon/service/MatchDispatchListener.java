@@ -0,0 +1,152 @@
+package ai.blockwarriors.beacon.service;
+
+import java.io.InterruptedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Holds a long-poll connection to GET /matches/dispatch and hands the dispatchable matches
+ * (Queuing, Waiting, Playing) to a handler as soon as Convex reports a change, so a match
+ * starts without waiting for the next poll.
+ * Runs on its own daemon thread because each request blocks for up to the long-poll timeout.
+ */
+public class MatchDispatchListener implements Runnable {
+    private static final Logger LOGGER = Logger.getLogger("beacon");
+    private static final long MIN_BACKOFF_MS = 1000L;
+    private static final long MAX_BACKOFF_MS = 30000L;
+    // Extra time on top of the long-poll wait before the HTTP request itself times out
+    private static final Duration REQUEST_GRACE = Duration.ofSeconds(10);
+
+    /**
+     * A dispatch response ({cursor, matches}); null for a 204 (no change before the timeout), which has an empty body
+     */
+    private record Dispatch(String cursor, List<ConvexMatch> matches) {
+        static final ConvexClient.Decoder<Dispatch> DECODER = body -> {
+            JsonPullReader reader = new JsonPullReader(body);
+            if (reader.peek() == JsonPullReader.Token.END_DOCUMENT) {
+                return null;
+            }
+            String cursor = null;
+            List<ConvexMatch> matches = Collections.emptyList();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "cursor":
+                        cursor = reader.nextString();
+                        break;
+                    case "matches":
+                        matches = ConvexMatch.readList(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new Dispatch(cursor, matches);
+        };
+    }
+
+    private final ConvexClient convexClient;
+    private final long waitMs;
+    private final Consumer<List<ConvexMatch>> handler;
+    private final Runnable onUnavailable;
+    private volatile boolean running = false;
+    private Thread thread;
+
+    /**
+     * @param handler       receives the current dispatchable matches after every change
+     * @param onUnavailable called once if the Convex deployment has no dispatch route
+     */
+    public MatchDispatchListener(ConvexClient convexClient, long waitMs, Consumer<List<ConvexMatch>> handler,
+            Runnable onUnavailable) {
+        this.convexClient = convexClient;
+        this.waitMs = waitMs;
+        this.handler = handler;
+        this.onUnavailable = onUnavailable;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            LOGGER.warning("MatchDispatchListener is already running");
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "beacon-match-dispatch");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("MatchDispatchListener started (long-poll wait: " + waitMs + "ms)");
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        thread.interrupt();
+        thread = null;
+        LOGGER.info("MatchDispatchListener stopped");
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void run() {
+        String cursor = null;
+        long backoffMs = MIN_BACKOFF_MS;
+
+        while (running) {
+            try {
+                String path = "/matches/dispatch?timeout_ms=" + waitMs;
+                if (cursor != null) {
+                    path += "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8);
+                }
+
+                Dispatch response = convexClient.get(path, Duration.ofMillis(waitMs).plus(REQUEST_GRACE),
+                        Dispatch.DECODER);
+                backoffMs = MIN_BACKOFF_MS;
+                if (response == null) {
+                    continue; // Nothing changed before the timeout
+                }
+
+                cursor = response.cursor();
+                handler.accept(response.matches());
+            } catch (ConvexException e) {
+                if (e.getStatusCode() == 404) {
+                    LOGGER.warning("Convex has no /matches/dispatch route, falling back to polling");
+                    running = false;
+                    onUnavailable.run();
+                    return;
+                }
+                LOGGER.warning("Match dispatch request failed: HTTP " + e.getStatusCode());
+                backoffMs = sleepBackoff(backoffMs);
+            } catch (InterruptedIOException e) {
+                return; // Interrupted by stop()
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                LOGGER.warning("Error waiting for match changes: " + e.getMessage());
+                backoffMs = sleepBackoff(backoffMs);
+            }
+        }
+    }
+
+    /**
+     * Sleep before reconnecting and return the next (doubled) backoff
+     */
+    private long sleepBackoff(long backoffMs) {
+        try {
+            Thread.sleep(backoffMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+    }
+}
@@ -0,0 +1,261 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Material;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Append-only log of one match's combat events (hits, damage, projectile launches, block
+ * placements, item consumption), numbered with a sequence that only ever increases.
+ * Events are kept in primitive columns and sent with the match's telemetry updates; Convex
+ * stores each sequence number once, so a batch that is resent after a failure is harmless.
+ * Listeners append on the main thread; the telemetry lane prepares, writes and acknowledges
+ * a run of events on its own thread. If Convex is unreachable for long, the oldest events
+ * are dropped beyond maxEvents (the gap shows in the sequence numbers).
+ */
+public class MatchEventLog {
+    public enum Type {
+        HIT("hit"), // actor hit target (melee or projectile) for amount final damage
+        DAMAGE("damage"), // actor took amount damage without an attacker; detail is the cause
+        PROJECTILE("projectile"), // actor launched a projectile; detail is its type
+        BLOCK_PLACE("block_place"), // actor placed item at x/y/z
+        CONSUME("consume"); // actor ate or drank item
+
+        private final String wireName;
+
+        Type(String wireName) {
+            this.wireName = wireName;
+        }
+
+        public String getWireName() {
+            return wireName;
+        }
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    private final String matchId;
+    private final int maxEvents;
+    private long firstSeq = 1; // Sequence number of the event at index 0
+    private int size = 0;
+    private long dropped = 0;
+    private byte[] types;
+    private long[] timestamps;
+    private UUID[] actors;
+    private UUID[] targets;
+    private float[] amounts;
+    private Material[] items;
+    private String[] details;
+    private double[] x;
+    private double[] y;
+    private double[] z;
+
+    private long sendUpTo = 0; // Last sequence number of the run being sent (lane thread only)
+
+    public MatchEventLog(String matchId, int maxEvents) {
+        this.matchId = matchId;
+        this.maxEvents = Math.max(1, maxEvents);
+        allocate(Math.min(64, this.maxEvents));
+    }
+
+    public String getMatchId() {
+        return matchId;
+    }
+
+    /**
+     * Append an event and return its sequence number (main thread); target, item and detail may be null
+     */
+    public synchronized long append(Type type, UUID actor, UUID target, double amount, Material item, String detail,
+            double x, double y, double z) {
+        if (size == maxEvents) {
+            // Drop the oldest eighth at once rather than shifting the whole log for every new event
+            int drop = Math.max(1, maxEvents / 8);
+            removeFirst(drop);
+            dropped += drop;
+        } else if (size == types.length) {
+            grow();
+        }
+        types[size] = (byte) type.ordinal();
+        timestamps[size] = System.currentTimeMillis();
+        actors[size] = actor;
+        targets[size] = target;
+        amounts[size] = (float) amount;
+        items[size] = item;
+        details[size] = detail;
+        this.x[size] = x;
+        this.y[size] = y;
+        this.z[size] = z;
+        size++;
+        return firstSeq + size - 1;
+    }
+
+    /**
+     * Sequence number of the last appended event (0 if none yet)
+     */
+    public synchronized long getLastSeq() {
+        return firstSeq + size - 1;
+    }
+
+    public synchronized boolean hasPending() {
+        return size > 0;
+    }
+
+    /**
+     * Events dropped because the log was full, since the last call
+     */
+    public synchronized long takeDropped() {
+        long count = dropped;
+        dropped = 0;
+        return count;
+    }
+
+    /**
+     * Choose the run of unacknowledged events (at most max) the next write sends
+     * Returns false if there is nothing to send
+     */
+    public synchronized boolean prepareSend(int max) {
+        if (size == 0) {
+            sendUpTo = 0;
+            return false;
+        }
+        sendUpTo = firstSeq + Math.min(size, max) - 1;
+        return true;
+    }
+
+    /**
+     * Write the prepared run as {first_seq, type, timestamp, actor, target, amount, item, detail, x, y, z}
+     * (parallel arrays; target, item and detail are "" when the event has none)
+     */
+    public synchronized void write(TelemetryWriter out) {
+        int count = preparedCount();
+        out.beginObject(11);
+        out.name("first_seq").integer(firstSeq);
+        out.name("type").beginArray(count);
+        for (int i = 0; i < count; i++) {
+            out.string(TYPES[types[i]].getWireName());
+        }
+        out.end();
+        out.name("timestamp").beginArray(count);
+        for (int i = 0; i < count; i++) {
+            out.integer(timestamps[i]);
+        }
+        out.end();
+        writeUuids(out, "actor", actors, count);
+        writeUuids(out, "target", targets, count);
+        out.name("amount").beginArray(count);
+        for (int i = 0; i < count; i++) {
+            out.number(amounts[i]);
+        }
+        out.end();
+        out.name("item").beginArray(count);
+        for (int i = 0; i < count; i++) {
+            out.string(items[i] == null ? "" : TelemetryCollector.displayName(items[i]));
+        }
+        out.end();
+        out.name("detail").beginArray(count);
+        for (int i = 0; i < count; i++) {
+            out.string(details[i] == null ? "" : details[i]);
+        }
+        out.end();
+        writeColumn(out, "x", x, count);
+        writeColumn(out, "y", y, count);
+        writeColumn(out, "z", z, count);
+        out.end();
+    }
+
+    /**
+     * The prepared run as a JSONObject, for the final state that goes through the outbox
+     */
+    public JSONObject toJson() {
+        JsonTelemetryWriter writer = new JsonTelemetryWriter();
+        writer.reset();
+        write(writer);
+        return new JSONObject(new String(writer.buffer(), 0, writer.length(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Convex stored the prepared run: forget those events
+     */
+    public synchronized void acknowledgeSent() {
+        int count = preparedCount();
+        if (count > 0) {
+            removeFirst(count);
+        }
+        sendUpTo = 0;
+    }
+
+    /**
+     * Events of the prepared run that are still in the log (some may have been dropped meanwhile)
+     */
+    private int preparedCount() {
+        return (int) Math.max(0, Math.min(size, sendUpTo - firstSeq + 1));
+    }
+
+    private void writeUuids(TelemetryWriter out, String name, UUID[] column, int count) {
+        out.name(name).beginArray(count);
+        for (int i = 0; i < count; i++) {
+            if (column[i] == null) {
+                out.string("");
+            } else {
+                out.uuid(column[i]);
+            }
+        }
+        out.end();
+    }
+
+    private void writeColumn(TelemetryWriter out, String name, double[] column, int count) {
+        out.name(name).beginArray(count);
+        for (int i = 0; i < count; i++) {
+            out.number(column[i]);
+        }
+        out.end();
+    }
+
+    private void removeFirst(int count) {
+        int kept = size - count;
+        System.arraycopy(types, count, types, 0, kept);
+        System.arraycopy(timestamps, count, timestamps, 0, kept);
+        System.arraycopy(actors, count, actors, 0, kept);
+        System.arraycopy(targets, count, targets, 0, kept);
+        System.arraycopy(amounts, count, amounts, 0, kept);
+        System.arraycopy(items, count, items, 0, kept);
+        System.arraycopy(details, count, details, 0, kept);
+        System.arraycopy(x, count, x, 0, kept);
+        System.arraycopy(y, count, y, 0, kept);
+        System.arraycopy(z, count, z, 0, kept);
+        Arrays.fill(actors, kept, size, null);
+        Arrays.fill(targets, kept, size, null);
+        size = kept;
+        firstSeq += count;
+    }
+
+    private void allocate(int capacity) {
+        types = new byte[capacity];
+        timestamps = new long[capacity];
+        actors = new UUID[capacity];
+        targets = new UUID[capacity];
+        amounts = new float[capacity];
+        items = new Material[capacity];
+        details = new String[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        z = new double[capacity];
+    }
+
+    private void grow() {
+        int capacity = Math.min(maxEvents, types.length * 2);
+        types = Arrays.copyOf(types, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        actors = Arrays.copyOf(actors, capacity);
+        targets = Arrays.copyOf(targets, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        items = Arrays.copyOf(items, capacity);
+        details = Arrays.copyOf(details, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+    }
+}
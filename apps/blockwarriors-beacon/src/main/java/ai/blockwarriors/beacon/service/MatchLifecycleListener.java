@@ -0,0 +1,21 @@
+package ai.blockwarriors.beacon.service;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Receives local match lifecycle transitions from MatchManager
+ * Both callbacks run on the main server thread
+ */
+public interface MatchLifecycleListener {
+    /**
+     * A match has been registered with its world and players
+     */
+    void onMatchStarted(String matchId, Set<UUID> playerIds);
+
+    /**
+     * A match is ending on this server (called before its final state and status are sent)
+     * @param status The status the match ends with ("Finished" or "Terminated")
+     */
+    void onMatchEnded(String matchId, String status);
+}
@@ -1,12 +1,15 @@
 package ai.blockwarriors.beacon.service;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 /**
@@ -15,29 +18,61 @@ import java.util.logging.Logger;
 public class MatchManager {
     private static final Logger LOGGER = Logger.getLogger("beacon");
     private final JavaPlugin plugin;
-    private final String convexSiteUrl;
-    private final String convexHttpSecret;
+    private final ConvexOutbox outbox;
+    private final ArenaWorldPool worldPool;
     private MatchTelemetryService telemetryService;
-    
+
+    // Written on the main thread; read by MatchPollingService's per-match virtual threads too
     // Map match ID to world name
-    private final Map<String, String> matchWorlds = new HashMap<>();
+    private final Map<String, String> matchWorlds = new ConcurrentHashMap<>();
     
-    // Map match ID to set of player UUIDs
-    private final Map<String, Set<UUID>> matchPlayers = new HashMap<>();
+    // Map match ID to set of player UUIDs (the sets are not changed after registration)
+    private final Map<String, Set<UUID>> matchPlayers = new ConcurrentHashMap<>();
     
     // Map player UUID to match ID
-    private final Map<UUID, String> playerMatches = new HashMap<>();
+    private final Map<UUID, String> playerMatches = new ConcurrentHashMap<>();
 
-    public MatchManager(JavaPlugin plugin, String convexSiteUrl, String convexHttpSecret) {
+    // Notified when matches start and end locally
+    private final List<MatchLifecycleListener> lifecycleListeners = new CopyOnWriteArrayList<>();
+
+    public MatchManager(JavaPlugin plugin, ConvexOutbox outbox, ArenaWorldPool worldPool) {
         this.plugin = plugin;
-        this.convexSiteUrl = convexSiteUrl;
-        this.convexHttpSecret = convexHttpSecret;
+        this.outbox = outbox;
+        this.worldPool = worldPool;
     }
 
     public void setTelemetryService(MatchTelemetryService telemetryService) {
         this.telemetryService = telemetryService;
     }
 
+    /**
+     * Subscribe to local match start/end transitions
+     */
+    public void addLifecycleListener(MatchLifecycleListener listener) {
+        lifecycleListeners.add(listener);
+    }
+
+    /**
+     * Take an arena world for a new match from the pool (null if none is ready or could be created)
+     */
+    public World leaseArena() {
+        return worldPool.lease();
+    }
+
+    /**
+     * Spawn point of the index-th player of a team ("blue" or "red") in a leased arena world
+     */
+    public Location getArenaSpawn(World world, String team, int index) {
+        return worldPool.getSpawn(world, team, index);
+    }
+
+    /**
+     * Give back an arena world not used by a registered match (one that failed to start, or a debug match)
+     */
+    public void returnArena(String worldName) {
+        worldPool.release(worldName);
+    }
+
     /**
      * Register a match with its world and players
      */
@@ -49,10 +84,14 @@ public class MatchManager {
             playerIds.add(player.getUniqueId());
             playerMatches.put(player.getUniqueId(), matchId);
         }
-        matchPlayers.put(matchId, playerIds);
+        matchPlayers.put(matchId, Collections.unmodifiableSet(playerIds));
         
         LOGGER.info("Registered match " + matchId + " with world " + worldName + 
                    " and " + players.size() + " players");
+
+        for (MatchLifecycleListener listener : lifecycleListeners) {
+            listener.onMatchStarted(matchId, Collections.unmodifiableSet(playerIds));
+        }
     }
 
     /**
@@ -77,7 +116,7 @@ public class MatchManager {
     }
 
     /**
-     * End a match - update status, delete world, kick players
+     * End a match - update status, return the world to the pool, kick players
      * @param deadPlayerId UUID of the player who died (to set health to 0 in final state)
      */
     public void endMatch(String matchId, String winnerPlayerId, UUID deadPlayerId) {
@@ -91,6 +130,10 @@ public class MatchManager {
 
         LOGGER.info("Ending match " + matchId + " (winner: " + (winnerPlayerId != null ? winnerPlayerId : "none") + ", dead player: " + (deadPlayerId != null ? deadPlayerId.toString() : "none") + ")");
 
+        for (MatchLifecycleListener listener : lifecycleListeners) {
+            listener.onMatchEnded(matchId, "Finished");
+        }
+
         // Send final match state before marking as finished
         if (telemetryService != null) {
             telemetryService.sendFinalMatchState(matchId, winnerPlayerId, deadPlayerId);
@@ -114,8 +157,8 @@ public class MatchManager {
                     }
                 }
 
-                // Delete the world
-                ai.blockwarriors.commands.debug.CreateMatchCommand.deleteMatchWorld(worldName);
+                // Reset the world into the pool (or delete it)
+                worldPool.release(worldName);
 
                 // Unregister players from telemetry service
                 if (telemetryService != null) {
@@ -131,49 +174,30 @@ public class MatchManager {
                     playerMatches.remove(playerId);
                 }
 
-                LOGGER.info("Match " + matchId + " cleaned up and world deleted");
+                LOGGER.info("Match " + matchId + " cleaned up and world returned");
             }
         }.runTaskLater(plugin, 60L); // 3 seconds delay (60 ticks)
     }
 
     /**
      * Update match status and winner in Convex
+     * Recorded in the durable outbox and sent in the background, so the result is never lost
+     * and a slow Convex doesn't hold up the server
      * @param matchId The match ID
      * @param status The new match status
      * @param winnerPlayerId The Minecraft UUID of the winning player (nullable)
      */
     private void updateMatchStatus(String matchId, String status, String winnerPlayerId) {
-        try {
-            java.net.URL url = new java.net.URL(convexSiteUrl + "/matches/update");
-            java.net.HttpURLConnection conn = (java.net.HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + convexHttpSecret);
-            conn.setDoOutput(true);
-
-            org.json.JSONObject requestBody = new org.json.JSONObject();
-            requestBody.put("match_id", matchId);
-            requestBody.put("match_status", status);
-            if (winnerPlayerId != null) {
-                requestBody.put("winner_player_id", winnerPlayerId);
-            }
-
-            try (java.io.OutputStream os = conn.getOutputStream()) {
-                byte[] input = requestBody.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode != 200) {
-                LOGGER.warning("Failed to update match status: HTTP " + responseCode);
-            } else {
-                LOGGER.info("Updated match " + matchId + " status to " + status + 
-                    (winnerPlayerId != null ? " with winner " + winnerPlayerId : ""));
-            }
-        } catch (Exception e) {
-            LOGGER.severe("Error updating match status: " + e.getMessage());
-            e.printStackTrace();
+        org.json.JSONObject requestBody = new org.json.JSONObject();
+        requestBody.put("match_id", matchId);
+        requestBody.put("match_status", status);
+        if (winnerPlayerId != null) {
+            requestBody.put("winner_player_id", winnerPlayerId);
         }
+
+        outbox.enqueue("/matches/update", requestBody);
+        LOGGER.info("Queued match " + matchId + " status update to " + status +
+            (winnerPlayerId != null ? " with winner " + winnerPlayerId : ""));
     }
 
     /**
@@ -1,279 +1,381 @@
 package ai.blockwarriors.beacon.service;
 
 import org.bukkit.Bukkit;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 
 import ai.blockwarriors.commands.debug.CreateMatchCommand;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Logger;
 
 /**
- * Service that polls Convex HTTP routes for queued matches and starts them
+ * Service that watches Convex for queued matches and starts them
  * when all players (tokens) have logged in.
+ * In push mode a MatchDispatchListener delivers changes as they happen and polling only
+ * runs as a slow reconciliation pass; in poll mode (or if push is unavailable) the poll
+ * interval adapts: fast while matches are Queuing/Waiting, slower when idle, and backing
+ * off with jitter while Convex fails.
  */
 public class MatchPollingService {
     private static final Logger LOGGER = Logger.getLogger("beacon");
     private final JavaPlugin plugin;
-    private final String convexSiteUrl;
-    private final String convexHttpSecret;
+    private final ConvexClient convexClient;
+    private final ConvexOutbox outbox;
+    private final LocalTokenIndex tokenIndex; // Unused tokens of Waiting matches, for instant /login
     private MatchManager matchManager;
-    private int taskId = -1;
-    private static final int POLL_INTERVAL_SECONDS = 5; // Poll every 5 seconds
-
-    public MatchPollingService(JavaPlugin plugin, String convexSiteUrl, String convexHttpSecret) {
+    private volatile AdaptiveTask pollTask; // Read without the lock by getCurrentPollIntervalTicks
+    // Held while a batch of matches is processed (network I/O); never the object monitor, so the
+    // getters and stop() called from the main thread don't wait for a poll pass
+    private final Object processLock = new Object();
+    private static final String[] POLLED_STATUSES = { "Queuing", "Waiting", "Playing" };
+
+    // Push-based dispatch
+    private final boolean pushEnabled;
+    private final long longPollTimeoutMs;
+    private final int reconcileIntervalSeconds;
+    private MatchDispatchListener dispatchListener;
+
+    // Adaptive poll interval (poll mode)
+    private final int minPollSeconds;
+    private final int idlePollSeconds;
+    private final int maxBackoffSeconds;
+    // Whether the last processed set had Queuing/Waiting matches (or had to be retried)
+    private volatile boolean hasPendingMatches = false;
+
+    // Combined conditional poll: ETag of the last poll whose matches were all processed, sent as
+    // If-None-Match so an unchanged set costs a 304 and no processing
+    private volatile String matchesEtag;
+    private volatile boolean combinedPollSupported = true;
+
+    // Per-match work (acknowledge, readiness, start) runs concurrently on virtual threads, capped by matchPermits
+    private final ExecutorService matchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore matchPermits;
+
+    // Matches handed to startMatch but not registered with MatchManager yet,
+    // so a Playing update arriving meanwhile doesn't start them a second time
+    private final Set<String> startingMatches = ConcurrentHashMap.newKeySet();
+
+    public MatchPollingService(JavaPlugin plugin, ConvexClient convexClient, ConvexOutbox outbox,
+            LocalTokenIndex tokenIndex) {
         this.plugin = plugin;
-        this.convexSiteUrl = convexSiteUrl;
-        this.convexHttpSecret = convexHttpSecret;
+        this.convexClient = convexClient;
+        this.outbox = outbox;
+        this.tokenIndex = tokenIndex;
+        this.pushEnabled = "push".equalsIgnoreCase(plugin.getConfig().getString("match-dispatch.mode", "push"));
+        this.longPollTimeoutMs = Math.max(1000L, plugin.getConfig().getLong("match-dispatch.long-poll-timeout-ms", 25000L));
+        this.minPollSeconds = Math.max(1, plugin.getConfig().getInt("match-dispatch.poll-interval.min-seconds", 1));
+        this.idlePollSeconds = Math.max(minPollSeconds,
+                plugin.getConfig().getInt("match-dispatch.poll-interval.idle-seconds", 15));
+        this.reconcileIntervalSeconds = Math.max(minPollSeconds,
+                plugin.getConfig().getInt("match-dispatch.reconcile-interval-seconds", 30));
+        this.maxBackoffSeconds = Math.max(Math.max(idlePollSeconds, reconcileIntervalSeconds),
+                plugin.getConfig().getInt("match-dispatch.poll-interval.max-backoff-seconds", 120));
+        this.matchPermits = new Semaphore(Math.max(1, plugin.getConfig().getInt("match-dispatch.max-concurrent-matches", 8)));
     }
 
     public void setMatchManager(MatchManager matchManager) {
         this.matchManager = matchManager;
     }
 
-    public void start() {
-        if (taskId != -1) {
+    public synchronized void start() {
+        if (pollTask != null) {
             LOGGER.warning("MatchPollingService is already running");
             return;
         }
 
-        LOGGER.info("Starting MatchPollingService with Convex URL: " + convexSiteUrl);
-
-        // Run the polling task every POLL_INTERVAL_SECONDS seconds
-        taskId = Bukkit.getScheduler().runTaskTimerAsynchronously(
-                plugin,
-                this::pollAndProcessMatches,
-                0L, // Start immediately
-                POLL_INTERVAL_SECONDS * 20L // Convert seconds to ticks (20 ticks = 1 second)
-        ).getTaskId();
+        LOGGER.info("Starting MatchPollingService with Convex URL: " + convexClient.getSiteUrl());
+
+        if (pushEnabled) {
+            // The listener's first request returns the current matches, so reconciliation can wait a full interval
+            dispatchListener = new MatchDispatchListener(convexClient, longPollTimeoutMs, this::processMatches,
+                    this::onPushUnavailable);
+            dispatchListener.start();
+            startPolling(reconcileIntervalSeconds, reconcileIntervalSeconds, reconcileIntervalSeconds);
+            LOGGER.info("Match dispatch: push (reconciling every " + reconcileIntervalSeconds + "s)");
+        } else {
+            startPolling(0, minPollSeconds, idlePollSeconds);
+            LOGGER.info("Match dispatch: polling every " + minPollSeconds + "-" + idlePollSeconds + "s");
+        }
     }
 
-    public void stop() {
-        if (taskId != -1) {
-            Bukkit.getScheduler().cancelTask(taskId);
-            taskId = -1;
+    public synchronized void stop() {
+        if (dispatchListener != null) {
+            dispatchListener.stop();
+            dispatchListener = null;
+        }
+        if (pollTask != null) {
+            pollTask.stop();
+            pollTask = null;
             LOGGER.info("MatchPollingService stopped");
         }
+        matchExecutor.shutdownNow();
     }
 
-    private void pollAndProcessMatches() {
-        try {
-            // Fetch queued matches
-            List<JSONObject> queuedMatches = fetchQueuedMatches();
-
-            for (JSONObject match : queuedMatches) {
-                String matchId = match.getString("match_id");
-                String matchStatus = match.optString("match_status", "");
-
-                // Handle Queuing matches - need acknowledgment
-                if ("Queuing".equals(matchStatus)) {
-                    // Acknowledge the match - this generates tokens and updates status to "Waiting"
-                    // Convex determines tokens_per_team from the match's match_type
-                    if (!acknowledgeMatch(matchId)) {
-                        LOGGER.warning("Failed to acknowledge match " + matchId + ", skipping");
-                        continue;
-                    }
-                    LOGGER.info("Acknowledged match " + matchId + " and generated tokens");
-                    // After acknowledgment, status becomes "Waiting", so check readiness now
-                    matchStatus = "Waiting"; // Update status for immediate readiness check
-                    // Fall through to check readiness
-                }
+    /**
+     * Current delay between polls in ticks (-1 if not running)
+     */
+    public long getCurrentPollIntervalTicks() {
+        AdaptiveTask task = pollTask;
+        return task != null ? task.getInterval().getCurrentTicks() : -1;
+    }
 
-                // Handle Waiting matches - check readiness and start if ready
-                if ("Waiting".equals(matchStatus)) {
-                    // Check if match is ready (all tokens used)
-                    JSONObject readiness = checkMatchReadiness(matchId);
+    public boolean isPushActive() {
+        MatchDispatchListener listener = dispatchListener;
+        return listener != null && listener.isRunning();
+    }
 
-                    if (readiness == null) {
-                        LOGGER.warning("Failed to check readiness for match " + matchId + ", skipping");
-                        continue; // Error occurred, skip this match
-                    }
+    /**
+     * (Re)start the polling task with the given interval bounds (in seconds)
+     */
+    private synchronized void startPolling(int delaySeconds, int minSeconds, int idleSeconds) {
+        if (pollTask != null) {
+            pollTask.stop();
+        }
+        // Convert seconds to ticks (20 ticks = 1 second)
+        AdaptiveInterval interval = new AdaptiveInterval(minSeconds * 20L, idleSeconds * 20L, maxBackoffSeconds * 20L);
+        pollTask = new AdaptiveTask(plugin, "Match polling", interval, this::pollAndProcessMatches);
+        pollTask.start(delaySeconds * 20L);
+    }
 
-                    boolean ready = readiness.getBoolean("ready");
-                    int totalTokens = readiness.getInt("totalTokens");
-                    int usedTokens = readiness.getInt("usedTokens");
-
-                    // Check for error in readiness response
-                    if (readiness.has("error")) {
-                        String error = readiness.optString("error", "Unknown error");
-                        LOGGER.warning(String.format(
-                                "Match %s readiness check error: %s",
-                                matchId, error));
-                        continue; // Skip this match
-                    }
+    /**
+     * Called by the dispatch listener when Convex doesn't support push - go back to regular polling
+     */
+    private synchronized void onPushUnavailable() {
+        if (pollTask != null) {
+            startPolling(0, minPollSeconds, idlePollSeconds);
+        }
+    }
 
-                    LOGGER.info(String.format(
-                            "Match %s: %d/%d tokens used (ready: %s)",
-                            matchId, usedTokens, totalTokens, ready));
-
-                    // Only start match if all tokens have been used
-                    if (ready && totalTokens > 0 && usedTokens == totalTokens) {
-                        LOGGER.info(String.format(
-                                "Match %s is ready! Starting match with %d/%d tokens used.",
-                                matchId, usedTokens, totalTokens));
-                        // All tokens have been used - start the match
-                        processReadyMatch(match, readiness);
-                    } else {
-                        LOGGER.info(String.format(
-                                "Match %s not ready yet. %d/%d tokens used.",
-                                matchId, usedTokens, totalTokens));
-                    }
-                    continue; // Processed this Waiting match, move to next
+    /**
+     * Poll Convex once and process the matches
+     * Returns how soon the next poll should run: ACTIVE while matches are Queuing/Waiting, IDLE otherwise
+     */
+    private AdaptiveInterval.Outcome pollAndProcessMatches() {
+        if (combinedPollSupported) {
+            try {
+                ConvexClient.Tagged<List<ConvexMatch>> polled = convexClient.getIfNoneMatch("/matches/actionable",
+                        matchesEtag, ConvexMatch.IN_MATCHES_FIELD);
+                if (polled == null) {
+                    // 304 - nothing changed since the last complete pass
+                    return hasPendingMatches ? AdaptiveInterval.Outcome.ACTIVE : AdaptiveInterval.Outcome.IDLE;
                 }
 
-                // Handle Playing matches - if website clicked Begin Game but match hasn't
-                // started yet
-                if ("Playing".equals(matchStatus)) {
-                    // Check if match has actually started (registered in MatchManager)
-                    // If not, start it now
-                    boolean matchStarted = false;
-                    if (matchManager != null) {
-                        // Try to get world name - if it exists, match has started
-                        String worldName = matchManager.getWorldNameForMatch(matchId);
-                        matchStarted = (worldName != null);
+                synchronized (processLock) {
+                    if (processMatches(polled.getValue())) {
+                        matchesEtag = polled.getEtag();
                     }
-
-                    if (!matchStarted) {
-                        // Match is Playing but not registered, so it hasn't started yet
-                        List<Player> players = getPlayersForMatch(matchId);
-                        if (players.size() > 0) {
-                            LOGGER.info("Match " + matchId + " is Playing but not started yet. Starting now...");
-                            Bukkit.getScheduler().runTask(plugin, () -> {
-                                startMatch(match, players);
-                            });
-                        } else {
-                            LOGGER.warning("Match " + matchId + " is Playing but no players found. Cannot start.");
-                        }
-                    }
-                    continue;
                 }
-
-                // Skip matches in other statuses (Finished, Terminated)
-                // These are already handled or completed
+                return hasPendingMatches ? AdaptiveInterval.Outcome.ACTIVE : AdaptiveInterval.Outcome.IDLE;
+            } catch (ConvexException e) {
+                if (e.getStatusCode() != 404) {
+                    LOGGER.warning("Failed to poll matches: HTTP " + e.getStatusCode());
+                    return AdaptiveInterval.Outcome.ERROR;
+                }
+                LOGGER.warning("Convex has no /matches/actionable route, polling each status separately");
+                combinedPollSupported = false;
+            } catch (Exception e) {
+                LOGGER.warning("Error polling matches: " + e.getMessage());
+                return AdaptiveInterval.Outcome.ERROR;
             }
-        } catch (Exception e) {
-            LOGGER.severe("Error polling matches: " + e.getMessage());
-            e.printStackTrace();
         }
+
+        processMatches(fetchQueuedMatches());
+        return hasPendingMatches ? AdaptiveInterval.Outcome.ACTIVE : AdaptiveInterval.Outcome.IDLE;
     }
 
     /**
-     * Fetch matches that need processing:
-     * - "Queuing" status: Need acknowledgment and token generation
-     * - "Waiting" status: Need readiness check and potential start
-     * - "Playing" status: Need to check if match has actually started (website may
-     * have clicked Begin Game)
+     * Act on the current Queuing/Waiting/Playing matches
+     * Called from both the polling task and the dispatch listener, so runs one batch at a time
+     * Returns false if some match has to be retried (e.g. a request failed); the poll ETag is
+     * then dropped so the next poll processes the full set again even if nothing changed
      */
-    private List<JSONObject> fetchQueuedMatches() {
-        List<JSONObject> allMatches = new ArrayList<>();
-
-        // Fetch Queuing matches (need acknowledgment)
-        try {
-            String urlString = convexSiteUrl + "/matches?status=Queuing";
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Content-Type", "application/json");
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode == 200) {
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                reader.close();
+    private boolean processMatches(List<ConvexMatch> queuedMatches) {
+        synchronized (processLock) {
+            return processBatch(queuedMatches);
+        }
+    }
 
-                JSONArray matchesArray;
+    private boolean processBatch(List<ConvexMatch> queuedMatches) {
+        // Each match runs on its own virtual thread (at most maxConcurrentMatches at once),
+        // so a slow acknowledge or readiness check doesn't hold up the other matches
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (ConvexMatch match : queuedMatches) {
+            results.add(matchExecutor.submit(() -> {
+                matchPermits.acquire();
                 try {
-                    matchesArray = new JSONArray(response.toString());
-                    for (int i = 0; i < matchesArray.length(); i++) {
-                        allMatches.add(matchesArray.getJSONObject(i));
-                    }
-                } catch (JSONException e) {
-                    LOGGER.warning("Failed to parse Queuing matches JSON: " + e.getMessage());
+                    return processMatch(match);
+                } finally {
+                    matchPermits.release();
                 }
+            }));
+        }
+
+        boolean pending = false;
+        Set<String> loginMatchIds = new HashSet<>();
+        for (ConvexMatch match : queuedMatches) {
+            String status = match.status();
+            if ("Queuing".equals(status) || "Waiting".equals(status)) {
+                pending = true;
+                loginMatchIds.add(match.matchId());
             }
-        } catch (Exception e) {
-            LOGGER.warning("Error fetching Queuing matches: " + e.getMessage());
         }
 
-        // Fetch Waiting matches (need readiness check)
-        try {
-            String urlString = convexSiteUrl + "/matches?status=Waiting";
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Content-Type", "application/json");
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode == 200) {
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                reader.close();
+        boolean complete = true;
+        for (Future<Boolean> result : results) {
+            try {
+                complete &= result.get();
+            } catch (ExecutionException e) {
+                LOGGER.severe("Error processing match: " + e.getCause().getMessage());
+                e.getCause().printStackTrace();
+                complete = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                complete = false;
+                break;
+            }
+        }
+
+        if (!complete) {
+            matchesEtag = null;
+        }
+        // Tokens of matches that started or went away can no longer be used to log in
+        tokenIndex.retainMatches(loginMatchIds);
+        hasPendingMatches = pending || !complete;
+        return complete;
+    }
 
-                JSONArray matchesArray;
+    /**
+     * Act on a single Queuing/Waiting/Playing match
+     * Returns false if the match has to be retried
+     */
+    private boolean processMatch(ConvexMatch match) {
+        String matchId = match.matchId();
+        String matchStatus = match.status();
+
+        // Handle Queuing matches - need acknowledgment
+        if ("Queuing".equals(matchStatus)) {
+            // Acknowledge the match - this generates tokens and updates status to "Waiting"
+            // Convex determines tokens_per_team from the match's match_type
+            if (!acknowledgeMatch(matchId)) {
+                LOGGER.warning("Failed to acknowledge match " + matchId + ", skipping");
+                return false;
+            }
+            LOGGER.info("Acknowledged match " + matchId + " and generated tokens");
+            // After acknowledgment, status becomes "Waiting", so check readiness now
+            matchStatus = "Waiting"; // Update status for immediate readiness check
+            // Fall through to check readiness
+        }
+
+        // Handle Waiting matches - check readiness and start if ready
+        if ("Waiting".equals(matchStatus)) {
+            // Already started here - Convex still says Waiting until the outbox delivers "Playing"
+            if (isStartedLocally(matchId)) {
+                return true;
+            }
+
+            // Acknowledged before a restart (or elsewhere) - index its tokens once for instant /login
+            if (!tokenIndex.isIndexed(matchId)) {
                 try {
-                    matchesArray = new JSONArray(response.toString());
-                    for (int i = 0; i < matchesArray.length(); i++) {
-                        allMatches.add(matchesArray.getJSONObject(i));
-                    }
-                } catch (JSONException e) {
-                    LOGGER.warning("Failed to parse Waiting matches JSON: " + e.getMessage());
+                    tokenIndex.indexTokens(matchId, fetchTokens(matchId));
+                } catch (IOException e) {
+                    LOGGER.warning("Could not index tokens for match " + matchId + ": " + e.getMessage());
                 }
             }
-        } catch (Exception e) {
-            LOGGER.warning("Error fetching Waiting matches: " + e.getMessage());
+
+            // Check if match is ready (all tokens used)
+            ConvexReadiness readiness = checkMatchReadiness(matchId);
+
+            if (readiness == null) {
+                LOGGER.warning("Failed to check readiness for match " + matchId + ", skipping");
+                return false; // Error occurred, skip this match
+            }
+
+            boolean ready = readiness.ready();
+            int totalTokens = readiness.totalTokens();
+            int usedTokens = readiness.usedTokens();
+
+            // Check for error in readiness response
+            if (readiness.error() != null) {
+                String error = readiness.error();
+                LOGGER.warning(String.format(
+                        "Match %s readiness check error: %s",
+                        matchId, error));
+                return false; // Skip this match
+            }
+
+            LOGGER.info(String.format(
+                    "Match %s: %d/%d tokens used (ready: %s)",
+                    matchId, usedTokens, totalTokens, ready));
+
+            // Only start match if all tokens have been used
+            if (ready && totalTokens > 0 && usedTokens == totalTokens) {
+                LOGGER.info(String.format(
+                        "Match %s is ready! Starting match with %d/%d tokens used.",
+                        matchId, usedTokens, totalTokens));
+                // All tokens have been used - start the match
+                processReadyMatch(match);
+            } else {
+                LOGGER.info(String.format(
+                        "Match %s not ready yet. %d/%d tokens used.",
+                        matchId, usedTokens, totalTokens));
+            }
+            return true; // Processed this Waiting match
         }
 
-        // Fetch Playing matches (may need to be started if website clicked Begin Game)
-        try {
-            String urlString = convexSiteUrl + "/matches?status=Playing";
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Content-Type", "application/json");
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode == 200) {
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
+        // Handle Playing matches - if website clicked Begin Game but match hasn't
+        // started yet
+        if ("Playing".equals(matchStatus)) {
+            // Check if match has actually started (registered in MatchManager)
+            // If not, start it now
+            if (!isStartedLocally(matchId)) {
+                // Match is Playing but not registered, so it hasn't started yet
+                List<Player> players = getPlayersForMatch(matchId);
+                if (players.size() > 0) {
+                    LOGGER.info("Match " + matchId + " is Playing but not started yet. Starting now...");
+                    startingMatches.add(matchId);
+                    Bukkit.getScheduler().runTask(plugin, () -> {
+                        startMatch(match, players);
+                    });
+                } else {
+                    LOGGER.warning("Match " + matchId + " is Playing but no players found. Cannot start.");
+                    return false;
                 }
-                reader.close();
+            }
+            return true;
+        }
 
-                JSONArray matchesArray;
-                try {
-                    matchesArray = new JSONArray(response.toString());
-                    for (int i = 0; i < matchesArray.length(); i++) {
-                        allMatches.add(matchesArray.getJSONObject(i));
-                    }
-                } catch (JSONException e) {
-                    LOGGER.warning("Failed to parse Playing matches JSON: " + e.getMessage());
-                }
+        // Skip matches in other statuses (Finished, Terminated)
+        // These are already handled or completed
+        return true;
+    }
+
+    /**
+     * Fetch matches that need processing, one request per status
+     * (fallback for Convex deployments without /matches/actionable):
+     * - "Queuing" status: Need acknowledgment and token generation
+     * - "Waiting" status: Need readiness check and potential start
+     * - "Playing" status: Need to check if match has actually started (website may
+     * have clicked Begin Game)
+     */
+    private List<ConvexMatch> fetchQueuedMatches() {
+        List<ConvexMatch> allMatches = new ArrayList<>();
+
+        for (String status : POLLED_STATUSES) {
+            try {
+                allMatches.addAll(convexClient.get("/matches?status=" + status, ConvexMatch.LIST));
+            } catch (Exception e) {
+                LOGGER.warning("Error fetching " + status + " matches: " + e.getMessage());
             }
-        } catch (Exception e) {
-            LOGGER.warning("Error fetching Playing matches: " + e.getMessage());
         }
 
         return allMatches;
@@ -286,56 +388,24 @@ public class MatchPollingService {
      */
     private boolean acknowledgeMatch(String matchId) {
         try {
-            String urlString = convexSiteUrl + "/matches/acknowledge";
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + convexHttpSecret);
-            conn.setDoOutput(true);
-
             // Only send match_id - Convex will determine tokens_per_team from match_type
             JSONObject requestBody = new JSONObject();
             requestBody.put("match_id", matchId);
 
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = requestBody.toString().getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode != 200) {
-                LOGGER.warning("Failed to acknowledge match " + matchId + ": HTTP " + responseCode);
-                BufferedReader errorReader = new BufferedReader(
-                        new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8));
-                StringBuilder errorResponse = new StringBuilder();
-                String line;
-                while ((line = errorReader.readLine()) != null) {
-                    errorResponse.append(line);
-                }
-                errorReader.close();
-                LOGGER.warning("Error response: " + errorResponse.toString());
-                return false;
-            }
-
-            // Read response to verify success
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            reader.close();
+            JSONObject result = convexClient.post("/matches/acknowledge", requestBody, ConvexClient.JSON_OBJECT);
 
             // Verify acknowledgment was successful
-            JSONObject result = new JSONObject(response.toString());
             if (result.has("tokens")) {
                 LOGGER.info("Successfully acknowledged match " + matchId + " and generated tokens");
+                tokenIndex.indexAcknowledged(matchId, result);
             } else {
                 LOGGER.warning("Acknowledgment response missing tokens for match " + matchId);
             }
             return true;
+        } catch (ConvexException e) {
+            LOGGER.warning("Failed to acknowledge match " + matchId + ": HTTP " + e.getStatusCode());
+            LOGGER.warning("Error response: " + e.getBody());
+            return false;
         } catch (Exception e) {
             LOGGER.severe("Error acknowledging match " + matchId + ": " + e.getMessage());
             e.printStackTrace();
@@ -343,31 +413,12 @@ public class MatchPollingService {
         }
     }
 
-    private JSONObject checkMatchReadiness(String matchId) {
+    private ConvexReadiness checkMatchReadiness(String matchId) {
         try {
-            String urlString = convexSiteUrl + "/matches/readiness?match_id=" + matchId;
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + convexHttpSecret);
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode != 200) {
-                LOGGER.warning("Failed to check match readiness: HTTP " + responseCode);
-                return null;
-            }
-
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            reader.close();
-
-            return new JSONObject(response.toString());
+            return convexClient.get("/matches/readiness?match_id=" + matchId, ConvexReadiness.DECODER);
+        } catch (ConvexException e) {
+            LOGGER.warning("Failed to check match readiness: HTTP " + e.getStatusCode());
+            return null;
         } catch (Exception e) {
             LOGGER.severe("Error checking match readiness: " + e.getMessage());
             e.printStackTrace();
@@ -375,16 +426,21 @@ public class MatchPollingService {
         }
     }
 
-    private void processReadyMatch(JSONObject match, JSONObject readiness) {
-        String matchId;
-        try {
-            matchId = match.getString("match_id");
-        } catch (JSONException e) {
-            LOGGER.severe("Error getting match ID: " + e.getMessage());
-            e.printStackTrace();
-            return;
+    /**
+     * Whether the match is being started or is registered with MatchManager on this server
+     */
+    private boolean isStartedLocally(String matchId) {
+        if (startingMatches.contains(matchId)) {
+            return true;
         }
+        // If the match has a world, it has started
+        return matchManager != null && matchManager.getWorldNameForMatch(matchId) != null;
+    }
+
+    private void processReadyMatch(ConvexMatch match) {
+        String matchId = match.matchId();
         LOGGER.info("Match " + matchId + " is ready! All players have logged in. Starting match...");
+        startingMatches.add(matchId);
 
         // Match status should already be "Waiting" from acknowledge
         // Update to "Playing"
@@ -400,43 +456,28 @@ public class MatchPollingService {
         });
     }
 
+    /**
+     * Update match status via the durable outbox (sent in the background, retried until delivered)
+     */
     private void updateMatchStatus(String matchId, String status) {
-        try {
-            String urlString = convexSiteUrl + "/matches/update";
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + convexHttpSecret);
-            conn.setDoOutput(true);
-
-            JSONObject requestBody = new JSONObject();
-            requestBody.put("match_id", matchId); // Use match_id (with underscore) as expected by HTTP route
-            requestBody.put("match_status", status);
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("match_id", matchId); // Use match_id (with underscore) as expected by HTTP route
+        requestBody.put("match_status", status);
 
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = requestBody.toString().getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
+        outbox.enqueue("/matches/update", requestBody);
+        LOGGER.info("Queued match " + matchId + " status update to " + status);
+    }
 
-            int responseCode = conn.getResponseCode();
-            if (responseCode != 200) {
-                LOGGER.warning("Failed to update match status: HTTP " + responseCode);
-                BufferedReader errorReader = new BufferedReader(
-                        new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8));
-                StringBuilder errorResponse = new StringBuilder();
-                String line;
-                while ((line = errorReader.readLine()) != null) {
-                    errorResponse.append(line);
-                }
-                errorReader.close();
-                LOGGER.warning("Error response: " + errorResponse.toString());
-            } else {
-                LOGGER.info("Updated match " + matchId + " status to " + status);
-            }
-        } catch (Exception e) {
-            LOGGER.severe("Error updating match status: " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * Fetch all tokens for a match
+     * Returns an empty list if the route answers with an error status
+     */
+    private List<ConvexToken> fetchTokens(String matchId) throws IOException {
+        try {
+            return convexClient.get("/matches/tokens?match_id=" + matchId, ConvexToken.LIST);
+        } catch (ConvexException e) {
+            LOGGER.warning("Failed to get tokens for match: HTTP " + e.getStatusCode());
+            return Collections.emptyList();
         }
     }
 
@@ -445,36 +486,10 @@ public class MatchPollingService {
         List<Player> players = new ArrayList<>();
 
         try {
-            // Fetch tokens for this match
-            String urlString = convexSiteUrl + "/matches/tokens?match_id=" + matchId;
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + convexHttpSecret);
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode != 200) {
-                LOGGER.warning("Failed to get tokens for match: HTTP " + responseCode);
-                return players;
-            }
-
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            reader.close();
-
-            JSONArray tokensArray = new JSONArray(response.toString());
-
             // For each token that has a user_id (playerId), find that player
-            for (int i = 0; i < tokensArray.length(); i++) {
-                JSONObject token = tokensArray.getJSONObject(i);
-                if (token.has("user_id") && !token.isNull("user_id")) {
-                    String playerId = token.getString("user_id");
+            for (ConvexToken token : fetchTokens(matchId)) {
+                if (token.isUsed()) {
+                    String playerId = token.userId();
                     try {
                         UUID playerUUID = UUID.fromString(playerId);
                         Player player = Bukkit.getPlayer(playerUUID);
@@ -494,10 +509,10 @@ public class MatchPollingService {
         return players;
     }
 
-    private void startMatch(JSONObject match, List<Player> players) {
+    private void startMatch(ConvexMatch match, List<Player> players) {
         try {
-            String matchType = match.getString("match_type");
-            String matchId = match.getString("match_id");
+            String matchType = match.matchType();
+            String matchId = match.matchId();
 
             // Get tokens for this match to determine team assignments
             Map<String, List<String>> teamTokens = getTokensForMatch(matchId);
@@ -557,6 +572,7 @@ public class MatchPollingService {
         } catch (Exception e) {
             LOGGER.severe("Error starting match: " + e.getMessage());
             e.printStackTrace();
+            startingMatches.remove(match.matchId());
         }
     }
 
@@ -567,60 +583,23 @@ public class MatchPollingService {
 
         try {
             // Fetch tokens for this match
-            String urlString = convexSiteUrl + "/matches/tokens?match_id=" + matchId;
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + convexHttpSecret);
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode != 200) {
-                LOGGER.warning("Failed to get tokens for match: HTTP " + responseCode);
-                result.put("blue", blueTokens);
-                result.put("red", redTokens);
-                return result;
-            }
-
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            reader.close();
-
-            JSONArray tokensArray = new JSONArray(response.toString());
+            List<ConvexToken> tokens = fetchTokens(matchId);
 
             // Get match info to determine team assignments
-            String matchUrlString = convexSiteUrl + "/matches?id=" + matchId;
-            URL matchUrl = new URL(matchUrlString);
-            HttpURLConnection matchConn = (HttpURLConnection) matchUrl.openConnection();
-            matchConn.setRequestMethod("GET");
-            matchConn.setRequestProperty("Content-Type", "application/json");
-
             String blueTeamId = null;
             String redTeamId = null;
-            if (matchConn.getResponseCode() == 200) {
-                BufferedReader matchReader = new BufferedReader(
-                        new InputStreamReader(matchConn.getInputStream(), StandardCharsets.UTF_8));
-                StringBuilder matchResponse = new StringBuilder();
-                while ((line = matchReader.readLine()) != null) {
-                    matchResponse.append(line);
-                }
-                matchReader.close();
-
-                JSONObject match = new JSONObject(matchResponse.toString());
-                blueTeamId = match.getString("blue_team_id");
-                redTeamId = match.getString("red_team_id");
+            try {
+                ConvexMatch match = convexClient.get("/matches?id=" + matchId, ConvexMatch.ONE);
+                blueTeamId = match.blueTeamId();
+                redTeamId = match.redTeamId();
+            } catch (ConvexException e) {
+                LOGGER.warning("Failed to get match " + matchId + ": HTTP " + e.getStatusCode());
             }
 
             // Group tokens by team
-            for (int i = 0; i < tokensArray.length(); i++) {
-                JSONObject token = tokensArray.getJSONObject(i);
-                String tokenValue = token.getString("token");
-                String gameTeamId = token.getString("game_team_id");
+            for (ConvexToken token : tokens) {
+                String tokenValue = token.token();
+                String gameTeamId = token.gameTeamId();
 
                 if (blueTeamId != null && gameTeamId.equals(blueTeamId)) {
                     blueTokens.add(tokenValue);
@@ -642,38 +621,10 @@ public class MatchPollingService {
         Map<String, String> tokenToPlayerId = new HashMap<>();
 
         try {
-            // Fetch tokens for this match
-            String urlString = convexSiteUrl + "/matches/tokens?match_id=" + matchId;
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + convexHttpSecret);
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode != 200) {
-                LOGGER.warning("Failed to get tokens for match: HTTP " + responseCode);
-                return tokenToPlayerId;
-            }
-
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            reader.close();
-
-            JSONArray tokensArray = new JSONArray(response.toString());
-
             // Map token to playerId (user_id field)
-            for (int i = 0; i < tokensArray.length(); i++) {
-                JSONObject token = tokensArray.getJSONObject(i);
-                if (token.has("user_id") && !token.isNull("user_id")) {
-                    String tokenValue = token.getString("token");
-                    String playerId = token.getString("user_id");
-                    tokenToPlayerId.put(tokenValue, playerId);
+            for (ConvexToken token : fetchTokens(matchId)) {
+                if (token.isUsed()) {
+                    tokenToPlayerId.put(token.token(), token.userId());
                 }
             }
         } catch (Exception e) {
@@ -699,10 +650,23 @@ public class MatchPollingService {
                 Player bluePlayer = blueTeamPlayers.get(0);
                 Player redPlayer = redTeamPlayers.get(0);
 
-                // Create match world and teleport players
-                String worldName = CreateMatchCommand.createMatch(bluePlayer, redPlayer);
+                // Take a ready arena world and teleport players
+                if (matchManager == null) {
+                    LOGGER.severe("No MatchManager to start match " + matchId + " with");
+                    return;
+                }
+                World world = matchManager.leaseArena();
+                if (world == null) {
+                    // Still Playing in Convex, so the next poll tries again
+                    LOGGER.warning("No arena world for match " + matchId + " yet, retrying on the next poll");
+                    return;
+                }
+                String worldName = CreateMatchCommand.createMatch(world,
+                        bluePlayer, matchManager.getArenaSpawn(world, "blue", 0),
+                        redPlayer, matchManager.getArenaSpawn(world, "red", 0));
                 if (worldName == null) {
-                    LOGGER.severe("Failed to create match world for match " + matchId);
+                    LOGGER.severe("Failed to set up match world for match " + matchId);
+                    matchManager.returnArena(world.getName());
                     return;
                 }
 
@@ -710,12 +674,10 @@ public class MatchPollingService {
                         " in world " + worldName);
 
                 // Register match with match manager
-                if (matchManager != null) {
-                    List<Player> allPlayers = new ArrayList<>();
-                    allPlayers.add(bluePlayer);
-                    allPlayers.add(redPlayer);
-                    matchManager.registerMatch(matchId, worldName, allPlayers);
-                }
+                List<Player> allPlayers = new ArrayList<>();
+                allPlayers.add(bluePlayer);
+                allPlayers.add(redPlayer);
+                matchManager.registerMatch(matchId, worldName, allPlayers);
 
                 // Register players in telemetry service
                 if (plugin instanceof ai.blockwarriors.beacon.Plugin) {
@@ -736,6 +698,9 @@ public class MatchPollingService {
         } catch (Exception e) {
             LOGGER.severe("Error starting match directly: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            // Registered with MatchManager by now (or failed) - later updates go through the normal checks
+            startingMatches.remove(matchId);
         }
     }
 }
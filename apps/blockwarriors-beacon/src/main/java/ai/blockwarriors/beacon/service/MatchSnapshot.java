@@ -0,0 +1,9 @@
+package ai.blockwarriors.beacon.service;
+
+import java.util.List;
+
+/**
+ * Immutable snapshot of every online player of a match at one point in time
+ */
+public record MatchSnapshot(String matchId, long timestamp, List<PlayerSnapshot> players) {
+}
@@ -0,0 +1,155 @@
+package ai.blockwarriors.beacon.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Combat statistics of one match, counted from the match's own events instead of the players'
+ * lifetime Bukkit statistics: kills, deaths, damage dealt and taken, hits landed, distance
+ * travelled and time alive, in primitive columns indexed by a slot per player.
+ * Fed by CombatEventListener and read by TelemetryCollector, all on the main thread, so every
+ * update and lookup is a map lookup plus an array access and needs no locking.
+ */
+public class MatchStats {
+    private final Map<UUID, Integer> slots = new HashMap<>();
+    private int size = 0;
+    private int[] kills = new int[2];
+    private int[] deaths = new int[2];
+    private int[] hitsLanded = new int[2];
+    private double[] damageDealt = new double[2];
+    private double[] damageTaken = new double[2];
+    private double[] distanceTravelled = new double[2];
+    private long[] aliveMillis = new long[2]; // Completed alive stretches
+    private long[] aliveSince = new long[2]; // Start of the current alive stretch, -1 while dead
+
+    /**
+     * Start counting for a player, alive from now on (does nothing if the player is already counted)
+     */
+    public void addPlayer(UUID playerId, long nowMillis) {
+        if (slots.containsKey(playerId)) {
+            return;
+        }
+        if (size == kills.length) {
+            grow();
+        }
+        slots.put(playerId, size);
+        aliveSince[size] = nowMillis;
+        size++;
+    }
+
+    /**
+     * actor hit target for damage (either may be a player outside this match, then only the other is counted)
+     */
+    public void recordHit(UUID actor, UUID target, double damage) {
+        int attacker = slot(actor);
+        if (attacker >= 0) {
+            hitsLanded[attacker]++;
+            damageDealt[attacker] += damage;
+        }
+        int victim = slot(target);
+        if (victim >= 0) {
+            damageTaken[victim] += damage;
+        }
+    }
+
+    /**
+     * The player took damage without an attacking player (fall, fire, ...)
+     */
+    public void recordDamage(UUID playerId, double damage) {
+        int player = slot(playerId);
+        if (player >= 0) {
+            damageTaken[player] += damage;
+        }
+    }
+
+    /**
+     * The player died, killed by killer (null if no player killed them)
+     */
+    public void recordDeath(UUID playerId, UUID killer, long nowMillis) {
+        int player = slot(playerId);
+        if (player >= 0) {
+            deaths[player]++;
+            if (aliveSince[player] >= 0) {
+                aliveMillis[player] += nowMillis - aliveSince[player];
+                aliveSince[player] = -1;
+            }
+        }
+        int killerSlot = killer == null || killer.equals(playerId) ? -1 : slot(killer);
+        if (killerSlot >= 0) {
+            kills[killerSlot]++;
+        }
+    }
+
+    /**
+     * The player is alive again (respawned)
+     */
+    public void recordRespawn(UUID playerId, long nowMillis) {
+        int player = slot(playerId);
+        if (player >= 0 && aliveSince[player] < 0) {
+            aliveSince[player] = nowMillis;
+        }
+    }
+
+    public void recordDistance(UUID playerId, double distance) {
+        int player = slot(playerId);
+        if (player >= 0) {
+            distanceTravelled[player] += distance;
+        }
+    }
+
+    /**
+     * Slot of a player for the getters below, or -1 if the player isn't counted in this match
+     */
+    public int slot(UUID playerId) {
+        if (playerId == null) {
+            return -1;
+        }
+        Integer slot = slots.get(playerId);
+        return slot == null ? -1 : slot;
+    }
+
+    public int getKills(int slot) {
+        return kills[slot];
+    }
+
+    public int getDeaths(int slot) {
+        return deaths[slot];
+    }
+
+    public int getHitsLanded(int slot) {
+        return hitsLanded[slot];
+    }
+
+    public double getDamageDealt(int slot) {
+        return damageDealt[slot];
+    }
+
+    public double getDamageTaken(int slot) {
+        return damageTaken[slot];
+    }
+
+    public double getDistanceTravelled(int slot) {
+        return distanceTravelled[slot];
+    }
+
+    /**
+     * Time alive in this match up to nowMillis
+     */
+    public long getTimeAliveMillis(int slot, long nowMillis) {
+        return aliveMillis[slot] + (aliveSince[slot] >= 0 ? Math.max(0, nowMillis - aliveSince[slot]) : 0);
+    }
+
+    private void grow() {
+        int capacity = kills.length * 2;
+        kills = Arrays.copyOf(kills, capacity);
+        deaths = Arrays.copyOf(deaths, capacity);
+        hitsLanded = Arrays.copyOf(hitsLanded, capacity);
+        damageDealt = Arrays.copyOf(damageDealt, capacity);
+        damageTaken = Arrays.copyOf(damageTaken, capacity);
+        distanceTravelled = Arrays.copyOf(distanceTravelled, capacity);
+        aliveMillis = Arrays.copyOf(aliveMillis, capacity);
+        aliveSince = Arrays.copyOf(aliveSince, capacity);
+    }
+}
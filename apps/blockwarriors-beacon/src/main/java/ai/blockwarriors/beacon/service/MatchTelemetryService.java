@@ -1,77 +1,359 @@
 package ai.blockwarriors.beacon.service;
 
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.Statistic;
-import org.bukkit.attribute.Attribute;
-import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
 import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
  * Service that tracks player telemetry data for active matches and updates match state
  * Based on logic from warrior-telemetry plugin
+ * Learns about matches ending from MatchManager's lifecycle events; the Convex status is only
+ * checked every few updates to catch matches ended elsewhere (e.g. terminated from the website)
+ * Player state is copied into immutable snapshots on the main thread (TelemetryCollector), spread
+ * over the update window by a TelemetryScheduler so each tick only snapshots a few matches;
+ * JSON building, encoding and uploads run off the main thread and never touch live entities.
+ * Optionally a TickSampler records tick-resolution samples of every player, uploaded in chunks to
+ * /matches/samples at their own rate.
+ * Combat events (CombatEventListener) are appended to a MatchEventLog per match and ride along with
+ * that match's telemetry updates until Convex has stored them.
+ * Kills, deaths, damage, hits, distance and time alive are counted per match in MatchStats from the
+ * same listeners, instead of reading the players' lifetime statistics.
+ * With a ReplayRecorder, sampler ticks and combat events are also recorded into local replay files
+ * (the sampler then runs even if its uploads are disabled).
  */
-public class MatchTelemetryService {
+public class MatchTelemetryService implements MatchLifecycleListener {
     private static final Logger LOGGER = Logger.getLogger("beacon");
     private final JavaPlugin plugin;
-    private final String convexSiteUrl;
-    private final String convexHttpSecret;
-    private final Map<String, Set<UUID>> activeMatches = new HashMap<>(); // matchId -> Set of player UUIDs
-    private final Map<UUID, String> playerToMatch = new HashMap<>(); // player UUID -> matchId
-    private int taskId = -1;
-    private static final long UPDATE_INTERVAL_TICKS = 20L; // Update every second (20 ticks)
-
-    public MatchTelemetryService(JavaPlugin plugin, String convexSiteUrl, String convexHttpSecret) {
+    private final ConvexClient convexClient;
+    private final ConvexOutbox outbox; // Final states go through the durable outbox
+    private final CircuitBreaker circuitBreaker; // Routine updates are skipped while Convex is down
+    // Written on the main thread, read by the async update task
+    private final Map<String, Set<UUID>> activeMatches = new ConcurrentHashMap<>(); // matchId -> Set of player UUIDs
+    private final Map<UUID, String> playerToMatch = new ConcurrentHashMap<>(); // player UUID -> matchId
+    private AdaptiveTask updateTask;
+    private static final long UPDATE_INTERVAL_TICKS = 20L; // Update every second (20 ticks) while matches are active
+
+    // Main-thread snapshots, time-sliced by the scheduler and picked up by the next update
+    private final TelemetryCollector collector;
+    private final TelemetryScheduler scheduler;
+    private final Queue<MatchSnapshot> capturedSnapshots = new ConcurrentLinkedQueue<>();
+    private BukkitTask schedulerTask;
+
+    // Adaptive update interval: slower while no match is active, backing off while uploads fail
+    private final AdaptiveInterval updateInterval;
+    private final AtomicBoolean uploadFailed = new AtomicBoolean(false); // set by the lane thread
+    private final AtomicBoolean uploadingSamples = new AtomicBoolean(false); // One sample upload at a time
+
+    // Batched upload: states are collected per match and flushed together to /matches/update/batch
+    private volatile boolean batchEnabled;
+    private final int maxBatchSize;
+    private final long flushIntervalTicks;
+
+    // Telemetry lane: latest unsent snapshot per match, sent from its own thread behind lifecycle writes
+    private final TelemetryLane telemetryLane;
+
+    // Delta mode: only changed fields are sent, with a full keyframe every N updates
+    private final TelemetryDeltaEncoder deltaEncoder;
+
+    // Wire format: "json", "cbor", or "auto" (cbor once Convex advertises support for it)
+    private final String configuredEncoding;
+    private volatile boolean compactEncoding = false;
+
+    // Request bodies are streamed into these buffers, reused for every upload (lane thread only)
+    private final TelemetryWriter jsonWriter = new JsonTelemetryWriter();
+    private final TelemetryWriter compactWriter = CompactTelemetryCodec.newWriter();
+
+    // Tick sampler: samples every N ticks into per-player ring buffers, uploaded every uploadIntervalTicks
+    private final TickSampler sampler; // null when neither uploads nor replays need it
+    private final boolean sampleUploadsEnabled;
+    private final long uploadIntervalTicks;
+    private final long uploadStrideTicks; // Only samples on multiples of this are uploaded (downsampling)
+    private final SampleChunk[] sampleChunks; // Reused by every upload (upload thread only)
+    private final TelemetryWriter sampleJsonWriter = new JsonTelemetryWriter();
+    private final TelemetryWriter sampleCompactWriter = CompactTelemetryCodec.newWriter();
+    private BukkitTask samplerTask;
+    private BukkitTask sampleUploadTask;
+
+    // Combat event logs, sent with the telemetry updates (maxEventsPerUpdate per update)
+    private final Map<String, MatchEventLog> eventLogs = new ConcurrentHashMap<>(); // matchId -> log
+    private final boolean eventsEnabled;
+    private final int maxEventsPerMatch;
+    private final int maxEventsPerUpdate;
+    private final ReplayRecorder replayRecorder; // null when replays are disabled
+
+    // Per-match combat statistics, written and read on the main thread only
+    private final Map<String, MatchStats> matchStats = new ConcurrentHashMap<>(); // matchId -> stats
+
+    // Local lifecycle: matches that ended on this server get no more routine updates
+    private final Set<String> endedMatches = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> updatesSinceStatusCheck = new ConcurrentHashMap<>(); // matchId -> count
+    private final int statusCheckInterval;
+
+    public MatchTelemetryService(JavaPlugin plugin, ConvexClient convexClient, ConvexOutbox outbox) {
+        this(plugin, convexClient, outbox, null);
+    }
+
+    /**
+     * @param replayRecorder records every sample and combat event, may be null
+     */
+    public MatchTelemetryService(JavaPlugin plugin, ConvexClient convexClient, ConvexOutbox outbox,
+            ReplayRecorder replayRecorder) {
         this.plugin = plugin;
-        this.convexSiteUrl = convexSiteUrl;
-        this.convexHttpSecret = convexHttpSecret;
+        this.replayRecorder = replayRecorder;
+        this.convexClient = convexClient;
+        this.outbox = outbox;
+        this.circuitBreaker = outbox.getCircuitBreaker();
+        this.batchEnabled = plugin.getConfig().getBoolean("telemetry-batch.enabled", true);
+        this.maxBatchSize = Math.max(1, plugin.getConfig().getInt("telemetry-batch.max-batch-size", 50));
+        this.flushIntervalTicks = Math.max(UPDATE_INTERVAL_TICKS,
+                plugin.getConfig().getLong("telemetry-batch.flush-interval-ticks", UPDATE_INTERVAL_TICKS));
+        this.updateInterval = new AdaptiveInterval(UPDATE_INTERVAL_TICKS,
+                plugin.getConfig().getLong("telemetry-interval.idle-ticks", 100L),
+                plugin.getConfig().getLong("telemetry-interval.max-backoff-ticks", 600L));
+
+        // With delta mode off every update is a keyframe
+        boolean deltaEnabled = plugin.getConfig().getBoolean("telemetry-delta.enabled", true);
+        int keyframeInterval = plugin.getConfig().getInt("telemetry-delta.keyframe-interval", 30);
+        this.deltaEncoder = new TelemetryDeltaEncoder(deltaEnabled ? keyframeInterval : 1);
+
+        this.configuredEncoding = plugin.getConfig().getString("telemetry-encoding", "auto").toLowerCase(Locale.ROOT);
+        this.statusCheckInterval = Math.max(1, plugin.getConfig().getInt("telemetry-status-check-interval", 30));
+        this.scheduler = new TelemetryScheduler(activeMatches.keySet(), updateInterval::getCurrentTicks,
+                plugin.getConfig().getLong("telemetry-scheduler.tick-budget-micros", 1000L),
+                this::captureSnapshot, capturedSnapshots::add);
+        // The scheduler runs every tick, so its counter is the server tick
+        this.collector = new TelemetryCollector(plugin.getConfig().getLong("telemetry-snapshot.warn-micros", 2000L),
+                scheduler::getCurrentTick);
+
+        this.eventsEnabled = plugin.getConfig().getBoolean("telemetry-events.enabled", true);
+        this.maxEventsPerMatch = Math.max(1, plugin.getConfig().getInt("telemetry-events.max-events-per-match", 10000));
+        this.maxEventsPerUpdate = Math.max(1, plugin.getConfig().getInt("telemetry-events.max-events-per-update", 500));
+
+        if (plugin.getConfig().getBoolean("telemetry-sampler.enabled", false)) {
+            int sampleIntervalTicks = Math.max(1, plugin.getConfig().getInt("telemetry-sampler.sample-interval-ticks", 1));
+            int bufferSamples = Math.max(1, plugin.getConfig().getInt("telemetry-sampler.buffer-seconds", 30) * 20
+                    / sampleIntervalTicks);
+            this.sampler = new TickSampler(activeMatches, sampleIntervalTicks, bufferSamples, replayRecorder);
+            this.uploadIntervalTicks = Math.max(1L, plugin.getConfig().getLong("telemetry-sampler.upload-interval-ticks", 100L));
+            if ("downsample".equalsIgnoreCase(plugin.getConfig().getString("telemetry-sampler.upload-mode", "full"))) {
+                // Round up to a multiple of the sampling interval, otherwise no sample would match
+                long downsampleTicks = Math.max(1L, plugin.getConfig().getLong("telemetry-sampler.downsample-interval-ticks", 10L));
+                this.uploadStrideTicks = (downsampleTicks + sampleIntervalTicks - 1) / sampleIntervalTicks * sampleIntervalTicks;
+            } else {
+                this.uploadStrideTicks = sampleIntervalTicks;
+            }
+            int chunkSamples = Math.max(1, plugin.getConfig().getInt("telemetry-sampler.max-chunk-samples", 1200));
+            this.sampleChunks = new SampleChunk[maxBatchSize];
+            for (int i = 0; i < sampleChunks.length; i++) {
+                sampleChunks[i] = new SampleChunk(chunkSamples);
+            }
+            this.sampleUploadsEnabled = true;
+        } else {
+            // Replays still need a sample of every player, just no ring buffers to upload from
+            this.sampler = replayRecorder == null ? null
+                    : new TickSampler(activeMatches,
+                            Math.max(1, plugin.getConfig().getInt("replay.sample-interval-ticks", 1)), 0,
+                            replayRecorder);
+            this.sampleUploadsEnabled = false;
+            this.uploadIntervalTicks = 0L;
+            this.uploadStrideTicks = 1L;
+            this.sampleChunks = null;
+        }
+
+        // A dropped snapshot means Convex may be missing changes, so the next one for that match is a keyframe
+        this.telemetryLane = new TelemetryLane(outbox,
+                plugin.getConfig().getInt("telemetry-lane.max-pending-matches", 100), maxBatchSize,
+                flushIntervalTicks * 50L, plugin.getConfig().getLong("telemetry-lane.max-age-ms", 5000L),
+                this::sendUpdates, update -> deltaEncoder.requireKeyframe(update.getMatchId()));
     }
 
-    public void start() {
-        if (taskId != -1) {
+    public synchronized void start() {
+        if (updateTask != null) {
             LOGGER.warning("MatchTelemetryService is already running");
             return;
         }
 
-        LOGGER.info("Starting MatchTelemetryService with Convex URL: " + convexSiteUrl);
+        LOGGER.info("Starting MatchTelemetryService with Convex URL: " + convexClient.getSiteUrl());
+        if (batchEnabled) {
+            LOGGER.info("Telemetry batching enabled (max batch size: " + maxBatchSize
+                    + ", flush interval: " + flushIntervalTicks + " ticks)");
+        }
+        if (plugin.getConfig().getBoolean("telemetry-delta.enabled", true)) {
+            LOGGER.info("Telemetry delta mode enabled (keyframe every "
+                    + plugin.getConfig().getInt("telemetry-delta.keyframe-interval", 30) + " updates)");
+        }
+
+        if (CompactTelemetryCodec.ENCODING_NAME.equals(configuredEncoding)) {
+            compactEncoding = true;
+            LOGGER.info("Telemetry encoding: " + CompactTelemetryCodec.ENCODING_NAME);
+        } else if ("auto".equals(configuredEncoding)) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, this::negotiateEncoding);
+        }
 
-        // Run the telemetry update task periodically
-        taskId = Bukkit.getScheduler().runTaskTimerAsynchronously(
-            plugin,
-            this::updateMatchStates,
-            0L, // Start immediately
-            UPDATE_INTERVAL_TICKS
-        ).getTaskId();
+        telemetryLane.start();
+
+        // Run the telemetry update task periodically (every second while matches are active)
+        updateTask = new AdaptiveTask(plugin, "Telemetry update", updateInterval, this::updateMatchStates);
+        updateTask.start(0L); // Start immediately
+        schedulerTask = Bukkit.getScheduler().runTaskTimer(plugin, scheduler::tick, 1L, 1L);
+
+        if (sampler != null) {
+            samplerTask = Bukkit.getScheduler().runTaskTimer(plugin, sampler::tick, 1L, 1L);
+        }
+        if (sampleUploadsEnabled) {
+            sampleUploadTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::uploadSamples,
+                    uploadIntervalTicks, uploadIntervalTicks);
+            LOGGER.info("Telemetry sampler enabled (every " + sampler.getSampleIntervalTicks() + " ticks, uploading "
+                    + (uploadStrideTicks == sampler.getSampleIntervalTicks() ? "full resolution"
+                            : "every " + uploadStrideTicks + " ticks")
+                    + " every " + uploadIntervalTicks + " ticks)");
+        }
     }
 
     public void stop() {
-        if (taskId != -1) {
-            Bukkit.getScheduler().cancelTask(taskId);
-            taskId = -1;
-            LOGGER.info("MatchTelemetryService stopped");
+        boolean uploadLastSamples;
+        synchronized (this) {
+            if (updateTask != null) {
+                updateTask.stop();
+                updateTask = null;
+                LOGGER.info("MatchTelemetryService stopped");
+            }
+            if (schedulerTask != null) {
+                schedulerTask.cancel();
+                schedulerTask = null;
+            }
+            if (samplerTask != null) {
+                samplerTask.cancel();
+                samplerTask = null;
+            }
+            uploadLastSamples = sampleUploadTask != null;
+            if (sampleUploadTask != null) {
+                sampleUploadTask.cancel();
+                sampleUploadTask = null;
+            }
+        }
+
+        // Sends whatever is still queued; network I/O stays outside the monitor
+        telemetryLane.stop();
+        if (uploadLastSamples) {
+            uploadSamples(); // Last chunks of buffered samples
+        }
+    }
+
+    /**
+     * Current delay between telemetry updates in ticks
+     */
+    public long getCurrentUpdateIntervalTicks() {
+        return updateInterval.getCurrentTicks();
+    }
+
+    public TelemetryCollector getCollector() {
+        return collector;
+    }
+
+    public TelemetryScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public TelemetryLane getTelemetryLane() {
+        return telemetryLane;
+    }
+
+    /**
+     * The tick sampler, or null when neither sample uploads nor replays are enabled
+     */
+    public TickSampler getSampler() {
+        return sampler;
+    }
+
+    /**
+     * Ask Convex which telemetry encodings it accepts and switch to the compact one if available
+     * Older deployments without the route keep receiving JSON
+     */
+    private void negotiateEncoding() {
+        try {
+            JSONArray encodings = convexClient.get("/telemetry/encodings", ConvexClient.JSON_OBJECT)
+                    .optJSONArray("encodings");
+            if (encodings != null && encodings.toList().contains(CompactTelemetryCodec.ENCODING_NAME)) {
+                compactEncoding = true;
+            }
+        } catch (Exception e) {
+            LOGGER.info("Could not negotiate telemetry encoding, using JSON: " + e.getMessage());
         }
+        LOGGER.info("Telemetry encoding: " + (compactEncoding ? CompactTelemetryCodec.ENCODING_NAME : "json"));
+    }
+
+    /**
+     * POST a telemetry body in the negotiated encoding
+     * If Convex rejects the compact body (415) we fall back to JSON for the rest of the session
+     */
+    private <T> T postTelemetry(String path, Consumer<TelemetryWriter> body, ConvexClient.Decoder<T> decoder)
+            throws IOException {
+        return postTelemetry(path, jsonWriter, compactWriter, body, decoder);
+    }
+
+    private <T> T postTelemetry(String path, TelemetryWriter jsonWriter, TelemetryWriter compactWriter,
+            Consumer<TelemetryWriter> body, ConvexClient.Decoder<T> decoder) throws IOException {
+        if (compactEncoding) {
+            try {
+                return postTelemetry(path, compactWriter, body, decoder);
+            } catch (ConvexException e) {
+                if (e.getStatusCode() != 415) {
+                    throw e;
+                }
+                compactEncoding = false;
+                LOGGER.warning("Convex rejected compact telemetry, falling back to JSON");
+            }
+        }
+        return postTelemetry(path, jsonWriter, body, decoder);
+    }
+
+    private <T> T postTelemetry(String path, TelemetryWriter writer, Consumer<TelemetryWriter> body,
+            ConvexClient.Decoder<T> decoder) throws IOException {
+        writer.reset();
+        body.accept(writer);
+        return convexClient.post(path, writer.buffer(), writer.length(), writer.contentType(), decoder);
+    }
+
+    @Override
+    public void onMatchStarted(String matchId, Set<UUID> playerIds) {
+        endedMatches.remove(matchId);
+        updatesSinceStatusCheck.put(matchId, 0);
+    }
+
+    @Override
+    public void onMatchEnded(String matchId, String status) {
+        LOGGER.info("Match " + matchId + " is " + status + ", stopping telemetry updates");
+        endedMatches.add(matchId);
     }
 
     /**
      * Register a player as being in a match
      */
     public void registerPlayerInMatch(UUID playerId, String matchId) {
-        activeMatches.computeIfAbsent(matchId, k -> new HashSet<>()).add(playerId);
+        activeMatches.computeIfAbsent(matchId, k -> ConcurrentHashMap.newKeySet()).add(playerId);
         playerToMatch.put(playerId, matchId);
+        if (eventsEnabled) {
+            eventLogs.computeIfAbsent(matchId, id -> new MatchEventLog(id, maxEventsPerMatch));
+        }
+        matchStats.computeIfAbsent(matchId, id -> new MatchStats()).addPlayer(playerId, System.currentTimeMillis());
+
+        // Don't wait out an idle interval before the first update of a new match
+        AdaptiveTask task = updateTask;
+        if (task != null) {
+            task.wakeUp();
+        }
         LOGGER.info("Registered player " + playerId + " in match " + matchId);
     }
 
@@ -86,6 +368,10 @@ public class MatchTelemetryService {
                 players.remove(playerId);
                 if (players.isEmpty()) {
                     activeMatches.remove(matchId);
+                    endedMatches.remove(matchId);
+                    updatesSinceStatusCheck.remove(matchId);
+                    eventLogs.remove(matchId);
+                    matchStats.remove(matchId);
                 }
             }
             LOGGER.info("Unregistered player " + playerId + " from match " + matchId);
@@ -99,6 +385,69 @@ public class MatchTelemetryService {
         return playerToMatch.get(playerId);
     }
 
+    /**
+     * Record a combat event of a player in a match into the match's event log and replay
+     * Does nothing if the actor isn't in a match; target and item may be null
+     */
+    public void recordCombatEvent(MatchEventLog.Type type, UUID actor, UUID target, double amount, Material item,
+            String detail, double x, double y, double z) {
+        String matchId = playerToMatch.get(actor);
+        if (matchId == null) {
+            return;
+        }
+        MatchEventLog log = eventLogs.get(matchId);
+        if (log != null) {
+            log.append(type, actor, target, amount, item, detail, x, y, z);
+        }
+        MatchStats stats = matchStats.get(matchId);
+        if (stats != null) {
+            if (type == MatchEventLog.Type.HIT) {
+                stats.recordHit(actor, target, amount);
+            } else if (type == MatchEventLog.Type.DAMAGE) {
+                stats.recordDamage(actor, amount);
+            }
+        }
+        if (replayRecorder != null && sampler != null) {
+            replayRecorder.recordEvent(matchId, sampler.getCurrentTick(), type, actor, target, amount, item, x, y, z);
+        }
+    }
+
+    /**
+     * Count a death in the player's match, and a kill for killer if they are in the same match (main thread)
+     * Must run before the death ends the match, so the final state includes it
+     */
+    public void recordDeath(UUID playerId, UUID killer) {
+        MatchStats stats = statsForPlayer(playerId);
+        if (stats != null) {
+            stats.recordDeath(playerId, killer, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * The player is alive again after a death (main thread)
+     */
+    public void recordRespawn(UUID playerId) {
+        MatchStats stats = statsForPlayer(playerId);
+        if (stats != null) {
+            stats.recordRespawn(playerId, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Add distance the player moved to their match's statistics (main thread)
+     */
+    public void recordDistance(UUID playerId, double distance) {
+        MatchStats stats = statsForPlayer(playerId);
+        if (stats != null) {
+            stats.recordDistance(playerId, distance);
+        }
+    }
+
+    private MatchStats statsForPlayer(UUID playerId) {
+        String matchId = playerToMatch.get(playerId);
+        return matchId == null ? null : matchStats.get(matchId);
+    }
+
     /**
      * Check if a player is in an active match
      */
@@ -119,8 +468,9 @@ public class MatchTelemetryService {
         }
 
         try {
-            // Collect final telemetry data
-            JSONObject finalMatchState = collectMatchTelemetry(matchId, playerIds, deadPlayerId);
+            // Collect final telemetry data (already on the main thread)
+            JSONObject finalMatchState = TelemetryCollector.toJson(
+                    collector.capture(matchId, playerIds, deadPlayerId, matchStats.get(matchId)));
             
             // Add winner information to final state
             if (winnerPlayerId != null) {
@@ -131,8 +481,15 @@ public class MatchTelemetryService {
 
             LOGGER.info("Sending final match state for match " + matchId + " (dead player: " + (deadPlayerId != null ? deadPlayerId.toString() : "none") + ")");
             
-            // Send final state update
-            updateMatchState(matchId, finalMatchState);
+            // Drop any queued routine state so it can't overwrite the final state later
+            telemetryLane.remove(matchId);
+
+            // Send final state update immediately as a full state, outside of the batch,
+            // together with every combat event Convex hasn't stored yet
+            MatchEventLog events = eventLogs.remove(matchId);
+            JSONObject eventsJson = events != null && events.prepareSend(Integer.MAX_VALUE) ? events.toJson() : null;
+            updateMatchState(matchId, finalMatchState, eventsJson);
+            deltaEncoder.forget(matchId);
         } catch (Exception e) {
             LOGGER.severe("Error sending final match state for " + matchId + ": " + e.getMessage());
             e.printStackTrace();
@@ -141,259 +498,376 @@ public class MatchTelemetryService {
 
     /**
      * Update match states for all active matches
+     * Returns IDLE when no match is active and ERROR when an upload failed, to pick the next interval
      */
-    private void updateMatchStates() {
+    private AdaptiveInterval.Outcome updateMatchStates() {
+        boolean idle = activeMatches.isEmpty();
         try {
             // Create a copy of entries to avoid concurrent modification
             List<Map.Entry<String, Set<UUID>>> entries = new ArrayList<>(activeMatches.entrySet());
-            
+
             for (Map.Entry<String, Set<UUID>> entry : entries) {
                 String matchId = entry.getKey();
                 Set<UUID> playerIds = entry.getValue();
 
-                // Check if match is finished - skip updates for finished matches
-                String matchStatus = getMatchStatus(matchId);
-                if (matchStatus == null) {
-                    // Match not found or error - remove from active matches
-                    LOGGER.warning("Match " + matchId + " not found, removing from active matches");
-                    activeMatches.remove(matchId);
+                // Ended locally - the final state has been sent, players are unregistered shortly
+                if (endedMatches.contains(matchId)) {
                     continue;
                 }
-                
-                if ("Finished".equals(matchStatus) || "Terminated".equals(matchStatus)) {
-                    // Match is finished - stop updating and remove from active matches
-                    LOGGER.info("Match " + matchId + " is " + matchStatus + ", stopping telemetry updates");
-                    activeMatches.remove(matchId);
-                    // Unregister all players from this match
-                    for (UUID playerId : new HashSet<>(playerIds)) {
-                        unregisterPlayer(playerId);
+
+                // Reconcile with Convex every statusCheckInterval updates (matches ending here are reported locally)
+                int updates = updatesSinceStatusCheck.merge(matchId, 1, Integer::sum);
+                if (updates >= statusCheckInterval) {
+                    updatesSinceStatusCheck.put(matchId, 0);
+                    String matchStatus = getMatchStatus(matchId);
+                    if (matchStatus == null) {
+                        // Match not found or error - remove from active matches
+                        LOGGER.warning("Match " + matchId + " not found, removing from active matches");
+                        activeMatches.remove(matchId);
+                        updatesSinceStatusCheck.remove(matchId);
+                        deltaEncoder.forget(matchId);
+                        eventLogs.remove(matchId);
+                        matchStats.remove(matchId);
+                        continue;
+                    }
+
+                    if ("Finished".equals(matchStatus) || "Terminated".equals(matchStatus)) {
+                        // Match was ended elsewhere - stop updating and remove from active matches
+                        LOGGER.info("Match " + matchId + " is " + matchStatus + ", stopping telemetry updates");
+                        activeMatches.remove(matchId);
+                        updatesSinceStatusCheck.remove(matchId);
+                        deltaEncoder.forget(matchId);
+                        eventLogs.remove(matchId);
+                        matchStats.remove(matchId);
+                        // Unregister all players from this match
+                        for (UUID playerId : new HashSet<>(playerIds)) {
+                            unregisterPlayer(playerId);
+                        }
+                        continue;
                     }
-                    continue;
                 }
+            }
 
-                // Collect telemetry data for all players in this match
-                JSONObject matchState = collectMatchTelemetry(matchId, playerIds);
+            // Diff the snapshots the scheduler took since the last update; bodies are written when sent
+            MatchSnapshot snapshot;
+            while ((snapshot = capturedSnapshots.poll()) != null) {
+                // Ended or removed after it was taken
+                if (endedMatches.contains(snapshot.matchId()) || !activeMatches.containsKey(snapshot.matchId())) {
+                    continue;
+                }
+                // Encode as keyframe or delta; nothing to send if no field changed and no event is waiting
+                MatchEventLog events = eventLogs.get(snapshot.matchId());
+                TelemetryDeltaEncoder.Update update = deltaEncoder.encode(snapshot, events != null && events.hasPending());
+                if (update == null) {
+                    continue;
+                }
 
-                // Update match state via HTTP route
-                updateMatchState(matchId, matchState);
+                // Hand it to the telemetry lane, replacing any snapshot of this match that hasn't gone out yet
+                telemetryLane.offer(update);
             }
         } catch (Exception e) {
             LOGGER.severe("Error updating match states: " + e.getMessage());
             e.printStackTrace();
         }
+
+        // Back off collection while uploads fail or the lane is holding snapshots for an open circuit
+        if (uploadFailed.getAndSet(false) || circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            return AdaptiveInterval.Outcome.ERROR;
+        }
+        idle &= telemetryLane.getPendingCount() == 0;
+        return idle ? AdaptiveInterval.Outcome.IDLE : AdaptiveInterval.Outcome.ACTIVE;
     }
 
     /**
-     * Get match status from Convex
-     * Returns null if match not found or error occurred
+     * Snapshot one match for the scheduler (main thread), null if it has ended or is gone
      */
-    private String getMatchStatus(String matchId) {
-        try {
-            String urlString = convexSiteUrl + "/matches?id=" + matchId;
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Content-Type", "application/json");
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode != 200) {
-                return null;
+    private MatchSnapshot captureSnapshot(String matchId) {
+        Set<UUID> playerIds = activeMatches.get(matchId);
+        if (playerIds == null || endedMatches.contains(matchId)) {
+            return null;
+        }
+        return collector.capture(matchId, playerIds, null, matchStats.get(matchId));
+    }
+
+    /**
+     * Send updates taken from the telemetry lane (runs on the lane thread)
+     * Batched to /matches/update/batch when enabled, otherwise one /matches/update request each
+     */
+    private void sendUpdates(List<TelemetryDeltaEncoder.Update> queued) {
+        List<TelemetryDeltaEncoder.Update> batch = new ArrayList<>();
+        for (TelemetryDeltaEncoder.Update update : queued) {
+            // Ended while the snapshot was queued - the final state is on its way through the outbox
+            if (endedMatches.contains(update.getMatchId())) {
+                continue;
+            }
+            // A delta encoded before an earlier update failed; the keyframe after it resyncs the match
+            if (!deltaEncoder.isCurrent(update)) {
+                continue;
             }
+            batch.add(update);
+        }
 
-            BufferedReader reader = new BufferedReader(
-                new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)
-            );
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
+        if (!batchEnabled) {
+            for (TelemetryDeltaEncoder.Update update : batch) {
+                sendUpdate(update);
             }
-            reader.close();
+            return;
+        }
 
-            JSONObject matchData = new JSONObject(response.toString());
-            return matchData.optString("match_status", null);
-        } catch (Exception e) {
-            LOGGER.warning("Error getting match status for " + matchId + ": " + e.getMessage());
-            return null;
+        for (int start = 0; start < batch.size(); start += maxBatchSize) {
+            List<TelemetryDeltaEncoder.Update> chunk = batch.subList(start, Math.min(start + maxBatchSize, batch.size()));
+            Map<String, Integer> chunkIndex = new HashMap<>();
+            MatchEventLog[] events = new MatchEventLog[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                chunkIndex.put(chunk.get(i).getMatchId(), i);
+                events[i] = prepareEvents(chunk.get(i).getMatchId());
+            }
+
+            try {
+                JSONObject response = postTelemetry("/matches/update/batch", out -> writeBatch(out, chunk, events),
+                        ConvexClient.JSON_OBJECT);
+                circuitBreaker.recordSuccess();
+
+                JSONArray results = response.optJSONArray("results");
+                if (results != null) {
+                    for (int i = 0; i < results.length(); i++) {
+                        JSONObject result = results.getJSONObject(i);
+                        Integer index = chunkIndex.get(result.optString("match_id"));
+                        if (index == null) {
+                            continue;
+                        }
+                        TelemetryDeltaEncoder.Update update = chunk.get(index);
+                        if (result.optBoolean("success", false)) {
+                            if (events[index] != null) {
+                                events[index].acknowledgeSent();
+                            }
+                        } else {
+                            deltaEncoder.requireKeyframe(update.getMatchId());
+                            LOGGER.warning("Failed to update match state for " + update.getMatchId()
+                                    + ": " + result.optString("error", "Unknown error"));
+                        }
+                    }
+                }
+            } catch (ConvexException e) {
+                if (e.getStatusCode() == 404) {
+                    // Backend doesn't have the batch route yet - fall back to one request per match
+                    LOGGER.warning("Convex has no /matches/update/batch route, disabling telemetry batching");
+                    batchEnabled = false;
+                    for (TelemetryDeltaEncoder.Update update : batch.subList(start, batch.size())) {
+                        sendUpdate(update);
+                    }
+                    return;
+                }
+                for (TelemetryDeltaEncoder.Update update : chunk) {
+                    deltaEncoder.requireKeyframe(update.getMatchId());
+                }
+                recordFailure(e.getStatusCode());
+                LOGGER.warning("Failed to send telemetry batch of " + chunk.size() + " matches: HTTP " + e.getStatusCode());
+                LOGGER.warning("Error response: " + e.getBody());
+            } catch (Exception e) {
+                // Connection problem - resync every match with a keyframe once Convex is reachable again
+                deltaEncoder.requireKeyframeForAll();
+                uploadFailed.set(true);
+                circuitBreaker.recordFailure();
+                LOGGER.severe("Error sending telemetry batch: " + e.getMessage());
+                e.printStackTrace();
+            }
         }
     }
 
     /**
-     * Collect telemetry data for all players in a match
-     * @param deadPlayerId If provided, this player's health will be set to 0 (for final state)
+     * Upload buffered tick samples to /matches/samples (runs on its own async timer)
+     * Each round sends one chunk per player; samples stay buffered and are retried if the upload
+     * fails, until the ring buffer overwrites them. A round is skipped while the previous one is
+     * still uploading; the service monitor is not held during the upload, so stop() never waits on it.
      */
-    private JSONObject collectMatchTelemetry(String matchId, Set<UUID> playerIds, UUID deadPlayerId) {
+    private void uploadSamples() {
+        if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            return;
+        }
+        if (!uploadingSamples.compareAndSet(false, true)) {
+            return;
+        }
         try {
-            JSONObject matchState = new JSONObject();
-            matchState.put("timestamp", System.currentTimeMillis());
-            matchState.put("matchId", matchId);
-
-            JSONArray players = new JSONArray();
-
-            for (UUID playerId : playerIds) {
-                Player player = Bukkit.getPlayer(playerId);
-                if (player != null && player.isOnline()) {
-                    JSONObject playerData = collectPlayerTelemetry(player);
-                    
-                    // If this is the dead player, explicitly set health to 0
-                    if (deadPlayerId != null && playerId.equals(deadPlayerId)) {
-                        playerData.put("health", 0.0);
-                        LOGGER.info("Setting health to 0 for dead player " + player.getName() + " in final state");
+            uploadSampleChunks();
+        } finally {
+            uploadingSamples.set(false);
+        }
+    }
+
+    private void uploadSampleChunks() {
+        long lost = sampler.takeLost();
+        if (lost > 0) {
+            LOGGER.warning("Telemetry sampler dropped " + lost + " samples that could not be uploaded in time");
+        }
+
+        int count = sampler.drain(sampleChunks, uploadStrideTicks);
+        if (count == 0) {
+            return;
+        }
+        try {
+            postTelemetry("/matches/samples", sampleJsonWriter, sampleCompactWriter,
+                    out -> writeSamples(out, sampler.getCurrentTick(), uploadStrideTicks, sampleChunks, count),
+                    ConvexClient.DISCARD);
+            circuitBreaker.recordSuccess();
+            // Chunks of matches Convex doesn't know are dropped as well, they would never be accepted
+            for (int i = 0; i < count; i++) {
+                sampleChunks[i].markSent();
+            }
+        } catch (ConvexException e) {
+            if (e.getStatusCode() == 404) {
+                LOGGER.warning("Convex has no /matches/samples route, disabling the telemetry sampler");
+                synchronized (this) {
+                    if (sampleUploadTask != null) {
+                        sampleUploadTask.cancel();
+                        sampleUploadTask = null;
+                    }
+                    // Replays keep sampling; the ring buffers just wrap around unread
+                    if (samplerTask != null && replayRecorder == null) {
+                        samplerTask.cancel();
+                        samplerTask = null;
                     }
-                    
-                    players.put(playerData);
                 }
+                return;
+            }
+            if (CircuitBreaker.isRetryable(e.getStatusCode())) {
+                circuitBreaker.recordFailure();
             }
+            LOGGER.warning("Failed to upload " + count + " sample chunks: HTTP " + e.getStatusCode());
+        } catch (Exception e) {
+            circuitBreaker.recordFailure();
+            LOGGER.warning("Error uploading telemetry samples: " + e.getMessage());
+        }
+    }
 
-            matchState.put("players", players);
-            return matchState;
-        } catch (JSONException e) {
-            LOGGER.severe("Error collecting match telemetry: " + e.getMessage());
-            e.printStackTrace();
-            return new JSONObject();
+    /**
+     * Body of /matches/samples: {server_tick, sample_interval_ticks, chunks: [{match_id, player_id, ticks, ...}]}
+     */
+    static void writeSamples(TelemetryWriter out, long serverTick, long sampleIntervalTicks, SampleChunk[] chunks,
+            int count) {
+        out.beginObject(3);
+        out.name("server_tick").integer(serverTick);
+        out.name("sample_interval_ticks").integer(sampleIntervalTicks);
+        out.name("chunks").beginArray(count);
+        for (int i = 0; i < count; i++) {
+            chunks[i].write(out);
         }
+        out.end();
+        out.end();
     }
-    
+
     /**
-     * Collect telemetry data for all players in a match (overload without dead player)
+     * Pick the combat events to send with the next update of a match (lane thread)
+     * Returns the match's log if it has events to send, otherwise null
      */
-    private JSONObject collectMatchTelemetry(String matchId, Set<UUID> playerIds) {
-        return collectMatchTelemetry(matchId, playerIds, null);
+    private MatchEventLog prepareEvents(String matchId) {
+        MatchEventLog events = eventLogs.get(matchId);
+        if (events == null) {
+            return null;
+        }
+        long dropped = events.takeDropped();
+        if (dropped > 0) {
+            LOGGER.warning("Dropped " + dropped + " combat events of match " + matchId + " that could not be sent in time");
+        }
+        return events.prepareSend(maxEventsPerUpdate) ? events : null;
     }
 
     /**
-     * Collect telemetry data for a single player
-     * Based on updatePlayerScoreboard from WarriorEventListener
+     * Body of /matches/update/batch: {updates: [{match_id, match_state | match_state_delta, events?}, ...]}
+     * @param events per update, the log whose prepared events go with it (or null)
      */
-    private JSONObject collectPlayerTelemetry(Player player) {
-        try {
-            JSONObject playerData = new JSONObject();
-            Location loc = player.getLocation();
-
-        // Basic info
-        playerData.put("playerId", player.getUniqueId().toString());
-        playerData.put("ign", player.getName());
-
-        // Health & Food
-        double maxHealth = player.getAttribute(Attribute.GENERIC_MAX_HEALTH).getValue();
-        playerData.put("health", player.getHealth());
-        playerData.put("maxHealth", maxHealth);
-        playerData.put("foodLevel", player.getFoodLevel());
-
-        // Position
-        JSONObject position = new JSONObject();
-        position.put("x", loc.getX());
-        position.put("y", loc.getY());
-        position.put("z", loc.getZ());
-        position.put("world", loc.getWorld().getName());
-        playerData.put("position", position);
-
-        // Equipment
-        JSONObject equipment = new JSONObject();
-        
-        ItemStack mainHand = player.getInventory().getItemInMainHand();
-        equipment.put("mainHand", (mainHand != null && !mainHand.getType().equals(Material.AIR))
-            ? formatItemName(mainHand.getType()) : "None");
-
-        ItemStack helmet = player.getInventory().getHelmet();
-        equipment.put("helmet", (helmet != null && !helmet.getType().equals(Material.AIR))
-            ? formatItemName(helmet.getType()) : "None");
-
-        ItemStack chestplate = player.getInventory().getChestplate();
-        equipment.put("chestplate", (chestplate != null && !chestplate.getType().equals(Material.AIR))
-            ? formatItemName(chestplate.getType()) : "None");
-
-        ItemStack leggings = player.getInventory().getLeggings();
-        equipment.put("leggings", (leggings != null && !leggings.getType().equals(Material.AIR))
-            ? formatItemName(leggings.getType()) : "None");
-
-        ItemStack boots = player.getInventory().getBoots();
-        equipment.put("boots", (boots != null && !boots.getType().equals(Material.AIR))
-            ? formatItemName(boots.getType()) : "None");
-
-        playerData.put("equipment", equipment);
-
-        // Combat Stats
-        playerData.put("kills", player.getStatistic(Statistic.PLAYER_KILLS));
-        playerData.put("deaths", player.getStatistic(Statistic.DEATHS));
-
-        // Nearby players count
-        int nearbyCount = 0;
-        for (Player nearbyPlayer : Bukkit.getOnlinePlayers()) {
-            if (!nearbyPlayer.equals(player) && nearbyPlayer.getWorld().equals(player.getWorld())) {
-                double distance = nearbyPlayer.getLocation().distance(player.getLocation());
-                if (distance <= 20.0) {
-                    nearbyCount++;
-                }
-            }
+    static void writeBatch(TelemetryWriter out, List<TelemetryDeltaEncoder.Update> updates, MatchEventLog[] events) {
+        out.beginObject(1);
+        out.name("updates").beginArray(updates.size());
+        for (int i = 0; i < updates.size(); i++) {
+            writeUpdate(out, updates.get(i), events[i]);
         }
-        playerData.put("nearbyPlayers", nearbyCount);
+        out.end();
+        out.end();
+    }
 
-        return playerData;
-        } catch (JSONException e) {
-            LOGGER.severe("Error collecting player telemetry: " + e.getMessage());
-            e.printStackTrace();
-            return new JSONObject();
+    /**
+     * Body of /matches/update: {match_id, match_state | match_state_delta, events?}
+     */
+    static void writeUpdate(TelemetryWriter out, TelemetryDeltaEncoder.Update update, MatchEventLog events) {
+        out.beginObject(events == null ? 2 : 3);
+        out.name("match_id").string(update.getMatchId());
+        out.name(update.getFieldName());
+        update.writePayload(out);
+        if (events != null) {
+            out.name("events");
+            events.write(out);
         }
+        out.end();
     }
 
     /**
-     * Format item name from Material enum
-     * Based on formatItemName from WarriorEventListener
+     * Get match status from Convex
+     * Returns null if match not found or error occurred
      */
-    private String formatItemName(Material material) {
-        String name = material.name().replace("_", " ").toLowerCase();
-        String[] words = name.split(" ");
-        StringBuilder formatted = new StringBuilder();
-        for (String word : words) {
-            if (formatted.length() > 0) formatted.append(" ");
-            formatted.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+    private String getMatchStatus(String matchId) {
+        try {
+            String status = convexClient.get("/matches?id=" + matchId, ConvexMatch.ONE).status();
+            return status == null || status.isEmpty() ? null : status;
+        } catch (ConvexException e) {
+            return null;
+        } catch (Exception e) {
+            LOGGER.warning("Error getting match status for " + matchId + ": " + e.getMessage());
+            return null;
         }
-        String result = formatted.toString();
-        // Truncate if too long
-        return result.length() > 15 ? result.substring(0, 12) + "..." : result;
     }
 
     /**
-     * Update match state via HTTP route
+     * Send a single keyframe or delta update via /matches/update
      */
-    private void updateMatchState(String matchId, JSONObject matchState) {
+    private void sendUpdate(TelemetryDeltaEncoder.Update update) {
+        MatchEventLog events = prepareEvents(update.getMatchId());
         try {
-            String urlString = convexSiteUrl + "/matches/update";
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + convexHttpSecret);
-            conn.setDoOutput(true);
-
-            JSONObject requestBody = new JSONObject();
-            requestBody.put("match_id", matchId); // Use match_id (with underscore) as expected by HTTP route
-            requestBody.put("match_state", matchState);
-
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = requestBody.toString().getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
+            postTelemetry("/matches/update", out -> writeUpdate(out, update, events), ConvexClient.DISCARD);
+            circuitBreaker.recordSuccess();
+            if (events != null) {
+                events.acknowledgeSent();
             }
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode != 200) {
-                LOGGER.warning("Failed to update match state for " + matchId + ": HTTP " + responseCode);
-                BufferedReader errorReader = new BufferedReader(
-                    new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8)
-                );
-                StringBuilder errorResponse = new StringBuilder();
-                String line;
-                while ((line = errorReader.readLine()) != null) {
-                    errorResponse.append(line);
-                }
-                errorReader.close();
-                LOGGER.warning("Error response: " + errorResponse.toString());
+        } catch (ConvexException e) {
+            // 409 means Convex has no state to apply the delta to; any failure resyncs with a keyframe
+            deltaEncoder.requireKeyframe(update.getMatchId());
+            recordFailure(e.getStatusCode());
+            if (e.getStatusCode() != 409) {
+                LOGGER.warning("Failed to update match state for " + update.getMatchId() + ": HTTP " + e.getStatusCode());
+                LOGGER.warning("Error response: " + e.getBody());
             }
         } catch (Exception e) {
+            deltaEncoder.requireKeyframeForAll();
+            uploadFailed.set(true);
+            circuitBreaker.recordFailure();
             LOGGER.severe("Error updating match state: " + e.getMessage());
             e.printStackTrace();
         }
     }
+
+    /**
+     * A failed upload slows down the update loop and counts against the circuit only if Convex
+     * is overloaded or unreachable (not if it rejected the request)
+     */
+    private void recordFailure(int statusCode) {
+        if (CircuitBreaker.isRetryable(statusCode)) {
+            uploadFailed.set(true);
+            circuitBreaker.recordFailure();
+        }
+    }
+
+    /**
+     * Update match state via HTTP route (always a full state)
+     * Goes through the durable outbox, so the final state survives a Convex outage or a restart
+     */
+    private void updateMatchState(String matchId, JSONObject matchState, JSONObject events) {
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("match_id", matchId); // Use match_id (with underscore) as expected by HTTP route
+        requestBody.put("match_state", matchState);
+        if (events != null) {
+            requestBody.put("events", events);
+        }
+        outbox.enqueue("/matches/update", requestBody);
+    }
 }
 
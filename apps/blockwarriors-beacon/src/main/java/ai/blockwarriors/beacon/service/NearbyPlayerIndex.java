@@ -0,0 +1,192 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-world spatial hash of online player positions for "nearby players" queries.
+ * Players are bucketed into square columns (cellSize blocks on x/z) and the index is rebuilt at
+ * most once per server tick, so counting neighbours costs O(k) in the players of the surrounding
+ * columns instead of a distance check against every online player. Distances are compared squared.
+ * Ticks are told apart by a tick counter, not by time: catch-up ticks after a lag spike run back
+ * to back and each still gets a fresh index.
+ * Cells are reused across rebuilds; a cell that stays empty for a whole rebuild is dropped, and so
+ * is a world without players, so columns players have left don't pile up.
+ * Main thread only. warrior-telemetry keeps a copy of this class for its scoreboard.
+ */
+public class NearbyPlayerIndex {
+    /**
+     * Positions of the players in one column; arrays are reused across rebuilds
+     */
+    private static final class Cell {
+        final String world;
+        final long key;
+        double[] xs = new double[4];
+        double[] ys = new double[4];
+        double[] zs = new double[4];
+        UUID[] ids = new UUID[4];
+        int size = 0;
+
+        Cell(String world, long key) {
+            this.world = world;
+            this.key = key;
+        }
+
+        void add(double x, double y, double z, UUID id) {
+            if (size == xs.length) {
+                int capacity = size * 2;
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+                zs = Arrays.copyOf(zs, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            zs[size] = z;
+            ids[size] = id;
+            size++;
+        }
+
+        void clear() {
+            Arrays.fill(ids, 0, size, null);
+            size = 0;
+        }
+    }
+
+    private final double cellSize;
+    private final LongSupplier tickClock;
+    private final Map<String, Map<Long, Cell>> worlds = new HashMap<>(); // world name -> cell key -> cell
+    private List<Cell> usedCells = new ArrayList<>();
+    private List<Cell> staleCells = new ArrayList<>(); // Used by the previous build, dropped if still empty
+    private long builtTick;
+    private boolean built = false;
+
+    /**
+     * @param cellSize column width in blocks; queries are cheapest with a radius up to this
+     * @param tickClock the current server tick
+     */
+    public NearbyPlayerIndex(double cellSize, LongSupplier tickClock) {
+        this.cellSize = cellSize;
+        this.tickClock = tickClock;
+    }
+
+    /**
+     * Rebuild from the given players unless the index was already built during this tick
+     */
+    public void refresh(Collection<? extends Player> players) {
+        long tick = tickClock.getAsLong();
+        if (built && tick == builtTick) {
+            return;
+        }
+        clear();
+        for (Player player : players) {
+            Location loc = player.getLocation();
+            add(loc.getWorld().getName(), loc.getX(), loc.getY(), loc.getZ(), player.getUniqueId());
+        }
+        prune();
+        builtTick = tick;
+        built = true;
+    }
+
+    /**
+     * Number of other players within radius of this player (in the same world)
+     */
+    public int countNearby(Player player, double radius) {
+        Location loc = player.getLocation();
+        return countNearby(loc.getWorld().getName(), loc.getX(), loc.getY(), loc.getZ(), player.getUniqueId(), radius);
+    }
+
+    void clear() {
+        prune(); // In case the last clear() wasn't followed by one
+        for (Cell cell : usedCells) {
+            cell.clear();
+        }
+        List<Cell> previous = usedCells;
+        usedCells = staleCells;
+        staleCells = previous;
+    }
+
+    /**
+     * Drop the cells of the previous build that stayed empty in this one, and worlds left without cells
+     */
+    void prune() {
+        for (Cell cell : staleCells) {
+            if (cell.size > 0) {
+                continue;
+            }
+            Map<Long, Cell> cells = worlds.get(cell.world);
+            if (cells != null && cells.remove(cell.key, cell) && cells.isEmpty()) {
+                worlds.remove(cell.world);
+            }
+        }
+        staleCells.clear();
+    }
+
+    /**
+     * Cells currently allocated across all worlds
+     */
+    int getCellCount() {
+        int count = 0;
+        for (Map<Long, Cell> cells : worlds.values()) {
+            count += cells.size();
+        }
+        return count;
+    }
+
+    void add(String world, double x, double y, double z, UUID id) {
+        Cell cell = worlds.computeIfAbsent(world, w -> new HashMap<>())
+                .computeIfAbsent(cellKey(cellOf(x), cellOf(z)), k -> new Cell(world, k));
+        if (cell.size == 0) {
+            usedCells.add(cell);
+        }
+        cell.add(x, y, z, id);
+    }
+
+    int countNearby(String world, double x, double y, double z, UUID exclude, double radius) {
+        Map<Long, Cell> cells = worlds.get(world);
+        if (cells == null) {
+            return 0;
+        }
+        double radiusSquared = radius * radius;
+        int minCellX = cellOf(x - radius);
+        int maxCellX = cellOf(x + radius);
+        int minCellZ = cellOf(z - radius);
+        int maxCellZ = cellOf(z + radius);
+
+        int count = 0;
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                Cell cell = cells.get(cellKey(cellX, cellZ));
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size; i++) {
+                    double dx = cell.xs[i] - x;
+                    double dy = cell.ys[i] - y;
+                    double dz = cell.zs[i] - z;
+                    if (dx * dx + dy * dy + dz * dz <= radiusSquared && !cell.ids[i].equals(exclude)) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private int cellOf(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+}
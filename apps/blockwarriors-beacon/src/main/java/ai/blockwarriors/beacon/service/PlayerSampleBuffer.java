@@ -0,0 +1,128 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Material;
+
+import java.util.UUID;
+
+/**
+ * Ring buffer of one player's tick samples (position, health, held item) in preallocated
+ * primitive columns, so recording a sample allocates nothing.
+ * Single writer (the main thread, record()) and single reader (the upload thread, read()):
+ * the writer publishes a sample by advancing the volatile written counter after filling its
+ * slot. A reader that falls more than a full buffer behind loses the oldest samples; read()
+ * drops any slot that was overwritten while it was being copied.
+ */
+public class PlayerSampleBuffer {
+    private final String matchId;
+    private final UUID playerId;
+    private final int mask;
+    private final long[] ticks;
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final float[] health;
+    private final Material[] heldItems;
+
+    private volatile long written = 0; // Samples ever recorded; sample n lives in slot n & mask
+    private long uploaded = 0; // Next sample to send (upload thread only)
+    private long lost = 0; // Samples overwritten before they were sent (upload thread only)
+
+    /**
+     * @param capacity samples kept per player, rounded up to a power of two
+     */
+    public PlayerSampleBuffer(String matchId, UUID playerId, int capacity) {
+        this.matchId = matchId;
+        this.playerId = playerId;
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.ticks = new long[size];
+        this.x = new double[size];
+        this.y = new double[size];
+        this.z = new double[size];
+        this.health = new float[size];
+        this.heldItems = new Material[size];
+    }
+
+    public String getMatchId() {
+        return matchId;
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Append a sample, overwriting the oldest one when the buffer is full (main thread)
+     */
+    public void record(long tick, double x, double y, double z, float health, Material heldItem) {
+        long n = written;
+        int slot = (int) n & mask;
+        this.ticks[slot] = tick;
+        this.x[slot] = x;
+        this.y[slot] = y;
+        this.z[slot] = z;
+        this.health[slot] = health;
+        this.heldItems[slot] = heldItem;
+        written = n + 1;
+    }
+
+    /**
+     * Whether samples are waiting to be sent
+     */
+    public boolean hasUnsent() {
+        return uploaded < written;
+    }
+
+    /**
+     * Copy unsent samples into a chunk, keeping only those whose tick is a multiple of strideTicks
+     * (1 keeps every sample). Stops when the chunk is full; call chunk.markSent() once it was delivered.
+     */
+    public void read(SampleChunk chunk, long strideTicks) {
+        chunk.reset(this);
+        long end = written;
+        long from = uploaded;
+        // The oldest slot is the one the writer fills next, so at most capacity - 1 samples are safe to read
+        if (end - from >= capacity()) {
+            lost += end + 1 - capacity() - from;
+            from = end + 1 - capacity();
+            uploaded = from; // Those are gone whether or not this chunk gets through
+        }
+
+        long n = from;
+        for (; n < end && !chunk.isFull(); n++) {
+            int slot = (int) n & mask;
+            if (ticks[slot] % strideTicks == 0) {
+                chunk.add(n, ticks[slot], x[slot], y[slot], z[slot], health[slot], heldItems[slot]);
+            }
+        }
+
+        // The writer may have lapped us while copying: drop slots that were (or are being) overwritten
+        long oldestIntact = written + 1 - capacity();
+        if (oldestIntact > from) {
+            lost += chunk.dropBefore(oldestIntact);
+        }
+        chunk.setEndPosition(n);
+    }
+
+    /**
+     * Record that everything before position has been delivered
+     */
+    void markSent(long position) {
+        if (position > uploaded) {
+            uploaded = position;
+        }
+    }
+
+    /**
+     * Samples that were overwritten before they could be sent since the last call
+     */
+    public long takeLost() {
+        long count = lost;
+        lost = 0;
+        return count;
+    }
+}
@@ -0,0 +1,35 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Material;
+
+import java.util.UUID;
+
+/**
+ * Immutable copy of the fields telemetry reports for one player, taken on the main thread
+ * Equipment slots hold the item type (AIR when empty); display names are formatted off-thread
+ * Kills through timeAlive are this match's numbers (MatchStats), timeAlive in whole seconds
+ */
+public record PlayerSnapshot(
+        UUID playerId,
+        String ign,
+        double health,
+        double maxHealth,
+        int foodLevel,
+        double x,
+        double y,
+        double z,
+        String world,
+        Material mainHand,
+        Material helmet,
+        Material chestplate,
+        Material leggings,
+        Material boots,
+        int kills,
+        int deaths,
+        int nearbyPlayers,
+        double damageDealt,
+        double damageTaken,
+        int hitsLanded,
+        double distanceTravelled,
+        long timeAlive) {
+}
@@ -0,0 +1,160 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.entity.ArmorStand;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Plays a decoded replay back to one viewer: every player of the match is a glowing marker armor
+ * stand (name and health above it) moved to its recorded positions, one replay tick per server
+ * tick. Hits are announced in the viewer's chat and shown with particles.
+ * The match world is gone by then, so the markers walk the recorded coordinates in the viewer's
+ * current world; glowing makes them visible through blocks and to spectators. The markers are not
+ * persistent, so a restart during playback can't save them into that world.
+ * Runs on the main thread only.
+ */
+public class ReplayPlayback {
+    private final JavaPlugin plugin;
+    private final Player viewer;
+    private final World world;
+    private final List<ReplayReader.PlayerInfo> players;
+    private final List<ReplayReader.State> states;
+    private final List<ReplayReader.Event> events;
+    private final ArmorStand[] markers;
+    private final float[] shownHealth;
+    private final Location scratch;
+    private int tick;
+    private int nextState = 0;
+    private int nextEvent = 0;
+    private final Consumer<ReplayPlayback> onStop;
+    private BukkitTask task;
+
+    /**
+     * @param onStop called once when the playback stops, whether finished or stopped
+     */
+    public ReplayPlayback(JavaPlugin plugin, Player viewer, ReplayReader reader, ReplayReader.Timeline timeline,
+            int fromTick, Consumer<ReplayPlayback> onStop) {
+        this.plugin = plugin;
+        this.onStop = onStop;
+        this.viewer = viewer;
+        this.world = viewer.getWorld();
+        this.players = reader.getPlayers();
+        this.states = timeline.states();
+        this.events = timeline.events();
+        this.markers = new ArmorStand[players.size()];
+        this.shownHealth = new float[players.size()];
+        this.scratch = new Location(world, 0, 0, 0);
+        this.tick = fromTick;
+    }
+
+    public void start() {
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::step, 1L, 1L);
+    }
+
+    /**
+     * Remove the markers and stop the playback
+     */
+    public void stop() {
+        boolean wasRunning = task != null;
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        for (int i = 0; i < markers.length; i++) {
+            if (markers[i] != null) {
+                markers[i].remove();
+                markers[i] = null;
+            }
+        }
+        if (wasRunning) {
+            onStop.accept(this);
+        }
+    }
+
+    public boolean isRunning() {
+        return task != null;
+    }
+
+    /**
+     * Apply every record up to the current replay tick, then advance it
+     */
+    private void step() {
+        if (!viewer.isOnline() || viewer.getWorld() != world) {
+            stop();
+            return;
+        }
+
+        while (nextState < states.size() && states.get(nextState).tick() <= tick) {
+            show(states.get(nextState++));
+        }
+        while (nextEvent < events.size() && events.get(nextEvent).tick() <= tick) {
+            show(events.get(nextEvent++));
+        }
+        tick++;
+
+        if (nextState == states.size() && nextEvent == events.size()) {
+            stop();
+            viewer.sendMessage("§7[replay] §fReplay finished");
+        }
+    }
+
+    private void show(ReplayReader.State state) {
+        if (state.player() < 0 || state.player() >= markers.length) {
+            return;
+        }
+        scratch.setX(state.x());
+        scratch.setY(state.y());
+        scratch.setZ(state.z());
+        scratch.setYaw(state.yaw());
+        ArmorStand marker = markers[state.player()];
+        if (marker == null || !marker.isValid()) {
+            marker = world.spawn(scratch, ArmorStand.class);
+            marker.setPersistent(false); // Never saved with the world
+            marker.setMarker(true);
+            marker.setGravity(false);
+            marker.setInvulnerable(true);
+            marker.setGlowing(true);
+            marker.setCustomNameVisible(true);
+            markers[state.player()] = marker;
+            shownHealth[state.player()] = -1.0f;
+        } else {
+            marker.teleport(scratch);
+        }
+        if (shownHealth[state.player()] != state.health()) {
+            shownHealth[state.player()] = state.health();
+            marker.setCustomName(players.get(state.player()).name() + " §c" + String.format("%.1f", state.health())
+                    + "♥");
+        }
+    }
+
+    private void show(ReplayReader.Event event) {
+        if (event.type() != MatchEventLog.Type.HIT && event.type() != MatchEventLog.Type.DAMAGE) {
+            return;
+        }
+        world.spawnParticle(Particle.CRIT, event.x(), event.y() + 1.0, event.z(), 8, 0.2, 0.4, 0.2, 0.1);
+        if (event.type() == MatchEventLog.Type.HIT) {
+            viewer.sendMessage("§7[replay " + formatTime(event.tick()) + "] §f" + name(event.actor()) + " hit "
+                    + name(event.target()) + " for " + String.format("%.1f", event.amount()));
+        }
+    }
+
+    private String name(int player) {
+        return player >= 0 && player < players.size() ? players.get(player).name() : "?";
+    }
+
+    /**
+     * Replay tick as minutes:seconds
+     */
+    public static String formatTime(int tick) {
+        int seconds = tick / 20;
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+}
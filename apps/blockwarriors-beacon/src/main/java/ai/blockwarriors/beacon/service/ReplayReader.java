@@ -0,0 +1,253 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Material;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a replay written by ReplayWriter: the header and index on open, and the records from a
+ * given tick on, inflating only the segments from the one that contains that tick.
+ * Held items are stored as Material ordinals, so a replay is only decoded faithfully by a server
+ * with the same Bukkit version; unknown ordinals come back as null.
+ */
+public class ReplayReader {
+    private static final Material[] MATERIALS = Material.values();
+    private static final MatchEventLog.Type[] EVENT_TYPES = MatchEventLog.Type.values();
+
+    public record PlayerInfo(UUID id, String name) {
+    }
+
+    /**
+     * Position, health and held item of player (index into getPlayers()) at tick
+     */
+    public record State(int tick, int player, float x, float y, float z, float yaw, float health, Material item) {
+    }
+
+    /**
+     * A combat event at tick; target is -1 when the event has none
+     */
+    public record Event(int tick, MatchEventLog.Type type, int actor, int target, float amount, Material item,
+            float x, float y, float z) {
+    }
+
+    /**
+     * Records from some tick on, each list in tick order
+     */
+    public record Timeline(List<State> states, List<Event> events) {
+    }
+
+    private final Path dataFile;
+    private final String matchId;
+    private final long startMillis;
+    private final long dataEnd;
+    private final List<PlayerInfo> players;
+    private final long[] lastTicks;
+    private final long[] offsets;
+
+    private ReplayReader(Path dataFile, String matchId, long startMillis, long dataEnd, List<PlayerInfo> players,
+            long[] lastTicks, long[] offsets) {
+        this.dataFile = dataFile;
+        this.matchId = matchId;
+        this.startMillis = startMillis;
+        this.dataEnd = dataEnd;
+        this.players = players;
+        this.lastTicks = lastTicks;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Read the header of dataFile and the index entries of its complete segments
+     */
+    public static ReplayReader open(Path dataFile, Path indexFile) throws IOException {
+        String matchId;
+        long startMillis;
+        long dataEnd;
+        List<PlayerInfo> players = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(channel.size(), 64 * 1024));
+            if (header.remaining() < ReplayWriter.DATA_END_OFFSET + 8 || header.getInt() != ReplayWriter.MAGIC) {
+                throw new IOException("Not a replay file: " + dataFile);
+            }
+            short version = header.getShort();
+            if (version != ReplayWriter.VERSION) {
+                throw new IOException("Unsupported replay version " + version + ": " + dataFile);
+            }
+            startMillis = header.getLong();
+            dataEnd = Math.min(header.getLong(), channel.size());
+            matchId = getString(header);
+            int playerCount = header.getShort();
+            for (int i = 0; i < playerCount; i++) {
+                UUID id = new UUID(header.getLong(), header.getLong());
+                players.add(new PlayerInfo(id, getString(header)));
+            }
+        }
+
+        ByteBuffer index = ByteBuffer.wrap(Files.exists(indexFile) ? Files.readAllBytes(indexFile) : new byte[0]);
+        int count = 0;
+        long[] lastTicks = new long[index.remaining() / ReplayWriter.INDEX_ENTRY_BYTES];
+        long[] offsets = new long[lastTicks.length];
+        while (index.remaining() >= ReplayWriter.INDEX_ENTRY_BYTES) {
+            index.getLong(); // First tick; seeking only needs the last one
+            long last = index.getLong();
+            long offset = index.getLong();
+            if (offset >= dataEnd) {
+                break; // Indexed, but the segment itself was never completed
+            }
+            lastTicks[count] = last;
+            offsets[count] = offset;
+            count++;
+        }
+        return new ReplayReader(dataFile, matchId, startMillis, dataEnd, Collections.unmodifiableList(players),
+                Arrays.copyOf(lastTicks, count), Arrays.copyOf(offsets, count));
+    }
+
+    public String getMatchId() {
+        return matchId;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public List<PlayerInfo> getPlayers() {
+        return players;
+    }
+
+    public int getSegmentCount() {
+        return offsets.length;
+    }
+
+    /**
+     * Last recorded tick (0 if nothing was recorded)
+     */
+    public long getLastTick() {
+        return lastTicks.length == 0 ? 0 : lastTicks[lastTicks.length - 1];
+    }
+
+    /**
+     * Decode every record at or after fromTick
+     */
+    public Timeline read(int fromTick) throws IOException {
+        List<State> states = new ArrayList<>();
+        List<Event> events = new ArrayList<>();
+        int segment = firstSegmentFor(fromTick);
+        if (segment == offsets.length) {
+            return new Timeline(states, events);
+        }
+
+        Inflater inflater = new Inflater();
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            MappedByteBuffer segments = channel.map(FileChannel.MapMode.READ_ONLY, offsets[segment],
+                    dataEnd - offsets[segment]);
+            byte[] compressed = new byte[0];
+            byte[] raw = new byte[0];
+            while (segments.remaining() >= ReplayWriter.SEGMENT_HEADER_BYTES) {
+                int rawLength = segments.getInt();
+                int compressedLength = segments.getInt();
+                segments.getLong(); // First and last tick, already in the index
+                segments.getLong();
+                if (compressedLength > compressed.length) {
+                    compressed = new byte[compressedLength];
+                }
+                if (rawLength > raw.length) {
+                    raw = new byte[rawLength];
+                }
+                segments.get(compressed, 0, compressedLength);
+
+                inflater.reset();
+                inflater.setInput(compressed, 0, compressedLength);
+                int inflated = 0;
+                while (inflated < rawLength && !inflater.finished()) {
+                    int n = inflater.inflate(raw, inflated, rawLength - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Truncated replay segment in " + dataFile);
+                    }
+                    inflated += n;
+                }
+                decode(ByteBuffer.wrap(raw, 0, inflated), fromTick, states, events);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt replay segment in " + dataFile, e);
+        } finally {
+            inflater.end();
+        }
+        return new Timeline(states, events);
+    }
+
+    /**
+     * Index of the first segment that may hold records at or after tick (binary search on the index)
+     */
+    private int firstSegmentFor(long tick) {
+        int low = 0;
+        int high = lastTicks.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lastTicks[mid] < tick) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void decode(ByteBuffer records, int fromTick, List<State> states, List<Event> events)
+            throws IOException {
+        while (records.hasRemaining()) {
+            byte type = records.get();
+            if (type == ReplayWriter.STATE) {
+                int tick = records.getInt();
+                int player = records.get();
+                float x = records.getFloat();
+                float y = records.getFloat();
+                float z = records.getFloat();
+                float yaw = records.getFloat();
+                float health = records.getFloat();
+                Material item = material(records.getShort());
+                if (tick >= fromTick) {
+                    states.add(new State(tick, player, x, y, z, yaw, health, item));
+                }
+            } else if (type == ReplayWriter.EVENT) {
+                int tick = records.getInt();
+                int eventType = records.get();
+                int actor = records.get();
+                int target = records.get();
+                float amount = records.getFloat();
+                Material item = material(records.getShort());
+                float x = records.getFloat();
+                float y = records.getFloat();
+                float z = records.getFloat();
+                if (tick >= fromTick && eventType >= 0 && eventType < EVENT_TYPES.length) {
+                    events.add(new Event(tick, EVENT_TYPES[eventType], actor, target, amount, item, x, y, z));
+                }
+            } else {
+                throw new IOException("Unknown replay record type " + type);
+            }
+        }
+    }
+
+    private static Material material(short ordinal) {
+        return ordinal >= 0 && ordinal < MATERIALS.length ? MATERIALS[ordinal] : null;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
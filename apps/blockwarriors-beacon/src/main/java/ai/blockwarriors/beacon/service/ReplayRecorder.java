@@ -0,0 +1,397 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Records every match into a replay file in the plugin's replays folder: the TickSampler's
+ * per-tick player states and the combat events, so a match can still be watched (/replay) after its
+ * world is deleted.
+ * The main thread only appends fixed-size records to an in-memory staging buffer per match. Every
+ * segmentMillis the writer thread swaps that buffer out and appends it as a compressed segment
+ * (ReplayWriter); a match's file is closed once the match has ended and its last segment is
+ * written. Beyond maxReplays files, or files older than maxAgeMillis, the oldest replays are deleted.
+ * The writer is woken with notify, never interrupted: FileChannel closes itself when its thread
+ * is interrupted mid-write. On stop it writes what is still staged and closes the files itself.
+ */
+public class ReplayRecorder implements MatchLifecycleListener {
+    private static final Logger LOGGER = Logger.getLogger("beacon");
+    static final String DATA_SUFFIX = ".bwr";
+    static final String INDEX_SUFFIX = ".bwi";
+
+    private final Path directory;
+    private final long segmentMillis;
+    private final int maxReplays;
+    private final long maxAgeMillis;
+    private final Map<String, Recording> recordings = new ConcurrentHashMap<>(); // matchId -> recording
+    private volatile long bytesWritten = 0;
+    private final Object wakeup = new Object(); // The writer waits on it between segments
+    private Thread thread;
+    private volatile boolean running = false;
+
+    /**
+     * @param maxAgeMillis replays older than this are deleted (0 keeps them regardless of age)
+     */
+    public ReplayRecorder(Path directory, long segmentMillis, int maxReplays, long maxAgeMillis) {
+        this.directory = directory;
+        this.segmentMillis = Math.max(100L, segmentMillis);
+        this.maxReplays = Math.max(1, maxReplays);
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            LOGGER.warning("ReplayRecorder is already running");
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            LOGGER.severe("Could not create replay folder " + directory + ": " + e.getMessage());
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "beacon-replay-writer");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("ReplayRecorder started (segments every " + segmentMillis + "ms, keeping " + maxReplays
+                + " replays in " + directory + ")");
+    }
+
+    public void stop() {
+        Thread writerThread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            writerThread = thread;
+            thread = null;
+        }
+
+        synchronized (wakeup) {
+            wakeup.notifyAll();
+        }
+        try {
+            writerThread.join(segmentMillis + 5000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            LOGGER.warning("Replay writer still busy, the last segments are written in the background");
+        }
+        LOGGER.info("ReplayRecorder stopped");
+    }
+
+    @Override
+    public void onMatchStarted(String matchId, Set<UUID> playerIds) {
+        List<UUID> ids = new ArrayList<>(playerIds);
+        List<String> names = new ArrayList<>(ids.size());
+        for (UUID playerId : ids) {
+            Player player = Bukkit.getPlayer(playerId);
+            names.add(player != null ? player.getName() : playerId.toString());
+        }
+        recordings.putIfAbsent(matchId, new Recording(matchId, System.currentTimeMillis(), ids, names));
+    }
+
+    @Override
+    public void onMatchEnded(String matchId, String status) {
+        Recording recording = recordings.get(matchId);
+        if (recording != null) {
+            recording.ended = true;
+        }
+    }
+
+    /**
+     * Record a player's state at a sampler tick (main thread)
+     */
+    public void recordState(String matchId, UUID playerId, long tick, double x, double y, double z, float yaw,
+            float health, Material item) {
+        Recording recording = recordings.get(matchId);
+        if (recording != null) {
+            recording.appendState(playerId, tick, x, y, z, yaw, health, item);
+        }
+    }
+
+    /**
+     * Record a combat event at a sampler tick (main thread); target and item may be null
+     */
+    public void recordEvent(String matchId, long tick, MatchEventLog.Type type, UUID actor, UUID target,
+            double amount, Material item, double x, double y, double z) {
+        Recording recording = recordings.get(matchId);
+        if (recording != null) {
+            recording.appendEvent(tick, type, actor, target, amount, item, x, y, z);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Number of matches being recorded
+     */
+    public int getActiveCount() {
+        return recordings.size();
+    }
+
+    /**
+     * Bytes written to replay files since the server started
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Match IDs of the stored replays, newest first (matches still being recorded included)
+     */
+    public List<String> listReplays() throws IOException {
+        List<String> matchIds = new ArrayList<>();
+        for (Path file : replayFilesNewestFirst()) {
+            String name = file.getFileName().toString();
+            matchIds.add(name.substring(0, name.length() - DATA_SUFFIX.length()));
+        }
+        return matchIds;
+    }
+
+    /**
+     * Open the stored replay of a match; a match still being recorded can be read up to its last segment
+     */
+    public ReplayReader open(String matchId) throws IOException {
+        if (matchId.isEmpty() || !matchId.equals(Path.of(matchId).getFileName().toString())) {
+            throw new IOException("Invalid match ID: " + matchId);
+        }
+        Path dataFile = directory.resolve(matchId + DATA_SUFFIX);
+        if (!Files.exists(dataFile)) {
+            throw new IOException("No replay stored for match " + matchId);
+        }
+        return ReplayReader.open(dataFile, directory.resolve(matchId + INDEX_SUFFIX));
+    }
+
+    private void run() {
+        while (running) {
+            synchronized (wakeup) {
+                try {
+                    if (running) {
+                        wakeup.wait(segmentMillis);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            writeSegments();
+        }
+
+        // Stopped: whatever is still staged goes into the files, which are closed as they are
+        for (Recording recording : recordings.values()) {
+            recording.ended = true;
+        }
+        writeSegments();
+    }
+
+    /**
+     * Append the staged records of every match as a segment; close the files of ended matches
+     */
+    private void writeSegments() {
+        boolean closed = false;
+        for (Recording recording : recordings.values()) {
+            // Read before writing, so records staged before the end are in the last segment
+            boolean ended = recording.ended;
+            try {
+                recording.writeSegment();
+            } catch (IOException e) {
+                LOGGER.severe("Error writing replay of match " + recording.matchId + ": " + e.getMessage());
+                e.printStackTrace();
+                ended = true; // Give up on this replay rather than retrying a broken file every segment
+            }
+            if (ended) {
+                recordings.remove(recording.matchId, recording);
+                recording.close();
+                closed = true;
+            }
+        }
+        if (closed) {
+            enforceRetention();
+        }
+    }
+
+    /**
+     * Delete the oldest replays beyond maxReplays and those older than maxAgeMillis
+     */
+    private void enforceRetention() {
+        try {
+            List<Path> files = replayFilesNewestFirst();
+            long cutoff = maxAgeMillis > 0 ? System.currentTimeMillis() - maxAgeMillis : Long.MIN_VALUE;
+            for (int i = 0; i < files.size(); i++) {
+                Path file = files.get(i);
+                String name = file.getFileName().toString();
+                String matchId = name.substring(0, name.length() - DATA_SUFFIX.length());
+                if (recordings.containsKey(matchId)) {
+                    continue;
+                }
+                if (i >= maxReplays || Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                    Files.deleteIfExists(file);
+                    Files.deleteIfExists(directory.resolve(matchId + INDEX_SUFFIX));
+                    LOGGER.info("Deleted replay of match " + matchId + " (retention limit)");
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Could not apply the replay retention limit: " + e.getMessage());
+        }
+    }
+
+    private List<Path> replayFilesNewestFirst() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        Map<Path, Long> modified = new HashMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(DATA_SUFFIX)) {
+                    modified.put(file, Files.getLastModifiedTime(file).toMillis());
+                }
+            }
+        }
+        List<Path> sorted = new ArrayList<>(modified.keySet());
+        sorted.sort(Comparator.comparing((Path file) -> modified.get(file)).reversed());
+        return sorted;
+    }
+
+    /**
+     * One match being recorded: staging buffers filled by the main thread, the file written by the writer thread
+     */
+    private final class Recording {
+        private final String matchId;
+        private final long startMillis;
+        private final List<UUID> playerIds;
+        private final List<String> playerNames;
+        private final Map<UUID, Integer> playerIndex = new HashMap<>(); // Read-only after construction
+        private volatile boolean ended = false;
+
+        // Guarded by this
+        private ByteBuffer staging = ByteBuffer.allocate(64 * 1024);
+        private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+        private long baseTick = -1; // Sampler tick of the first record, replay ticks count from here
+        private int segmentFirstTick = -1;
+        private int segmentLastTick = -1;
+
+        private ReplayWriter writer; // Writer thread only; opened with the first segment
+
+        Recording(String matchId, long startMillis, List<UUID> playerIds, List<String> playerNames) {
+            this.matchId = matchId;
+            this.startMillis = startMillis;
+            this.playerIds = playerIds;
+            this.playerNames = playerNames;
+            for (int i = 0; i < playerIds.size(); i++) {
+                playerIndex.put(playerIds.get(i), i);
+            }
+        }
+
+        synchronized void appendState(UUID playerId, long tick, double x, double y, double z, float yaw,
+                float health, Material item) {
+            Integer player = playerIndex.get(playerId);
+            if (player == null) {
+                return;
+            }
+            int replayTick = replayTick(tick);
+            ensureCapacity(ReplayWriter.STATE_BYTES);
+            ReplayWriter.putState(staging, replayTick, player, x, y, z, yaw, health, item);
+        }
+
+        synchronized void appendEvent(long tick, MatchEventLog.Type type, UUID actor, UUID target, double amount,
+                Material item, double x, double y, double z) {
+            Integer actorIndex = playerIndex.get(actor);
+            if (actorIndex == null) {
+                return;
+            }
+            Integer targetIndex = target == null ? null : playerIndex.get(target);
+            int replayTick = replayTick(tick);
+            ensureCapacity(ReplayWriter.EVENT_BYTES);
+            ReplayWriter.putEvent(staging, replayTick, type, actorIndex, targetIndex == null ? -1 : targetIndex,
+                    amount, item, x, y, z);
+        }
+
+        private int replayTick(long tick) {
+            if (baseTick < 0) {
+                baseTick = tick;
+            }
+            int replayTick = (int) Math.max(0, tick - baseTick);
+            if (segmentFirstTick < 0) {
+                segmentFirstTick = replayTick;
+            }
+            segmentLastTick = replayTick;
+            return replayTick;
+        }
+
+        private void ensureCapacity(int bytes) {
+            if (staging.remaining() < bytes) {
+                // The writer fell behind; grow rather than drop records
+                ByteBuffer larger = ByteBuffer.allocate(staging.capacity() * 2);
+                staging.flip();
+                larger.put(staging);
+                staging = larger;
+            }
+        }
+
+        /**
+         * Swap out the staged records and append them as a segment (writer thread)
+         */
+        void writeSegment() throws IOException {
+            ByteBuffer full;
+            int firstTick;
+            int lastTick;
+            synchronized (this) {
+                if (staging.position() == 0) {
+                    return;
+                }
+                full = staging;
+                staging = spare;
+                spare = full;
+                firstTick = segmentFirstTick;
+                lastTick = segmentLastTick;
+                segmentFirstTick = -1;
+                segmentLastTick = -1;
+            }
+
+            if (writer == null) {
+                writer = new ReplayWriter(directory.resolve(matchId + DATA_SUFFIX),
+                        directory.resolve(matchId + INDEX_SUFFIX), matchId, startMillis, playerIds, playerNames);
+                bytesWritten += writer.size();
+            }
+            long before = writer.size();
+            writer.writeSegment(full.array(), full.position(), firstTick, lastTick);
+            bytesWritten += writer.size() - before;
+            full.clear(); // Handed back to the main thread by the next swap, which also happens on this thread
+        }
+
+        void close() {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.close();
+                LOGGER.info("Saved replay of match " + matchId + " (" + writer.getSegmentCount() + " segments, "
+                        + writer.size() / 1024 + " KB)");
+            } catch (IOException e) {
+                LOGGER.severe("Error closing replay of match " + matchId + ": " + e.getMessage());
+            }
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Material;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.Deflater;
+
+/**
+ * Appends deflated segments of one match's replay to a memory-mapped file (replay writer thread only)
+ * Data file layout (big-endian):
+ *   header: magic "BWRP", version, start time, data end, match ID, player table (UUID, name)
+ *   segments: raw length, compressed length, first tick, last tick, deflated records
+ * The data end in the header is updated after every segment, so a file cut short by a crash is
+ * readable up to its last complete segment. Every segment also gets an entry (first tick, last tick,
+ * offset) in the index file, so playback can seek without inflating the segments before it.
+ * Records inside a segment (ticks count from the first recorded tick of the match):
+ *   STATE: type, tick, player index, x, y, z, yaw, health, held item ordinal
+ *   EVENT: type, tick, event type, actor index, target index (-1 for none), amount, item ordinal, x, y, z
+ */
+class ReplayWriter implements Closeable {
+    static final int MAGIC = 0x42575250; // "BWRP"
+    static final short VERSION = 1;
+    static final int DATA_END_OFFSET = 14; // After magic (4), version (2) and start time (8)
+    static final int SEGMENT_HEADER_BYTES = 24;
+    static final int INDEX_ENTRY_BYTES = 24;
+
+    static final byte STATE = 1;
+    static final byte EVENT = 2;
+    static final int STATE_BYTES = 28;
+    static final int EVENT_BYTES = 26;
+
+    // The file is mapped in regions of at least this size, so most segments are a plain memory copy
+    private static final int MAP_REGION_BYTES = 256 * 1024;
+
+    private final FileChannel data;
+    private final FileChannel index;
+    private final MappedByteBuffer header; // Just the fixed part, to update the data end
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long position; // End of the last complete segment
+    private int segmentCount = 0;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed = new byte[64 * 1024];
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+
+    ReplayWriter(Path dataFile, Path indexFile, String matchId, long startMillis, List<UUID> playerIds,
+            List<String> playerNames) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(64 + matchId.length() * 3 + playerIds.size() * 72);
+        head.putInt(MAGIC).putShort(VERSION).putLong(startMillis).putLong(0L);
+        putString(head, matchId);
+        head.putShort((short) playerIds.size());
+        for (int i = 0; i < playerIds.size(); i++) {
+            head.putLong(playerIds.get(i).getMostSignificantBits()).putLong(playerIds.get(i).getLeastSignificantBits());
+            putString(head, playerNames.get(i));
+        }
+
+        this.data = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.index = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            data.close();
+            throw e;
+        }
+        this.header = data.map(FileChannel.MapMode.READ_WRITE, 0, DATA_END_OFFSET + 8);
+        this.position = 0;
+        ensureMapped(head.position());
+        region.put(0, head.array(), 0, head.position());
+        this.position = head.position();
+        header.putLong(DATA_END_OFFSET, position);
+    }
+
+    /**
+     * Compress raw records (length bytes of raw) into a new segment and index it
+     */
+    void writeSegment(byte[] raw, int length, int firstTick, int lastTick) throws IOException {
+        deflater.reset();
+        deflater.setInput(raw, 0, length);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+
+        int size = SEGMENT_HEADER_BYTES + compressedLength;
+        ensureMapped(size);
+        int at = (int) (position - regionStart);
+        region.putInt(at, length);
+        region.putInt(at + 4, compressedLength);
+        region.putLong(at + 8, firstTick);
+        region.putLong(at + 16, lastTick);
+        region.put(at + SEGMENT_HEADER_BYTES, compressed, 0, compressedLength);
+
+        // Index before data end: readers ignore index entries past the data end
+        indexEntry.clear();
+        indexEntry.putLong(firstTick).putLong(lastTick).putLong(position).flip();
+        while (indexEntry.hasRemaining()) {
+            index.write(indexEntry);
+        }
+        position += size;
+        header.putLong(DATA_END_OFFSET, position);
+        segmentCount++;
+    }
+
+    /**
+     * Append a STATE record (STATE_BYTES long) to a staging buffer
+     */
+    static void putState(ByteBuffer out, int tick, int player, double x, double y, double z, float yaw, float health,
+            Material item) {
+        out.put(STATE).putInt(tick).put((byte) player)
+                .putFloat((float) x).putFloat((float) y).putFloat((float) z).putFloat(yaw).putFloat(health)
+                .putShort(item == null ? -1 : (short) item.ordinal());
+    }
+
+    /**
+     * Append an EVENT record (EVENT_BYTES long) to a staging buffer; target is -1 for none
+     */
+    static void putEvent(ByteBuffer out, int tick, MatchEventLog.Type type, int actor, int target, double amount,
+            Material item, double x, double y, double z) {
+        out.put(EVENT).putInt(tick).put((byte) type.ordinal()).put((byte) actor).put((byte) target)
+                .putFloat((float) amount).putShort(item == null ? -1 : (short) item.ordinal())
+                .putFloat((float) x).putFloat((float) y).putFloat((float) z);
+    }
+
+    /**
+     * Bytes written so far (header and complete segments)
+     */
+    long size() {
+        return position;
+    }
+
+    int getSegmentCount() {
+        return segmentCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            region.force();
+            header.force();
+            try {
+                // Drop the unused tail of the last region (not possible on every platform while mapped)
+                data.truncate(position);
+            } catch (IOException e) {
+                // The data end in the header still tells readers where the segments stop
+            }
+        } finally {
+            deflater.end();
+            data.close();
+            index.close();
+        }
+    }
+
+    /**
+     * Make sure the mapped region covers size more bytes from the current position
+     */
+    private void ensureMapped(int size) throws IOException {
+        if (region != null && position + size <= regionStart + region.capacity()) {
+            return;
+        }
+        if (region != null) {
+            region.force();
+        }
+        regionStart = position;
+        region = data.map(FileChannel.MapMode.READ_WRITE, position, Math.max(MAP_REGION_BYTES, size));
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+}
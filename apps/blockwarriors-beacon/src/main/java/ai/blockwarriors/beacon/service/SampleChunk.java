@@ -0,0 +1,154 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Material;
+
+import java.util.UUID;
+
+/**
+ * A run of one player's samples copied out of a PlayerSampleBuffer for upload.
+ * Chunks are reused from upload to upload; the columns are written as parallel arrays
+ * ({match_id, player_id, ticks, x, y, z, health, held_item}).
+ */
+public class SampleChunk {
+    private String matchId;
+    private UUID playerId;
+    private PlayerSampleBuffer source;
+    private long endPosition; // Buffer position after the last sample read into this chunk
+    private final long[] positions; // Buffer position of each sample, to drop overwritten ones
+    private final long[] ticks;
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final float[] health;
+    private final Material[] heldItems;
+    private int size = 0;
+
+    public SampleChunk(int maxSamples) {
+        this.positions = new long[maxSamples];
+        this.ticks = new long[maxSamples];
+        this.x = new double[maxSamples];
+        this.y = new double[maxSamples];
+        this.z = new double[maxSamples];
+        this.health = new float[maxSamples];
+        this.heldItems = new Material[maxSamples];
+    }
+
+    void reset(PlayerSampleBuffer source) {
+        this.source = source;
+        this.matchId = source.getMatchId();
+        this.playerId = source.getPlayerId();
+        this.size = 0;
+    }
+
+    void setEndPosition(long endPosition) {
+        this.endPosition = endPosition;
+    }
+
+    /**
+     * Mark the samples in this chunk (and any skipped by downsampling) as delivered
+     */
+    public void markSent() {
+        source.markSent(endPosition);
+    }
+
+    boolean isFull() {
+        return size == ticks.length;
+    }
+
+    void add(long position, long tick, double x, double y, double z, float health, Material heldItem) {
+        positions[size] = position;
+        ticks[size] = tick;
+        this.x[size] = x;
+        this.y[size] = y;
+        this.z[size] = z;
+        this.health[size] = health;
+        heldItems[size] = heldItem;
+        size++;
+    }
+
+    /**
+     * Remove the samples taken from buffer positions before the given one; returns how many
+     */
+    int dropBefore(long position) {
+        int keepFrom = 0;
+        while (keepFrom < size && positions[keepFrom] < position) {
+            keepFrom++;
+        }
+        if (keepFrom > 0) {
+            int kept = size - keepFrom;
+            System.arraycopy(positions, keepFrom, positions, 0, kept);
+            System.arraycopy(ticks, keepFrom, ticks, 0, kept);
+            System.arraycopy(x, keepFrom, x, 0, kept);
+            System.arraycopy(y, keepFrom, y, 0, kept);
+            System.arraycopy(z, keepFrom, z, 0, kept);
+            System.arraycopy(health, keepFrom, health, 0, kept);
+            System.arraycopy(heldItems, keepFrom, heldItems, 0, kept);
+            size = kept;
+        }
+        return keepFrom;
+    }
+
+    public String getMatchId() {
+        return matchId;
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long tickAt(int i) {
+        return ticks[i];
+    }
+
+    public double xAt(int i) {
+        return x[i];
+    }
+
+    public float healthAt(int i) {
+        return health[i];
+    }
+
+    public Material heldItemAt(int i) {
+        return heldItems[i];
+    }
+
+    /**
+     * Write the chunk as {match_id, player_id, ticks, x, y, z, health, held_item}
+     */
+    public void write(TelemetryWriter out) {
+        out.beginObject(8);
+        out.name("match_id").string(matchId);
+        out.name("player_id").uuid(playerId);
+        out.name("ticks").beginArray(size);
+        for (int i = 0; i < size; i++) {
+            out.integer(ticks[i]);
+        }
+        out.end();
+        writeColumn(out, "x", x);
+        writeColumn(out, "y", y);
+        writeColumn(out, "z", z);
+        out.name("health").beginArray(size);
+        for (int i = 0; i < size; i++) {
+            out.number(health[i]);
+        }
+        out.end();
+        out.name("held_item").beginArray(size);
+        for (int i = 0; i < size; i++) {
+            out.string(TelemetryCollector.displayName(heldItems[i]));
+        }
+        out.end();
+        out.end();
+    }
+
+    private void writeColumn(TelemetryWriter out, String name, double[] column) {
+        out.name(name).beginArray(size);
+        for (int i = 0; i < size; i++) {
+            out.number(column[i]);
+        }
+        out.end();
+    }
+}
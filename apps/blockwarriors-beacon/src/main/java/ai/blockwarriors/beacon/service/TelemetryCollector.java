@@ -0,0 +1,337 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Two-stage telemetry collection:
+ * capture() runs on the main thread and only copies player fields into immutable snapshots;
+ * toJson() turns snapshots into the match_state JSON on any thread without touching entities
+ * (the hot path streams them with writePlayer() instead, see TelemetryDeltaEncoder).
+ * The main-thread cost of every capture is measured (last, average and worst case).
+ */
+public class TelemetryCollector {
+    private static final Logger LOGGER = Logger.getLogger("beacon");
+    private static final double NEARBY_RADIUS = 20.0;
+    // Don't warn about slow captures more often than this
+    private static final long SLOW_CAPTURE_LOG_INTERVAL_MS = 60000L;
+
+    // Equipment display names, formatted once per material instead of on every update
+    private static final Map<Material, String> DISPLAY_NAMES = new EnumMap<>(Material.class);
+    static {
+        for (Material material : Material.values()) {
+            DISPLAY_NAMES.put(material, material == Material.AIR ? "None" : formatItemName(material));
+        }
+    }
+
+    // Player fields as bits, for writing only part of a player (deltas)
+    static final int PLAYER_ID = 1;
+    static final int IGN = 1 << 1;
+    static final int HEALTH = 1 << 2;
+    static final int MAX_HEALTH = 1 << 3;
+    static final int FOOD_LEVEL = 1 << 4;
+    static final int X = 1 << 5;
+    static final int Y = 1 << 6;
+    static final int Z = 1 << 7;
+    static final int WORLD = 1 << 8;
+    static final int MAIN_HAND = 1 << 9;
+    static final int HELMET = 1 << 10;
+    static final int CHESTPLATE = 1 << 11;
+    static final int LEGGINGS = 1 << 12;
+    static final int BOOTS = 1 << 13;
+    static final int KILLS = 1 << 14;
+    static final int DEATHS = 1 << 15;
+    static final int NEARBY_PLAYERS = 1 << 16;
+    static final int DAMAGE_DEALT = 1 << 17;
+    static final int DAMAGE_TAKEN = 1 << 18;
+    static final int HITS_LANDED = 1 << 19;
+    static final int DISTANCE_TRAVELLED = 1 << 20;
+    static final int TIME_ALIVE = 1 << 21;
+    static final int POSITION = X | Y | Z | WORLD;
+    static final int EQUIPMENT = MAIN_HAND | HELMET | CHESTPLATE | LEGGINGS | BOOTS;
+    static final int ALL_FIELDS = (1 << 22) - 1;
+
+    private final long warnNanos;
+    private final NearbyPlayerIndex nearbyIndex;
+    private long lastCaptureNanos = 0; // All guarded by this
+    private long maxCaptureNanos = 0;
+    private long totalCaptureNanos = 0;
+    private long captureCount = 0;
+    private long lastSlowCaptureLog = 0;
+
+    /**
+     * @param warnMicros log a warning when a capture takes longer than this on the main thread
+     * @param tickClock the current server tick, to rebuild the nearby-player index once per tick
+     */
+    public TelemetryCollector(long warnMicros, LongSupplier tickClock) {
+        this.warnNanos = warnMicros * 1000L;
+        this.nearbyIndex = new NearbyPlayerIndex(NEARBY_RADIUS, tickClock);
+    }
+
+    /**
+     * Snapshot the online players of a match (main thread only)
+     * @param deadPlayerId If provided, this player's health is reported as 0 (for the final state)
+     * @param stats The match's statistics; players it doesn't count report zeros (may be null)
+     */
+    public MatchSnapshot capture(String matchId, Collection<UUID> playerIds, UUID deadPlayerId, MatchStats stats) {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        nearbyIndex.refresh(Bukkit.getOnlinePlayers()); // Once per tick, shared by all matches
+        List<PlayerSnapshot> players = new ArrayList<>(playerIds.size());
+        for (UUID playerId : playerIds) {
+            Player player = Bukkit.getPlayer(playerId);
+            if (player != null && player.isOnline()) {
+                players.add(capturePlayer(player, playerId.equals(deadPlayerId), stats, now));
+            }
+        }
+        MatchSnapshot snapshot = new MatchSnapshot(matchId, now, List.copyOf(players));
+        recordCapture(System.nanoTime() - start);
+        return snapshot;
+    }
+
+    /**
+     * Based on updatePlayerScoreboard from WarriorEventListener
+     */
+    private PlayerSnapshot capturePlayer(Player player, boolean dead, MatchStats stats, long now) {
+        Location loc = player.getLocation();
+        PlayerInventory inventory = player.getInventory();
+        int slot = stats == null ? -1 : stats.slot(player.getUniqueId());
+        return new PlayerSnapshot(
+                player.getUniqueId(),
+                player.getName(),
+                dead ? 0.0 : player.getHealth(),
+                player.getAttribute(Attribute.GENERIC_MAX_HEALTH).getValue(),
+                player.getFoodLevel(),
+                loc.getX(),
+                loc.getY(),
+                loc.getZ(),
+                loc.getWorld().getName(),
+                typeOf(inventory.getItemInMainHand()),
+                typeOf(inventory.getHelmet()),
+                typeOf(inventory.getChestplate()),
+                typeOf(inventory.getLeggings()),
+                typeOf(inventory.getBoots()),
+                slot < 0 ? 0 : stats.getKills(slot),
+                slot < 0 ? 0 : stats.getDeaths(slot),
+                nearbyIndex.countNearby(player, NEARBY_RADIUS),
+                slot < 0 ? 0.0 : stats.getDamageDealt(slot),
+                slot < 0 ? 0.0 : stats.getDamageTaken(slot),
+                slot < 0 ? 0 : stats.getHitsLanded(slot),
+                slot < 0 ? 0.0 : stats.getDistanceTravelled(slot),
+                slot < 0 ? 0L : stats.getTimeAliveMillis(slot, now) / 1000L);
+    }
+
+    private static Material typeOf(ItemStack item) {
+        return item != null ? item.getType() : Material.AIR;
+    }
+
+    /**
+     * Build the match_state JSON for a snapshot (any thread)
+     */
+    public static JSONObject toJson(MatchSnapshot snapshot) {
+        JSONObject matchState = new JSONObject();
+        matchState.put("timestamp", snapshot.timestamp());
+        matchState.put("matchId", snapshot.matchId());
+
+        JSONArray players = new JSONArray();
+        for (PlayerSnapshot player : snapshot.players()) {
+            players.put(toJson(player));
+        }
+        matchState.put("players", players);
+        return matchState;
+    }
+
+    private static JSONObject toJson(PlayerSnapshot player) {
+        JSONObject playerData = new JSONObject();
+
+        // Basic info
+        playerData.put("playerId", player.playerId().toString());
+        playerData.put("ign", player.ign());
+
+        // Health & Food
+        playerData.put("health", player.health());
+        playerData.put("maxHealth", player.maxHealth());
+        playerData.put("foodLevel", player.foodLevel());
+
+        // Position
+        JSONObject position = new JSONObject();
+        position.put("x", player.x());
+        position.put("y", player.y());
+        position.put("z", player.z());
+        position.put("world", player.world());
+        playerData.put("position", position);
+
+        // Equipment
+        JSONObject equipment = new JSONObject();
+        equipment.put("mainHand", displayName(player.mainHand()));
+        equipment.put("helmet", displayName(player.helmet()));
+        equipment.put("chestplate", displayName(player.chestplate()));
+        equipment.put("leggings", displayName(player.leggings()));
+        equipment.put("boots", displayName(player.boots()));
+        playerData.put("equipment", equipment);
+
+        // Combat Stats
+        playerData.put("kills", player.kills());
+        playerData.put("deaths", player.deaths());
+        playerData.put("nearbyPlayers", player.nearbyPlayers());
+        playerData.put("damageDealt", player.damageDealt());
+        playerData.put("damageTaken", player.damageTaken());
+        playerData.put("hitsLanded", player.hitsLanded());
+        playerData.put("distanceTravelled", player.distanceTravelled());
+        playerData.put("timeAlive", player.timeAlive());
+        return playerData;
+    }
+
+    /**
+     * Write the match_state of a snapshot (a keyframe) without building a JSONObject tree
+     */
+    public static void writeMatchState(TelemetryWriter out, MatchSnapshot snapshot) {
+        out.beginObject(3);
+        out.name("timestamp").integer(snapshot.timestamp());
+        out.name("matchId").string(snapshot.matchId());
+        out.name("players").beginArray(snapshot.players().size());
+        for (PlayerSnapshot player : snapshot.players()) {
+            writePlayer(out, player, ALL_FIELDS);
+        }
+        out.end();
+        out.end();
+    }
+
+    /**
+     * Write the given fields of a player as an object (same layout as toJson)
+     * @param fields bits of the fields to include, e.g. ALL_FIELDS or the changes of a delta
+     */
+    static void writePlayer(TelemetryWriter out, PlayerSnapshot player, int fields) {
+        int position = fields & POSITION;
+        int equipment = fields & EQUIPMENT;
+        out.beginObject(Integer.bitCount(fields & ~(POSITION | EQUIPMENT))
+                + (position != 0 ? 1 : 0) + (equipment != 0 ? 1 : 0));
+
+        if ((fields & PLAYER_ID) != 0) out.name("playerId").uuid(player.playerId());
+        if ((fields & IGN) != 0) out.name("ign").string(player.ign());
+        if ((fields & HEALTH) != 0) out.name("health").number(player.health());
+        if ((fields & MAX_HEALTH) != 0) out.name("maxHealth").number(player.maxHealth());
+        if ((fields & FOOD_LEVEL) != 0) out.name("foodLevel").integer(player.foodLevel());
+
+        if (position != 0) {
+            out.name("position").beginObject(Integer.bitCount(position));
+            if ((fields & X) != 0) out.name("x").number(player.x());
+            if ((fields & Y) != 0) out.name("y").number(player.y());
+            if ((fields & Z) != 0) out.name("z").number(player.z());
+            if ((fields & WORLD) != 0) out.name("world").string(player.world());
+            out.end();
+        }
+
+        if (equipment != 0) {
+            out.name("equipment").beginObject(Integer.bitCount(equipment));
+            if ((fields & MAIN_HAND) != 0) out.name("mainHand").string(displayName(player.mainHand()));
+            if ((fields & HELMET) != 0) out.name("helmet").string(displayName(player.helmet()));
+            if ((fields & CHESTPLATE) != 0) out.name("chestplate").string(displayName(player.chestplate()));
+            if ((fields & LEGGINGS) != 0) out.name("leggings").string(displayName(player.leggings()));
+            if ((fields & BOOTS) != 0) out.name("boots").string(displayName(player.boots()));
+            out.end();
+        }
+
+        if ((fields & KILLS) != 0) out.name("kills").integer(player.kills());
+        if ((fields & DEATHS) != 0) out.name("deaths").integer(player.deaths());
+        if ((fields & NEARBY_PLAYERS) != 0) out.name("nearbyPlayers").integer(player.nearbyPlayers());
+        if ((fields & DAMAGE_DEALT) != 0) out.name("damageDealt").number(player.damageDealt());
+        if ((fields & DAMAGE_TAKEN) != 0) out.name("damageTaken").number(player.damageTaken());
+        if ((fields & HITS_LANDED) != 0) out.name("hitsLanded").integer(player.hitsLanded());
+        if ((fields & DISTANCE_TRAVELLED) != 0) out.name("distanceTravelled").number(player.distanceTravelled());
+        if ((fields & TIME_ALIVE) != 0) out.name("timeAlive").integer(player.timeAlive());
+        out.end();
+    }
+
+    /**
+     * Bits of the fields that differ between two snapshots of the same player
+     */
+    static int changedFields(PlayerSnapshot base, PlayerSnapshot current) {
+        int changed = 0;
+        if (!base.ign().equals(current.ign())) changed |= IGN;
+        if (base.health() != current.health()) changed |= HEALTH;
+        if (base.maxHealth() != current.maxHealth()) changed |= MAX_HEALTH;
+        if (base.foodLevel() != current.foodLevel()) changed |= FOOD_LEVEL;
+        if (base.x() != current.x()) changed |= X;
+        if (base.y() != current.y()) changed |= Y;
+        if (base.z() != current.z()) changed |= Z;
+        if (!base.world().equals(current.world())) changed |= WORLD;
+        if (base.mainHand() != current.mainHand()) changed |= MAIN_HAND;
+        if (base.helmet() != current.helmet()) changed |= HELMET;
+        if (base.chestplate() != current.chestplate()) changed |= CHESTPLATE;
+        if (base.leggings() != current.leggings()) changed |= LEGGINGS;
+        if (base.boots() != current.boots()) changed |= BOOTS;
+        if (base.kills() != current.kills()) changed |= KILLS;
+        if (base.deaths() != current.deaths()) changed |= DEATHS;
+        if (base.nearbyPlayers() != current.nearbyPlayers()) changed |= NEARBY_PLAYERS;
+        if (base.damageDealt() != current.damageDealt()) changed |= DAMAGE_DEALT;
+        if (base.damageTaken() != current.damageTaken()) changed |= DAMAGE_TAKEN;
+        if (base.hitsLanded() != current.hitsLanded()) changed |= HITS_LANDED;
+        if (base.distanceTravelled() != current.distanceTravelled()) changed |= DISTANCE_TRAVELLED;
+        if (base.timeAlive() != current.timeAlive()) changed |= TIME_ALIVE;
+        return changed;
+    }
+
+    static String displayName(Material material) {
+        return DISPLAY_NAMES.get(material);
+    }
+
+    /**
+     * Format item name from Material enum
+     * Based on formatItemName from WarriorEventListener
+     */
+    static String formatItemName(Material material) {
+        String name = material.name().replace("_", " ").toLowerCase();
+        String[] words = name.split(" ");
+        StringBuilder formatted = new StringBuilder();
+        for (String word : words) {
+            if (formatted.length() > 0) formatted.append(" ");
+            formatted.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+        }
+        String result = formatted.toString();
+        // Truncate if too long
+        return result.length() > 15 ? result.substring(0, 12) + "..." : result;
+    }
+
+    private synchronized void recordCapture(long nanos) {
+        lastCaptureNanos = nanos;
+        maxCaptureNanos = Math.max(maxCaptureNanos, nanos);
+        totalCaptureNanos += nanos;
+        captureCount++;
+
+        long now = System.currentTimeMillis();
+        if (warnNanos > 0 && nanos > warnNanos && now - lastSlowCaptureLog >= SLOW_CAPTURE_LOG_INTERVAL_MS) {
+            lastSlowCaptureLog = now;
+            LOGGER.warning("Telemetry snapshot took " + nanos / 1000L + "us on the main thread (warning threshold: "
+                    + warnNanos / 1000L + "us)");
+        }
+    }
+
+    public synchronized long getLastCaptureMicros() {
+        return lastCaptureNanos / 1000L;
+    }
+
+    public synchronized long getMaxCaptureMicros() {
+        return maxCaptureNanos / 1000L;
+    }
+
+    public synchronized long getAverageCaptureMicros() {
+        return captureCount == 0 ? 0 : totalCaptureNanos / captureCount / 1000L;
+    }
+}
@@ -0,0 +1,248 @@
+package ai.blockwarriors.beacon.service;
+
+import java.util.*;
+
+/**
+ * Turns full match snapshots into deltas that only carry changed player fields.
+ * Deltas are computed against the last snapshot sent for the match (the state Convex reaches once
+ * every update handed to the lane is applied), so a delta encoded while the previous one is still
+ * in flight is correct whichever way that one ends. An update that fails or is dropped resets the
+ * base: the next update is a keyframe, and deltas encoded against the old base are stale and not
+ * sent. When the lane replaces an unsent update with a newer one, the two are merged. A full
+ * keyframe is also sent every N updates and whenever the backend asks for one.
+ * Changes are tracked as field bits on the snapshot records; the payload is only written out
+ * (streamed into a TelemetryWriter) when the update is sent.
+ */
+public class TelemetryDeltaEncoder {
+    private final int keyframeInterval;
+    private final Map<String, MatchTrack> tracks = new HashMap<>(); // matchId -> delta tracking state
+
+    private static class MatchTrack {
+        Map<UUID, PlayerSnapshot> sentPlayers; // player snapshots of the last update sent, null until a keyframe
+        int updatesSinceKeyframe;
+        int epoch; // Bumped whenever the base is reset
+    }
+
+    /**
+     * An encoded telemetry update, either a full keyframe or a delta
+     */
+    public static class Update {
+        private final String matchId;
+        private final boolean keyframe;
+        private final MatchSnapshot snapshot;
+        private final int[] changedFields; // per player in the snapshot (deltas only), 0 = unchanged
+        private final List<UUID> removedPlayers;
+        private final Map<UUID, PlayerSnapshot> players; // full player snapshot this update brings Convex to
+        private final int epoch;
+
+        private Update(String matchId, boolean keyframe, MatchSnapshot snapshot, int[] changedFields,
+                List<UUID> removedPlayers, Map<UUID, PlayerSnapshot> players, int epoch) {
+            this.matchId = matchId;
+            this.keyframe = keyframe;
+            this.snapshot = snapshot;
+            this.changedFields = changedFields;
+            this.removedPlayers = removedPlayers;
+            this.players = players;
+            this.epoch = epoch;
+        }
+
+        /**
+         * One update that brings Convex from this update's base to newer's state, for the lane to
+         * send in place of this unsent update. A keyframe followed by a delta becomes a keyframe of
+         * the newer snapshot; two deltas carry the fields changed by either.
+         */
+        public Update mergeWith(Update newer) {
+            if (newer.keyframe || epoch != newer.epoch) {
+                return newer;
+            }
+            if (keyframe) {
+                return new Update(matchId, true, newer.snapshot, null, Collections.emptyList(), newer.players,
+                        newer.epoch);
+            }
+
+            Map<UUID, Integer> olderFields = new HashMap<>(changedFields.length * 2);
+            List<PlayerSnapshot> olderPlayers = snapshot.players();
+            for (int i = 0; i < changedFields.length; i++) {
+                olderFields.put(olderPlayers.get(i).playerId(), changedFields[i]);
+            }
+            List<PlayerSnapshot> newerPlayers = newer.snapshot.players();
+            int[] mergedFields = new int[newerPlayers.size()];
+            for (int i = 0; i < mergedFields.length; i++) {
+                mergedFields[i] = newer.changedFields[i] | olderFields.getOrDefault(newerPlayers.get(i).playerId(), 0);
+            }
+
+            // Players this update removed that haven't come back are still removed
+            List<UUID> mergedRemoved = newer.removedPlayers;
+            for (UUID playerId : removedPlayers) {
+                if (!newer.players.containsKey(playerId) && !mergedRemoved.contains(playerId)) {
+                    if (mergedRemoved == newer.removedPlayers) {
+                        mergedRemoved = new ArrayList<>(newer.removedPlayers);
+                    }
+                    mergedRemoved.add(playerId);
+                }
+            }
+            return new Update(matchId, false, newer.snapshot, mergedFields, mergedRemoved, newer.players, newer.epoch);
+        }
+
+        public String getMatchId() {
+            return matchId;
+        }
+
+        public boolean isKeyframe() {
+            return keyframe;
+        }
+
+        public MatchSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * Request body field for this update ("match_state" or "match_state_delta")
+         */
+        public String getFieldName() {
+            return keyframe ? "match_state" : "match_state_delta";
+        }
+
+        /**
+         * Write the match_state (keyframe) or match_state_delta object
+         * A delta is {delta, timestamp, players: {playerId: changed fields}, removedPlayers?}
+         */
+        public void writePayload(TelemetryWriter out) {
+            if (keyframe) {
+                TelemetryCollector.writeMatchState(out, snapshot);
+                return;
+            }
+
+            int changedPlayers = 0;
+            for (int fields : changedFields) {
+                if (fields != 0) {
+                    changedPlayers++;
+                }
+            }
+
+            out.beginObject(removedPlayers.isEmpty() ? 3 : 4);
+            out.name("delta").bool(true);
+            out.name("timestamp").integer(snapshot.timestamp());
+            out.name("players").beginObject(changedPlayers);
+            List<PlayerSnapshot> snapshotPlayers = snapshot.players();
+            for (int i = 0; i < snapshotPlayers.size(); i++) {
+                if (changedFields[i] != 0) {
+                    PlayerSnapshot player = snapshotPlayers.get(i);
+                    out.uuid(player.playerId());
+                    TelemetryCollector.writePlayer(out, player, changedFields[i]);
+                }
+            }
+            out.end();
+            if (!removedPlayers.isEmpty()) {
+                out.name("removedPlayers").beginArray(removedPlayers.size());
+                for (UUID playerId : removedPlayers) {
+                    out.uuid(playerId);
+                }
+                out.end();
+            }
+            out.end();
+        }
+    }
+
+    public TelemetryDeltaEncoder(int keyframeInterval) {
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+    }
+
+    /**
+     * Encode a match snapshot for sending; it becomes the base of the next delta
+     * Returns null if nothing changed since the last snapshot sent
+     */
+    public Update encode(MatchSnapshot snapshot) {
+        return encode(snapshot, false);
+    }
+
+    /**
+     * Encode a match snapshot for sending
+     * @param force return a (possibly empty) delta even if nothing changed, e.g. to carry combat events
+     */
+    public synchronized Update encode(MatchSnapshot snapshot, boolean force) {
+        String matchId = snapshot.matchId();
+        MatchTrack track = tracks.computeIfAbsent(matchId, k -> new MatchTrack());
+        List<PlayerSnapshot> snapshotPlayers = snapshot.players();
+        Map<UUID, PlayerSnapshot> players = new HashMap<>(snapshotPlayers.size() * 2);
+        for (PlayerSnapshot player : snapshotPlayers) {
+            players.put(player.playerId(), player);
+        }
+
+        track.updatesSinceKeyframe++;
+        if (track.sentPlayers == null || track.updatesSinceKeyframe >= keyframeInterval) {
+            track.updatesSinceKeyframe = 0;
+            track.sentPlayers = players;
+            return new Update(matchId, true, snapshot, null, Collections.emptyList(), players, track.epoch);
+        }
+
+        boolean changed = false;
+        int[] changedFields = new int[snapshotPlayers.size()];
+        for (int i = 0; i < changedFields.length; i++) {
+            PlayerSnapshot player = snapshotPlayers.get(i);
+            PlayerSnapshot base = track.sentPlayers.get(player.playerId());
+            // A player Convex hasn't seen yet is sent in full
+            changedFields[i] = base == null ? TelemetryCollector.ALL_FIELDS : TelemetryCollector.changedFields(base, player);
+            changed |= changedFields[i] != 0;
+        }
+
+        List<UUID> removedPlayers = Collections.emptyList();
+        for (UUID playerId : track.sentPlayers.keySet()) {
+            if (!players.containsKey(playerId)) {
+                if (removedPlayers.isEmpty()) {
+                    removedPlayers = new ArrayList<>();
+                }
+                removedPlayers.add(playerId);
+            }
+        }
+
+        if (!changed && removedPlayers.isEmpty() && !force) {
+            return null;
+        }
+        track.sentPlayers = players;
+        return new Update(matchId, false, snapshot, changedFields, removedPlayers, players, track.epoch);
+    }
+
+    /**
+     * Whether an update can still be sent: false for a delta whose base was reset after it was
+     * encoded (an update before it failed or was dropped), since Convex doesn't have that base
+     */
+    public synchronized boolean isCurrent(Update update) {
+        if (update.keyframe) {
+            return true;
+        }
+        MatchTrack track = tracks.get(update.matchId);
+        return track != null && track.epoch == update.epoch;
+    }
+
+    /**
+     * Force the next update for a match to be a full keyframe, e.g. after an update failed
+     */
+    public synchronized void requireKeyframe(String matchId) {
+        MatchTrack track = tracks.get(matchId);
+        if (track != null) {
+            reset(track);
+        }
+    }
+
+    /**
+     * Force keyframes for every match, e.g. after the connection to Convex was lost
+     */
+    public synchronized void requireKeyframeForAll() {
+        for (MatchTrack track : tracks.values()) {
+            reset(track);
+        }
+    }
+
+    private static void reset(MatchTrack track) {
+        track.sentPlayers = null;
+        track.epoch++;
+    }
+
+    /**
+     * Drop tracking state for a match that has ended
+     */
+    public synchronized void forget(String matchId) {
+        tracks.remove(matchId);
+    }
+}
@@ -0,0 +1,258 @@
+package ai.blockwarriors.beacon.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Outbound lane for routine telemetry, separate from the lifecycle writes in the ConvexOutbox.
+ * Holds at most one snapshot per match (a newer one is merged into the unsent one) in a bounded
+ * queue and sends them from its own thread, so collection never waits on an upload. Before each send it gives way to the
+ * outbox while lifecycle writes are pending, and it holds its queue while the circuit is open.
+ * Snapshots that are evicted by a full queue or are too old by the time they would be sent are
+ * dropped and counted; the drop callback lets the encoder resync that match with a keyframe.
+ */
+public class TelemetryLane implements Runnable {
+    private static final Logger LOGGER = Logger.getLogger("beacon");
+    private static final long YIELD_POLL_MS = 20L;
+
+    /**
+     * Sends a batch of snapshots (at most maxBatchSize) on the lane thread
+     */
+    @FunctionalInterface
+    public interface Sender {
+        void send(List<TelemetryDeltaEncoder.Update> updates);
+    }
+
+    private static final class Pending {
+        final TelemetryDeltaEncoder.Update update;
+        final long queuedAt;
+
+        Pending(TelemetryDeltaEncoder.Update update, long queuedAt) {
+            this.update = update;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    private final ConvexOutbox outbox;
+    private final int capacity;
+    private final int maxBatchSize;
+    private final long flushIntervalMs;
+    private final long maxAgeMs;
+    private final Sender sender;
+    private final Consumer<TelemetryDeltaEncoder.Update> onDropped;
+    // Guarded by this; insertion order is the send order
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+    private volatile boolean running = false;
+    private Thread thread;
+
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong droppedOverflow = new AtomicLong();
+    private final AtomicLong droppedStale = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+
+    /**
+     * @param capacity  most matches with a snapshot waiting; the oldest is dropped beyond this
+     * @param maxAgeMs  snapshots older than this when their turn comes are dropped
+     * @param onDropped called for every snapshot that is dropped instead of sent
+     */
+    public TelemetryLane(ConvexOutbox outbox, int capacity, int maxBatchSize, long flushIntervalMs, long maxAgeMs,
+            Sender sender, Consumer<TelemetryDeltaEncoder.Update> onDropped) {
+        this.outbox = outbox;
+        this.capacity = Math.max(1, capacity);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxAgeMs = maxAgeMs;
+        this.sender = sender;
+        this.onDropped = onDropped;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            LOGGER.warning("TelemetryLane is already running");
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "beacon-telemetry-lane");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("TelemetryLane started (capacity: " + capacity + " matches, max age: " + maxAgeMs + "ms)");
+    }
+
+    /**
+     * Stop the lane thread and send whatever is still queued from the calling thread
+     */
+    public void stop() {
+        Thread laneThread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            laneThread = thread;
+            thread = null;
+            notifyAll();
+        }
+
+        laneThread.interrupt();
+        try {
+            laneThread.join(flushIntervalMs + 1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Don't lose the last collected states on shutdown
+        while (outbox.getCircuitBreaker().allowRequest()) {
+            List<TelemetryDeltaEncoder.Update> batch = drain();
+            if (batch.isEmpty()) {
+                break;
+            }
+            sendBatch(batch);
+        }
+        LOGGER.info("TelemetryLane stopped");
+    }
+
+    /**
+     * Queue a snapshot, merging it into any unsent one for the same match
+     * Each delta is relative to the one before it, so the merged update carries the changes of both
+     * (and a delta merged into an unsent keyframe turns it into a keyframe of the newer snapshot)
+     */
+    public synchronized void offer(TelemetryDeltaEncoder.Update update) {
+        offered.incrementAndGet();
+        String matchId = update.getMatchId();
+        Pending previous = pending.get(matchId);
+        if (previous != null) {
+            coalesced.incrementAndGet();
+            update = previous.update.mergeWith(update);
+            pending.remove(matchId);
+        } else if (pending.size() >= capacity) {
+            Iterator<Pending> eldest = pending.values().iterator();
+            Pending evicted = eldest.next();
+            eldest.remove();
+            droppedOverflow.incrementAndGet();
+            onDropped.accept(evicted.update);
+        }
+
+        pending.put(matchId, new Pending(update, System.currentTimeMillis()));
+        if (pending.size() >= maxBatchSize) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Drop the unsent snapshot of a match (e.g. once its final state has been queued)
+     */
+    public synchronized void remove(String matchId) {
+        pending.remove(matchId);
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getOfferedCount() {
+        return offered.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public long getDroppedOverflowCount() {
+        return droppedOverflow.get();
+    }
+
+    public long getDroppedStaleCount() {
+        return droppedStale.get();
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    @Override
+    public void run() {
+        CircuitBreaker circuitBreaker = outbox.getCircuitBreaker();
+
+        while (running) {
+            try {
+                synchronized (this) {
+                    long deadline = System.currentTimeMillis() + flushIntervalMs;
+                    while (running && pending.size() < maxBatchSize) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0 && !pending.isEmpty()) {
+                            break;
+                        }
+                        wait(remaining > 0 ? remaining : flushIntervalMs);
+                    }
+                }
+
+                // Lifecycle writes go first; give the outbox up to one flush interval to deliver them
+                long yieldUntil = System.currentTimeMillis() + flushIntervalMs;
+                while (running && outbox.getPendingCount() > 0 && circuitBreaker.allowRequest()
+                        && System.currentTimeMillis() < yieldUntil) {
+                    Thread.sleep(YIELD_POLL_MS);
+                }
+
+                if (!circuitBreaker.allowRequest()) {
+                    // Convex is down - keep the latest snapshot per match; old ones expire when the circuit closes
+                    Thread.sleep(Math.max(flushIntervalMs, Math.min(circuitBreaker.getRemainingOpenMillis(),
+                            flushIntervalMs * 5)));
+                    continue;
+                }
+
+                List<TelemetryDeltaEncoder.Update> batch = drain();
+                if (!batch.isEmpty()) {
+                    sendBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Take up to maxBatchSize snapshots in queue order, dropping the ones that have gone stale
+     */
+    private List<TelemetryDeltaEncoder.Update> drain() {
+        List<TelemetryDeltaEncoder.Update> batch = new ArrayList<>();
+        List<TelemetryDeltaEncoder.Update> stale = new ArrayList<>();
+        long cutoff = System.currentTimeMillis() - maxAgeMs;
+        synchronized (this) {
+            Iterator<Pending> iterator = pending.values().iterator();
+            while (iterator.hasNext() && batch.size() < maxBatchSize) {
+                Pending next = iterator.next();
+                iterator.remove();
+                if (next.queuedAt < cutoff) {
+                    stale.add(next.update);
+                } else {
+                    batch.add(next.update);
+                }
+            }
+        }
+
+        for (TelemetryDeltaEncoder.Update update : stale) {
+            droppedStale.incrementAndGet();
+            onDropped.accept(update);
+        }
+        return batch;
+    }
+
+    private void sendBatch(List<TelemetryDeltaEncoder.Update> batch) {
+        try {
+            sender.send(batch);
+            sent.addAndGet(batch.size());
+        } catch (Exception e) {
+            LOGGER.severe("Error sending telemetry: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ai.blockwarriors.beacon.service;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Spreads telemetry snapshots over the update window instead of capturing every match in the same tick.
+ * Each match gets a phase within the window from a hash of its ID and becomes due on the ticks where
+ * tick % window equals its phase. tick() runs on the main thread every tick and captures due matches
+ * until the per-tick budget is spent; the rest stay queued for the next tick (at least one match is
+ * captured per tick, so a slow capture can't stall the queue). A match still queued when its phase
+ * comes around again is not queued twice.
+ */
+public class TelemetryScheduler {
+    private final Collection<String> matchIds; // Live view of the matches to capture
+    private final LongSupplier windowTicks; // The current update interval
+    private final long budgetNanos;
+    private final Function<String, MatchSnapshot> capture; // Returns null for a match that is gone
+    private final Consumer<MatchSnapshot> sink;
+    private final LongSupplier nanoClock;
+
+    // Main thread only
+    private final ArrayDeque<String> due = new ArrayDeque<>();
+    private final Set<String> queued = new HashSet<>();
+    private long tick = 0;
+
+    // Written on the main thread, read by /beaconstatus
+    private volatile long lastTickMicros = 0;
+    private volatile long maxTickMicros = 0;
+    private volatile long deferredCount = 0;
+    private volatile long capturedCount = 0;
+
+    public TelemetryScheduler(Collection<String> matchIds, LongSupplier windowTicks, long budgetMicros,
+            Function<String, MatchSnapshot> capture, Consumer<MatchSnapshot> sink) {
+        this(matchIds, windowTicks, budgetMicros, capture, sink, System::nanoTime);
+    }
+
+    TelemetryScheduler(Collection<String> matchIds, LongSupplier windowTicks, long budgetMicros,
+            Function<String, MatchSnapshot> capture, Consumer<MatchSnapshot> sink, LongSupplier nanoClock) {
+        this.matchIds = matchIds;
+        this.windowTicks = windowTicks;
+        this.budgetNanos = Math.max(1L, budgetMicros) * 1000L;
+        this.capture = capture;
+        this.sink = sink;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Phase of a match within a window of the given length (0 to window - 1)
+     */
+    static int phaseOf(String matchId, long window) {
+        // Scramble the hash: IDs that differ in one character would otherwise get neighbouring phases
+        int hash = matchId.hashCode() * 0x9E3779B9;
+        return (int) Math.floorMod(hash ^ (hash >>> 16), window);
+    }
+
+    /**
+     * Server ticks counted so far (main thread)
+     */
+    public long getCurrentTick() {
+        return tick;
+    }
+
+    /**
+     * Queue the matches whose phase is this tick and capture as many queued matches as the budget allows
+     */
+    public void tick() {
+        long window = Math.max(1L, windowTicks.getAsLong());
+        long slot = tick++ % window;
+        for (String matchId : matchIds) {
+            if (phaseOf(matchId, window) == slot) {
+                if (queued.add(matchId)) {
+                    due.addLast(matchId);
+                } else {
+                    deferredCount++; // Not captured since its last phase
+                }
+            }
+        }
+        if (due.isEmpty()) {
+            lastTickMicros = 0;
+            return;
+        }
+
+        long start = nanoClock.getAsLong();
+        long elapsed = 0;
+        int captured = 0;
+        while (!due.isEmpty() && (captured == 0 || elapsed < budgetNanos)) {
+            String matchId = due.pollFirst();
+            queued.remove(matchId);
+            MatchSnapshot snapshot = capture.apply(matchId);
+            if (snapshot != null) {
+                sink.accept(snapshot);
+            }
+            captured++;
+            elapsed = nanoClock.getAsLong() - start;
+        }
+        capturedCount += captured;
+        lastTickMicros = elapsed / 1000L;
+        maxTickMicros = Math.max(maxTickMicros, lastTickMicros);
+    }
+
+    /**
+     * Matches waiting to be captured (main thread)
+     */
+    int getQueuedCount() {
+        return due.size();
+    }
+
+    public long getBudgetMicros() {
+        return budgetNanos / 1000L;
+    }
+
+    /**
+     * Main-thread time spent capturing in the last tick that had work
+     */
+    public long getLastTickMicros() {
+        return lastTickMicros;
+    }
+
+    public long getMaxTickMicros() {
+        return maxTickMicros;
+    }
+
+    /**
+     * Times a match's phase came around while it was still waiting for its previous capture
+     */
+    public long getDeferredCount() {
+        return deferredCount;
+    }
+
+    public long getCapturedCount() {
+        return capturedCount;
+    }
+}
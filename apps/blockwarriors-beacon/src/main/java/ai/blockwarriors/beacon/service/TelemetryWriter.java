@@ -0,0 +1,75 @@
+package ai.blockwarriors.beacon.service;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Streaming writer for telemetry request bodies.
+ * Values are written straight into a byte buffer that is reused from one body to the next, so
+ * sending telemetry doesn't build a JSONObject tree, a String and a byte[] per update.
+ * Objects and arrays are opened with their element count (CBOR needs it up front); inside an
+ * object, names and values alternate. A writer is not thread-safe: keep one per sending thread.
+ */
+public abstract class TelemetryWriter {
+    protected byte[] buffer = new byte[4096];
+    protected int length = 0;
+
+    /**
+     * Start a new body, discarding the previous one (the buffer is kept)
+     */
+    public void reset() {
+        length = 0;
+    }
+
+    /**
+     * The encoded body is buffer()[0, length())
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    public abstract String contentType();
+
+    public abstract TelemetryWriter beginObject(int size);
+
+    public abstract TelemetryWriter beginArray(int size);
+
+    public abstract TelemetryWriter end();
+
+    /**
+     * Field name inside an object
+     */
+    public abstract TelemetryWriter name(String name);
+
+    public abstract TelemetryWriter string(String value);
+
+    /**
+     * A UUID in its standard string form, as a value or as a field name
+     */
+    public abstract TelemetryWriter uuid(UUID value);
+
+    public abstract TelemetryWriter number(double value);
+
+    public abstract TelemetryWriter integer(long value);
+
+    public abstract TelemetryWriter bool(boolean value);
+
+    protected final void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    protected final void writeByte(int b) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) b;
+    }
+}
@@ -0,0 +1,160 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tick-resolution telemetry: records position, health and held item of every player in an
+ * active match every N server ticks into that player's PlayerSampleBuffer.
+ * tick() runs on the main thread once per tick and counts server ticks itself (Spigot has no
+ * tick counter API); samples are stamped with that tick number, not wall-clock time.
+ * The upload thread drains the buffers into chunks at its own rate (see MatchTelemetryService).
+ * With a ReplayRecorder every sample is also recorded into the match's replay; a sampler that only
+ * feeds the recorder (sampler uploads disabled) keeps no ring buffers.
+ */
+public class TickSampler {
+    private final Map<String, Set<UUID>> activeMatches; // matchId -> players, owned by MatchTelemetryService
+    private final int sampleIntervalTicks;
+    private final int bufferCapacity; // 0 when samples are only recorded for replays
+    private final ReplayRecorder recorder; // null when replays are disabled
+    // matchId -> player -> buffer; a player who moves to another match gets a new buffer
+    private final Map<String, Map<UUID, PlayerSampleBuffer>> buffers = new ConcurrentHashMap<>();
+    private final Location scratch = new Location(null, 0, 0, 0); // Reused for every sample (main thread)
+    private volatile long currentTick = 0;
+
+    /**
+     * @param bufferCapacity samples kept per player until they are uploaded
+     */
+    public TickSampler(Map<String, Set<UUID>> activeMatches, int sampleIntervalTicks, int bufferCapacity) {
+        this(activeMatches, sampleIntervalTicks, bufferCapacity, null);
+    }
+
+    /**
+     * @param bufferCapacity samples kept per player until they are uploaded, 0 to keep none
+     * @param recorder also receives every sample, may be null
+     */
+    public TickSampler(Map<String, Set<UUID>> activeMatches, int sampleIntervalTicks, int bufferCapacity,
+            ReplayRecorder recorder) {
+        this.activeMatches = activeMatches;
+        this.sampleIntervalTicks = Math.max(1, sampleIntervalTicks);
+        this.bufferCapacity = bufferCapacity;
+        this.recorder = recorder;
+    }
+
+    public int getSampleIntervalTicks() {
+        return sampleIntervalTicks;
+    }
+
+    /**
+     * Server ticks counted since the sampler started
+     */
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Count a server tick and sample every tracked player if it is a sampling tick (main thread)
+     */
+    public void tick() {
+        long tick = currentTick + 1;
+        currentTick = tick;
+        if (tick % sampleIntervalTicks != 0) {
+            return;
+        }
+
+        for (Map.Entry<String, Set<UUID>> match : activeMatches.entrySet()) {
+            Map<UUID, PlayerSampleBuffer> matchBuffers = null;
+            for (UUID playerId : match.getValue()) {
+                Player player = Bukkit.getPlayer(playerId);
+                if (player == null || !player.isOnline()) {
+                    continue;
+                }
+                player.getLocation(scratch);
+                float health = (float) player.getHealth();
+                Material item = player.getInventory().getItemInMainHand().getType();
+                if (recorder != null) {
+                    recorder.recordState(match.getKey(), playerId, tick, scratch.getX(), scratch.getY(),
+                            scratch.getZ(), scratch.getYaw(), health, item);
+                }
+                if (bufferCapacity == 0) {
+                    continue;
+                }
+
+                if (matchBuffers == null) {
+                    matchBuffers = buffers.computeIfAbsent(match.getKey(), k -> new ConcurrentHashMap<>());
+                }
+                PlayerSampleBuffer buffer = matchBuffers.get(playerId);
+                if (buffer == null) {
+                    buffer = new PlayerSampleBuffer(match.getKey(), playerId, bufferCapacity);
+                    matchBuffers.put(playerId, buffer);
+                }
+                buffer.record(tick, scratch.getX(), scratch.getY(), scratch.getZ(), health, item);
+            }
+        }
+    }
+
+    /**
+     * Read one chunk of unsent samples per player into the given chunks (upload thread)
+     * Returns how many chunks were filled; a player with a longer backlog continues next time.
+     * Buffers of players that left their match are dropped once everything in them was sent.
+     */
+    public int drain(SampleChunk[] chunks, long strideTicks) {
+        int filled = 0;
+        for (Map.Entry<String, Map<UUID, PlayerSampleBuffer>> match : buffers.entrySet()) {
+            Set<UUID> players = activeMatches.get(match.getKey());
+            for (PlayerSampleBuffer buffer : match.getValue().values()) {
+                if (!buffer.hasUnsent()) {
+                    if (players == null || !players.contains(buffer.getPlayerId())) {
+                        match.getValue().remove(buffer.getPlayerId(), buffer);
+                    }
+                    continue;
+                }
+                if (filled == chunks.length) {
+                    continue;
+                }
+                SampleChunk chunk = chunks[filled];
+                buffer.read(chunk, strideTicks);
+                if (chunk.size() > 0) {
+                    filled++;
+                } else {
+                    chunk.markSent(); // Everything left was skipped by downsampling
+                }
+            }
+            if (players == null && match.getValue().isEmpty()) {
+                buffers.remove(match.getKey());
+            }
+        }
+        return filled;
+    }
+
+    /**
+     * Samples overwritten before they could be uploaded since the last call (upload thread)
+     */
+    public long takeLost() {
+        long lost = 0;
+        for (Map<UUID, PlayerSampleBuffer> matchBuffers : buffers.values()) {
+            for (PlayerSampleBuffer buffer : matchBuffers.values()) {
+                lost += buffer.takeLost();
+            }
+        }
+        return lost;
+    }
+
+    /**
+     * Number of players with a sample buffer
+     */
+    public int getBufferCount() {
+        int count = 0;
+        for (Map<UUID, PlayerSampleBuffer> matchBuffers : buffers.values()) {
+            count += matchBuffers.size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,88 @@
+package ai.blockwarriors.beacon.service;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limiter: holds up to capacity permits, refilled continuously at refillPerSecond
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double refillPerNano;
+    private final LongSupplier nanoClock;
+    private double available;
+    private long lastRefill;
+
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this(capacity, refillPerSecond, System::nanoTime);
+    }
+
+    TokenBucket(double capacity, double refillPerSecond, LongSupplier nanoClock) {
+        this.capacity = Math.max(1.0, capacity);
+        this.refillPerNano = refillPerSecond / 1_000_000_000.0;
+        this.nanoClock = nanoClock;
+        this.available = this.capacity;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    /**
+     * Take a permit if one is available right now
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (available >= 1.0) {
+            available -= 1.0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Take a permit, waiting up to timeout for one to become available
+     */
+    public boolean acquire(Duration timeout) throws InterruptedException {
+        long deadline = nanoClock.getAsLong() + timeout.toNanos();
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                if (tryAcquire()) {
+                    return true;
+                }
+                waitNanos = getNanosUntilAvailable();
+            }
+            long remaining = deadline - nanoClock.getAsLong();
+            if (waitNanos > remaining) {
+                return false;
+            }
+            Thread.sleep(Math.max(1L, waitNanos / 1_000_000L));
+        }
+    }
+
+    /**
+     * Nanoseconds until the next permit is available (0 if one is available now)
+     */
+    public synchronized long getNanosUntilAvailable() {
+        refill();
+        if (available >= 1.0) {
+            return 0;
+        }
+        if (refillPerNano <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return (long) Math.ceil((1.0 - available) / refillPerNano);
+    }
+
+    /**
+     * Whether the bucket is full again (nothing has been taken recently)
+     */
+    public synchronized boolean isFull() {
+        refill();
+        return available >= capacity;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        available = Math.min(capacity, available + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+}
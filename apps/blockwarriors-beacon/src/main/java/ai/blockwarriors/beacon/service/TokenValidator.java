@@ -0,0 +1,321 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.plugin.java.JavaPlugin;
+import org.json.JSONObject;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Validates login tokens with Convex (POST /validateToken) for LoginCommand.
+ * Keeps a login storm from becoming a request storm:
+ * - concurrent attempts by the same player share one in-flight request
+ * - each player has a small token bucket; attempts beyond it are refused without a request
+ * - all requests share a server-wide token bucket; requests wait (on virtual threads) for a
+ *   permit up to a queue timeout, so 200 players logging in at once are spread out
+ * - every request has its own timeout
+ * - tokens Convex just rejected are answered from a short negative cache
+ * Tokens of Waiting matches found in the LocalTokenIndex are accepted right away; the binding
+ * is confirmed with Convex in the background and the login is rolled back if that fails.
+ */
+public class TokenValidator {
+    private static final Logger LOGGER = Logger.getLogger("beacon");
+    private static final int MAX_NEGATIVE_CACHE_ENTRIES = 10000;
+    // Idle (full) per-player buckets are pruned once there are more than this many
+    private static final int PLAYER_BUCKET_PRUNE_THRESHOLD = 1000;
+    // Background confirmation of a locally accepted token: attempts and first retry delay
+    private static final int CONFIRM_ATTEMPTS = 5;
+    private static final long CONFIRM_RETRY_MS = 1000L;
+
+    public static final class Result {
+        public enum Kind {
+            ACCEPTED, // Token is valid and now used by this player
+            REJECTED, // Convex refused the token
+            THROTTLED, // Not sent: too many attempts, try again shortly
+            FAILED // Convex could not be reached or timed out
+        }
+
+        private final Kind kind;
+        private final String message;
+        private final CompletableFuture<Result> confirmation;
+
+        Result(Kind kind, String message) {
+            this(kind, message, null);
+        }
+
+        Result(Kind kind, String message, CompletableFuture<Result> confirmation) {
+            this.kind = kind;
+            this.message = message;
+            this.confirmation = confirmation;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * For a token accepted from the local index: completes with Convex's answer
+         * (anything but ACCEPTED means the login has to be rolled back). Null otherwise.
+         */
+        public CompletableFuture<Result> getConfirmation() {
+            return confirmation;
+        }
+    }
+
+    private static final class Rejection {
+        final String error;
+        final long expiresAt;
+
+        Rejection(String error, long expiresAt) {
+            this.error = error;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final ConvexClient convexClient;
+    private final LocalTokenIndex tokenIndex;
+    private final TokenBucket serverBucket;
+    private final double playerBurst;
+    private final double playerRefillPerSecond;
+    private final Duration requestTimeout;
+    private final Duration queueTimeout;
+    private final long negativeCacheMillis;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<UUID, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<>();
+    private final Map<UUID, TokenBucket> playerBuckets = new ConcurrentHashMap<>();
+    // Guarded by itself; insertion order lets the oldest entries go first
+    private final Map<String, Rejection> negativeCache = new LinkedHashMap<String, Rejection>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Rejection> eldest) {
+            return size() > MAX_NEGATIVE_CACHE_ENTRIES;
+        }
+    };
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong cachedRejections = new AtomicLong();
+    private final AtomicLong localAccepts = new AtomicLong();
+    private final AtomicLong rollbacks = new AtomicLong();
+
+    public TokenValidator(JavaPlugin plugin, ConvexClient convexClient, LocalTokenIndex tokenIndex) {
+        this(convexClient, tokenIndex,
+                new TokenBucket(plugin.getConfig().getDouble("login.server-burst", 10.0),
+                        plugin.getConfig().getDouble("login.server-per-second", 5.0)),
+                plugin.getConfig().getDouble("login.player-burst", 3.0),
+                plugin.getConfig().getDouble("login.player-per-second", 0.2),
+                Duration.ofMillis(plugin.getConfig().getLong("login.request-timeout-ms", 5000L)),
+                Duration.ofMillis(plugin.getConfig().getLong("login.queue-timeout-ms", 30000L)),
+                plugin.getConfig().getLong("login.negative-cache-seconds", 30L) * 1000L);
+    }
+
+    TokenValidator(ConvexClient convexClient, LocalTokenIndex tokenIndex, TokenBucket serverBucket,
+            double playerBurst, double playerRefillPerSecond, Duration requestTimeout, Duration queueTimeout,
+            long negativeCacheMillis) {
+        this.convexClient = convexClient;
+        this.tokenIndex = tokenIndex;
+        this.serverBucket = serverBucket;
+        this.playerBurst = playerBurst;
+        this.playerRefillPerSecond = playerRefillPerSecond;
+        this.requestTimeout = requestTimeout;
+        this.queueTimeout = queueTimeout;
+        this.negativeCacheMillis = negativeCacheMillis;
+    }
+
+    /**
+     * Validate a token for a player; completes off the main thread
+     * A second call while the player's first attempt is still running returns the same future
+     */
+    public CompletableFuture<Result> validate(UUID playerId, String ign, String token) {
+        CompletableFuture<Result> attempt = new CompletableFuture<>();
+        CompletableFuture<Result> existing = inFlight.putIfAbsent(playerId, attempt);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing;
+        }
+        attempt.whenComplete((result, error) -> inFlight.remove(playerId, attempt));
+
+        String cacheKey = playerId + ":" + token;
+        String cachedError = getCachedRejection(cacheKey);
+        if (cachedError != null) {
+            cachedRejections.incrementAndGet();
+            attempt.complete(new Result(Result.Kind.REJECTED, cachedError));
+            return attempt;
+        }
+
+        // Known token of a Waiting match: accept now, confirm with Convex in the background
+        String matchId = tokenIndex.claim(token, playerId);
+        if (matchId != null) {
+            localAccepts.incrementAndGet();
+            CompletableFuture<Result> confirmation = new CompletableFuture<>();
+            executor.execute(() -> confirmation.complete(confirm(playerId, ign, token, cacheKey)));
+            attempt.complete(new Result(Result.Kind.ACCEPTED, null, confirmation));
+            return attempt;
+        }
+
+        if (!playerBucket(playerId).tryAcquire()) {
+            throttled.incrementAndGet();
+            attempt.complete(new Result(Result.Kind.THROTTLED,
+                    "Too many login attempts, please wait a few seconds and try again."));
+            return attempt;
+        }
+
+        executor.execute(() -> attempt.complete(send(playerId, ign, token, cacheKey)));
+        return attempt;
+    }
+
+    public boolean isInFlight(UUID playerId) {
+        return inFlight.containsKey(playerId);
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    public long getCachedRejectionCount() {
+        return cachedRejections.get();
+    }
+
+    public long getLocalAcceptCount() {
+        return localAccepts.get();
+    }
+
+    public long getRollbackCount() {
+        return rollbacks.get();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Result send(UUID playerId, String ign, String token, String cacheKey) {
+        try {
+            if (!serverBucket.acquire(queueTimeout)) {
+                throttled.incrementAndGet();
+                return new Result(Result.Kind.THROTTLED, "The login server is busy, please try again in a moment.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(Result.Kind.FAILED, "Login was interrupted, please try again.");
+        }
+
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("token", token);
+        requestBody.put("playerId", playerId.toString());
+        requestBody.put("ign", ign);
+
+        requests.incrementAndGet();
+        JSONObject response;
+        try {
+            response = convexClient.post("/validateToken", requestBody, requestTimeout, ConvexClient.JSON_OBJECT);
+        } catch (ConvexException e) {
+            if (CircuitBreaker.isRetryable(e.getStatusCode())) {
+                LOGGER.warning("Token validation failed: HTTP " + e.getStatusCode());
+                return new Result(Result.Kind.FAILED, "Error during login. Please try again.");
+            }
+            // Error responses still carry a JSON body with the rejection reason
+            response = parseErrorBody(e.getBody());
+        } catch (Exception e) {
+            LOGGER.warning("Error validating token: " + e.getMessage());
+            return new Result(Result.Kind.FAILED, "Error during login. Please try again.");
+        }
+
+        if ("ok".equals(response.optString("status"))) {
+            return new Result(Result.Kind.ACCEPTED, null);
+        }
+        String error = response.optString("error", "Invalid token");
+        cacheRejection(cacheKey, error);
+        return new Result(Result.Kind.REJECTED, error);
+    }
+
+    /**
+     * Confirm a locally claimed token with Convex, retrying while Convex is busy or unreachable
+     * The claim is dropped if Convex refuses the token and released if it can't be confirmed at all
+     */
+    private Result confirm(UUID playerId, String ign, String token, String cacheKey) {
+        long retryMs = CONFIRM_RETRY_MS;
+        for (int attempt = 1; attempt <= CONFIRM_ATTEMPTS; attempt++) {
+            Result result = send(playerId, ign, token, cacheKey);
+            if (result.getKind() == Result.Kind.ACCEPTED) {
+                tokenIndex.remove(token); // Used in Convex now
+                return result;
+            }
+            if (result.getKind() == Result.Kind.REJECTED) {
+                tokenIndex.remove(token);
+                rollbacks.incrementAndGet();
+                return result;
+            }
+            try {
+                Thread.sleep(retryMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            retryMs *= 2;
+        }
+
+        tokenIndex.release(token, playerId);
+        rollbacks.incrementAndGet();
+        LOGGER.warning("Could not confirm login of " + ign + " with Convex, rolling it back");
+        return new Result(Result.Kind.FAILED, "Your login could not be confirmed, please log in again.");
+    }
+
+    private static JSONObject parseErrorBody(String body) {
+        try {
+            return new JSONObject(body);
+        } catch (Exception e) {
+            return new JSONObject().put("status", "bad");
+        }
+    }
+
+    private TokenBucket playerBucket(UUID playerId) {
+        if (playerBuckets.size() > PLAYER_BUCKET_PRUNE_THRESHOLD) {
+            playerBuckets.values().removeIf(TokenBucket::isFull);
+        }
+        return playerBuckets.computeIfAbsent(playerId, id -> new TokenBucket(playerBurst, playerRefillPerSecond));
+    }
+
+    private String getCachedRejection(String cacheKey) {
+        synchronized (negativeCache) {
+            Rejection rejection = negativeCache.get(cacheKey);
+            if (rejection == null) {
+                return null;
+            }
+            if (rejection.expiresAt <= System.currentTimeMillis()) {
+                negativeCache.remove(cacheKey);
+                return null;
+            }
+            return rejection.error;
+        }
+    }
+
+    private void cacheRejection(String cacheKey, String error) {
+        if (negativeCacheMillis <= 0) {
+            return;
+        }
+        synchronized (negativeCache) {
+            negativeCache.put(cacheKey, new Rejection(error, System.currentTimeMillis() + negativeCacheMillis));
+        }
+    }
+}
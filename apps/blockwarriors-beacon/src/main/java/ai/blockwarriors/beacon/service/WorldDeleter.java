@@ -0,0 +1,321 @@
+package ai.blockwarriors.beacon.service;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Deletes match worlds without disk I/O on the main thread.
+ * delete() only queues the world. A tick task unloads at most maxUnloadsPerTick queued worlds per
+ * tick (players still inside are sent to the main world first); everything after that runs on the
+ * "beacon-world-io" thread: the folder is renamed into the trash folder, which frees its name for a
+ * new world right away, and then deleted with Files.walkFileTree. A failed deletion is retried up
+ * to maxAttempts times with a doubling delay; whatever is still in the trash is deleted on the next start.
+ */
+public class WorldDeleter {
+    private static final Logger LOGGER = Logger.getLogger("beacon");
+
+    private final JavaPlugin plugin;
+    private final Path trashDirectory;
+    private final int maxUnloadsPerTick;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+
+    private final ArrayDeque<String> unloadQueue = new ArrayDeque<>(); // Main thread only
+    private final Set<String> pending = ConcurrentHashMap.newKeySet(); // Names whose folder is still in place
+    private volatile ScheduledExecutorService executor;
+    private BukkitTask unloadTask;
+
+    private volatile int deletedCount = 0; // Written on the I/O thread only
+    private volatile int failedCount = 0;
+    private volatile int retryCount = 0;
+    private int unloadFailedCount = 0; // Main thread
+
+    /**
+     * @param trashDirectory where folders are renamed to before deletion, on the same file system as the worlds
+     */
+    public WorldDeleter(JavaPlugin plugin, Path trashDirectory, int maxUnloadsPerTick, int maxAttempts,
+            long retryDelayMillis) {
+        this.plugin = plugin;
+        this.trashDirectory = trashDirectory;
+        this.maxUnloadsPerTick = Math.max(1, maxUnloadsPerTick);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryDelayMillis = Math.max(1L, retryDelayMillis);
+    }
+
+    public synchronized void start() {
+        if (executor != null) {
+            LOGGER.warning("WorldDeleter is already running");
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "beacon-world-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::emptyTrash); // Left over from the last run
+        unloadTask = Bukkit.getScheduler().runTaskTimer(plugin, this::unloadQueued, 1L, 1L);
+    }
+
+    /**
+     * Unload whatever is still queued and wait up to waitMillis for the deletions to finish
+     * Folders not deleted by then stay in the trash until the next start.
+     */
+    public synchronized void stop(long waitMillis) {
+        if (executor == null) {
+            return;
+        }
+        if (unloadTask != null) {
+            unloadTask.cancel();
+            unloadTask = null;
+        }
+        while (!unloadQueue.isEmpty()) {
+            unload(unloadQueue.poll());
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(waitMillis, TimeUnit.MILLISECONDS)) {
+                LOGGER.warning("World deletion still running after " + waitMillis + "ms, leaving the rest in "
+                        + trashDirectory);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    /**
+     * Queue a world for unloading and deletion (main thread)
+     */
+    public void delete(String worldName) {
+        if (pending.add(worldName)) {
+            unloadQueue.add(worldName);
+        }
+    }
+
+    /**
+     * Run other world folder work (template clones) on the I/O thread; false if it isn't running
+     */
+    public boolean execute(Runnable task) {
+        ScheduledExecutorService io = executor;
+        if (io == null) {
+            return false;
+        }
+        try {
+            io.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether a world of that name is queued or its folder hasn't been moved away yet, so the name
+     * can't be used for a new world
+     */
+    public boolean isPending(String worldName) {
+        return pending.contains(worldName);
+    }
+
+    private void unloadQueued() {
+        for (int i = 0; i < maxUnloadsPerTick && !unloadQueue.isEmpty(); i++) {
+            unload(unloadQueue.poll());
+        }
+    }
+
+    /**
+     * Unload a world on the main thread and hand its folder to the I/O thread
+     */
+    private void unload(String worldName) {
+        World world = Bukkit.getWorld(worldName);
+        File folder;
+        if (world != null) {
+            World mainWorld = Bukkit.getWorlds().get(0);
+            for (Player player : world.getPlayers()) {
+                if (mainWorld != null && !mainWorld.equals(world)) {
+                    player.teleport(mainWorld.getSpawnLocation());
+                } else {
+                    player.kickPlayer("Match ended. World is being deleted.");
+                }
+            }
+            folder = world.getWorldFolder();
+            if (!Bukkit.unloadWorld(world, false)) {
+                LOGGER.severe("Could not unload world " + worldName + ", not deleting it");
+                unloadFailedCount++;
+                pending.remove(worldName);
+                return;
+            }
+        } else {
+            folder = new File(Bukkit.getWorldContainer(), worldName);
+        }
+
+        Path path = folder.toPath();
+        try {
+            executor.execute(() -> moveToTrash(worldName, path));
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the folder stays until the world name is used again
+            pending.remove(worldName);
+        }
+    }
+
+    /**
+     * Rename the folder into the trash, then delete it there (I/O thread)
+     */
+    private void moveToTrash(String worldName, Path folder) {
+        Path target;
+        try {
+            target = moveToTrash(folder, trashDirectory, worldName);
+        } catch (IOException e) {
+            // Can't rename (e.g. still locked): delete it in place, the name stays taken until then
+            LOGGER.warning("Could not move world " + worldName + " to the trash, deleting it in place: "
+                    + e.getMessage());
+            deleteWithRetry(worldName, folder, 1, true);
+            return;
+        }
+        pending.remove(worldName);
+        if (target != null) {
+            deleteWithRetry(worldName, target, 1, false);
+        }
+    }
+
+    /**
+     * @param holdsName whether the folder is still in place, keeping worldName pending until it is gone
+     */
+    private void deleteWithRetry(String worldName, Path folder, int attempt, boolean holdsName) {
+        try {
+            deleteTree(folder);
+            deletedCount++;
+            if (holdsName) {
+                pending.remove(worldName);
+            }
+            LOGGER.info("Deleted match world: " + worldName);
+        } catch (IOException e) {
+            if (attempt >= maxAttempts) {
+                failedCount++;
+                if (holdsName) {
+                    pending.remove(worldName);
+                }
+                LOGGER.severe("Giving up deleting world " + worldName + " (" + folder + ") after " + attempt
+                        + " attempts: " + e.getMessage());
+                return;
+            }
+            retryCount++;
+            long delay = retryDelayMillis << Math.min(attempt - 1, 16);
+            LOGGER.warning("Could not delete world " + worldName + ", retrying in " + delay + "ms: " + e.getMessage());
+            ScheduledExecutorService io = executor;
+            try {
+                if (io == null) {
+                    throw new RejectedExecutionException("stopped");
+                }
+                io.schedule(() -> deleteWithRetry(worldName, folder, attempt + 1, holdsName), delay,
+                        TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException rejected) {
+                // Shutting down; the next start empties the trash
+                if (holdsName) {
+                    pending.remove(worldName);
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete everything left in the trash by an earlier run (I/O thread)
+     */
+    private void emptyTrash() {
+        if (!Files.isDirectory(trashDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(trashDirectory)) {
+            for (Path entry : entries) {
+                deleteWithRetry(entry.getFileName().toString(), entry, 1, false);
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Could not empty world trash " + trashDirectory + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rename a world folder to a unique name in the trash; null if the folder doesn't exist
+     */
+    static Path moveToTrash(Path folder, Path trashDirectory, String worldName) throws IOException {
+        Files.createDirectories(trashDirectory);
+        Path target = trashDirectory.resolve(worldName + "-" + System.nanoTime());
+        try {
+            return Files.move(folder, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (AtomicMoveNotSupportedException e) {
+            return Files.move(folder, target);
+        }
+    }
+
+    /**
+     * Delete a folder and everything in it (nothing happens if it doesn't exist)
+     */
+    static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.deleteIfExists(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.deleteIfExists(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Worlds queued for unloading or whose folders haven't been moved out of the way yet
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public int getDeletedCount() {
+        return deletedCount;
+    }
+
+    /**
+     * Worlds that couldn't be unloaded or deleted within maxAttempts
+     */
+    public int getFailedCount() {
+        return failedCount + unloadFailedCount;
+    }
+
+    public int getRetryCount() {
+        return retryCount;
+    }
+}
@@ -6,29 +6,22 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
-import org.json.JSONObject;
+import ai.blockwarriors.beacon.service.TokenValidator;
 
 public class LoginCommand implements CommandExecutor {
 
     private final Set<UUID> loggedInPlayers;
-    private final String convexSiteUrl;
-    private final String convexHttpSecret;
+    private final TokenValidator tokenValidator;
     private static final Logger LOGGER = Logger.getLogger("beacon");
 
-    public LoginCommand(Set<UUID> loggedInPlayersInput, String convexSiteUrl, String convexHttpSecret) {
+    public LoginCommand(Set<UUID> loggedInPlayersInput, TokenValidator tokenValidator) {
         loggedInPlayers = loggedInPlayersInput;
-        this.convexSiteUrl = convexSiteUrl;
-        this.convexHttpSecret = convexHttpSecret;
+        this.tokenValidator = tokenValidator;
     }
 
     @Override
@@ -53,90 +46,77 @@ public class LoginCommand implements CommandExecutor {
         String token = args[0];
         LOGGER.info("Player " + player.getName() + " attempting login with token (length: " + token.length() + ")");
 
-        // Run login asynchronously to avoid blocking the main thread
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                try {
-                    // Prepare login request
-                    String urlString = convexSiteUrl + "/validateToken";
-                    URL url = new URL(urlString);
-                    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                    conn.setRequestMethod("POST");
-                    conn.setRequestProperty("Content-Type", "application/json");
-                    conn.setRequestProperty("Authorization", "Bearer " + convexHttpSecret);
-                    conn.setDoOutput(true);
-
-                    JSONObject requestBody = new JSONObject();
-                    // Tokens are pure UUIDs without prefix - use as-is
-                    // If token starts with "token", remove that prefix (for backwards
-                    // compatibility)
-                    String tokenToSend = token.startsWith("token") ? token.substring(5) : token;
-                    LOGGER.info("Sending token to Convex (length: " + tokenToSend.length() + ", starts with 'token': "
-                            + token.startsWith("token") + ")");
-                    requestBody.put("token", tokenToSend);
-                    requestBody.put("playerId", player.getUniqueId().toString());
-                    requestBody.put("ign", player.getName());
-
-                    try (OutputStream os = conn.getOutputStream()) {
-                        byte[] input = requestBody.toString().getBytes(StandardCharsets.UTF_8);
-                        os.write(input, 0, input.length);
-                    }
-
-                    int responseCode = conn.getResponseCode();
-
-                    // Read response
-                    BufferedReader reader;
-                    if (responseCode >= 200 && responseCode < 300) {
-                        reader = new BufferedReader(
-                                new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-                    } else {
-                        reader = new BufferedReader(
-                                new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8));
-                    }
-
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-
-                    JSONObject responseJson = new JSONObject(response.toString());
-                    String status = responseJson.getString("status");
-
-                    // Handle response on main thread
-                    new BukkitRunnable() {
-                        @Override
-                        public void run() {
-                            if (status.equals("ok")) {
-                                LOGGER.info("Successfully logged in player " + player.getName());
-                                player.sendMessage("Successfully logged in.");
-                                loggedInPlayers.add(player.getUniqueId());
-                            } else {
-                                String error = responseJson.optString("error", "Invalid token");
-                                LOGGER.warning("Failed to log in player " + player.getName() + ": " + error);
-                                player.sendMessage("Failed to log in: " + error);
-                                player.kickPlayer("Failed to log in: " + error);
-                            }
-                        }
-                    }.runTask(Bukkit.getPluginManager().getPlugin("beacon"));
+        // Don't start a second check while the first one is still running
+        if (tokenValidator.isInFlight(player.getUniqueId())) {
+            player.sendMessage("Your login is still being checked, please wait.");
+            return true;
+        }
+
+        // Tokens are pure UUIDs without prefix - use as-is
+        // If token starts with "token", remove that prefix (for backwards compatibility)
+        String tokenToSend = token.startsWith("token") ? token.substring(5) : token;
+
+        // Tokens in the local index are answered right away; others are validated off the main
+        // thread and the result is handled back on it
+        CompletableFuture<TokenValidator.Result> attempt =
+                tokenValidator.validate(player.getUniqueId(), player.getName(), tokenToSend);
+        if (attempt.isDone()) {
+            handleResult(player, attempt.join());
+        } else {
+            attempt.thenAccept(result -> new BukkitRunnable() {
+                @Override
+                public void run() {
+                    handleResult(player, result);
+                }
+            }.runTask(Bukkit.getPluginManager().getPlugin("beacon")));
+        }
+
+        return true;
+    }
 
-                } catch (Exception e) {
-                    LOGGER.severe("Error during login: " + e.getMessage());
-                    e.printStackTrace();
-                    // Handle error on main thread
-                    new BukkitRunnable() {
+    private void handleResult(Player player, TokenValidator.Result result) {
+        switch (result.getKind()) {
+            case ACCEPTED:
+                LOGGER.info("Successfully logged in player " + player.getName());
+                player.sendMessage("Successfully logged in.");
+                loggedInPlayers.add(player.getUniqueId());
+                if (result.getConfirmation() != null) {
+                    // Accepted from the local token index - undo the login if Convex doesn't confirm it
+                    result.getConfirmation().thenAccept(confirmation -> new BukkitRunnable() {
                         @Override
                         public void run() {
-                            player.sendMessage("Error during login. Please try again.");
+                            handleConfirmation(player, confirmation);
                         }
-                    }.runTask(Bukkit.getPluginManager().getPlugin("beacon"));
+                    }.runTask(Bukkit.getPluginManager().getPlugin("beacon")));
                 }
-            }
-        }.runTaskAsynchronously(Bukkit.getPluginManager().getPlugin("beacon"));
+                break;
+            case REJECTED:
+                LOGGER.warning("Failed to log in player " + player.getName() + ": " + result.getMessage());
+                player.sendMessage("Failed to log in: " + result.getMessage());
+                player.kickPlayer("Failed to log in: " + result.getMessage());
+                break;
+            default:
+                // Throttled or Convex unreachable - the player can simply try again
+                LOGGER.warning("Login for player " + player.getName() + " not completed: " + result.getMessage());
+                player.sendMessage(result.getMessage());
+        }
+    }
 
-        return true;
+    private void handleConfirmation(Player player, TokenValidator.Result confirmation) {
+        if (confirmation.getKind() == TokenValidator.Result.Kind.ACCEPTED) {
+            return;
+        }
+
+        LOGGER.warning("Rolling back login of player " + player.getName() + ": " + confirmation.getMessage());
+        loggedInPlayers.remove(player.getUniqueId());
+        if (!player.isOnline()) {
+            return;
+        }
+        if (confirmation.getKind() == TokenValidator.Result.Kind.REJECTED) {
+            player.kickPlayer("Failed to log in: " + confirmation.getMessage());
+        } else {
+            player.sendMessage(confirmation.getMessage());
+        }
     }
 
     public void removeLoggedInPlayer(UUID playerUUID) {
@@ -0,0 +1,155 @@
+package ai.blockwarriors.commands;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import ai.blockwarriors.beacon.service.ReplayPlayback;
+import ai.blockwarriors.beacon.service.ReplayReader;
+import ai.blockwarriors.beacon.service.ReplayRecorder;
+
+/**
+ * Command to watch recorded matches
+ * Usage: /replay list | /replay <matchId> [fromSecond] | /replay stop
+ * Replay files are read and decoded off the main thread; the playback itself moves markers
+ * in the viewer's world (see ReplayPlayback).
+ */
+public class ReplayCommand implements CommandExecutor {
+    private static final Logger LOGGER = Logger.getLogger("beacon");
+    private static final int LIST_LIMIT = 10;
+
+    private final JavaPlugin plugin;
+    private final ReplayRecorder recorder;
+    private final Map<UUID, ReplayPlayback> playbacks = new HashMap<>(); // Main thread only
+
+    public ReplayCommand(JavaPlugin plugin, ReplayRecorder recorder) {
+        this.plugin = plugin;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("beacon.replay")) {
+            sender.sendMessage("§cYou do not have permission to use this command.");
+            return true;
+        }
+        if (args.length == 0) {
+            return false;
+        }
+
+        if (args[0].equalsIgnoreCase("list")) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> list(sender));
+            return true;
+        }
+
+        if (!(sender instanceof Player)) {
+            sender.sendMessage("§cOnly players can watch replays.");
+            return true;
+        }
+        Player viewer = (Player) sender;
+
+        if (args[0].equalsIgnoreCase("stop")) {
+            ReplayPlayback playback = playbacks.remove(viewer.getUniqueId());
+            if (playback == null || !playback.isRunning()) {
+                viewer.sendMessage("§cYou are not watching a replay.");
+            } else {
+                playback.stop();
+                viewer.sendMessage("§aReplay stopped.");
+            }
+            return true;
+        }
+
+        if (viewer.getWorld().getName().startsWith("match_")) {
+            viewer.sendMessage("§cReplays can't be watched from a match world.");
+            return true;
+        }
+
+        String matchId = args[0];
+        int fromTick;
+        try {
+            fromTick = args.length > 1 ? Math.max(0, Integer.parseInt(args[1])) * 20 : 0;
+        } catch (NumberFormatException e) {
+            viewer.sendMessage("§cInvalid start second: " + args[1]);
+            return true;
+        }
+
+        viewer.sendMessage("§7Loading replay of match " + matchId + "...");
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                ReplayReader reader = recorder.open(matchId);
+                ReplayReader.Timeline timeline = reader.read(fromTick);
+                Bukkit.getScheduler().runTask(plugin, () -> play(viewer, reader, timeline, fromTick));
+            } catch (IOException e) {
+                LOGGER.warning("Could not load replay of match " + matchId + ": " + e.getMessage());
+                Bukkit.getScheduler().runTask(plugin,
+                        () -> viewer.sendMessage("§cCould not load replay: " + e.getMessage()));
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Stop every running playback and remove its markers (plugin disable)
+     */
+    public void stopAll() {
+        for (ReplayPlayback playback : new ArrayList<>(playbacks.values())) {
+            playback.stop();
+        }
+        playbacks.clear();
+    }
+
+    private void play(Player viewer, ReplayReader reader, ReplayReader.Timeline timeline, int fromTick) {
+        if (!viewer.isOnline()) {
+            return;
+        }
+        if (timeline.states().isEmpty()) {
+            viewer.sendMessage("§cNothing recorded after " + ReplayPlayback.formatTime(fromTick) + " (replay ends at "
+                    + ReplayPlayback.formatTime((int) reader.getLastTick()) + ").");
+            return;
+        }
+
+        ReplayPlayback previous = playbacks.remove(viewer.getUniqueId());
+        if (previous != null) {
+            previous.stop();
+        }
+        ReplayPlayback playback = new ReplayPlayback(plugin, viewer, reader, timeline, fromTick,
+                stopped -> playbacks.remove(viewer.getUniqueId(), stopped));
+        playbacks.put(viewer.getUniqueId(), playback);
+        playback.start();
+
+        StringBuilder names = new StringBuilder();
+        for (ReplayReader.PlayerInfo player : reader.getPlayers()) {
+            names.append(names.length() == 0 ? "" : ", ").append(player.name());
+        }
+        viewer.sendMessage("§aPlaying match " + reader.getMatchId() + " from "
+                + ReplayPlayback.formatTime(fromTick) + " of " + ReplayPlayback.formatTime((int) reader.getLastTick())
+                + " (" + names + "). §7/replay stop to end it.");
+    }
+
+    private void list(CommandSender sender) {
+        try {
+            List<String> matchIds = recorder.listReplays();
+            if (matchIds.isEmpty()) {
+                sender.sendMessage("§7No replays stored.");
+                return;
+            }
+            sender.sendMessage("§aStored replays (newest first, " + matchIds.size() + " total):");
+            for (String matchId : matchIds.subList(0, Math.min(LIST_LIMIT, matchIds.size()))) {
+                sender.sendMessage("§7- §f" + matchId);
+            }
+        } catch (IOException e) {
+            sender.sendMessage("§cCould not list replays: " + e.getMessage());
+        }
+    }
+}
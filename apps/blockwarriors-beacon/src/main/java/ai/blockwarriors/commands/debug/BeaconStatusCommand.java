@@ -0,0 +1,84 @@
+package ai.blockwarriors.commands.debug;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import ai.blockwarriors.beacon.service.ArenaWorldPool;
+import ai.blockwarriors.beacon.service.ConvexOutbox;
+import ai.blockwarriors.beacon.service.MatchPollingService;
+import ai.blockwarriors.beacon.service.MatchTelemetryService;
+import ai.blockwarriors.beacon.service.TelemetryCollector;
+import ai.blockwarriors.beacon.service.TelemetryLane;
+import ai.blockwarriors.beacon.service.TelemetryScheduler;
+import ai.blockwarriors.beacon.service.TickSampler;
+import ai.blockwarriors.beacon.service.TokenValidator;
+import ai.blockwarriors.beacon.service.WorldDeleter;
+
+/**
+ * Shows how the beacon is currently talking to Convex (dispatch mode, adaptive intervals, outbox and logins)
+ */
+public class BeaconStatusCommand implements CommandExecutor {
+    private final MatchPollingService matchPollingService;
+    private final MatchTelemetryService matchTelemetryService;
+    private final ConvexOutbox outbox;
+    private final TokenValidator tokenValidator;
+    private final ArenaWorldPool worldPool;
+    private final WorldDeleter worldDeleter;
+
+    public BeaconStatusCommand(MatchPollingService matchPollingService, MatchTelemetryService matchTelemetryService,
+            ConvexOutbox outbox, TokenValidator tokenValidator, ArenaWorldPool worldPool,
+            WorldDeleter worldDeleter) {
+        this.matchPollingService = matchPollingService;
+        this.matchTelemetryService = matchTelemetryService;
+        this.outbox = outbox;
+        this.tokenValidator = tokenValidator;
+        this.worldPool = worldPool;
+        this.worldDeleter = worldDeleter;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        sender.sendMessage("Match dispatch: " + (matchPollingService.isPushActive() ? "push" : "poll")
+                + ", poll interval: " + formatTicks(matchPollingService.getCurrentPollIntervalTicks()));
+        sender.sendMessage("Telemetry interval: " + formatTicks(matchTelemetryService.getCurrentUpdateIntervalTicks()));
+        TelemetryCollector collector = matchTelemetryService.getCollector();
+        sender.sendMessage("Telemetry snapshot (main thread): last " + collector.getLastCaptureMicros() + "us, avg "
+                + collector.getAverageCaptureMicros() + "us, max " + collector.getMaxCaptureMicros() + "us");
+        TelemetryScheduler scheduler = matchTelemetryService.getScheduler();
+        sender.sendMessage("Telemetry scheduler: last tick " + scheduler.getLastTickMicros() + "us, max "
+                + scheduler.getMaxTickMicros() + "us (budget " + scheduler.getBudgetMicros() + "us), "
+                + scheduler.getCapturedCount() + " captured, " + scheduler.getDeferredCount() + " deferred");
+        TelemetryLane lane = matchTelemetryService.getTelemetryLane();
+        sender.sendMessage("Telemetry lane: " + lane.getPendingCount() + " pending, " + lane.getSentCount() + " sent, "
+                + lane.getCoalescedCount() + " coalesced, " + lane.getDroppedOverflowCount() + " dropped (full), "
+                + lane.getDroppedStaleCount() + " dropped (stale)");
+        TickSampler sampler = matchTelemetryService.getSampler();
+        if (sampler != null) {
+            sender.sendMessage("Telemetry sampler: every " + sampler.getSampleIntervalTicks() + " tick(s), "
+                    + sampler.getBufferCount() + " player buffer(s), tick " + sampler.getCurrentTick());
+        }
+        sender.sendMessage("Arena worlds: " + worldPool.getReadyCount() + "/" + worldPool.getSize() + " ready, "
+                + worldPool.getLeasedCount() + " in use, " + worldPool.getReusedCount() + " reused, "
+                + worldPool.getCreatedOnLeaseCount() + " created on demand, " + worldPool.getDiscardedCount()
+                + " discarded");
+        sender.sendMessage("World deletion: " + worldDeleter.getPendingCount() + " pending, "
+                + worldDeleter.getDeletedCount() + " deleted, " + worldDeleter.getRetryCount() + " retried, "
+                + worldDeleter.getFailedCount() + " failed");
+        sender.sendMessage("Outbox: " + outbox.getPendingCount() + " pending write(s), circuit "
+                + outbox.getCircuitBreaker().getState());
+        sender.sendMessage("Logins: " + tokenValidator.getRequestCount() + " sent, " + tokenValidator.getCoalescedCount()
+                + " coalesced, " + tokenValidator.getThrottledCount() + " throttled, "
+                + tokenValidator.getCachedRejectionCount() + " rejected from cache, "
+                + tokenValidator.getLocalAcceptCount() + " accepted locally, " + tokenValidator.getRollbackCount()
+                + " rolled back");
+        return true;
+    }
+
+    private static String formatTicks(long ticks) {
+        if (ticks < 0) {
+            return "stopped";
+        }
+        return ticks + " ticks (" + String.format("%.1f", ticks / 20.0) + "s)";
+    }
+}
@@ -1,70 +1,49 @@
 package ai.blockwarriors.commands.debug;
 
-import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
 import org.bukkit.World;
-import org.bukkit.WorldCreator;
-import org.bukkit.WorldType;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import ai.blockwarriors.beacon.service.MatchManager;
+
+/**
+ * Debug command: puts two online players into an arena from the pool without a Convex match.
+ * The match isn't registered with MatchManager, so nothing returns its world on its own;
+ * "/creatematch end" gives every arena this command took back to the pool.
+ */
 public class CreateMatchCommand implements CommandExecutor {
 
-    // Invariant: player1 and player2 are valid online player objects
-    // Returns the world name created, or null if creation failed
-    public static String createMatch(Player player1, Player player2) {
+    private final MatchManager matchManager;
+    private final Set<String> debugArenas = new LinkedHashSet<>(); // Leased by this command, main thread only
+
+    public CreateMatchCommand(MatchManager matchManager) {
+        this.matchManager = matchManager;
+    }
+
+    // Invariant: player1 and player2 are valid online player objects, world is an arena leased from the pool
+    // and the spawns are in it (the arena's blue and red spawn points)
+    // Returns the world name, or null if setting up the match failed
+    public static String createMatch(World world, Player player1, Location spawn1, Player player2, Location spawn2) {
         Logger logger = Bukkit.getLogger();
-        
-        // Find the lowest unused world number
-        int worldNumber = 1;
-        String worldName = "match_" + worldNumber;
-        while (Bukkit.getWorld(worldName) != null) {
-            worldNumber++;
-            worldName = "match_" + worldNumber;
-        }
+        String worldName = world.getName();
 
         try {
-            // Create a new flat world using Bukkit's WorldCreator
-            WorldCreator creator = new WorldCreator(worldName);
-            creator.type(WorldType.FLAT);
-            creator.generateStructures(false); // No structures like villages
-            
-            World world = creator.createWorld();
-            
-            if (world == null) {
-                logger.severe("Failed to create world: " + worldName);
-                return null;
-            }
-
-            // Configure world settings
-            world.setSpawnLocation(0, 64, 0);
-            
-            // Disable mob spawning - only allow players
-            world.setSpawnFlags(false, false); // No monsters, no animals
-            
-            // Set world difficulty to peaceful to prevent hostile mobs
-            world.setDifficulty(org.bukkit.Difficulty.PEACEFUL);
-            
-            // Note: Additional mob prevention is handled by WorldEventListener
-            // which cancels all creature and entity spawns in match worlds
-            
             // Set both players to survival mode
             player1.setGameMode(GameMode.SURVIVAL);
             player2.setGameMode(GameMode.SURVIVAL);
             
-            // Teleport player1 to specific coordinates (5 blocks east of spawn, Y = -61)
-            Location player1Loc = new Location(world, 5, -61, 0);
-            player1.teleport(player1Loc);
-            
-            // Teleport player2 to specific coordinates (5 blocks west of spawn, Y = -61)
-            Location player2Loc = new Location(world, -5, -61, 0);
-            player2.teleport(player2Loc);
+            // Teleport both players to their team's spawn point
+            player1.teleport(spawn1);
+            player2.teleport(spawn2);
             
             // Clear inventories and reset health/hunger for fair start
             player1.getInventory().clear();
@@ -76,72 +55,17 @@ public class CreateMatchCommand implements CommandExecutor {
             player1.setSaturation(20.0f);
             player2.setSaturation(20.0f);
 
-            logger.info("Created match world: " + worldName + " for players " + 
+            logger.info("Started match in world: " + worldName + " for players " + 
                        player1.getName() + " and " + player2.getName());
             
             return worldName;
         } catch (Exception e) {
-            logger.severe("Error creating match world: " + e.getMessage());
+            logger.severe("Error setting up match world: " + e.getMessage());
             e.printStackTrace();
             return null;
         }
     }
 
-    /**
-     * Delete a match world and unload it from memory
-     */
-    public static void deleteMatchWorld(String worldName) {
-        Logger logger = Bukkit.getLogger();
-        
-        try {
-            World world = Bukkit.getWorld(worldName);
-            if (world != null) {
-                // Kick all players from the world first
-                world.getPlayers().forEach(player -> {
-                    // Teleport to main world or kick
-                    World mainWorld = Bukkit.getWorlds().get(0);
-                    if (mainWorld != null && !mainWorld.equals(world)) {
-                        player.teleport(mainWorld.getSpawnLocation());
-                    } else {
-                        player.kickPlayer("Match ended. World is being deleted.");
-                    }
-                });
-
-                // Unload the world
-                Bukkit.unloadWorld(world, false);
-
-                // Delete the world folder
-                File worldFolder = world.getWorldFolder();
-                if (worldFolder.exists()) {
-                    deleteDirectory(worldFolder);
-                    logger.info("Deleted match world: " + worldName);
-                }
-            }
-        } catch (Exception e) {
-            logger.severe("Error deleting match world " + worldName + ": " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * Recursively delete a directory
-     */
-    private static void deleteDirectory(File directory) {
-        if (directory.exists()) {
-            File[] files = directory.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if (file.isDirectory()) {
-                        deleteDirectory(file);
-                    } else {
-                        file.delete();
-                    }
-                }
-            }
-            directory.delete();
-        }
-    }
-
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (sender instanceof Player) {
@@ -151,8 +75,12 @@ public class CreateMatchCommand implements CommandExecutor {
             logger.info("Received command: " + command);
 
             Player player = (Player) sender;
+            if (args.length == 1 && args[0].equalsIgnoreCase("end")) {
+                endDebugMatches(player);
+                return true;
+            }
             if (args.length != 2) {
-                player.sendMessage("Usage: /creatematch <player1> <player2>");
+                player.sendMessage("Usage: /creatematch <player1> <player2> | /creatematch end");
                 return false;
             }
             String player1 = args[0];
@@ -176,10 +104,36 @@ public class CreateMatchCommand implements CommandExecutor {
                 return false;
             }
 
-            // Create the match
-            createMatch(player1Obj, player2Obj);
+            // Create the match in a world from the pool
+            World world = matchManager.leaseArena();
+            if (world == null) {
+                player.sendMessage("No arena world is ready yet, try again in a moment.");
+                return false;
+            }
+            if (createMatch(world, player1Obj, matchManager.getArenaSpawn(world, "blue", 0), player2Obj,
+                    matchManager.getArenaSpawn(world, "red", 0)) == null) {
+                matchManager.returnArena(world.getName());
+            } else {
+                debugArenas.add(world.getName());
+                player.sendMessage("Match started in " + world.getName() + ", use /creatematch end to return the arena.");
+            }
             return false;
         }
         return true;
     }
+
+    /**
+     * Return every arena of a debug match to the pool (players inside are sent to the main world)
+     */
+    private void endDebugMatches(Player player) {
+        if (debugArenas.isEmpty()) {
+            player.sendMessage("No debug matches running.");
+            return;
+        }
+        for (String worldName : debugArenas) {
+            matchManager.returnArena(worldName);
+        }
+        player.sendMessage("Returned " + debugArenas.size() + " debug arena(s) to the pool.");
+        debugArenas.clear();
+    }
 }
@@ -0,0 +1,180 @@
+package ai.blockwarriors.events;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockGrowEvent;
+import org.bukkit.event.block.BlockIgniteEvent;
+import org.bukkit.event.block.BlockMultiPlaceEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.BlockSpreadEvent;
+import org.bukkit.event.block.LeavesDecayEvent;
+import org.bukkit.event.block.SpongeAbsorbEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.world.StructureGrowEvent;
+
+import java.util.List;
+
+import ai.blockwarriors.beacon.service.ArenaWorldPool;
+
+/**
+ * Tells the ArenaWorldPool which blocks a match changes, so the arena can be reset when the world
+ * is returned to the pool: placed (including the other half of beds and doors), broken, flooded,
+ * formed (cobblestone, obsidian, snow), grown, spread, burnt, faded, decayed, blown up, pushed or
+ * pulled by pistons, soaked up by sponges and changed by entities (falling blocks, trampled farmland).
+ * Listens at MONITOR priority and ignores cancelled events, so only real changes are recorded.
+ * All of these fire before the block changes, except placement, which carries the replaced state.
+ */
+public class ArenaChangeListener implements Listener {
+    private final ArenaWorldPool worldPool;
+
+    public ArenaChangeListener(ArenaWorldPool worldPool) {
+        this.worldPool = worldPool;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        World world = event.getBlock().getWorld();
+        if (event instanceof BlockMultiPlaceEvent) {
+            // Every block of a bed, door or other multi-block placement
+            for (BlockState replaced : ((BlockMultiPlaceEvent) event).getReplacedBlockStates()) {
+                worldPool.recordChange(world, replaced);
+            }
+            return;
+        }
+        // The block is already placed, the replaced state is the original
+        worldPool.recordChange(world, event.getBlockReplacedState());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        worldPool.recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketEmpty(PlayerBucketEmptyEvent event) {
+        worldPool.recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFromTo(BlockFromToEvent event) {
+        // Flowing liquid (and dragon eggs) moving into a block
+        worldPool.recordChange(event.getToBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockIgnite(BlockIgniteEvent event) {
+        worldPool.recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent event) {
+        worldPool.recordChange(event.getBlock());
+    }
+
+    // BlockGrowEvent, BlockFormEvent and BlockSpreadEvent each have their own handler list
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockGrow(BlockGrowEvent event) {
+        worldPool.recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockForm(BlockFormEvent event) {
+        worldPool.recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockSpread(BlockSpreadEvent event) {
+        worldPool.recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFade(BlockFadeEvent event) {
+        worldPool.recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onLeavesDecay(LeavesDecayEvent event) {
+        worldPool.recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityChangeBlock(EntityChangeBlockEvent event) {
+        worldPool.recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        for (Block block : event.blockList()) {
+            worldPool.recordChange(block);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        worldPool.recordChange(event.getBlock()); // The bed or respawn anchor itself
+        for (Block block : event.blockList()) {
+            worldPool.recordChange(block);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        recordPiston(event.getBlock(), event.getDirection(), event.getBlocks());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        recordPiston(event.getBlock(), event.getDirection(), event.getBlocks());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSpongeAbsorb(SpongeAbsorbEvent event) {
+        worldPool.recordChange(event.getBlock());
+        recordStates(event.getBlock().getWorld(), event.getBlocks());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onStructureGrow(StructureGrowEvent event) {
+        recordStates(event.getWorld(), event.getBlocks());
+    }
+
+    /**
+     * A piston, its head and every moved block with the positions on both sides of it along the
+     * piston's axis (recording a position that ends up unchanged is harmless)
+     */
+    private void recordPiston(Block piston, BlockFace direction, List<Block> moved) {
+        BlockFace opposite = direction.getOppositeFace();
+        worldPool.recordChange(piston);
+        worldPool.recordChange(piston.getRelative(direction));
+        worldPool.recordChange(piston.getRelative(opposite));
+        for (Block block : moved) {
+            worldPool.recordChange(block);
+            worldPool.recordChange(block.getRelative(direction));
+            worldPool.recordChange(block.getRelative(opposite));
+        }
+    }
+
+    /**
+     * The current blocks at the positions of states that are about to replace them
+     */
+    private void recordStates(World world, List<BlockState> newStates) {
+        for (BlockState state : newStates) {
+            worldPool.recordChange(world.getBlockAt(state.getX(), state.getY(), state.getZ()));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package ai.blockwarriors.events;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Projectile;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.entity.ProjectileLaunchEvent;
+import org.bukkit.event.player.PlayerItemConsumeEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+
+import ai.blockwarriors.beacon.service.MatchEventLog;
+import ai.blockwarriors.beacon.service.MatchTelemetryService;
+
+/**
+ * Records combat events of players in a match (hits, damage taken, projectile launches, block
+ * placements, item consumption) into the match's MatchEventLog and replay, and counts them with
+ * deaths and distance moved into the match's MatchStats
+ * Listens at MONITOR priority and ignores cancelled events, so only what actually happened is logged
+ * (except deaths, see onPlayerDeath).
+ */
+public class CombatEventListener implements Listener {
+    private final MatchTelemetryService telemetryService;
+    private final Location scratch = new Location(null, 0, 0, 0); // Reused for every event (main thread)
+
+    public CombatEventListener(MatchTelemetryService telemetryService) {
+        this.telemetryService = telemetryService;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityDamage(EntityDamageEvent event) {
+        if (!(event.getEntity() instanceof Player)) {
+            return;
+        }
+        Player victim = (Player) event.getEntity();
+        Player attacker = event instanceof EntityDamageByEntityEvent
+                ? attackingPlayer(((EntityDamageByEntityEvent) event).getDamager())
+                : null;
+
+        if (attacker != null) {
+            // Logged once, in the attacker's match; the hit position is the victim's
+            if (!telemetryService.isPlayerInMatch(attacker.getUniqueId())) {
+                return;
+            }
+            victim.getLocation(scratch);
+            telemetryService.recordCombatEvent(MatchEventLog.Type.HIT, attacker.getUniqueId(), victim.getUniqueId(),
+                    event.getFinalDamage(), attacker.getInventory().getItemInMainHand().getType(), event.getCause().name(),
+                    scratch.getX(), scratch.getY(), scratch.getZ());
+            return;
+        }
+
+        if (!telemetryService.isPlayerInMatch(victim.getUniqueId())) {
+            return;
+        }
+        victim.getLocation(scratch);
+        telemetryService.recordCombatEvent(MatchEventLog.Type.DAMAGE, victim.getUniqueId(), null,
+                event.getFinalDamage(), null, event.getCause().name(), scratch.getX(), scratch.getY(), scratch.getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onProjectileLaunch(ProjectileLaunchEvent event) {
+        Projectile projectile = event.getEntity();
+        if (!(projectile.getShooter() instanceof Player)) {
+            return;
+        }
+        Player shooter = (Player) projectile.getShooter();
+        if (!telemetryService.isPlayerInMatch(shooter.getUniqueId())) {
+            return;
+        }
+        shooter.getLocation(scratch);
+        telemetryService.recordCombatEvent(MatchEventLog.Type.PROJECTILE, shooter.getUniqueId(), null, 0.0,
+                shooter.getInventory().getItemInMainHand().getType(), projectile.getType().name(),
+                scratch.getX(), scratch.getY(), scratch.getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        Player player = event.getPlayer();
+        if (!telemetryService.isPlayerInMatch(player.getUniqueId())) {
+            return;
+        }
+        Block block = event.getBlockPlaced();
+        telemetryService.recordCombatEvent(MatchEventLog.Type.BLOCK_PLACE, player.getUniqueId(), null, 0.0,
+                block.getType(), null, block.getX(), block.getY(), block.getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemConsume(PlayerItemConsumeEvent event) {
+        Player player = event.getPlayer();
+        if (!telemetryService.isPlayerInMatch(player.getUniqueId())) {
+            return;
+        }
+        Material item = event.getItem().getType();
+        player.getLocation(scratch);
+        telemetryService.recordCombatEvent(MatchEventLog.Type.CONSUME, player.getUniqueId(), null, 0.0, item, null,
+                scratch.getX(), scratch.getY(), scratch.getZ());
+    }
+
+    /**
+     * Counted at LOW priority: MatchEventListener ends the match on a death (HIGH), and the final
+     * state it sends must already include this death and kill
+     */
+    @EventHandler(priority = EventPriority.LOW)
+    public void onPlayerDeath(PlayerDeathEvent event) {
+        Player victim = event.getEntity();
+        if (!telemetryService.isPlayerInMatch(victim.getUniqueId())) {
+            return;
+        }
+        Player killer = victim.getKiller();
+        telemetryService.recordDeath(victim.getUniqueId(), killer != null ? killer.getUniqueId() : null);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        telemetryService.recordRespawn(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        // Teleports have their own event and don't count as distance travelled
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        if (to == null || from.getWorld() != to.getWorld()
+                || !telemetryService.isPlayerInMatch(event.getPlayer().getUniqueId())) {
+            return;
+        }
+        double distanceSquared = from.distanceSquared(to);
+        if (distanceSquared > 0) {
+            telemetryService.recordDistance(event.getPlayer().getUniqueId(), Math.sqrt(distanceSquared));
+        }
+    }
+
+    /**
+     * The player behind a damaging entity: the player itself, or the shooter of a projectile
+     */
+    private static Player attackingPlayer(Entity damager) {
+        if (damager instanceof Player) {
+            return (Player) damager;
+        }
+        if (damager instanceof Projectile && ((Projectile) damager).getShooter() instanceof Player) {
+            return (Player) ((Projectile) damager).getShooter();
+        }
+        return null;
+    }
+}
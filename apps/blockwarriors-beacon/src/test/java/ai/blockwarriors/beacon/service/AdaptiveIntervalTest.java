@@ -0,0 +1,46 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for AdaptiveInterval
+ */
+public class AdaptiveIntervalTest {
+
+    @Test
+    public void idleSlowsDownUpToMaximum() {
+        AdaptiveInterval interval = new AdaptiveInterval(20, 100, 1200);
+        assertEquals(40, interval.next(AdaptiveInterval.Outcome.IDLE));
+        assertEquals(80, interval.next(AdaptiveInterval.Outcome.IDLE));
+        assertEquals(100, interval.next(AdaptiveInterval.Outcome.IDLE));
+        assertEquals(100, interval.next(AdaptiveInterval.Outcome.IDLE));
+        assertEquals(20, interval.next(AdaptiveInterval.Outcome.ACTIVE));
+    }
+
+    @Test
+    public void errorsBackOffWithJitter() {
+        AdaptiveInterval interval = new AdaptiveInterval(20, 100, 1200);
+        for (int i = 0; i < 10; i++) {
+            long delay = interval.next(AdaptiveInterval.Outcome.ERROR);
+            long backoff = interval.getCurrentTicks();
+            assertTrue(delay >= backoff / 2 && delay <= backoff);
+        }
+        assertEquals(1200, interval.getCurrentTicks());
+        assertEquals(10, interval.getConsecutiveErrors());
+
+        // Recovering while idle doesn't keep the error backoff
+        assertEquals(100, interval.next(AdaptiveInterval.Outcome.IDLE));
+    }
+
+    @Test
+    public void resetReturnsToMinimum() {
+        AdaptiveInterval interval = new AdaptiveInterval(20, 100, 1200);
+        interval.next(AdaptiveInterval.Outcome.ERROR);
+        interval.reset();
+        assertEquals(20, interval.getCurrentTicks());
+        assertEquals(0, interval.getConsecutiveErrors());
+    }
+}
@@ -0,0 +1,59 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.bukkit.block.data.BlockData;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * Tests for ArenaChangeLog
+ */
+public class ArenaChangeLogTest {
+
+    private static BlockData blockData() {
+        return (BlockData) Proxy.newProxyInstance(BlockData.class.getClassLoader(), new Class<?>[] { BlockData.class },
+                (proxy, method, args) -> method.getName().equals("equals") ? proxy == args[0] : null);
+    }
+
+    @Test
+    public void packsNegativeAndExtremePositions() {
+        int[][] positions = { { 0, 0, 0 }, { -5, -61, 3 }, { 29_999_999, 319, -29_999_999 }, { -1, -64, -1 } };
+        for (int[] position : positions) {
+            long key = ArenaChangeLog.pack(position[0], position[1], position[2]);
+            assertEquals(position[0], ArenaChangeLog.unpackX(key));
+            assertEquals(position[1], ArenaChangeLog.unpackY(key));
+            assertEquals(position[2], ArenaChangeLog.unpackZ(key));
+        }
+    }
+
+    @Test
+    public void keepsOnlyTheFirstChangeOfAPosition() {
+        ArenaChangeLog log = new ArenaChangeLog(10);
+        BlockData original = blockData();
+        log.record(1, -61, 2, original);
+        log.record(1, -61, 2, blockData());
+        log.record(1, -60, 2, blockData());
+        assertEquals(2, log.size());
+        assertFalse(log.isOverflowed());
+    }
+
+    @Test
+    public void overflowsPastTheLimit() {
+        ArenaChangeLog log = new ArenaChangeLog(2);
+        BlockData data = blockData();
+        log.record(0, 0, 0, data);
+        log.record(1, 0, 0, data);
+        log.record(0, 0, 0, data); // Known position, still fine
+        assertFalse(log.isOverflowed());
+        log.record(2, 0, 0, data);
+        assertTrue(log.isOverflowed());
+        assertEquals(0, log.size());
+        log.record(3, 0, 0, data);
+        assertEquals(0, log.size());
+        assertTrue(log.isOverflowed());
+    }
+}
@@ -0,0 +1,87 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tests for ArenaTemplate
+ */
+public class ArenaTemplateTest {
+    private static final String MANIFEST = "{\"spawns\": {"
+            + "\"blue\": [{\"x\": 0.5, \"y\": 65, \"z\": 20.5, \"yaw\": 180}, {\"x\": 2.5, \"y\": 65, \"z\": 20.5}],"
+            + "\"red\": [{\"x\": 0.5, \"y\": 65, \"z\": -19.5, \"pitch\": 10}]}}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path createTemplate(String manifest) throws IOException {
+        Path template = folder.getRoot().toPath().resolve("arenas").resolve("castle");
+        Files.createDirectories(template.resolve("region"));
+        Files.write(template.resolve("level.dat"), new byte[] { 1, 2, 3 });
+        Files.write(template.resolve("uid.dat"), new byte[16]);
+        Files.write(template.resolve("session.lock"), new byte[] { 9 });
+        Files.write(template.resolve("region").resolve("r.0.0.mca"), new byte[] { 4, 5, 6, 7 });
+        if (manifest != null) {
+            Files.write(template.resolve(ArenaTemplate.MANIFEST), manifest.getBytes(StandardCharsets.UTF_8));
+        }
+        return template;
+    }
+
+    @Test
+    public void readsSpawnsPerTeam() throws IOException {
+        ArenaTemplate template = ArenaTemplate.load(createTemplate(MANIFEST));
+
+        assertEquals("castle", template.getName());
+        assertTrue(template.isCloned());
+        assertEquals(2, template.getSpawns("blue").size());
+        ArenaTemplate.Spawn blue = template.getSpawns("blue").get(0);
+        assertEquals(20.5, blue.z(), 0.0);
+        assertEquals(180.0f, blue.yaw(), 0.0f);
+        assertEquals(0.0f, template.getSpawns("blue").get(1).yaw(), 0.0f);
+        assertEquals(10.0f, template.getSpawns("red").get(0).pitch(), 0.0f);
+        assertTrue(template.getSpawns("green").isEmpty());
+    }
+
+    @Test
+    public void cloneCopiesTheWorldButNotItsIdentity() throws IOException {
+        ArenaTemplate template = ArenaTemplate.load(createTemplate(MANIFEST));
+        Path target = folder.getRoot().toPath().resolve("match_1");
+
+        template.cloneInto(target);
+
+        assertArrayEquals(new byte[] { 4, 5, 6, 7 }, Files.readAllBytes(target.resolve("region").resolve("r.0.0.mca")));
+        assertTrue(Files.exists(target.resolve("level.dat")));
+        assertFalse(Files.exists(target.resolve("uid.dat")));
+        assertFalse(Files.exists(target.resolve("session.lock")));
+        assertFalse(Files.exists(target.resolve(ArenaTemplate.MANIFEST)));
+    }
+
+    @Test(expected = IOException.class)
+    public void missingManifestFails() throws IOException {
+        ArenaTemplate.load(createTemplate(null));
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidManifestFails() throws IOException {
+        ArenaTemplate.load(createTemplate("{\"spawns\": {\"blue\": [{\"y\": 65}]}}"));
+    }
+
+    @Test
+    public void flatTemplateIsGenerated() {
+        ArenaTemplate flat = ArenaTemplate.flat();
+        assertFalse(flat.isCloned());
+        assertEquals(5.0, flat.getSpawns("blue").get(0).x(), 0.0);
+        assertEquals(-5.0, flat.getSpawns("red").get(0).x(), 0.0);
+    }
+}
@@ -0,0 +1,66 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for the CircuitBreaker state transitions
+ */
+public class CircuitBreakerTest {
+    private final AtomicLong now = new AtomicLong(0);
+    private final CircuitBreaker breaker = new CircuitBreaker(3, 1000, now::get);
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1000, breaker.getRemainingOpenMillis());
+    }
+
+    @Test
+    public void successResetsFailureCount() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void trialRequestAfterOpenPeriod() {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+        now.set(1000);
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // A failed trial opens the circuit again right away
+        breaker.recordFailure();
+        assertFalse(breaker.allowRequest());
+
+        now.set(2000);
+        assertTrue(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void onlyServerSideStatusesAreRetryable() {
+        assertTrue(CircuitBreaker.isRetryable(503));
+        assertTrue(CircuitBreaker.isRetryable(429));
+        assertTrue(CircuitBreaker.isRetryable(408));
+        assertFalse(CircuitBreaker.isRetryable(400));
+        assertFalse(CircuitBreaker.isRetryable(404));
+    }
+}
@@ -0,0 +1,50 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests for CompactTelemetryCodec
+ */
+public class CompactTelemetryCodecTest {
+
+    @Test
+    public void knownKeysAndQuantizedNumbers() {
+        JSONObject body = new JSONObject();
+        body.put("health", 20.0);
+        byte[] encoded = CompactTelemetryCodec.encode(body);
+
+        // tag 256, map(1), key index 5 ("health"), uint 20
+        assertArrayEquals(new byte[]{(byte) 0xd9, 0x01, 0x00, (byte) 0xa1, 0x05, 0x14}, encoded);
+    }
+
+    @Test
+    public void repeatedStringsAreReferenced() {
+        JSONArray equipment = new JSONArray();
+        for (int i = 0; i < 10; i++) {
+            equipment.put("Diamond Sword");
+        }
+        JSONObject body = new JSONObject();
+        body.put("equipment", equipment);
+
+        byte[] encoded = CompactTelemetryCodec.encode(body);
+        String text = new String(encoded, StandardCharsets.ISO_8859_1);
+        assertEquals(text.indexOf("Diamond Sword"), text.lastIndexOf("Diamond Sword"));
+        assertTrue(encoded.length < body.toString().length() / 3);
+    }
+
+    @Test
+    public void minRefLengthFollowsTableSize() {
+        assertEquals(3, CompactTelemetryCodec.minRefLength(0));
+        assertEquals(4, CompactTelemetryCodec.minRefLength(24));
+        assertEquals(5, CompactTelemetryCodec.minRefLength(256));
+        assertEquals(7, CompactTelemetryCodec.minRefLength(65536));
+    }
+}
@@ -0,0 +1,94 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Tests for ConvexClient against a local HTTP server
+ */
+public class ConvexClientTest {
+    private HttpServer server;
+    private ConvexClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/matches", exchange -> {
+            String auth = exchange.getRequestHeaders().getFirst("Authorization");
+            boolean authorized = "Bearer secret".equals(auth);
+            byte[] body = (authorized ? "{\"match_status\":\"Waiting\"}" : "{\"error\":\"Unauthorized\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(authorized ? 200 : 401, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.createContext("/matches/actionable", exchange -> {
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = "{\"matches\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private ConvexClient clientWithSecret(String secret) {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort();
+        return new ConvexClient(url, secret, Duration.ofSeconds(2), Duration.ofSeconds(2));
+    }
+
+    @Test
+    public void decodesSuccessfulResponse() throws Exception {
+        client = clientWithSecret("secret");
+        JSONObject match = client.get("/matches?id=abc", ConvexClient.JSON_OBJECT);
+        assertEquals("Waiting", match.getString("match_status"));
+    }
+
+    @Test
+    public void errorStatusThrowsWithBody() throws Exception {
+        client = clientWithSecret("wrong");
+        try {
+            client.get("/matches?id=abc", ConvexClient.JSON_OBJECT);
+            fail("Expected ConvexException");
+        } catch (ConvexException e) {
+            assertEquals(401, e.getStatusCode());
+            assertEquals("Unauthorized", new JSONObject(e.getBody()).getString("error"));
+        }
+    }
+
+    @Test
+    public void conditionalGetReturnsNullWhenNotModified() throws Exception {
+        client = clientWithSecret("secret");
+        ConvexClient.Tagged<JSONObject> first = client.getIfNoneMatch("/matches/actionable", null,
+                ConvexClient.JSON_OBJECT);
+        assertEquals("\"v1\"", first.getEtag());
+        assertEquals(0, first.getValue().getJSONArray("matches").length());
+
+        assertNull(client.getIfNoneMatch("/matches/actionable", first.getEtag(), ConvexClient.JSON_OBJECT));
+    }
+}
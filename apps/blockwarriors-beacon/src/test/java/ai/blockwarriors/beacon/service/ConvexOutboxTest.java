@@ -0,0 +1,99 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Tests for ConvexOutbox against the LocalConvexServer stand-in
+ */
+public class ConvexOutboxTest {
+    private LocalConvexServer server;
+    private ConvexClient client;
+    private Path dataFolder;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalConvexServer(0, "secret");
+        server.start();
+        client = new ConvexClient(server.getUrl(), "secret", Duration.ofSeconds(2), Duration.ofSeconds(2));
+        dataFolder = Files.createTempDirectory("outbox-test");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop();
+        try (Stream<Path> files = Files.walk(dataFolder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void replaysUndeliveredWritesAfterRestart() throws Exception {
+        String matchId = client.post("/matches/new",
+                new JSONObject().put("match_type", "pvp").put("mode", "practice"), ConvexClient.JSON_OBJECT)
+                .getString("match_id");
+
+        // Convex unreachable: the write stays in the log
+        ConvexClient unreachable = new ConvexClient("http://127.0.0.1:1", "secret",
+                Duration.ofMillis(200), Duration.ofMillis(200));
+        ConvexOutbox offline = new ConvexOutbox(unreachable, new CircuitBreaker(1, 60000), dataFolder);
+        offline.start();
+        offline.enqueue("/matches/update", new JSONObject().put("match_id", matchId).put("match_status", "Finished")
+                .put("winner_player_id", "winner-uuid"));
+        offline.stop(500);
+        assertEquals(1, offline.getPendingCount());
+
+        ConvexOutbox online = new ConvexOutbox(client, new CircuitBreaker(5, 1000), dataFolder);
+        online.start();
+        waitUntilDrained(online);
+        online.stop(1000);
+
+        JSONObject match = client.get("/matches?id=" + matchId, ConvexClient.JSON_OBJECT);
+        assertEquals("Finished", match.getString("match_status"));
+        assertEquals("winner-uuid", match.getString("winner_player_id"));
+
+        // Nothing is replayed a second time
+        ConvexOutbox restarted = new ConvexOutbox(client, new CircuitBreaker(5, 1000), dataFolder);
+        restarted.start();
+        assertEquals(0, restarted.getPendingCount());
+        restarted.stop(0);
+    }
+
+    @Test
+    public void rejectedWritesGoToDeadLetterFile() throws Exception {
+        ConvexOutbox outbox = new ConvexOutbox(client, new CircuitBreaker(5, 1000), dataFolder);
+        outbox.start();
+        outbox.enqueue("/matches/update", new JSONObject().put("match_id", "missing").put("match_status", "Finished"));
+        waitUntilDrained(outbox);
+        outbox.stop(0);
+
+        List<String> deadLetters = Files.readAllLines(dataFolder.resolve(ConvexOutbox.DEAD_LETTER_FILE),
+                StandardCharsets.UTF_8);
+        assertEquals(1, deadLetters.size());
+        JSONObject record = new JSONObject(deadLetters.get(0));
+        assertEquals(404, record.getInt("status"));
+        assertEquals("missing", record.getJSONObject("body").getString("match_id"));
+        assertTrue(outbox.getCircuitBreaker().allowRequest());
+    }
+
+    private static void waitUntilDrained(ConvexOutbox outbox) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (outbox.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, outbox.getPendingCount());
+    }
+}
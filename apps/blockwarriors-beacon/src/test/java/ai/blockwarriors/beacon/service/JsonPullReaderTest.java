@@ -0,0 +1,121 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Tests for JsonPullReader and the Convex response records decoded with it
+ */
+public class JsonPullReaderTest {
+    private static JsonPullReader reader(String json) {
+        return new JsonPullReader(new StringReader(json));
+    }
+
+    private static ByteArrayInputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void readsNestedValues() throws IOException {
+        JsonPullReader reader = reader(" {\"a\": [1, -2.5e1, true, null], \"b\": {\"c\": \"d\"}} ");
+        reader.beginObject();
+        assertEquals("a", reader.nextName());
+        reader.beginArray();
+        assertEquals(1, reader.nextInt());
+        assertEquals(-25.0, reader.nextDouble(), 0.0);
+        assertTrue(reader.nextBoolean());
+        reader.nextNull();
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        assertEquals("b", reader.nextName());
+        reader.beginObject();
+        assertEquals("c", reader.nextName());
+        assertEquals("d", reader.nextString());
+        reader.endObject();
+        reader.endObject();
+        assertEquals(JsonPullReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void decodesEscapes() throws IOException {
+        JsonPullReader reader = reader("[\"a\\\"b\\\\c\\n\\u00e9\\/\"]");
+        reader.beginArray();
+        assertEquals("a\"b\\c\né/", reader.nextString());
+        reader.endArray();
+    }
+
+    @Test
+    public void skipsNestedValues() throws IOException {
+        JsonPullReader reader = reader("{\"skip\": {\"x\": [1, {\"y\": []}, \"}\"]}, \"keep\": 3}");
+        reader.beginObject();
+        assertEquals("skip", reader.nextName());
+        reader.skipValue();
+        assertEquals("keep", reader.nextName());
+        assertEquals(3L, reader.nextLong());
+        reader.endObject();
+    }
+
+    @Test
+    public void skipsANameWithItsValue() throws IOException {
+        JsonPullReader reader = reader("{\"skip\": [1, {\"y\": 2}], \"scalar\": \"x\", \"keep\": 3}");
+        reader.beginObject();
+        reader.skipValue(); // "skip" and its array
+        reader.skipValue(); // "scalar" and its string
+        assertEquals("keep", reader.nextName());
+        assertEquals(3L, reader.nextLong());
+        reader.endObject();
+    }
+
+    @Test
+    public void emptyBodyIsEndOfDocument() throws IOException {
+        assertEquals(JsonPullReader.Token.END_DOCUMENT, reader("  ").peek());
+    }
+
+    @Test
+    public void rejectsMalformedJson() {
+        try {
+            JsonPullReader reader = reader("{\"a\" 1}");
+            reader.beginObject();
+            reader.nextName();
+            reader.nextInt();
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Invalid JSON at character"));
+        }
+    }
+
+    @Test
+    public void decodesMatchesSkippingUnusedFields() throws IOException {
+        List<ConvexMatch> matches = ConvexMatch.IN_MATCHES_FIELD.decode(body("{\"etag\": \"e1\", \"matches\": ["
+                + "{\"_id\": \"x\", \"match_id\": \"m1\", \"match_status\": \"Waiting\", \"match_type\": \"pvp\","
+                + " \"match_state\": {\"players\": {}}, \"blue_team_id\": \"b\", \"red_team_id\": \"r\"},"
+                + "{\"match_id\": \"m2\"}]}"));
+        assertEquals(2, matches.size());
+        assertEquals(new ConvexMatch("m1", "Waiting", "pvp", "b", "r"), matches.get(0));
+        assertEquals("", matches.get(1).status());
+    }
+
+    @Test
+    public void decodesTokensAndReadiness() throws IOException {
+        List<ConvexToken> tokens = ConvexToken.LIST.decode(body("[{\"token\": \"t1\", \"game_team_id\": \"g\","
+                + " \"is_active\": true, \"user_id\": null, \"expires_at\": 1700000000000, \"created_at\": 1}]"));
+        assertEquals(new ConvexToken("t1", "g", null, true, 1700000000000L), tokens.get(0));
+        assertFalse(tokens.get(0).isUsed());
+
+        ConvexReadiness readiness = ConvexReadiness.DECODER.decode(
+                body("{\"ready\": false, \"totalTokens\": 4, \"usedTokens\": 3, \"players\": [\"p\"]}"));
+        assertEquals(new ConvexReadiness(false, 4, 3, null), readiness);
+        assertNull(readiness.error());
+    }
+}
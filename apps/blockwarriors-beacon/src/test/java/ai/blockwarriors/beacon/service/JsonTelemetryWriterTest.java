@@ -0,0 +1,87 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.bukkit.Material;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tests for JsonTelemetryWriter (and the streamed bodies it shares with the compact codec)
+ */
+public class JsonTelemetryWriterTest {
+    private static final UUID PLAYER_ID = UUID.fromString("0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0");
+
+    private static String text(TelemetryWriter writer) {
+        return new String(writer.buffer(), 0, writer.length(), StandardCharsets.UTF_8);
+    }
+
+    private static MatchSnapshot snapshot() {
+        PlayerSnapshot player = new PlayerSnapshot(PLAYER_ID, "Steve", 15.5, 20.0, 18, 1.25, 64.0, -3.0, "arena",
+                Material.DIAMOND_SWORD, Material.AIR, Material.AIR, Material.AIR, Material.AIR, 2, 1, 0,
+                12.5, 4.0, 3, 27.25, 95L);
+        return new MatchSnapshot("match_1", 1234L, List.of(player));
+    }
+
+    @Test
+    public void writesNestedObjectsAndArrays() {
+        JsonTelemetryWriter writer = new JsonTelemetryWriter();
+        writer.reset();
+        writer.beginObject(3);
+        writer.name("a").integer(1);
+        writer.name("b").beginArray(3).bool(true).number(2.5).string("x").end();
+        writer.name("c").beginObject(1).uuid(PLAYER_ID).number(20.0).end();
+        writer.end();
+        assertEquals("{\"a\":1,\"b\":[true,2.5,\"x\"],\"c\":{\"" + PLAYER_ID + "\":20}}", text(writer));
+    }
+
+    @Test
+    public void escapesStrings() {
+        JsonTelemetryWriter writer = new JsonTelemetryWriter();
+        writer.reset();
+        writer.beginArray(1).string("a\"b\\c\né😀").end();
+        assertEquals("a\"b\\c\né😀", new JSONArray(text(writer)).getString(0));
+    }
+
+    @Test
+    public void reusesBufferAcrossBodies() {
+        JsonTelemetryWriter writer = new JsonTelemetryWriter();
+        writer.reset();
+        TelemetryCollector.writeMatchState(writer, snapshot());
+        byte[] buffer = writer.buffer();
+
+        writer.reset();
+        writer.beginObject(1).name("k").integer(7).end();
+        assertEquals("{\"k\":7}", text(writer));
+        assertEquals(buffer, writer.buffer());
+    }
+
+    @Test
+    public void streamedMatchStateMatchesJsonObject() {
+        JsonTelemetryWriter writer = new JsonTelemetryWriter();
+        writer.reset();
+        TelemetryCollector.writeMatchState(writer, snapshot());
+        JSONObject expected = TelemetryCollector.toJson(snapshot());
+        assertTrue(expected.similar(new JSONObject(text(writer))));
+    }
+
+    @Test
+    public void streamedCompactBodyMatchesEncodedJsonObject() {
+        TelemetryWriter writer = CompactTelemetryCodec.newWriter();
+        writer.reset();
+        TelemetryCollector.writeMatchState(writer, snapshot());
+        JSONObject expected = TelemetryCollector.toJson(snapshot());
+        byte[] encoded = CompactTelemetryCodec.encode(expected);
+        // Same content; only the key order differs (JSONObject doesn't keep insertion order)
+        assertEquals(encoded.length, writer.length());
+        assertArrayEquals(Arrays.copyOf(encoded, 4), Arrays.copyOf(writer.buffer(), 4));
+    }
+}
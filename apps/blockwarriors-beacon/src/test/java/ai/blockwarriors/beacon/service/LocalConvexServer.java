@@ -0,0 +1,569 @@
+package ai.blockwarriors.beacon.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * In-memory stand-in for the Convex HTTP routes the beacon uses, for the service tests.
+ * Matches are created with POST /matches/new {match_type, mode} and then flow through
+ * acknowledge -> /login -> start exactly like against Convex.
+ * GET /matches/dispatch blocks until a match changes, so push dispatch can be exercised too,
+ * and GET /matches/actionable honours If-None-Match.
+ * Nothing is persisted and telemetry is only accepted as JSON.
+ */
+public class LocalConvexServer {
+    private static final Logger LOGGER = Logger.getLogger("beacon");
+    private static final Set<String> DISPATCH_STATUSES = new HashSet<>(Arrays.asList("Queuing", "Waiting", "Playing"));
+    private static final long MAX_DISPATCH_WAIT_MS = 25000L;
+    private static final long MATCH_TTL_MS = 60 * 60 * 1000L;
+
+    private final String httpSecret;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // Guarded by this; version is bumped (and waiters notified) on every dispatch-relevant change
+    private final Map<String, JSONObject> matches = new LinkedHashMap<>(); // matchId -> match
+    private final List<JSONObject> tokens = new ArrayList<>();
+    private long version = 0;
+    private int nextId = 1;
+
+    public LocalConvexServer(int port, String httpSecret) throws IOException {
+        this.httpSecret = httpSecret;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        // Long-polls park a thread each, so handlers don't share a fixed pool
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "beacon-local-convex");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        LOGGER.info("Local Convex stand-in listening on " + getUrl());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        LOGGER.info("Local Convex stand-in stopped");
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            // Same open routes as Convex: listing matches, and creating one (user auth there, none here)
+            boolean open = ("GET".equals(method) && "/matches".equals(path))
+                    || ("POST".equals(method) && "/matches/new".equals(path));
+            if (!open && !isAuthorized(exchange)) {
+                respond(exchange, 401, new JSONObject().put("error", "Unauthorized. Invalid or missing bearer token."));
+                return;
+            }
+
+            String route = method + " " + path;
+            switch (route) {
+                case "GET /matches":
+                    getMatches(exchange, query);
+                    break;
+                case "POST /matches/new":
+                    createMatch(exchange, readBody(exchange));
+                    break;
+                case "POST /matches/acknowledge":
+                    acknowledgeMatch(exchange, readBody(exchange));
+                    break;
+                case "GET /matches/readiness":
+                    respond(exchange, 200, readiness(query.get("match_id")));
+                    break;
+                case "GET /matches/tokens":
+                    respond(exchange, 200, tokensForMatch(query.get("match_id")));
+                    break;
+                case "POST /matches/update":
+                    updateMatch(exchange, readBody(exchange));
+                    break;
+                case "POST /matches/update/batch":
+                    updateMatchStates(exchange, readBody(exchange));
+                    break;
+                case "POST /matches/samples":
+                    appendSamples(exchange, readBody(exchange));
+                    break;
+                case "GET /matches/dispatch":
+                    dispatch(exchange, query);
+                    break;
+                case "GET /matches/actionable":
+                    actionable(exchange);
+                    break;
+                case "GET /telemetry/encodings":
+                    respond(exchange, 200, new JSONObject().put("encodings", new JSONArray().put("json")));
+                    break;
+                case "POST /validateToken":
+                    validateToken(exchange, readBody(exchange));
+                    break;
+                default:
+                    respond(exchange, 404, new JSONObject().put("error", "No matching routes found"));
+            }
+        } catch (JSONException e) {
+            respond(exchange, 400, new JSONObject().put("error", "Invalid JSON in request body"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, new JSONObject().put("error", "Server stopping"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void getMatches(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String matchId = query.get("id");
+        synchronized (this) {
+            if (matchId != null && !matchId.trim().isEmpty()) {
+                JSONObject match = matches.get(matchId);
+                if (match == null) {
+                    respond(exchange, 404, new JSONObject().put("error", "Match not found"));
+                } else {
+                    respond(exchange, 200, match);
+                }
+                return;
+            }
+
+            String status = query.get("status");
+            JSONArray result = new JSONArray();
+            for (JSONObject match : matches.values()) {
+                if (status == null || status.equals(match.getString("match_status"))) {
+                    result.put(match);
+                }
+            }
+            respond(exchange, 200, result);
+        }
+    }
+
+    private synchronized void createMatch(HttpExchange exchange, JSONObject body) throws IOException {
+        String matchType = body.optString("match_type", "");
+        String mode = body.optString("mode", "");
+        if (matchType.isEmpty() || mode.isEmpty()) {
+            respond(exchange, 400, new JSONObject().put("error", "Missing required fields: match_type, mode"));
+            return;
+        }
+
+        String matchId = "local_match_" + nextId++;
+        JSONObject match = new JSONObject();
+        match.put("match_id", matchId);
+        match.put("match_type", matchType);
+        match.put("match_status", "Queuing");
+        match.put("blue_team_id", "local_team_" + nextId++);
+        match.put("red_team_id", "local_team_" + nextId++);
+        match.put("mode", mode);
+        match.put("expires_at", System.currentTimeMillis() + MATCH_TTL_MS);
+        match.put("match_state", JSONObject.NULL);
+        matches.put(matchId, match);
+        changed();
+
+        LOGGER.info("Local Convex stand-in created " + matchType + " match " + matchId);
+        respond(exchange, 200, match);
+    }
+
+    private synchronized void acknowledgeMatch(HttpExchange exchange, JSONObject body) throws IOException {
+        JSONObject match = matches.get(body.optString("match_id"));
+        if (match == null) {
+            respond(exchange, 400, new JSONObject().put("error", "Match not found"));
+            return;
+        }
+        if (!"Queuing".equals(match.getString("match_status"))) {
+            respond(exchange, 400, new JSONObject().put("error",
+                    "Match is not in Queuing status. Current status: " + match.getString("match_status")));
+            return;
+        }
+
+        // Same tokens-per-team table as Convex
+        int tokensPerTeam;
+        switch (match.getString("match_type")) {
+            case "bedwars":
+                tokensPerTeam = 4;
+                break;
+            case "ctf":
+                tokensPerTeam = 5;
+                break;
+            default:
+                tokensPerTeam = 1;
+        }
+
+        JSONArray redTokens = generateTokens(match, match.getString("red_team_id"), tokensPerTeam);
+        JSONArray blueTokens = generateTokens(match, match.getString("blue_team_id"), tokensPerTeam);
+        match.put("match_status", "Waiting");
+        changed();
+
+        respond(exchange, 200, new JSONObject()
+                .put("matchId", match.getString("match_id"))
+                .put("tokens", new JSONObject().put("redTeam", redTokens).put("blueTeam", blueTokens))
+                .put("expiresAt", match.getLong("expires_at")));
+    }
+
+    private JSONArray generateTokens(JSONObject match, String teamId, int count) {
+        JSONArray generated = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            String token = UUID.randomUUID().toString();
+            tokens.add(new JSONObject()
+                    .put("token", token)
+                    .put("match_id", match.getString("match_id"))
+                    .put("game_team_id", teamId)
+                    .put("created_at", System.currentTimeMillis())
+                    .put("expires_at", match.getLong("expires_at"))
+                    .put("is_active", true));
+            generated.put(token);
+        }
+        return generated;
+    }
+
+    private synchronized JSONObject readiness(String matchId) {
+        JSONObject match = matches.get(matchId);
+        JSONArray matchTokens = tokensForMatch(matchId);
+        if (match == null || matchTokens.length() == 0) {
+            return new JSONObject().put("ready", false).put("totalTokens", 0).put("usedTokens", 0)
+                    .put("error", match == null ? "Match not found" : "No tokens found for match");
+        }
+
+        int used = 0;
+        for (int i = 0; i < matchTokens.length(); i++) {
+            if (matchTokens.getJSONObject(i).has("user_id")) {
+                used++;
+            }
+        }
+        return new JSONObject()
+                .put("ready", used == matchTokens.length())
+                .put("totalTokens", matchTokens.length())
+                .put("usedTokens", used);
+    }
+
+    private synchronized JSONArray tokensForMatch(String matchId) {
+        JSONArray result = new JSONArray();
+        for (JSONObject token : tokens) {
+            if (token.getString("match_id").equals(matchId)) {
+                result.put(token);
+            }
+        }
+        return result;
+    }
+
+    private synchronized void updateMatch(HttpExchange exchange, JSONObject body) throws IOException {
+        JSONObject match = matches.get(body.optString("match_id"));
+        if (match == null) {
+            respond(exchange, 404, new JSONObject().put("error", "Match not found"));
+            return;
+        }
+
+        String status = body.optString("match_status", null);
+        if (status != null) {
+            String current = match.getString("match_status");
+            if ("Finished".equals(current) || "Terminated".equals(current)) {
+                respond(exchange, 400, new JSONObject().put("error",
+                        "Invalid status transition from " + current + " to " + status));
+                return;
+            }
+        }
+
+        if (body.has("match_state")) {
+            match.put("match_state", body.get("match_state"));
+        } else if (body.has("match_state_delta")) {
+            JSONObject merged = applyMatchStateDelta(match.optJSONObject("match_state"),
+                    body.getJSONObject("match_state_delta"));
+            if (merged == null) {
+                respond(exchange, 409, new JSONObject().put("error",
+                        "Keyframe required: match has no state to apply delta to"));
+                return;
+            }
+            match.put("match_state", merged);
+        }
+
+        if (body.has("winner_player_id")) {
+            match.put("winner_player_id", body.getString("winner_player_id"));
+        }
+
+        if (status != null) {
+            match.put("match_status", status);
+            if ("Finished".equals(status) || "Terminated".equals(status)) {
+                for (JSONObject token : tokens) {
+                    if (token.getString("match_id").equals(match.getString("match_id"))) {
+                        token.put("is_active", false);
+                    }
+                }
+            }
+            changed();
+        }
+
+        respond(exchange, 200, new JSONObject().put("success", true));
+    }
+
+    private synchronized void updateMatchStates(HttpExchange exchange, JSONObject body) throws IOException {
+        JSONArray updates = body.optJSONArray("updates");
+        if (updates == null) {
+            respond(exchange, 400, new JSONObject().put("error", "Missing updates array in request body"));
+            return;
+        }
+
+        JSONArray results = new JSONArray();
+        for (int i = 0; i < updates.length(); i++) {
+            JSONObject update = updates.getJSONObject(i);
+            String matchId = update.optString("match_id");
+            JSONObject result = new JSONObject().put("match_id", matchId);
+            JSONObject match = matches.get(matchId);
+
+            if (match == null) {
+                result.put("success", false).put("error", "Match not found");
+            } else if (update.has("match_state")) {
+                match.put("match_state", update.get("match_state"));
+                result.put("success", true);
+            } else {
+                JSONObject merged = applyMatchStateDelta(match.optJSONObject("match_state"),
+                        update.optJSONObject("match_state_delta"));
+                if (merged == null) {
+                    result.put("success", false).put("error", "Keyframe required");
+                } else {
+                    match.put("match_state", merged);
+                    result.put("success", true);
+                }
+            }
+            results.put(result);
+        }
+        respond(exchange, 200, new JSONObject().put("results", results));
+    }
+
+    /**
+     * Merge a telemetry delta into a stored match_state (same rules as applyMatchStateDelta in matches.ts)
+     */
+    static JSONObject applyMatchStateDelta(JSONObject current, JSONObject delta) {
+        if (current == null || current.optJSONArray("players") == null) {
+            return null;
+        }
+        if (delta == null) {
+            return current;
+        }
+
+        JSONObject merged = new JSONObject(current.toMap());
+        JSONArray removedPlayers = delta.optJSONArray("removedPlayers");
+        Set<Object> removed = new HashSet<>(removedPlayers != null ? removedPlayers.toList() : Collections.emptyList());
+
+        Map<String, JSONObject> players = new LinkedHashMap<>();
+        JSONArray currentPlayers = merged.getJSONArray("players");
+        for (int i = 0; i < currentPlayers.length(); i++) {
+            JSONObject player = currentPlayers.getJSONObject(i);
+            if (!removed.contains(player.optString("playerId"))) {
+                players.put(player.optString("playerId"), player);
+            }
+        }
+
+        JSONObject changedPlayers = delta.optJSONObject("players");
+        if (changedPlayers != null) {
+            for (String playerId : changedPlayers.keySet()) {
+                JSONObject player = players.computeIfAbsent(playerId, id -> new JSONObject().put("playerId", id));
+                JSONObject changes = changedPlayers.getJSONObject(playerId);
+                for (String key : changes.keySet()) {
+                    Object value = changes.get(key);
+                    JSONObject existing = player.optJSONObject(key);
+                    if (existing != null && value instanceof JSONObject) {
+                        for (String nestedKey : ((JSONObject) value).keySet()) {
+                            existing.put(nestedKey, ((JSONObject) value).get(nestedKey));
+                        }
+                    } else {
+                        player.put(key, value);
+                    }
+                }
+            }
+        }
+
+        for (String key : delta.keySet()) {
+            if (!"players".equals(key) && !"removedPlayers".equals(key) && !"delta".equals(key)) {
+                merged.put(key, delta.get(key));
+            }
+        }
+        merged.put("players", new JSONArray(players.values()));
+        return merged;
+    }
+
+    /**
+     * Sample chunks are checked and counted like Convex does, but not kept
+     */
+    private synchronized void appendSamples(HttpExchange exchange, JSONObject body) throws IOException {
+        JSONArray chunks = body.optJSONArray("chunks");
+        if (chunks == null || !body.has("sample_interval_ticks")) {
+            respond(exchange, 400, new JSONObject().put("error",
+                    "Missing sample_interval_ticks or chunks array in request body"));
+            return;
+        }
+
+        int stored = 0;
+        JSONArray rejected = new JSONArray();
+        for (int i = 0; i < chunks.length(); i++) {
+            String matchId = chunks.getJSONObject(i).optString("match_id");
+            if (matches.containsKey(matchId)) {
+                stored++;
+            } else {
+                rejected.put(new JSONObject().put("match_id", matchId).put("error", "Match not found"));
+            }
+        }
+        respond(exchange, 200, new JSONObject().put("stored", stored).put("rejected", rejected));
+    }
+
+    /**
+     * Long-poll: answer as soon as the dispatch version differs from the cursor, or 204 on timeout
+     */
+    private void dispatch(HttpExchange exchange, Map<String, String> query) throws IOException, InterruptedException {
+        long waitMs = MAX_DISPATCH_WAIT_MS;
+        try {
+            waitMs = Math.min(Math.max(Long.parseLong(query.getOrDefault("timeout_ms", "")), 0L), MAX_DISPATCH_WAIT_MS);
+        } catch (NumberFormatException ignored) {
+            // Use the maximum wait
+        }
+        String cursor = query.get("cursor");
+        long deadline = System.currentTimeMillis() + waitMs;
+
+        JSONObject state;
+        synchronized (this) {
+            while (String.valueOf(version).equals(cursor)) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    exchange.sendResponseHeaders(204, -1);
+                    return;
+                }
+                wait(remaining);
+            }
+
+            state = dispatchState();
+        }
+        respond(exchange, 200, state);
+    }
+
+    /**
+     * Combined poll: every dispatchable match, or 304 if the If-None-Match version is current
+     */
+    private synchronized void actionable(HttpExchange exchange) throws IOException {
+        String etag = "\"" + version + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        respond(exchange, 200, dispatchState());
+    }
+
+    /**
+     * Queuing/Waiting/Playing matches (without match_state) and the current version as cursor (caller holds the lock)
+     */
+    private JSONObject dispatchState() {
+        JSONArray dispatchable = new JSONArray();
+        for (JSONObject match : matches.values()) {
+            if (DISPATCH_STATUSES.contains(match.getString("match_status"))) {
+                JSONObject copy = new JSONObject(match.toMap());
+                copy.remove("match_state");
+                dispatchable.put(copy);
+            }
+        }
+        return new JSONObject().put("cursor", String.valueOf(version)).put("matches", dispatchable);
+    }
+
+    private synchronized void validateToken(HttpExchange exchange, JSONObject body) throws IOException {
+        String tokenValue = body.optString("token", "");
+        String playerId = body.optString("playerId", "");
+        if (tokenValue.isEmpty() || playerId.isEmpty()) {
+            respond(exchange, 400, new JSONObject().put("error", "Missing required fields: token, playerId"));
+            return;
+        }
+
+        JSONObject token = null;
+        for (JSONObject candidate : tokens) {
+            if (candidate.getString("token").equals(tokenValue)) {
+                token = candidate;
+                break;
+            }
+        }
+
+        String error = null;
+        if (token == null) {
+            error = "Token not found";
+        } else if (!token.getBoolean("is_active")) {
+            error = "Token is not active";
+        } else if (token.getLong("expires_at") < System.currentTimeMillis()) {
+            error = "Token has expired";
+        } else if (token.has("user_id")) {
+            error = "Token has already been used";
+        }
+        if (error != null) {
+            respond(exchange, 200, new JSONObject().put("status", "bad").put("error", error));
+            return;
+        }
+
+        token.put("user_id", playerId);
+        if (body.has("ign")) {
+            token.put("ign", body.getString("ign"));
+        }
+        changed();
+
+        respond(exchange, 200, new JSONObject()
+                .put("status", "ok")
+                .put("matchId", token.getString("match_id"))
+                .put("gameTeamId", token.getString("game_team_id")));
+    }
+
+    /**
+     * Record a dispatch-relevant change and wake up waiting long-polls (caller holds the lock)
+     */
+    private void changed() {
+        version++;
+        notifyAll();
+    }
+
+    private boolean isAuthorized(HttpExchange exchange) {
+        if (httpSecret == null || httpSecret.isEmpty()) {
+            return true;
+        }
+        return ("Bearer " + httpSecret).equals(exchange.getRequestHeaders().getFirst("Authorization"));
+    }
+
+    private static JSONObject readBody(HttpExchange exchange) throws IOException {
+        byte[] bytes = exchange.getRequestBody().readAllBytes();
+        return new JSONObject(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
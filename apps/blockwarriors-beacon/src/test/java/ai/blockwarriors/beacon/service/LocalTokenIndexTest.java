@@ -0,0 +1,69 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tests for LocalTokenIndex
+ */
+public class LocalTokenIndexTest {
+    private final LocalTokenIndex index = new LocalTokenIndex();
+    private final UUID steve = UUID.randomUUID();
+    private final UUID alex = UUID.randomUUID();
+
+    private static JSONObject acknowledgement(long expiresAt, String... redTokens) {
+        return new JSONObject()
+                .put("tokens", new JSONObject().put("redTeam", new JSONArray(redTokens)).put("blueTeam", new JSONArray()))
+                .put("expiresAt", expiresAt);
+    }
+
+    @Test
+    public void tokenCanOnlyBeClaimedByOnePlayer() {
+        index.indexAcknowledged("m1", acknowledgement(Long.MAX_VALUE, "t1"));
+        assertEquals("m1", index.claim("t1", steve));
+        assertEquals("m1", index.claim("t1", steve));
+        assertNull(index.claim("t1", alex));
+
+        index.release("t1", steve);
+        assertEquals("m1", index.claim("t1", alex));
+    }
+
+    @Test
+    public void unknownOrExpiredTokensAreNotClaimed() {
+        index.indexAcknowledged("m1", acknowledgement(System.currentTimeMillis() - 1, "t1"));
+        assertNull(index.claim("t1", steve));
+        assertNull(index.claim("t2", steve));
+    }
+
+    @Test
+    public void skipsUsedAndInactiveTokens() {
+        List<ConvexToken> tokens = List.of(
+                new ConvexToken("free", "team", null, true, Long.MAX_VALUE),
+                new ConvexToken("used", "team", "p", true, Long.MAX_VALUE),
+                new ConvexToken("inactive", "team", null, false, Long.MAX_VALUE));
+        index.indexTokens("m1", tokens);
+        assertTrue(index.isIndexed("m1"));
+        assertEquals(1, index.size());
+        assertEquals("m1", index.claim("free", steve));
+    }
+
+    @Test
+    public void retainDropsMatchesNoLongerWaiting() {
+        index.indexAcknowledged("m1", acknowledgement(Long.MAX_VALUE, "t1"));
+        index.indexAcknowledged("m2", acknowledgement(Long.MAX_VALUE, "t2"));
+        index.retainMatches(Collections.singleton("m2"));
+        assertFalse(index.isIndexed("m1"));
+        assertNull(index.claim("t1", steve));
+        assertEquals("m2", index.claim("t2", steve));
+    }
+}
@@ -0,0 +1,84 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for MatchDispatchListener against the LocalConvexServer stand-in
+ */
+public class MatchDispatchListenerTest {
+    private LocalConvexServer server;
+    private ConvexClient client;
+    private MatchDispatchListener listener;
+    private final BlockingQueue<List<ConvexMatch>> updates = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalConvexServer(0, "secret");
+        server.start();
+        client = new ConvexClient(server.getUrl(), "secret", Duration.ofSeconds(2), Duration.ofSeconds(2));
+        listener = new MatchDispatchListener(client, 5000, updates::add, () -> { });
+        listener.start();
+    }
+
+    @After
+    public void tearDown() {
+        listener.stop();
+        server.stop();
+    }
+
+    @Test
+    public void pushesMatchChangesWithoutPolling() throws Exception {
+        List<ConvexMatch> initial = updates.poll(2, TimeUnit.SECONDS);
+        assertNotNull(initial);
+        assertTrue(initial.isEmpty());
+
+        JSONObject created = client.post("/matches/new",
+                new JSONObject().put("match_type", "pvp").put("mode", "practice"), ConvexClient.JSON_OBJECT);
+        List<ConvexMatch> queued = updates.poll(2, TimeUnit.SECONDS);
+        assertNotNull(queued);
+        assertEquals(1, queued.size());
+        assertEquals("Queuing", queued.get(0).status());
+
+        client.post("/matches/acknowledge", new JSONObject().put("match_id", created.getString("match_id")),
+                ConvexClient.JSON_OBJECT);
+        List<ConvexMatch> waiting = updates.poll(2, TimeUnit.SECONDS);
+        assertNotNull(waiting);
+        assertEquals("Waiting", waiting.get(0).status());
+    }
+
+    @Test
+    public void unchangedStateTimesOutWithoutUpdate() throws Exception {
+        assertNotNull(updates.poll(2, TimeUnit.SECONDS));
+        listener.stop();
+        listener = new MatchDispatchListener(client, 200, updates::add, () -> { });
+        listener.start();
+        // First request always answers with the current state, then nothing changes
+        assertNotNull(updates.poll(2, TimeUnit.SECONDS));
+        assertNull(updates.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void reportsMissingDispatchRoute() throws Exception {
+        listener.stop();
+        BlockingQueue<Boolean> unavailable = new LinkedBlockingQueue<>();
+        ConvexClient wrongSite = new ConvexClient(server.getUrl() + "/missing", "secret",
+                Duration.ofSeconds(2), Duration.ofSeconds(2));
+        listener = new MatchDispatchListener(wrongSite, 200, updates::add, () -> unavailable.add(true));
+        listener.start();
+        assertNotNull(unavailable.poll(2, TimeUnit.SECONDS));
+    }
+}
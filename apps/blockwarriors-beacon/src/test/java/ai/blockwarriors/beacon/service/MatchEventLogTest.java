@@ -0,0 +1,127 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.bukkit.Material;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tests for MatchEventLog
+ */
+public class MatchEventLogTest {
+    private static final UUID STEVE = UUID.fromString("0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0");
+    private static final UUID ALEX = UUID.fromString("1f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0");
+
+    private static void hit(MatchEventLog log, double damage) {
+        log.append(MatchEventLog.Type.HIT, STEVE, ALEX, damage, Material.DIAMOND_SWORD, "ENTITY_ATTACK", 1.0, 64.0, 2.0);
+    }
+
+    @Test
+    public void sequenceNumbersIncrease() {
+        MatchEventLog log = new MatchEventLog("m1", 100);
+        assertEquals(1L, log.append(MatchEventLog.Type.CONSUME, STEVE, null, 0.0, Material.AIR, null, 0, 0, 0));
+        assertEquals(2L, log.append(MatchEventLog.Type.BLOCK_PLACE, STEVE, null, 0.0, Material.STONE, null, 1, 2, 3));
+        assertEquals(2L, log.getLastSeq());
+    }
+
+    @Test
+    public void acknowledgedEventsAreNotSentAgain() {
+        MatchEventLog log = new MatchEventLog("m1", 100);
+        for (int i = 0; i < 5; i++) {
+            hit(log, i);
+        }
+
+        assertTrue(log.prepareSend(3));
+        JSONObject first = log.toJson();
+        assertEquals(1L, first.getLong("first_seq"));
+        assertEquals(3, first.getJSONArray("type").length());
+
+        // Not acknowledged: the same run goes out again, plus anything new up to the limit
+        assertTrue(log.prepareSend(10));
+        assertEquals(1L, log.toJson().getLong("first_seq"));
+        log.acknowledgeSent();
+        assertFalse(log.hasPending());
+
+        hit(log, 7.0);
+        assertTrue(log.prepareSend(10));
+        JSONObject next = log.toJson();
+        assertEquals(6L, next.getLong("first_seq"));
+        assertEquals(7.0, next.getJSONArray("amount").getDouble(0), 0.0);
+    }
+
+    @Test
+    public void eventsAppendedWhileSendingStayPending() {
+        MatchEventLog log = new MatchEventLog("m1", 100);
+        hit(log, 1.0);
+        hit(log, 2.0);
+        assertTrue(log.prepareSend(10));
+        hit(log, 3.0);
+        log.acknowledgeSent();
+
+        assertTrue(log.prepareSend(10));
+        JSONObject pending = log.toJson();
+        assertEquals(3L, pending.getLong("first_seq"));
+        assertEquals(1, pending.getJSONArray("type").length());
+    }
+
+    @Test
+    public void fullLogDropsOldestEvents() {
+        MatchEventLog log = new MatchEventLog("m1", 16);
+        for (int i = 0; i < 17; i++) {
+            hit(log, i);
+        }
+        assertEquals(2L, log.takeDropped());
+        assertEquals(17L, log.getLastSeq());
+        assertTrue(log.prepareSend(100));
+        assertEquals(3L, log.toJson().getLong("first_seq"));
+    }
+
+    @Test
+    public void writesColumnsWithEmptyStringsForMissingFields() {
+        MatchEventLog log = new MatchEventLog("m1", 100);
+        hit(log, 4.5);
+        log.append(MatchEventLog.Type.DAMAGE, ALEX, null, 2.0, null, "FALL", 0, 60, 0);
+        assertTrue(log.prepareSend(10));
+        JSONObject events = log.toJson();
+
+        assertEquals("hit", events.getJSONArray("type").getString(0));
+        assertEquals("damage", events.getJSONArray("type").getString(1));
+        assertEquals(ALEX.toString(), events.getJSONArray("target").getString(0));
+        assertEquals("", events.getJSONArray("target").getString(1));
+        assertEquals("Diamond Sword", events.getJSONArray("item").getString(0));
+        assertEquals("", events.getJSONArray("item").getString(1));
+        assertEquals("FALL", events.getJSONArray("detail").getString(1));
+        assertEquals(64.0, events.getJSONArray("y").getDouble(0), 0.0);
+    }
+
+    @Test
+    public void eventsRideAlongWithAnUnchangedState() {
+        PlayerSnapshot player = new PlayerSnapshot(STEVE, "Steve", 20.0, 20.0, 20, 0.0, 64.0, 0.0, "arena",
+                Material.AIR, Material.AIR, Material.AIR, Material.AIR, Material.AIR, 0, 0, 0,
+                0.0, 0.0, 0, 0.0, 0L);
+        MatchSnapshot snapshot = new MatchSnapshot("m1", 1L, List.of(player));
+        TelemetryDeltaEncoder encoder = new TelemetryDeltaEncoder(30);
+        encoder.encode(snapshot);
+
+        MatchEventLog log = new MatchEventLog("m1", 100);
+        hit(log, 3.0);
+        TelemetryDeltaEncoder.Update update = encoder.encode(snapshot, log.hasPending());
+        assertNotNull(update);
+        assertTrue(log.prepareSend(10));
+
+        JsonTelemetryWriter writer = new JsonTelemetryWriter();
+        writer.reset();
+        MatchTelemetryService.writeUpdate(writer, update, log);
+        JSONObject body = new JSONObject(new String(writer.buffer(), 0, writer.length(), StandardCharsets.UTF_8));
+        assertTrue(body.getJSONObject("match_state_delta").getJSONObject("players").isEmpty());
+        assertEquals(1L, body.getJSONObject("events").getLong("first_seq"));
+    }
+}
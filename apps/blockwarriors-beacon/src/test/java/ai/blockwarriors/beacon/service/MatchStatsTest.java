@@ -0,0 +1,86 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+/**
+ * Tests for MatchStats
+ */
+public class MatchStatsTest {
+    private static final UUID STEVE = UUID.fromString("0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0");
+    private static final UUID ALEX = UUID.fromString("1f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0");
+    private static final UUID OUTSIDER = UUID.fromString("2f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0");
+
+    private static MatchStats newStats() {
+        MatchStats stats = new MatchStats();
+        stats.addPlayer(STEVE, 1000L);
+        stats.addPlayer(ALEX, 1000L);
+        return stats;
+    }
+
+    @Test
+    public void hitsCountForBothSides() {
+        MatchStats stats = newStats();
+        stats.recordHit(STEVE, ALEX, 4.5);
+        stats.recordHit(STEVE, ALEX, 3.0);
+        stats.recordDamage(ALEX, 2.0);
+
+        int steve = stats.slot(STEVE);
+        int alex = stats.slot(ALEX);
+        assertEquals(2, stats.getHitsLanded(steve));
+        assertEquals(7.5, stats.getDamageDealt(steve), 0.0);
+        assertEquals(0.0, stats.getDamageTaken(steve), 0.0);
+        assertEquals(9.5, stats.getDamageTaken(alex), 0.0);
+        assertEquals(0, stats.getHitsLanded(alex));
+    }
+
+    @Test
+    public void playersOutsideTheMatchAreNotCounted() {
+        MatchStats stats = newStats();
+        stats.recordHit(OUTSIDER, ALEX, 5.0);
+        stats.recordDeath(ALEX, OUTSIDER, 2000L);
+
+        assertEquals(-1, stats.slot(OUTSIDER));
+        assertEquals(5.0, stats.getDamageTaken(stats.slot(ALEX)), 0.0);
+        assertEquals(1, stats.getDeaths(stats.slot(ALEX)));
+        assertEquals(0, stats.getKills(stats.slot(STEVE)));
+    }
+
+    @Test
+    public void deathStopsTheAliveClockUntilRespawn() {
+        MatchStats stats = newStats();
+        stats.recordDeath(ALEX, STEVE, 4000L);
+        int alex = stats.slot(ALEX);
+        assertEquals(1, stats.getKills(stats.slot(STEVE)));
+        assertEquals(3000L, stats.getTimeAliveMillis(alex, 10000L));
+        assertEquals(9000L, stats.getTimeAliveMillis(stats.slot(STEVE), 10000L));
+
+        stats.recordRespawn(ALEX, 6000L);
+        assertEquals(7000L, stats.getTimeAliveMillis(alex, 10000L));
+    }
+
+    @Test
+    public void suicideIsNotAKill() {
+        MatchStats stats = newStats();
+        stats.recordDeath(STEVE, STEVE, 2000L);
+        assertEquals(0, stats.getKills(stats.slot(STEVE)));
+        assertEquals(1, stats.getDeaths(stats.slot(STEVE)));
+    }
+
+    @Test
+    public void growsBeyondTheInitialCapacity() {
+        MatchStats stats = newStats();
+        UUID third = UUID.randomUUID();
+        stats.addPlayer(third, 1000L);
+        stats.addPlayer(STEVE, 5000L); // Already counted: unchanged
+        stats.recordDistance(third, 12.5);
+        stats.recordDistance(third, 0.5);
+
+        assertEquals(2, stats.slot(third));
+        assertEquals(13.0, stats.getDistanceTravelled(2), 0.0);
+        assertEquals(1000L, stats.getTimeAliveMillis(stats.slot(STEVE), 2000L));
+    }
+}
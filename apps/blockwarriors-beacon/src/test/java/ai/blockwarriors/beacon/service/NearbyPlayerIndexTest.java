@@ -0,0 +1,82 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for NearbyPlayerIndex
+ */
+public class NearbyPlayerIndexTest {
+    private final AtomicLong ticks = new AtomicLong(0);
+    private final NearbyPlayerIndex index = new NearbyPlayerIndex(20.0, ticks::get);
+
+    @Test
+    public void countsPlayersWithinRadiusAcrossCells() {
+        UUID self = UUID.randomUUID();
+        index.add("arena", 0, 64, 0, self);
+        index.add("arena", 19, 64, 0, UUID.randomUUID()); // Same cell
+        index.add("arena", -5, 64, -5, UUID.randomUUID()); // Neighbouring cell
+        index.add("arena", 20, 64, 0.5, UUID.randomUUID()); // Just outside the radius
+        index.add("arena", 0, 85, 0, UUID.randomUUID()); // Too high
+        index.add("lobby", 1, 64, 1, UUID.randomUUID()); // Other world
+
+        assertEquals(2, index.countNearby("arena", 0, 64, 0, self, 20.0));
+        assertEquals(0, index.countNearby("void", 0, 64, 0, self, 20.0));
+    }
+
+    @Test
+    public void radiusIsInclusive() {
+        UUID self = UUID.randomUUID();
+        index.add("arena", 100, 64, 100, self);
+        index.add("arena", 100, 64, 120, UUID.randomUUID());
+        assertEquals(1, index.countNearby("arena", 100, 64, 100, self, 20.0));
+    }
+
+    @Test
+    public void clearReusesCells() {
+        UUID self = UUID.randomUUID();
+        for (int i = 0; i < 10; i++) {
+            index.add("arena", i, 64, 0, UUID.randomUUID());
+        }
+        assertEquals(10, index.countNearby("arena", 0, 64, 0, self, 20.0));
+
+        index.clear();
+        index.add("arena", 1, 64, 0, UUID.randomUUID());
+        assertEquals(1, index.countNearby("arena", 0, 64, 0, self, 20.0));
+    }
+
+    @Test
+    public void dropsCellsAndWorldsLeftEmpty() {
+        index.refresh(Collections.emptyList());
+        index.add("arena", 1, 64, 0, UUID.randomUUID());
+        index.add("arena", 100, 64, 0, UUID.randomUUID());
+        index.add("lobby", 1, 64, 0, UUID.randomUUID());
+        assertEquals(3, index.getCellCount());
+
+        ticks.incrementAndGet();
+        index.refresh(Collections.emptyList());
+        assertEquals(0, index.getCellCount());
+        assertEquals(0, index.countNearby("arena", 0, 64, 0, UUID.randomUUID(), 20.0));
+    }
+
+    @Test
+    public void rebuildsAtMostOncePerTick() {
+        UUID self = UUID.randomUUID();
+        index.refresh(Collections.emptyList());
+        index.add("arena", 1, 64, 0, UUID.randomUUID());
+
+        // Same tick: the index is kept as is
+        index.refresh(Collections.emptyList());
+        assertEquals(1, index.countNearby("arena", 0, 64, 0, self, 20.0));
+
+        // Next tick, however soon after (catch-up ticks): rebuilt from the (empty) player list
+        ticks.incrementAndGet();
+        index.refresh(Collections.emptyList());
+        assertEquals(0, index.countNearby("arena", 0, 64, 0, self, 20.0));
+    }
+}
@@ -0,0 +1,120 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.bukkit.Material;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Tests for PlayerSampleBuffer and SampleChunk
+ */
+public class PlayerSampleBufferTest {
+    private static final UUID PLAYER_ID = UUID.fromString("0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0");
+
+    private static void record(PlayerSampleBuffer buffer, long fromTick, long toTick) {
+        for (long tick = fromTick; tick <= toTick; tick++) {
+            buffer.record(tick, tick, 64.0, -tick, 20.0f - tick % 20, Material.DIAMOND_SWORD);
+        }
+    }
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(8, new PlayerSampleBuffer("m1", PLAYER_ID, 5).capacity());
+        assertEquals(8, new PlayerSampleBuffer("m1", PLAYER_ID, 8).capacity());
+    }
+
+    @Test
+    public void readsUnsentSamplesUntilMarkedSent() {
+        PlayerSampleBuffer buffer = new PlayerSampleBuffer("m1", PLAYER_ID, 16);
+        SampleChunk chunk = new SampleChunk(16);
+        record(buffer, 1, 5);
+
+        buffer.read(chunk, 1);
+        assertEquals(5, chunk.size());
+        assertEquals(1L, chunk.tickAt(0));
+        assertEquals(5.0, chunk.xAt(4), 0.0);
+
+        // Not delivered yet: the same samples are read again
+        buffer.read(chunk, 1);
+        assertEquals(5, chunk.size());
+
+        chunk.markSent();
+        assertFalse(buffer.hasUnsent());
+        record(buffer, 6, 7);
+        buffer.read(chunk, 1);
+        assertEquals(2, chunk.size());
+        assertEquals(6L, chunk.tickAt(0));
+    }
+
+    @Test
+    public void overwrittenSamplesAreCountedAsLost() {
+        PlayerSampleBuffer buffer = new PlayerSampleBuffer("m1", PLAYER_ID, 8);
+        SampleChunk chunk = new SampleChunk(16);
+        record(buffer, 1, 20);
+
+        // The oldest slot is left alone, the writer may be overwriting it
+        buffer.read(chunk, 1);
+        assertEquals(7, chunk.size());
+        assertEquals(14L, chunk.tickAt(0));
+        assertEquals(13L, buffer.takeLost());
+        assertEquals(0L, buffer.takeLost());
+    }
+
+    @Test
+    public void fullChunkLeavesTheRestForTheNextRead() {
+        PlayerSampleBuffer buffer = new PlayerSampleBuffer("m1", PLAYER_ID, 16);
+        SampleChunk chunk = new SampleChunk(4);
+        record(buffer, 1, 10);
+
+        buffer.read(chunk, 1);
+        assertEquals(4, chunk.size());
+        chunk.markSent();
+        assertTrue(buffer.hasUnsent());
+        buffer.read(chunk, 1);
+        assertEquals(5L, chunk.tickAt(0));
+    }
+
+    @Test
+    public void downsamplingKeepsTicksOnTheStride() {
+        PlayerSampleBuffer buffer = new PlayerSampleBuffer("m1", PLAYER_ID, 32);
+        SampleChunk chunk = new SampleChunk(32);
+        record(buffer, 1, 25);
+
+        buffer.read(chunk, 10);
+        assertEquals(2, chunk.size());
+        assertEquals(10L, chunk.tickAt(0));
+        assertEquals(20L, chunk.tickAt(1));
+
+        // Skipped samples are consumed along with the chunk
+        chunk.markSent();
+        assertFalse(buffer.hasUnsent());
+    }
+
+    @Test
+    public void writesParallelColumns() {
+        PlayerSampleBuffer buffer = new PlayerSampleBuffer("m1", PLAYER_ID, 16);
+        SampleChunk chunk = new SampleChunk(16);
+        record(buffer, 1, 3);
+        buffer.read(chunk, 1);
+
+        JsonTelemetryWriter writer = new JsonTelemetryWriter();
+        writer.reset();
+        MatchTelemetryService.writeSamples(writer, 3L, 1L, new SampleChunk[] { chunk }, 1);
+        JSONObject body = new JSONObject(new String(writer.buffer(), 0, writer.length(), StandardCharsets.UTF_8));
+
+        assertEquals(3L, body.getLong("server_tick"));
+        JSONObject written = body.getJSONArray("chunks").getJSONObject(0);
+        assertEquals("m1", written.getString("match_id"));
+        assertEquals(PLAYER_ID.toString(), written.getString("player_id"));
+        assertEquals(new JSONArray("[1,2,3]").toString(), written.getJSONArray("ticks").toString());
+        assertEquals(new JSONArray("[-1,-2,-3]").toString(), written.getJSONArray("z").toString());
+        assertEquals("Diamond Sword", written.getJSONArray("held_item").getString(2));
+    }
+}
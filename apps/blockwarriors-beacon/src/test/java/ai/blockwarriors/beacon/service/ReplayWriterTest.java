@@ -0,0 +1,133 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.bukkit.Material;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tests for ReplayWriter and ReplayReader
+ */
+public class ReplayWriterTest {
+    private static final UUID STEVE = UUID.fromString("0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0");
+    private static final UUID ALEX = UUID.fromString("1f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path dataFile;
+    private Path indexFile;
+
+    private ReplayWriter newWriter() throws IOException {
+        dataFile = folder.getRoot().toPath().resolve("m1.bwr");
+        indexFile = folder.getRoot().toPath().resolve("m1.bwi");
+        return new ReplayWriter(dataFile, indexFile, "m1", 1234L, List.of(STEVE, ALEX), List.of("Steve", "Alex"));
+    }
+
+    /**
+     * One segment of states for both players at every tick from firstTick to lastTick
+     */
+    private static void writeSegment(ReplayWriter writer, int firstTick, int lastTick) throws IOException {
+        ByteBuffer staging = ByteBuffer.allocate((lastTick - firstTick + 1) * 2 * ReplayWriter.STATE_BYTES);
+        for (int tick = firstTick; tick <= lastTick; tick++) {
+            ReplayWriter.putState(staging, tick, 0, tick, 64.0, 0.0, 90.0f, 20.0f, Material.DIAMOND_SWORD);
+            ReplayWriter.putState(staging, tick, 1, -tick, 64.0, 0.0, -90.0f, 20.0f - tick % 20, Material.BOW);
+        }
+        writer.writeSegment(staging.array(), staging.position(), firstTick, lastTick);
+    }
+
+    @Test
+    public void readsBackHeaderAndRecords() throws IOException {
+        try (ReplayWriter writer = newWriter()) {
+            writeSegment(writer, 0, 99);
+            ByteBuffer staging = ByteBuffer.allocate(ReplayWriter.EVENT_BYTES);
+            ReplayWriter.putEvent(staging, 50, MatchEventLog.Type.HIT, 0, 1, 4.5, Material.DIAMOND_SWORD, 1.0, 64.0,
+                    2.0);
+            writer.writeSegment(staging.array(), staging.position(), 50, 50);
+        }
+
+        ReplayReader reader = ReplayReader.open(dataFile, indexFile);
+        assertEquals("m1", reader.getMatchId());
+        assertEquals(1234L, reader.getStartMillis());
+        assertEquals("Alex", reader.getPlayers().get(1).name());
+        assertEquals(STEVE, reader.getPlayers().get(0).id());
+        assertEquals(2, reader.getSegmentCount());
+
+        ReplayReader.Timeline timeline = reader.read(0);
+        assertEquals(200, timeline.states().size());
+        ReplayReader.State state = timeline.states().get(3);
+        assertEquals(1, state.tick());
+        assertEquals(1, state.player());
+        assertEquals(-1.0f, state.x(), 0.0f);
+        assertEquals(19.0f, state.health(), 0.0f);
+        assertEquals(Material.BOW, state.item());
+
+        ReplayReader.Event event = timeline.events().get(0);
+        assertEquals(MatchEventLog.Type.HIT, event.type());
+        assertEquals(1, event.target());
+        assertEquals(4.5f, event.amount(), 0.0f);
+    }
+
+    @Test
+    public void seeksToTheSegmentOfTheStartTick() throws IOException {
+        try (ReplayWriter writer = newWriter()) {
+            writeSegment(writer, 0, 99);
+            writeSegment(writer, 100, 199);
+            writeSegment(writer, 200, 299);
+        }
+
+        ReplayReader reader = ReplayReader.open(dataFile, indexFile);
+        assertEquals(299L, reader.getLastTick());
+        ReplayReader.Timeline timeline = reader.read(150);
+        assertEquals(300, timeline.states().size());
+        assertEquals(150, timeline.states().get(0).tick());
+        assertTrue(reader.read(300).states().isEmpty());
+    }
+
+    @Test
+    public void unfinishedSegmentIsIgnored() throws IOException {
+        try (ReplayWriter writer = newWriter()) {
+            writeSegment(writer, 0, 99);
+            writeSegment(writer, 100, 199);
+        }
+
+        // Simulate a crash during the second segment: the header still points at the end of the first one
+        ReplayReader complete = ReplayReader.open(dataFile, indexFile);
+        ByteBuffer entry = ByteBuffer.wrap(Files.readAllBytes(indexFile), ReplayWriter.INDEX_ENTRY_BYTES,
+                ReplayWriter.INDEX_ENTRY_BYTES);
+        entry.getLong();
+        entry.getLong();
+        long secondOffset = entry.getLong();
+        try (RandomAccessFile file = new RandomAccessFile(dataFile.toFile(), "rw")) {
+            file.seek(ReplayWriter.DATA_END_OFFSET);
+            file.writeLong(secondOffset);
+        }
+
+        ReplayReader truncated = ReplayReader.open(dataFile, indexFile);
+        assertEquals(2, complete.getSegmentCount());
+        assertEquals(1, truncated.getSegmentCount());
+        assertEquals(200, truncated.read(0).states().size());
+    }
+
+    @Test
+    public void missingItemReadsAsNull() throws IOException {
+        try (ReplayWriter writer = newWriter()) {
+            ByteBuffer staging = ByteBuffer.allocate(ReplayWriter.STATE_BYTES);
+            ReplayWriter.putState(staging, 0, 0, 0.0, 0.0, 0.0, 0.0f, 20.0f, null);
+            writer.writeSegment(staging.array(), staging.position(), 0, 0);
+        }
+        assertNull(ReplayReader.open(dataFile, indexFile).read(0).states().get(0).item());
+    }
+}
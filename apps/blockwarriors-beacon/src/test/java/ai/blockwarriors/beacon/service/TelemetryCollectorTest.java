@@ -0,0 +1,50 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+
+import org.bukkit.Material;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tests for TelemetryCollector
+ */
+public class TelemetryCollectorTest {
+    private static final UUID PLAYER_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    @Test
+    public void buildsMatchStateFromSnapshot() {
+        PlayerSnapshot player = new PlayerSnapshot(PLAYER_ID, "Steve", 15.5, 20.0, 18, 1.5, 64.0, -3.25, "arena",
+                Material.DIAMOND_SWORD, Material.IRON_HELMET, Material.AIR, Material.AIR, Material.AIR, 2, 1, 3,
+                12.5, 4.0, 3, 27.25, 95L);
+        JSONObject state = TelemetryCollector.toJson(new MatchSnapshot("match_1", 1234L, List.of(player)));
+
+        assertEquals(1234L, state.getLong("timestamp"));
+        assertEquals("match_1", state.getString("matchId"));
+        JSONObject json = state.getJSONArray("players").getJSONObject(0);
+        assertEquals(PLAYER_ID.toString(), json.getString("playerId"));
+        assertEquals("Steve", json.getString("ign"));
+        assertEquals(15.5, json.getDouble("health"), 0.0);
+        assertEquals(18, json.getInt("foodLevel"));
+        assertEquals(-3.25, json.getJSONObject("position").getDouble("z"), 0.0);
+        assertEquals("arena", json.getJSONObject("position").getString("world"));
+        assertEquals("Diamond Sword", json.getJSONObject("equipment").getString("mainHand"));
+        assertEquals("Iron Helmet", json.getJSONObject("equipment").getString("helmet"));
+        assertEquals("None", json.getJSONObject("equipment").getString("boots"));
+        assertEquals(2, json.getInt("kills"));
+        assertEquals(1, json.getInt("deaths"));
+        assertEquals(3, json.getInt("nearbyPlayers"));
+        assertEquals(12.5, json.getDouble("damageDealt"), 0.0);
+        assertEquals(3, json.getInt("hitsLanded"));
+        assertEquals(95L, json.getLong("timeAlive"));
+    }
+
+    @Test
+    public void formatsItemNamesInTitleCase() {
+        assertEquals("Stone", TelemetryCollector.formatItemName(Material.STONE));
+        assertEquals("Diamond Sword", TelemetryCollector.formatItemName(Material.DIAMOND_SWORD));
+    }
+}
@@ -0,0 +1,142 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.bukkit.Material;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tests for TelemetryDeltaEncoder
+ */
+public class TelemetryDeltaEncoderTest {
+
+    private static final UUID P1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private static MatchSnapshot state(double health, double x) {
+        PlayerSnapshot player = new PlayerSnapshot(P1, "Steve", health, 20.0, 20, x, 64.0, 0.0, "match_1",
+                Material.AIR, Material.AIR, Material.AIR, Material.AIR, Material.AIR, 0, 0, 0,
+                0.0, 0.0, 0, 0.0, 0L);
+        return new MatchSnapshot("m1", 1L, List.of(player));
+    }
+
+    private static JSONObject payload(TelemetryDeltaEncoder.Update update) {
+        JsonTelemetryWriter writer = new JsonTelemetryWriter();
+        writer.reset();
+        update.writePayload(writer);
+        return new JSONObject(new String(writer.buffer(), 0, writer.length(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void firstUpdateIsKeyframe() {
+        TelemetryDeltaEncoder encoder = new TelemetryDeltaEncoder(10);
+        TelemetryDeltaEncoder.Update update = encoder.encode(state(20.0, 1.0));
+        assertTrue(update.isKeyframe());
+        assertEquals("match_state", update.getFieldName());
+        JSONObject matchState = payload(update);
+        assertEquals("m1", matchState.getString("matchId"));
+        assertEquals(P1.toString(), matchState.getJSONArray("players").getJSONObject(0).getString("playerId"));
+    }
+
+    @Test
+    public void deltaOnlyCarriesChangedFields() {
+        TelemetryDeltaEncoder encoder = new TelemetryDeltaEncoder(10);
+        encoder.encode(state(20.0, 1.0));
+
+        TelemetryDeltaEncoder.Update update = encoder.encode(state(20.0, 2.0));
+        assertFalse(update.isKeyframe());
+        JSONObject changes = payload(update).getJSONObject("players").getJSONObject(P1.toString());
+        assertEquals(1, changes.length());
+        assertEquals(1, changes.getJSONObject("position").length());
+        assertEquals(2.0, changes.getJSONObject("position").getDouble("x"), 0.0);
+    }
+
+    @Test
+    public void unchangedStateSendsNothing() {
+        TelemetryDeltaEncoder encoder = new TelemetryDeltaEncoder(10);
+        encoder.encode(state(20.0, 1.0));
+        assertNull(encoder.encode(state(20.0, 1.0)));
+    }
+
+    @Test
+    public void deltaIsRelativeToLastSentSnapshot() {
+        TelemetryDeltaEncoder encoder = new TelemetryDeltaEncoder(10);
+        encoder.encode(state(20.0, 1.0));
+        encoder.encode(state(15.0, 1.0)); // still in flight
+
+        // Back to the keyframe's health: must still be sent, Convex will have 15 by then
+        JSONObject changes = payload(encoder.encode(state(20.0, 1.0)))
+                .getJSONObject("players").getJSONObject(P1.toString());
+        assertEquals(20.0, changes.getDouble("health"), 0.0);
+        assertFalse(changes.has("position"));
+    }
+
+    @Test
+    public void failedUpdateMakesLaterDeltasStale() {
+        TelemetryDeltaEncoder encoder = new TelemetryDeltaEncoder(10);
+        encoder.encode(state(20.0, 1.0));
+        TelemetryDeltaEncoder.Update failed = encoder.encode(state(18.0, 1.0));
+        TelemetryDeltaEncoder.Update next = encoder.encode(state(18.0, 3.0));
+        assertTrue(encoder.isCurrent(next));
+
+        encoder.requireKeyframe("m1"); // failed was rejected
+        assertFalse(encoder.isCurrent(failed));
+        assertFalse(encoder.isCurrent(next));
+        TelemetryDeltaEncoder.Update resync = encoder.encode(state(18.0, 3.0));
+        assertTrue(resync.isKeyframe());
+        assertTrue(encoder.isCurrent(resync));
+    }
+
+    @Test
+    public void mergedDeltasCarryChangesOfBoth() {
+        TelemetryDeltaEncoder encoder = new TelemetryDeltaEncoder(10);
+        encoder.encode(state(20.0, 1.0));
+        TelemetryDeltaEncoder.Update older = encoder.encode(state(15.0, 1.0));
+        TelemetryDeltaEncoder.Update newer = encoder.encode(state(15.0, 2.0));
+
+        JSONObject changes = payload(older.mergeWith(newer)).getJSONObject("players").getJSONObject(P1.toString());
+        assertEquals(15.0, changes.getDouble("health"), 0.0);
+        assertEquals(2.0, changes.getJSONObject("position").getDouble("x"), 0.0);
+    }
+
+    @Test
+    public void deltaMergedIntoKeyframeIsKeyframe() {
+        TelemetryDeltaEncoder encoder = new TelemetryDeltaEncoder(10);
+        TelemetryDeltaEncoder.Update keyframe = encoder.encode(state(20.0, 1.0));
+        TelemetryDeltaEncoder.Update merged = keyframe.mergeWith(encoder.encode(state(20.0, 2.0)));
+        assertTrue(merged.isKeyframe());
+        assertEquals(2.0, payload(merged).getJSONArray("players").getJSONObject(0)
+                .getJSONObject("position").getDouble("x"), 0.0);
+    }
+
+    @Test
+    public void keyframeEveryIntervalAndOnDemand() {
+        TelemetryDeltaEncoder encoder = new TelemetryDeltaEncoder(3);
+        encoder.encode(state(20.0, 1.0));
+        encoder.encode(state(20.0, 2.0));
+        encoder.encode(state(20.0, 3.0));
+        assertTrue(encoder.encode(state(20.0, 4.0)).isKeyframe());
+
+        encoder.encode(state(20.0, 5.0));
+        encoder.requireKeyframe("m1");
+        assertTrue(encoder.encode(state(20.0, 6.0)).isKeyframe());
+    }
+
+    @Test
+    public void removedPlayersAreListed() {
+        TelemetryDeltaEncoder encoder = new TelemetryDeltaEncoder(10);
+        encoder.encode(state(20.0, 1.0));
+
+        JSONObject delta = payload(encoder.encode(new MatchSnapshot("m1", 2L, List.of())));
+        assertTrue(delta.getBoolean("delta"));
+        assertEquals(0, delta.getJSONObject("players").length());
+        assertEquals(P1.toString(), delta.getJSONArray("removedPlayers").getString(0));
+    }
+}
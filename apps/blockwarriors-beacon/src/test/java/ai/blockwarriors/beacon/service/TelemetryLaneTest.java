@@ -0,0 +1,183 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.bukkit.Material;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for TelemetryLane coalescing, bounds and sending
+ */
+public class TelemetryLaneTest {
+    private final TelemetryDeltaEncoder encoder = new TelemetryDeltaEncoder(30);
+    private final BlockingQueue<List<TelemetryDeltaEncoder.Update>> sent = new LinkedBlockingQueue<>();
+    private final List<TelemetryDeltaEncoder.Update> dropped = new ArrayList<>();
+    private final Set<String> seeded = new HashSet<>();
+    private ConvexOutbox outbox;
+    private TelemetryLane lane;
+
+    @Before
+    public void setUp() {
+        // Never started: no pending lifecycle writes and a closed circuit
+        ConvexClient client = new ConvexClient("http://127.0.0.1:1", "secret", Duration.ofMillis(100),
+                Duration.ofMillis(100));
+        Path unused = Paths.get(System.getProperty("java.io.tmpdir"));
+        outbox = new ConvexOutbox(client, new CircuitBreaker(5, 1000), unused);
+    }
+
+    @After
+    public void tearDown() {
+        if (lane != null) {
+            lane.stop();
+        }
+    }
+
+    private TelemetryLane newLane(int capacity, long maxAgeMs) {
+        return new TelemetryLane(outbox, capacity, 10, 50, maxAgeMs, sent::add, dropped::add);
+    }
+
+    private static final UUID P1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private static MatchSnapshot state(String matchId, double x) {
+        return state(matchId, 20.0, x);
+    }
+
+    private static MatchSnapshot state(String matchId, double health, double x) {
+        PlayerSnapshot player = new PlayerSnapshot(P1, "p1", health, 20.0, 20, x, 64.0, 0.0, "arena",
+                Material.AIR, Material.AIR, Material.AIR, Material.AIR, Material.AIR, 0, 0, 0,
+                0.0, 0.0, 0, 0.0, 0L);
+        return new MatchSnapshot(matchId, 1L, List.of(player));
+    }
+
+    private static JSONObject payload(TelemetryDeltaEncoder.Update update) {
+        JsonTelemetryWriter writer = new JsonTelemetryWriter();
+        writer.reset();
+        update.writePayload(writer);
+        return new JSONObject(new String(writer.buffer(), 0, writer.length(), StandardCharsets.UTF_8));
+    }
+
+    private TelemetryDeltaEncoder.Update delta(String matchId, double x) {
+        if (seeded.add(matchId)) {
+            encoder.encode(state(matchId, 0.0));
+        }
+        return encoder.encode(state(matchId, x));
+    }
+
+    @Test
+    public void keepsOnlyLatestSnapshotPerMatch() {
+        lane = newLane(10, 5000);
+        lane.offer(delta("m1", 1.0));
+        TelemetryDeltaEncoder.Update latest = delta("m1", 2.0);
+        lane.offer(latest);
+        assertEquals(1, lane.getPendingCount());
+        assertEquals(1, lane.getCoalescedCount());
+        assertTrue(dropped.isEmpty());
+    }
+
+    @Test
+    public void deltaMergesIntoUnsentKeyframe() throws Exception {
+        lane = newLane(10, 5000);
+        TelemetryDeltaEncoder.Update keyframe = encoder.encode(state("m1", 0.0));
+        assertTrue(keyframe.isKeyframe());
+        seeded.add("m1");
+        lane.offer(keyframe);
+        TelemetryDeltaEncoder.Update next = delta("m1", 1.0);
+        lane.offer(next);
+        assertEquals(1, lane.getPendingCount());
+        assertTrue(dropped.isEmpty());
+
+        lane.start();
+        List<TelemetryDeltaEncoder.Update> batch = sent.poll(2, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertTrue(batch.get(0).isKeyframe());
+        assertSame(next.getSnapshot(), batch.get(0).getSnapshot());
+    }
+
+    @Test
+    public void deltaWhileAnotherIsInFlightIsRelativeToIt() throws Exception {
+        Semaphore inFlight = new Semaphore(0);
+        lane = new TelemetryLane(outbox, 10, 10, 50, 5000, updates -> {
+            sent.add(updates);
+            inFlight.acquireUninterruptibly(); // Held until the test lets the request "complete"
+        }, dropped::add);
+        lane.start();
+        lane.offer(encoder.encode(state("m1", 20.0, 0.0)));
+        assertNotNull(sent.poll(2, TimeUnit.SECONDS));
+        inFlight.release();
+
+        // D1 lowers health and stays in flight
+        lane.offer(encoder.encode(state("m1", 15.0, 0.0)));
+        assertNotNull(sent.poll(2, TimeUnit.SECONDS));
+
+        // Health back to the keyframe's value while D1 is unacknowledged: D2 must still carry it
+        TelemetryDeltaEncoder.Update d2 = encoder.encode(state("m1", 20.0, 0.0));
+        assertNotNull(d2);
+        assertFalse(d2.isKeyframe());
+        lane.offer(d2);
+        inFlight.release();
+        List<TelemetryDeltaEncoder.Update> batch = sent.poll(2, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        inFlight.release();
+        JSONObject changes = payload(batch.get(0)).getJSONObject("players").getJSONObject(P1.toString());
+        assertEquals(20.0, changes.getDouble("health"), 0.0);
+    }
+
+    @Test
+    public void fullQueueDropsOldestMatch() {
+        lane = newLane(2, 5000);
+        TelemetryDeltaEncoder.Update first = delta("m1", 1.0);
+        lane.offer(first);
+        lane.offer(delta("m2", 1.0));
+        lane.offer(delta("m3", 1.0));
+        assertEquals(2, lane.getPendingCount());
+        assertEquals(1, lane.getDroppedOverflowCount());
+        assertSame(first, dropped.get(0));
+    }
+
+    @Test
+    public void sendsQueuedSnapshotsFromLaneThread() throws Exception {
+        lane = newLane(10, 5000);
+        lane.offer(delta("m1", 1.0));
+        lane.offer(delta("m2", 1.0));
+        lane.start();
+        List<TelemetryDeltaEncoder.Update> batch = sent.poll(2, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals(2, batch.size());
+        lane.stop();
+        assertEquals(2, lane.getSentCount());
+        assertEquals(0, lane.getPendingCount());
+    }
+
+    @Test
+    public void dropsStaleSnapshots() throws Exception {
+        lane = newLane(10, 1);
+        lane.offer(delta("m1", 1.0));
+        Thread.sleep(20);
+        lane.start();
+        assertNull(sent.poll(300, TimeUnit.MILLISECONDS));
+        assertEquals(1, lane.getDroppedStaleCount());
+        assertEquals(1, dropped.size());
+    }
+}
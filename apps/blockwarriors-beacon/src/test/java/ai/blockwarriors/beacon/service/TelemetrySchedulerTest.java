@@ -0,0 +1,101 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for TelemetryScheduler
+ */
+public class TelemetrySchedulerTest {
+    private static final long WINDOW = 20L;
+
+    private static Set<String> matches(int count) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (int i = 0; i < count; i++) {
+            ids.add("match_" + i);
+        }
+        return ids;
+    }
+
+    @Test
+    public void spreadsMatchesOverTheWindow() {
+        Set<String> ids = matches(100);
+        Map<String, Integer> captures = new HashMap<>();
+        List<Integer> perTick = new ArrayList<>();
+        int[] thisTick = new int[1];
+        TelemetryScheduler scheduler = new TelemetryScheduler(ids, () -> WINDOW, 1000L, matchId -> {
+            captures.merge(matchId, 1, Integer::sum);
+            thisTick[0]++;
+            return new MatchSnapshot(matchId, 0L, Collections.emptyList());
+        }, snapshot -> {}, () -> 0L);
+
+        for (int tick = 0; tick < WINDOW; tick++) {
+            thisTick[0] = 0;
+            scheduler.tick();
+            perTick.add(thisTick[0]);
+        }
+
+        // Every match exactly once per window, and no tick takes a large share of them
+        assertEquals(100, captures.size());
+        assertTrue(captures.values().stream().allMatch(count -> count == 1));
+        assertTrue("captures per tick: " + perTick, Collections.max(perTick) <= 15);
+    }
+
+    @Test
+    public void defersWorkBeyondTheBudget() {
+        Set<String> ids = matches(100);
+        long[] clock = new long[1];
+        List<String> captured = new ArrayList<>();
+        // Every capture takes 400us and the budget is 1000us, so at most three fit in a tick
+        TelemetryScheduler scheduler = new TelemetryScheduler(ids, () -> 1L, 1000L, matchId -> {
+            clock[0] += 400_000L;
+            return new MatchSnapshot(matchId, 0L, Collections.emptyList());
+        }, snapshot -> captured.add(snapshot.matchId()), () -> clock[0]);
+
+        scheduler.tick();
+        assertEquals(3, captured.size());
+        assertEquals(97, scheduler.getQueuedCount());
+        assertEquals(1200L, scheduler.getLastTickMicros());
+
+        // Still queued matches are not queued again when their phase comes around, captured ones are
+        scheduler.tick();
+        assertEquals(6, captured.size());
+        assertEquals(97, scheduler.getQueuedCount());
+        assertEquals(97L, scheduler.getDeferredCount());
+    }
+
+    @Test
+    public void capturesAtLeastOneMatchPerTick() {
+        long[] clock = new long[1];
+        List<String> captured = new ArrayList<>();
+        TelemetryScheduler scheduler = new TelemetryScheduler(matches(3), () -> 1L, 1L, matchId -> {
+            clock[0] += 5_000_000L; // Far over budget
+            return new MatchSnapshot(matchId, 0L, Collections.emptyList());
+        }, snapshot -> captured.add(snapshot.matchId()), () -> clock[0]);
+
+        scheduler.tick();
+        scheduler.tick();
+        scheduler.tick();
+        assertEquals(3, captured.size());
+    }
+
+    @Test
+    public void skipsMatchesWithoutSnapshot() {
+        List<MatchSnapshot> captured = new ArrayList<>();
+        TelemetryScheduler scheduler = new TelemetryScheduler(matches(5), () -> 1L, 1000L, matchId -> null,
+                captured::add, () -> 0L);
+        scheduler.tick();
+        assertTrue(captured.isEmpty());
+        assertEquals(5L, scheduler.getCapturedCount());
+    }
+}
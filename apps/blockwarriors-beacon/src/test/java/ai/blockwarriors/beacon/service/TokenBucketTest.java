@@ -0,0 +1,55 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for TokenBucket
+ */
+public class TokenBucketTest {
+    private final AtomicLong nanos = new AtomicLong(0);
+
+    @Test
+    public void allowsBurstThenRefills() {
+        TokenBucket bucket = new TokenBucket(2, 1.0, nanos::get);
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertEquals(1_000_000_000L, bucket.getNanosUntilAvailable());
+
+        nanos.addAndGet(500_000_000L);
+        assertFalse(bucket.tryAcquire());
+        nanos.addAndGet(500_000_000L);
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    public void neverHoldsMoreThanCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 1.0, nanos::get);
+        nanos.addAndGet(60_000_000_000L);
+        assertTrue(bucket.isFull());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void acquireGivesUpWhenPermitIsTooFarAway() throws Exception {
+        TokenBucket bucket = new TokenBucket(1, 0.001);
+        assertTrue(bucket.acquire(Duration.ZERO));
+        assertFalse(bucket.acquire(Duration.ofMillis(10)));
+    }
+
+    @Test
+    public void acquireWaitsForRefill() throws Exception {
+        TokenBucket bucket = new TokenBucket(1, 50.0);
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.acquire(Duration.ofSeconds(1)));
+    }
+}
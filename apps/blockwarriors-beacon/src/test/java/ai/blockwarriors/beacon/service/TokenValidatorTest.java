@@ -0,0 +1,151 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for TokenValidator against the LocalConvexServer stand-in
+ */
+public class TokenValidatorTest {
+    private LocalConvexServer server;
+    private ConvexClient client;
+    private TokenValidator validator;
+    private final LocalTokenIndex tokenIndex = new LocalTokenIndex();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalConvexServer(0, "secret");
+        server.start();
+        client = new ConvexClient(server.getUrl(), "secret", Duration.ofSeconds(2), Duration.ofSeconds(2));
+        validator = newValidator(new TokenBucket(10, 10), 3);
+    }
+
+    @After
+    public void tearDown() {
+        validator.shutdown();
+        server.stop();
+    }
+
+    private TokenValidator newValidator(TokenBucket serverBucket, double playerBurst) {
+        return new TokenValidator(client, tokenIndex, serverBucket, playerBurst, 0.001, Duration.ofSeconds(2), Duration.ZERO,
+                30000L);
+    }
+
+    private static TokenValidator.Result await(CompletableFuture<TokenValidator.Result> attempt) throws Exception {
+        return attempt.get(5, TimeUnit.SECONDS);
+    }
+
+    private JSONObject acknowledgeNewMatch() throws Exception {
+        String matchId = client.post("/matches/new",
+                new JSONObject().put("match_type", "pvp").put("mode", "practice"), ConvexClient.JSON_OBJECT)
+                .getString("match_id");
+        return client.post("/matches/acknowledge", new JSONObject().put("match_id", matchId),
+                ConvexClient.JSON_OBJECT);
+    }
+
+    @Test
+    public void acceptsValidToken() throws Exception {
+        JSONObject acknowledgement = acknowledgeNewMatch();
+        String token = acknowledgement.getJSONObject("tokens").getJSONArray("redTeam").getString(0);
+
+        TokenValidator.Result result = await(validator.validate(UUID.randomUUID(), "Steve", token));
+        assertEquals(TokenValidator.Result.Kind.ACCEPTED, result.getKind());
+        assertNull(result.getConfirmation());
+    }
+
+    @Test
+    public void acceptsIndexedTokenLocallyAndConfirmsInBackground() throws Exception {
+        JSONObject acknowledgement = acknowledgeNewMatch();
+        String matchId = acknowledgement.getString("matchId");
+        tokenIndex.indexAcknowledged(matchId, acknowledgement);
+        String token = acknowledgement.getJSONObject("tokens").getJSONArray("blueTeam").getString(0);
+
+        CompletableFuture<TokenValidator.Result> attempt = validator.validate(UUID.randomUUID(), "Steve", token);
+        assertTrue(attempt.isDone());
+        TokenValidator.Result result = attempt.get();
+        assertEquals(TokenValidator.Result.Kind.ACCEPTED, result.getKind());
+        assertNotNull(result.getConfirmation());
+
+        assertEquals(TokenValidator.Result.Kind.ACCEPTED, await(result.getConfirmation()).getKind());
+        JSONArray tokens = client.get("/matches/tokens?match_id=" + matchId, ConvexClient.JSON_ARRAY);
+        int used = 0;
+        for (int i = 0; i < tokens.length(); i++) {
+            used += tokens.getJSONObject(i).has("user_id") ? 1 : 0;
+        }
+        assertEquals(1, used);
+        assertEquals(1, validator.getLocalAcceptCount());
+    }
+
+    @Test
+    public void rollsBackLocalAcceptRejectedByConvex() throws Exception {
+        JSONObject acknowledgement = acknowledgeNewMatch();
+        String token = acknowledgement.getJSONObject("tokens").getJSONArray("redTeam").getString(0);
+        tokenIndex.indexAcknowledged(acknowledgement.getString("matchId"), acknowledgement);
+
+        // Used behind the index's back (e.g. on another server)
+        client.post("/validateToken", new JSONObject().put("token", token).put("playerId", "someone-else"),
+                ConvexClient.JSON_OBJECT);
+
+        TokenValidator.Result result = await(validator.validate(UUID.randomUUID(), "Steve", token));
+        assertEquals(TokenValidator.Result.Kind.ACCEPTED, result.getKind());
+        assertEquals(TokenValidator.Result.Kind.REJECTED, await(result.getConfirmation()).getKind());
+        assertEquals(1, validator.getRollbackCount());
+        assertNull(tokenIndex.claim(token, UUID.randomUUID()));
+    }
+
+    @Test
+    public void rejectedTokenIsAnsweredFromCache() throws Exception {
+        UUID player = UUID.randomUUID();
+        assertEquals(TokenValidator.Result.Kind.REJECTED, await(validator.validate(player, "Steve", "bad")).getKind());
+        TokenValidator.Result again = await(validator.validate(player, "Steve", "bad"));
+        assertEquals(TokenValidator.Result.Kind.REJECTED, again.getKind());
+        assertEquals(1, validator.getRequestCount());
+        assertEquals(1, validator.getCachedRejectionCount());
+    }
+
+    @Test
+    public void concurrentAttemptsShareOneRequest() throws Exception {
+        UUID player = UUID.randomUUID();
+        CompletableFuture<TokenValidator.Result> first = validator.validate(player, "Steve", "bad");
+        CompletableFuture<TokenValidator.Result> second = validator.validate(player, "Steve", "other");
+        assertSame(first, second);
+        await(first);
+        assertEquals(1, validator.getRequestCount());
+        assertEquals(1, validator.getCoalescedCount());
+    }
+
+    @Test
+    public void throttlesPlayerBeyondBurst() throws Exception {
+        validator.shutdown();
+        validator = newValidator(new TokenBucket(10, 10), 1);
+        UUID player = UUID.randomUUID();
+        await(validator.validate(player, "Steve", "bad-1"));
+        TokenValidator.Result result = await(validator.validate(player, "Steve", "bad-2"));
+        assertEquals(TokenValidator.Result.Kind.THROTTLED, result.getKind());
+        assertEquals(1, validator.getRequestCount());
+    }
+
+    @Test
+    public void throttlesWhenServerBudgetIsSpent() throws Exception {
+        validator.shutdown();
+        validator = newValidator(new TokenBucket(1, 0.001), 3);
+        await(validator.validate(UUID.randomUUID(), "Steve", "bad-1"));
+        TokenValidator.Result result = await(validator.validate(UUID.randomUUID(), "Alex", "bad-2"));
+        assertEquals(TokenValidator.Result.Kind.THROTTLED, result.getKind());
+        assertEquals(1, validator.getRequestCount());
+    }
+}
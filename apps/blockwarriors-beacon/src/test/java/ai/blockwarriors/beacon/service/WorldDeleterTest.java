@@ -0,0 +1,63 @@
+package ai.blockwarriors.beacon.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tests for WorldDeleter's file operations
+ */
+public class WorldDeleterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A world folder with a few nested files, like a real one
+     */
+    private Path createWorldFolder(String name) throws IOException {
+        Path world = folder.getRoot().toPath().resolve(name);
+        Files.createDirectories(world.resolve("region"));
+        Files.write(world.resolve("level.dat"), new byte[] { 1, 2, 3 });
+        Files.write(world.resolve("region").resolve("r.0.0.mca"), new byte[4096]);
+        Files.createDirectories(world.resolve("data"));
+        return world;
+    }
+
+    @Test
+    public void moveToTrashFreesTheWorldName() throws IOException {
+        Path world = createWorldFolder("match_1");
+        Path trash = folder.getRoot().toPath().resolve(".beacon-trash");
+
+        Path moved = WorldDeleter.moveToTrash(world, trash, "match_1");
+
+        assertFalse(Files.exists(world));
+        assertEquals(trash, moved.getParent());
+        assertTrue(moved.getFileName().toString().startsWith("match_1-"));
+        assertTrue(Files.exists(moved.resolve("region").resolve("r.0.0.mca")));
+    }
+
+    @Test
+    public void moveToTrashOfMissingFolderReturnsNull() throws IOException {
+        Path trash = folder.getRoot().toPath().resolve(".beacon-trash");
+        assertNull(WorldDeleter.moveToTrash(folder.getRoot().toPath().resolve("match_9"), trash, "match_9"));
+    }
+
+    @Test
+    public void deleteTreeRemovesEverything() throws IOException {
+        Path world = createWorldFolder("match_2");
+        WorldDeleter.deleteTree(world);
+        assertFalse(Files.exists(world));
+
+        // Nothing to do the second time
+        WorldDeleter.deleteTree(world);
+    }
+}
@@ -38,6 +38,11 @@ interface PlayerData {
   deaths?: number;
   foodLevel?: number;
   nearbyPlayers?: number;
+  damageDealt?: number;
+  damageTaken?: number;
+  hitsLanded?: number;
+  distanceTravelled?: number;
+  timeAlive?: number;
   equipment?: PlayerEquipment;
 }
 
@@ -341,6 +346,39 @@ export default function MatchDetailPage() {
                           </span>
                         </div>
                       )}
+                      {playerData.damageDealt !== undefined && (
+                        <div>
+                          <span className="text-gray-500">Damage: </span>
+                          <span className="text-orange-400">
+                            {playerData.damageDealt.toFixed(1)} dealt /{' '}
+                            {(playerData.damageTaken ?? 0).toFixed(1)} taken
+                          </span>
+                        </div>
+                      )}
+                      {playerData.hitsLanded !== undefined && (
+                        <div>
+                          <span className="text-gray-500">Hits: </span>
+                          <span className="text-white">
+                            {playerData.hitsLanded}
+                          </span>
+                        </div>
+                      )}
+                      {playerData.distanceTravelled !== undefined && (
+                        <div>
+                          <span className="text-gray-500">Distance: </span>
+                          <span className="text-white">
+                            {Math.round(playerData.distanceTravelled)} blocks
+                          </span>
+                        </div>
+                      )}
+                      {playerData.timeAlive !== undefined && (
+                        <div>
+                          <span className="text-gray-500">Alive: </span>
+                          <span className="text-white">
+                            {playerData.timeAlive}s
+                          </span>
+                        </div>
+                      )}
                     </div>
 
                     {playerData.equipment && (
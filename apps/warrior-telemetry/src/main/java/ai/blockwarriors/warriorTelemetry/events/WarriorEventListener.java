@@ -22,6 +22,8 @@ public class WarriorEventListener implements Listener {
     private static final Logger LOGGER = Logger.getLogger("WarriorTelemetry");
     private final Plugin plugin;
     private final long updateInterval;
+    private static final double NEARBY_RADIUS = 20.0;
+    private final NearbyPlayerIndex nearbyIndex = new NearbyPlayerIndex(NEARBY_RADIUS, Bukkit::getCurrentTick);
 
     public WarriorEventListener(Plugin plugin, long updateInterval) {
         this.plugin = plugin;
@@ -122,16 +124,9 @@ public class WarriorEventListener implements Listener {
         setScore(objective, ChatColor.GREEN + "K: " + ChatColor.WHITE + target.getStatistic(Statistic.PLAYER_KILLS) +
             ChatColor.GRAY + " | " + ChatColor.RED + "D: " + ChatColor.WHITE + target.getStatistic(Statistic.DEATHS), line--);
 
-        // Nearby players
-        int nearbyCount = 0;
-        for (Player nearbyPlayer : Bukkit.getOnlinePlayers()) {
-            if (!nearbyPlayer.equals(target) && nearbyPlayer.getWorld().equals(target.getWorld())) {
-                double distance = nearbyPlayer.getLocation().distance(target.getLocation());
-                if (distance <= 20.0) {
-                    nearbyCount++;
-                }
-            }
-        }
+        // Nearby players (index is rebuilt at most once per tick, shared by all viewers)
+        nearbyIndex.refresh(Bukkit.getOnlinePlayers());
+        int nearbyCount = nearbyIndex.countNearby(target, NEARBY_RADIUS);
         setScore(objective, ChatColor.LIGHT_PURPLE + "Nearby: " + ChatColor.WHITE + nearbyCount, line--);
 
         viewer.setScoreboard(scoreboard);
@@ -14,6 +14,7 @@ import type * as gameTeams from "../gameTeams.js";
 import type * as http from "../http.js";
 import type * as matches from "../matches.js";
 import type * as settings from "../settings.js";
+import type * as telemetryCodec from "../telemetryCodec.js";
 import type * as teams from "../teams.js";
 import type * as tokens from "../tokens.js";
 import type * as userProfiles from "../userProfiles.js";
@@ -40,6 +41,7 @@ declare const fullApi: ApiFromModules<{
   http: typeof http;
   matches: typeof matches;
   settings: typeof settings;
+  telemetryCodec: typeof telemetryCodec;
   teams: typeof teams;
   tokens: typeof tokens;
   userProfiles: typeof userProfiles;
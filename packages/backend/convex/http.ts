@@ -3,6 +3,11 @@ import { authComponent, createAuth } from "./auth";
 import { httpAction } from "./_generated/server";
 import { api } from "./_generated/api";
 import { Id } from "./_generated/dataModel";
+import {
+  CBOR_CONTENT_TYPE,
+  readTelemetryBody,
+  SUPPORTED_TELEMETRY_ENCODINGS,
+} from "./telemetryCodec";
 
 const http = httpRouter();
 
@@ -31,6 +36,27 @@ function unauthorizedResponse(): Response {
   );
 }
 
+/**
+ * Helper to reject a telemetry body that could not be decoded
+ * Undecodable CBOR gets 415 so the beacon falls back to JSON
+ */
+function invalidTelemetryBodyResponse(request: Request): Response {
+  const isCbor = (request.headers.get("Content-Type") ?? "").startsWith(
+    CBOR_CONTENT_TYPE
+  );
+  return new Response(
+    JSON.stringify({
+      error: isCbor
+        ? "Unsupported telemetry encoding"
+        : "Invalid JSON in request body",
+    }),
+    {
+      status: isCbor ? 415 : 400,
+      headers: { "Content-Type": "application/json" },
+    }
+  );
+}
+
 authComponent.registerRoutes(http, createAuth);
 
 http.route({
@@ -235,6 +261,101 @@ http.route({
   }),
 });
 
+// GET /matches/actionable - All Queuing/Waiting/Playing matches in one request
+// Used by the beacon's poll. The response carries an ETag that changes whenever the
+// set changes (same cursor as /matches/dispatch); sending it back as If-None-Match
+// returns 304 with no body while nothing changed.
+http.route({
+  path: "/matches/actionable",
+  method: "GET",
+  handler: httpAction(async (ctx, request) => {
+    // Verify bearer token for server-to-server auth
+    if (!verifyBearerToken(request)) {
+      return unauthorizedResponse();
+    }
+
+    try {
+      const state = await ctx.runQuery(api.matches.getDispatchState, {});
+      const etag = `"${state.cursor}"`;
+
+      if (request.headers.get("If-None-Match") === etag) {
+        return new Response(null, { status: 304, headers: { ETag: etag } });
+      }
+
+      return new Response(JSON.stringify(state), {
+        status: 200,
+        headers: { "Content-Type": "application/json", ETag: etag },
+      });
+    } catch (error) {
+      return new Response(
+        JSON.stringify({
+          error: `Failed to list matches: ${error instanceof Error ? error.message : "Unknown error"}`,
+        }),
+        {
+          status: 500,
+          headers: { "Content-Type": "application/json" },
+        }
+      );
+    }
+  }),
+});
+
+// Long-poll limits for GET /matches/dispatch
+const DISPATCH_MAX_WAIT_MS = 25000;
+const DISPATCH_CHECK_INTERVAL_MS = 1000;
+
+// GET /matches/dispatch?cursor={cursor}&timeout_ms={ms} - Wait for dispatch changes
+// Called by the Minecraft beacon instead of polling every status. Returns
+// { cursor, matches } as soon as the Queuing/Waiting/Playing matches (or token
+// usage of Waiting matches) differ from the given cursor, or 204 if nothing
+// changed before the timeout. Without a cursor it returns immediately.
+http.route({
+  path: "/matches/dispatch",
+  method: "GET",
+  handler: httpAction(async (ctx, request) => {
+    // Verify bearer token for server-to-server auth
+    if (!verifyBearerToken(request)) {
+      return unauthorizedResponse();
+    }
+
+    const url = new URL(request.url);
+    const cursor = url.searchParams.get("cursor");
+    const requestedWait = Number(url.searchParams.get("timeout_ms"));
+    const maxWait = Number.isFinite(requestedWait)
+      ? Math.min(Math.max(requestedWait, 0), DISPATCH_MAX_WAIT_MS)
+      : DISPATCH_MAX_WAIT_MS;
+    const deadline = Date.now() + maxWait;
+
+    try {
+      for (;;) {
+        const state = await ctx.runQuery(api.matches.getDispatchState, {});
+        if (state.cursor !== cursor) {
+          return new Response(JSON.stringify(state), {
+            status: 200,
+            headers: { "Content-Type": "application/json" },
+          });
+        }
+        if (Date.now() + DISPATCH_CHECK_INTERVAL_MS > deadline) {
+          return new Response(null, { status: 204 });
+        }
+        await new Promise((resolve) =>
+          setTimeout(resolve, DISPATCH_CHECK_INTERVAL_MS)
+        );
+      }
+    } catch (error) {
+      return new Response(
+        JSON.stringify({
+          error: `Failed to wait for match changes: ${error instanceof Error ? error.message : "Unknown error"}`,
+        }),
+        {
+          status: 500,
+          headers: { "Content-Type": "application/json" },
+        }
+      );
+    }
+  }),
+});
+
 // POST /matches/acknowledge - Acknowledge a queued match and generate tokens
 // Called by Minecraft server when it acknowledges a queued match
 // Atomically updates match status to "Waiting" and generates tokens
@@ -331,9 +452,23 @@ http.route({
       return unauthorizedResponse();
     }
 
+    // Telemetry updates may arrive as JSON or compact CBOR
+    let body: any;
     try {
-      const body = await request.json();
-      const { match_id, match_status, match_state, winner_player_id } = body;
+      body = await readTelemetryBody(request);
+    } catch (error) {
+      return invalidTelemetryBodyResponse(request);
+    }
+
+    try {
+      const {
+        match_id,
+        match_status,
+        match_state,
+        match_state_delta,
+        winner_player_id,
+        events,
+      } = body;
 
       if (!match_id) {
         return new Response(
@@ -349,12 +484,14 @@ http.route({
       if (
         match_status === undefined &&
         match_state === undefined &&
-        winner_player_id === undefined
+        match_state_delta === undefined &&
+        winner_player_id === undefined &&
+        events === undefined
       ) {
         return new Response(
           JSON.stringify({
             error:
-              "Must provide at least one of: match_status, match_state, winner_player_id",
+              "Must provide at least one of: match_status, match_state, match_state_delta, winner_player_id, events",
           }),
           {
             status: 400,
@@ -368,7 +505,9 @@ http.route({
         matchId: match_id as Id<"matches">,
         matchStatus: match_status,
         matchState: match_state,
+        matchStateDelta: match_state_delta,
         winnerPlayerId: winner_player_id,
+        events,
       });
 
       // Get updated match to return
@@ -391,6 +530,14 @@ http.route({
       const errorMessage =
         error instanceof Error ? error.message : "Unknown error";
 
+      // The beacon resends a full match_state when its delta has no base
+      if (errorMessage.includes("Keyframe required")) {
+        return new Response(JSON.stringify({ error: errorMessage }), {
+          status: 409,
+          headers: { "Content-Type": "application/json" },
+        });
+      }
+
       // Check if it's a validation error
       if (
         errorMessage.includes("Invalid status transition") ||
@@ -415,6 +562,195 @@ http.route({
   }),
 });
 
+// POST /matches/update/batch - Update match_state for many matches at once
+// Used by the Minecraft server's batched telemetry upload so that outbound
+// request rate does not grow with the number of concurrent matches.
+// Body: { updates: [{ match_id, match_state | match_state_delta, events? }, ...] }
+http.route({
+  path: "/matches/update/batch",
+  method: "POST",
+  handler: httpAction(async (ctx, request) => {
+    // Verify bearer token for server-to-server auth
+    if (!verifyBearerToken(request)) {
+      return unauthorizedResponse();
+    }
+
+    let body: any;
+    try {
+      body = await readTelemetryBody(request);
+    } catch (error) {
+      return invalidTelemetryBodyResponse(request);
+    }
+
+    const { updates } = body;
+
+    if (!Array.isArray(updates)) {
+      return new Response(
+        JSON.stringify({ error: "Missing updates array in request body" }),
+        {
+          status: 400,
+          headers: { "Content-Type": "application/json" },
+        }
+      );
+    }
+
+    for (const update of updates) {
+      if (
+        !update?.match_id ||
+        (update.match_state === undefined &&
+          update.match_state_delta === undefined)
+      ) {
+        return new Response(
+          JSON.stringify({
+            error:
+              "Each update must provide match_id and match_state or match_state_delta",
+          }),
+          {
+            status: 400,
+            headers: { "Content-Type": "application/json" },
+          }
+        );
+      }
+    }
+
+    try {
+      const result = await ctx.runMutation(api.matches.updateMatchStates, {
+        updates: updates.map((update: any) => ({
+          matchId: String(update.match_id),
+          matchState: update.match_state,
+          matchStateDelta: update.match_state_delta,
+          events: update.events,
+        })),
+      });
+
+      return new Response(JSON.stringify(result), {
+        status: 200,
+        headers: { "Content-Type": "application/json" },
+      });
+    } catch (error) {
+      return new Response(
+        JSON.stringify({
+          error: `Failed to update match states: ${error instanceof Error ? error.message : "Unknown error"}`,
+        }),
+        {
+          status: 500,
+          headers: { "Content-Type": "application/json" },
+        }
+      );
+    }
+  }),
+});
+
+// POST /matches/samples - Store tick-resolution player samples
+// Sent by the beacon's sampler at its own upload rate, separate from match_state updates.
+// Body: { server_tick, sample_interval_ticks, chunks: [{ match_id, player_id,
+//   ticks, x, y, z, health, held_item }, ...] } (parallel arrays per chunk)
+http.route({
+  path: "/matches/samples",
+  method: "POST",
+  handler: httpAction(async (ctx, request) => {
+    // Verify bearer token for server-to-server auth
+    if (!verifyBearerToken(request)) {
+      return unauthorizedResponse();
+    }
+
+    let body: any;
+    try {
+      body = await readTelemetryBody(request);
+    } catch (error) {
+      return invalidTelemetryBodyResponse(request);
+    }
+
+    const { sample_interval_ticks, chunks } = body;
+
+    if (typeof sample_interval_ticks !== "number" || !Array.isArray(chunks)) {
+      return new Response(
+        JSON.stringify({
+          error: "Missing sample_interval_ticks or chunks array in request body",
+        }),
+        {
+          status: 400,
+          headers: { "Content-Type": "application/json" },
+        }
+      );
+    }
+
+    for (const chunk of chunks) {
+      const length = Array.isArray(chunk?.ticks) ? chunk.ticks.length : -1;
+      const columns = [chunk?.x, chunk?.y, chunk?.z, chunk?.health, chunk?.held_item];
+      if (
+        !chunk?.match_id ||
+        !chunk?.player_id ||
+        length < 0 ||
+        columns.some((column) => !Array.isArray(column) || column.length !== length)
+      ) {
+        return new Response(
+          JSON.stringify({
+            error:
+              "Each chunk must provide match_id, player_id and equally long ticks, x, y, z, health and held_item arrays",
+          }),
+          {
+            status: 400,
+            headers: { "Content-Type": "application/json" },
+          }
+        );
+      }
+    }
+
+    try {
+      const result = await ctx.runMutation(api.matches.appendMatchSamples, {
+        sampleIntervalTicks: sample_interval_ticks,
+        chunks: chunks.map((chunk: any) => ({
+          matchId: String(chunk.match_id),
+          playerId: String(chunk.player_id),
+          ticks: chunk.ticks,
+          x: chunk.x,
+          y: chunk.y,
+          z: chunk.z,
+          health: chunk.health,
+          heldItem: chunk.held_item,
+        })),
+      });
+
+      return new Response(JSON.stringify(result), {
+        status: 200,
+        headers: { "Content-Type": "application/json" },
+      });
+    } catch (error) {
+      return new Response(
+        JSON.stringify({
+          error: `Failed to store match samples: ${error instanceof Error ? error.message : "Unknown error"}`,
+        }),
+        {
+          status: 500,
+          headers: { "Content-Type": "application/json" },
+        }
+      );
+    }
+  }),
+});
+
+// GET /telemetry/encodings - Telemetry body encodings this deployment accepts
+// The beacon uses the compact CBOR encoding only when it is advertised here
+http.route({
+  path: "/telemetry/encodings",
+  method: "GET",
+  handler: httpAction(async (_ctx, request) => {
+    // Verify bearer token for server-to-server auth
+    if (!verifyBearerToken(request)) {
+      return unauthorizedResponse();
+    }
+
+    return new Response(
+      JSON.stringify({ encodings: SUPPORTED_TELEMETRY_ENCODINGS }),
+      {
+        status: 200,
+        headers: { "Content-Type": "application/json" },
+      }
+    );
+  }),
+});
+
 // GET /matches/{_id}/readiness - Check if match is ready (all tokens used)
 http.route({
   path: "/matches/readiness",
@@ -1,4 +1,9 @@
-import { query, mutation, internalMutation } from "./_generated/server";
+import {
+  query,
+  mutation,
+  internalMutation,
+  MutationCtx,
+} from "./_generated/server";
 import { v } from "convex/values";
 import { Id, Doc } from "./_generated/dataModel";
 import { v4 as uuidv4 } from "uuid";
@@ -179,13 +184,117 @@ export const updateMatchState = mutation({
   },
 });
 
+// Merge a telemetry delta from the beacon into the stored match_state.
+// Deltas carry only changed fields, keyed by player:
+//   { delta: true, timestamp, players: { [playerId]: { health, position: { x } } }, removedPlayers: [playerId] }
+// Nested objects (position, equipment) are merged one level deep.
+// Returns null when there is no keyframe to apply the delta to.
+export function applyMatchStateDelta(current: any, delta: any): any | null {
+  if (!current || !Array.isArray(current.players)) {
+    return null;
+  }
+
+  const isObject = (value: any) =>
+    value !== null && typeof value === "object" && !Array.isArray(value);
+  const { players: changedPlayers, removedPlayers, delta: _delta, ...fields } =
+    delta ?? {};
+  const removed = new Set<string>(
+    Array.isArray(removedPlayers) ? removedPlayers : []
+  );
+
+  const players = current.players
+    .filter((player: any) => !removed.has(player?.playerId))
+    .map((player: any) => ({ ...player }));
+
+  for (const [playerId, changes] of Object.entries<any>(changedPlayers ?? {})) {
+    let player = players.find((p: any) => p?.playerId === playerId);
+    if (!player) {
+      player = { playerId };
+      players.push(player);
+    }
+    for (const [key, value] of Object.entries<any>(changes ?? {})) {
+      const existing = player[key];
+      player[key] =
+        isObject(existing) && isObject(value)
+          ? { ...existing, ...value }
+          : value;
+    }
+  }
+
+  return { ...current, ...fields, players };
+}
+
+const EVENT_COLUMNS = [
+  "type",
+  "timestamp",
+  "actor",
+  "target",
+  "amount",
+  "item",
+  "detail",
+  "x",
+  "y",
+  "z",
+] as const;
+
+// Store a run of combat events from the beacon's per-match event log
+// Events arrive as parallel arrays starting at first_seq. The beacon resends a
+// run until it is acknowledged, so events at or below the last stored sequence
+// number are skipped.
+async function appendMatchEvents(
+  ctx: MutationCtx,
+  matchId: Id<"matches">,
+  events: any
+) {
+  const count = Array.isArray(events?.type) ? events.type.length : 0;
+  if (count === 0 || typeof events.first_seq !== "number") {
+    return;
+  }
+
+  const last = await ctx.db
+    .query("match_events")
+    .withIndex("by_match_seq", (q) => q.eq("match_id", matchId))
+    .order("desc")
+    .first();
+  const skip = last ? Math.max(0, last.last_seq - events.first_seq + 1) : 0;
+  if (skip >= count) {
+    return;
+  }
+
+  const columns: Record<string, any[]> = {};
+  for (const name of EVENT_COLUMNS) {
+    if (!Array.isArray(events[name]) || events[name].length !== count) {
+      throw new Error(`Invalid events: ${name} must have ${count} entries`);
+    }
+    columns[name] = events[name].slice(skip);
+  }
+
+  await ctx.db.insert("match_events", {
+    match_id: matchId,
+    first_seq: events.first_seq + skip,
+    last_seq: events.first_seq + count - 1,
+    type: columns.type,
+    timestamp: columns.timestamp,
+    actor: columns.actor,
+    target: columns.target,
+    amount: columns.amount,
+    item: columns.item,
+    detail: columns.detail,
+    x: columns.x,
+    y: columns.y,
+    z: columns.z,
+  });
+}
+
 // Update match status, state, and/or winner
 export const updateMatch = mutation({
   args: {
     matchId: v.id("matches"),
     matchStatus: v.optional(v.string()),
     matchState: v.optional(v.any()),
+    matchStateDelta: v.optional(v.any()), // Changed fields only, merged into the stored match_state
     winnerPlayerId: v.optional(v.string()), // Minecraft UUID of the winning player
+    events: v.optional(v.any()), // Combat events from the beacon, see appendMatchEvents
   },
   handler: async (ctx, args) => {
     const match = await ctx.db.get(args.matchId);
@@ -193,6 +302,10 @@ export const updateMatch = mutation({
       throw new Error("Match not found");
     }
 
+    if (args.events !== undefined) {
+      await appendMatchEvents(ctx, args.matchId, args.events);
+    }
+
     const updates: {
       match_status?: string;
       match_state?: any;
@@ -210,6 +323,15 @@ export const updateMatch = mutation({
 
     if (args.matchState !== undefined) {
       updates.match_state = args.matchState;
+    } else if (args.matchStateDelta !== undefined) {
+      const merged = applyMatchStateDelta(
+        match.match_state,
+        args.matchStateDelta
+      );
+      if (merged === null) {
+        throw new Error("Keyframe required: match has no state to apply delta to");
+      }
+      updates.match_state = merged;
     }
 
     // If winner player ID is provided, look up their team
@@ -250,6 +372,120 @@ export const updateMatch = mutation({
   },
 });
 
+// Update match_state for many matches in one transaction
+// Used by the Minecraft beacon's batched telemetry upload. Each entry carries
+// either a full matchState (keyframe) or a matchStateDelta. Invalid or unknown
+// match IDs are reported per entry instead of failing the whole batch.
+export const updateMatchStates = mutation({
+  args: {
+    updates: v.array(
+      v.object({
+        matchId: v.string(),
+        matchState: v.optional(v.any()),
+        matchStateDelta: v.optional(v.any()),
+        events: v.optional(v.any()),
+      })
+    ),
+  },
+  handler: async (ctx, args) => {
+    const results: { match_id: string; success: boolean; error?: string }[] =
+      [];
+
+    for (const update of args.updates) {
+      const matchId = ctx.db.normalizeId("matches", update.matchId);
+      const match = matchId ? await ctx.db.get(matchId) : null;
+      if (!matchId || !match) {
+        results.push({
+          match_id: update.matchId,
+          success: false,
+          error: "Match not found",
+        });
+        continue;
+      }
+
+      // Events are stored even if the state can't be applied; a resent run is deduplicated
+      if (update.events !== undefined) {
+        await appendMatchEvents(ctx, matchId, update.events);
+      }
+
+      let matchState = update.matchState;
+      if (matchState === undefined) {
+        matchState = applyMatchStateDelta(
+          match.match_state,
+          update.matchStateDelta
+        );
+        if (matchState === null) {
+          results.push({
+            match_id: update.matchId,
+            success: false,
+            error: "Keyframe required",
+          });
+          continue;
+        }
+      }
+
+      await ctx.db.patch(matchId, {
+        match_state: matchState,
+      });
+      results.push({ match_id: update.matchId, success: true });
+    }
+
+    return { results };
+  },
+});
+
+// Store tick-resolution player sample chunks from the beacon's sampler
+// Chunks for unknown match IDs are reported per entry; the rest are stored
+export const appendMatchSamples = mutation({
+  args: {
+    sampleIntervalTicks: v.number(),
+    chunks: v.array(
+      v.object({
+        matchId: v.string(),
+        playerId: v.string(),
+        ticks: v.array(v.number()),
+        x: v.array(v.number()),
+        y: v.array(v.number()),
+        z: v.array(v.number()),
+        health: v.array(v.number()),
+        heldItem: v.array(v.string()),
+      })
+    ),
+  },
+  handler: async (ctx, args) => {
+    let stored = 0;
+    const rejected: { match_id: string; error: string }[] = [];
+
+    for (const chunk of args.chunks) {
+      const matchId = ctx.db.normalizeId("matches", chunk.matchId);
+      if (!matchId || !(await ctx.db.get(matchId))) {
+        rejected.push({ match_id: chunk.matchId, error: "Match not found" });
+        continue;
+      }
+      if (chunk.ticks.length === 0) {
+        continue;
+      }
+
+      await ctx.db.insert("match_samples", {
+        match_id: matchId,
+        player_id: chunk.playerId,
+        sample_interval_ticks: args.sampleIntervalTicks,
+        first_tick: chunk.ticks[0],
+        last_tick: chunk.ticks[chunk.ticks.length - 1],
+        ticks: chunk.ticks,
+        x: chunk.x,
+        y: chunk.y,
+        z: chunk.z,
+        health: chunk.health,
+        held_item: chunk.heldItem,
+      });
+      stored++;
+    }
+
+    return { stored, rejected };
+  },
+});
+
 // List matches by status
 export const listMatchesByStatus = query({
   args: {
@@ -280,6 +516,65 @@ export const listMatchesByStatus = query({
   },
 });
 
+// Statuses the Minecraft beacon acts on (acknowledge, start when ready, start if not running)
+const DISPATCH_STATUSES = ["Queuing", "Waiting", "Playing"];
+
+// Matches the beacon acts on, plus a cursor that changes whenever one of them changes
+// status or a token of a Waiting match is used. Backs GET /matches/dispatch (long-poll)
+// and GET /matches/actionable (cursor used as ETag).
+export const getDispatchState = query({
+  args: {},
+  handler: async (ctx) => {
+    const matches = [];
+    const fingerprint: string[] = [];
+
+    for (const status of DISPATCH_STATUSES) {
+      const docs = await ctx.db
+        .query("matches")
+        .withIndex("by_match_status", (q) => q.eq("match_status", status))
+        .collect();
+
+      for (const match of docs) {
+        let usedTokens = 0;
+        if (status === "Waiting") {
+          const tokens = await ctx.db
+            .query("game_tokens")
+            .withIndex("by_match_id", (q) => q.eq("match_id", match._id))
+            .collect();
+          usedTokens = tokens.filter(
+            (token) => token.user_id !== undefined && token.user_id !== null
+          ).length;
+        }
+        fingerprint.push(`${match._id}:${status}:${usedTokens}`);
+
+        // match_state is left out - the beacon doesn't need it to dispatch
+        matches.push({
+          match_id: match._id,
+          match_type: match.match_type,
+          match_status: match.match_status,
+          match_elo: match.match_elo,
+          blue_team_id: match.blue_team_id,
+          red_team_id: match.red_team_id,
+          mode: match.mode,
+          expires_at: match.expires_at,
+        });
+      }
+    }
+
+    return { cursor: hashCursor(fingerprint.join("|")), matches };
+  },
+});
+
+// FNV-1a hash of the dispatch fingerprint, so the cursor stays short
+function hashCursor(value: string): string {
+  let hash = 0x811c9dc5;
+  for (let i = 0; i < value.length; i++) {
+    hash ^= value.charCodeAt(i);
+    hash = Math.imul(hash, 0x01000193);
+  }
+  return (hash >>> 0).toString(16);
+}
+
 /**
  * Atomically acknowledge a match and generate tokens
  * Called by Minecraft server when it acknowledges a queued match
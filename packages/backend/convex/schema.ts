@@ -41,6 +41,40 @@ export default defineSchema({
     match_state: v.optional(v.any()),
   }).index("by_match_status", ["match_status"]),
 
+  // Tick-resolution player samples uploaded by the beacon, one chunk per row
+  // Columns are parallel arrays; ticks are server ticks counted by the beacon
+  match_samples: defineTable({
+    match_id: v.id("matches"),
+    player_id: v.string(),
+    sample_interval_ticks: v.number(),
+    first_tick: v.number(),
+    last_tick: v.number(),
+    ticks: v.array(v.number()),
+    x: v.array(v.number()),
+    y: v.array(v.number()),
+    z: v.array(v.number()),
+    health: v.array(v.number()),
+    held_item: v.array(v.string()),
+  }).index("by_match_player_tick", ["match_id", "player_id", "first_tick"]),
+
+  // Combat events (hits, damage, projectiles, block placements, consumption) from the beacon's
+  // per-match event log, one run of consecutive sequence numbers per row (parallel arrays)
+  match_events: defineTable({
+    match_id: v.id("matches"),
+    first_seq: v.number(),
+    last_seq: v.number(),
+    type: v.array(v.string()),
+    timestamp: v.array(v.number()),
+    actor: v.array(v.string()),
+    target: v.array(v.string()), // "" when the event has no target
+    amount: v.array(v.number()),
+    item: v.array(v.string()),
+    detail: v.array(v.string()),
+    x: v.array(v.number()),
+    y: v.array(v.number()),
+    z: v.array(v.number()),
+  }).index("by_match_seq", ["match_id", "first_seq"]),
+
   // Game tokens table
   game_tokens: defineTable({
     token: v.string(),
@@ -0,0 +1,216 @@
+/**
+ * Decoder for the compact telemetry encoding sent by the Minecraft beacon
+ * (Content-Type: application/cbor). See CompactTelemetryCodec.java.
+ *
+ * - well-known keys are sent as integer indexes into TELEMETRY_KEYS
+ * - repeated strings use the CBOR stringref extension (tag 256 namespace, tag 25 reference)
+ * - doubles are quantized to 0.01 by the beacon and rounded back here
+ */
+
+export const CBOR_CONTENT_TYPE = "application/cbor";
+
+// Encodings the beacon may use for telemetry uploads, advertised via GET /telemetry/encodings
+export const SUPPORTED_TELEMETRY_ENCODINGS = ["cbor", "json"];
+
+// Key table shared with the beacon encoder - only append, never reorder
+const TELEMETRY_KEYS = [
+  "timestamp",
+  "matchId",
+  "players",
+  "playerId",
+  "ign",
+  "health",
+  "maxHealth",
+  "foodLevel",
+  "position",
+  "x",
+  "y",
+  "z",
+  "world",
+  "equipment",
+  "mainHand",
+  "helmet",
+  "chestplate",
+  "leggings",
+  "boots",
+  "kills",
+  "deaths",
+  "nearbyPlayers",
+  "delta",
+  "removedPlayers",
+  "match_id",
+  "match_state",
+  "match_state_delta",
+  "updates",
+  "winner",
+  "matchEnded",
+  "finalState",
+  "damageDealt",
+  "damageTaken",
+  "hitsLanded",
+  "distanceTravelled",
+  "timeAlive",
+];
+
+const QUANTUM = 100;
+
+// Minimum string length worth adding to the stringref table, per the stringref spec
+function minRefLength(tableSize: number): number {
+  if (tableSize < 24) return 3;
+  if (tableSize < 256) return 4;
+  if (tableSize < 65536) return 5;
+  return 7;
+}
+
+export function decodeCompactTelemetry(bytes: Uint8Array): any {
+  const view = new DataView(bytes.buffer, bytes.byteOffset, bytes.byteLength);
+  const textDecoder = new TextDecoder();
+  let offset = 0;
+  let stringRefs: string[] = [];
+
+  const readUint = (additional: number): number => {
+    if (additional < 24) return additional;
+    let value: number;
+    switch (additional) {
+      case 24:
+        value = view.getUint8(offset);
+        offset += 1;
+        return value;
+      case 25:
+        value = view.getUint16(offset);
+        offset += 2;
+        return value;
+      case 26:
+        value = view.getUint32(offset);
+        offset += 4;
+        return value;
+      case 27:
+        value = Number(view.getBigUint64(offset));
+        offset += 8;
+        return value;
+      default:
+        throw new Error(`Unsupported CBOR length encoding: ${additional}`);
+    }
+  };
+
+  const readString = (length: number): string => {
+    const value = textDecoder.decode(bytes.subarray(offset, offset + length));
+    offset += length;
+    if (length >= minRefLength(stringRefs.length)) {
+      stringRefs.push(value);
+    }
+    return value;
+  };
+
+  const readKey = (): string => {
+    const key = readValue();
+    if (typeof key === "number") {
+      const name = TELEMETRY_KEYS[key];
+      if (name === undefined) {
+        throw new Error(`Unknown telemetry key index: ${key}`);
+      }
+      return name;
+    }
+    return String(key);
+  };
+
+  const readValue = (): any => {
+    const initial = view.getUint8(offset++);
+    const major = initial >> 5;
+    const additional = initial & 0x1f;
+
+    switch (major) {
+      case 0:
+        return readUint(additional);
+      case 1:
+        return -1 - readUint(additional);
+      case 2: {
+        const length = readUint(additional);
+        const value = bytes.slice(offset, offset + length);
+        offset += length;
+        return value;
+      }
+      case 3:
+        return readString(readUint(additional));
+      case 4: {
+        const length = readUint(additional);
+        const array = [];
+        for (let i = 0; i < length; i++) {
+          array.push(readValue());
+        }
+        return array;
+      }
+      case 5: {
+        const length = readUint(additional);
+        const object: Record<string, any> = {};
+        for (let i = 0; i < length; i++) {
+          const key = readKey();
+          object[key] = readValue();
+        }
+        return object;
+      }
+      case 6: {
+        const tag = readUint(additional);
+        if (tag === 25) {
+          const index = readValue();
+          if (stringRefs[index] === undefined) {
+            throw new Error(`Invalid stringref index: ${index}`);
+          }
+          return stringRefs[index];
+        }
+        if (tag === 256) {
+          const outer = stringRefs;
+          stringRefs = [];
+          const value = readValue();
+          stringRefs = outer;
+          return value;
+        }
+        return readValue(); // Unknown tags are ignored
+      }
+      case 7: {
+        let value: number;
+        switch (additional) {
+          case 20:
+            return false;
+          case 21:
+            return true;
+          case 22:
+          case 23:
+            return null;
+          case 26:
+            value = view.getFloat32(offset);
+            offset += 4;
+            break;
+          case 27:
+            value = view.getFloat64(offset);
+            offset += 8;
+            break;
+          default:
+            throw new Error(`Unsupported CBOR simple value: ${additional}`);
+        }
+        return Number.isFinite(value)
+          ? Math.round(value * QUANTUM) / QUANTUM
+          : value;
+      }
+      default:
+        throw new Error(`Invalid CBOR major type: ${major}`);
+    }
+  };
+
+  const value = readValue();
+  if (offset !== bytes.byteLength) {
+    throw new Error("Trailing bytes after CBOR value");
+  }
+  return value;
+}
+
+/**
+ * Read a telemetry request body that is either JSON or compact CBOR
+ */
+export async function readTelemetryBody(request: Request): Promise<any> {
+  const contentType = request.headers.get("Content-Type") ?? "";
+  if (contentType.startsWith(CBOR_CONTENT_TYPE)) {
+    return decodeCompactTelemetry(new Uint8Array(await request.arrayBuffer()));
+  }
+  return await request.json();
+}